@@ -0,0 +1,68 @@
+package ras;
+
+import io.reactivex.rxjava3.schedulers.Schedulers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BatchCommitBenchmark {
+
+    // Scores are batches per microsecond; multiply by 2 * batchSize for commands per microsecond.
+    @Param({"1", "10", "100", "1000"})
+    public int batchSize;
+
+    private SimpleResourceAcquisitionService<String> service;
+    private List<ResourceAcquisitionRequest<String>> batch;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        service = new SimpleResourceAcquisitionService<>(
+                Schedulers.single(), TimeSpan.Default, ServiceImplementation.TICK, ServiceImplementation.NOOP_METER);
+        batch = new ArrayList<>(2 * batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            batch.add(new ResourceAcquisitionRequest<>(ResourceAcquisitionCommand.Lock, "User1", "Resource" + i));
+        }
+        for (int i = 0; i < batchSize; i++) {
+            batch.add(new ResourceAcquisitionRequest<>(ResourceAcquisitionCommand.Unlock, "User1", "Resource" + i));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        service.close();
+    }
+
+    @Benchmark
+    public List<ResourceAcquisitionResponse> commitAll() {
+        return service.commitAll(batch);
+    }
+
+    @Benchmark
+    public void sequentialCommit(final Blackhole blackhole) {
+        for (ResourceAcquisitionRequest<String> request : batch) {
+            blackhole.consume(service.commit(request.getCommand(), request.getUserName(), request.getResource()));
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package ras;
+
+import io.reactivex.rxjava3.core.Flowable;
+import io.reactivex.rxjava3.schedulers.Schedulers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CommandStreamBenchmark {
+
+    private static final int COMMANDS = 10_000;
+
+    // Scores are streams of 10,000 commands per millisecond.
+    @Param({"1", "16", "128", "1024"})
+    public int prefetch;
+
+    private SimpleResourceAcquisitionService<String> service;
+    private List<ResourceAcquisitionRequest<String>> requests;
+    private Flowable<ResourceAcquisitionResponse> stream;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        service = new SimpleResourceAcquisitionService<>(
+                Schedulers.single(), TimeSpan.Default, ServiceImplementation.TICK, ServiceImplementation.NOOP_METER);
+        requests = new ArrayList<>(COMMANDS);
+        for (int i = 0; i < COMMANDS / 2; i++) {
+            requests.add(new ResourceAcquisitionRequest<>(ResourceAcquisitionCommand.Lock, "User1", "Resource" + i));
+        }
+        for (int i = 0; i < COMMANDS / 2; i++) {
+            requests.add(new ResourceAcquisitionRequest<>(ResourceAcquisitionCommand.Unlock, "User1", "Resource" + i));
+        }
+        stream = Flowable.fromIterable(requests).compose(new ResourceAcquisitionTransformer<>(service, prefetch));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        service.close();
+    }
+
+    @Benchmark
+    public void transformer(final Blackhole blackhole) {
+        stream.subscribe(blackhole::consume);
+    }
+
+    @Benchmark
+    public void commitLoop(final Blackhole blackhole) {
+        for (ResourceAcquisitionRequest<String> request : requests) {
+            blackhole.consume(service.commit(request.getCommand(), request.getUserName(), request.getResource()));
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package ras;
+
+import io.reactivex.rxjava3.schedulers.TestScheduler;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 10, batchSize = 1)
+@Measurement(iterations = 20, batchSize = 1)
+@Fork(1)
+public class ExpiryStormBenchmark {
+
+    @Param({"Simple", "SimpleTimingWheel", "Concurrent"})
+    public ServiceImplementation implementation;
+
+    @Param({"1000", "10000", "100000"})
+    public int leases;
+
+    private TestScheduler scheduler;
+    private ResourceAcquisitionService<Integer> service;
+
+    @Setup(Level.Invocation)
+    public void lockAll() {
+        scheduler = new TestScheduler();
+        service = implementation.create(scheduler, TimeSpan.Default);
+        for (int i = 0; i < leases; i++) {
+            service.commit(ResourceAcquisitionCommand.Lock, "User", i);
+        }
+    }
+
+    @TearDown(Level.Invocation)
+    public void close() throws Exception {
+        ServiceImplementation.close(service);
+    }
+
+    @Benchmark
+    public ResourceAcquisitionResponse expireAll() {
+        scheduler.advanceTimeBy(TimeSpan.Default.getInterval(), TimeSpan.Default.getUnit());
+        return service.commit(ResourceAcquisitionCommand.Lock, "Other", 0);
+    }
+}
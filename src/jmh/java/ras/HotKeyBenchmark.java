@@ -0,0 +1,84 @@
+package ras;
+
+import io.reactivex.rxjava3.schedulers.Schedulers;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Lock/Unlock over Zipf-distributed keys with hot key tracking off and on, and the raw cost of one sketch update.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HotKeyBenchmark {
+
+    private static final int RESOURCES = 100_000;
+    private static final int SAMPLES = 1 << 16;
+
+    @Param({"0", "16", "256"})
+    public int trackedKeys;
+
+    private SimpleResourceAcquisitionService<String> service;
+    private HotKeySketch<String> sketch;
+    private String[] keys;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        service = new SimpleResourceAcquisitionService<>(
+                Schedulers.single(), TimeSpan.Default, ServiceImplementation.TICK, ServiceImplementation.NOOP_METER);
+        if (trackedKeys > 0) {
+            service.trackHotKeys(trackedKeys);
+            sketch = new HotKeySketch<>(trackedKeys);
+        } else {
+            sketch = new HotKeySketch<>(1);
+        }
+        final double[] distribution = new double[RESOURCES];
+        double total = 0;
+        for (int i = 0; i < RESOURCES; i++) {
+            total += 1.0 / Math.pow(i + 1, 1.1);
+            distribution[i] = total;
+        }
+        final Random random = new Random(42);
+        keys = new String[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            final int rank = Arrays.binarySearch(distribution, random.nextDouble() * total);
+            keys[i] = "Resource" + (rank < 0 ? -rank - 1 : rank);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        service.close();
+    }
+
+    @Benchmark
+    public ResourceAcquisitionResponse lockUnlock() {
+        final String key = keys[next++ & (SAMPLES - 1)];
+        service.commit(ResourceAcquisitionCommand.Lock, "User", key);
+        return service.commit(ResourceAcquisitionCommand.Unlock, "User", key);
+    }
+
+    @Benchmark
+    public HotKeySketch<String> sketchAdd() {
+        sketch.add(keys[next++ & (SAMPLES - 1)], 1);
+        return sketch;
+    }
+}
@@ -0,0 +1,87 @@
+package ras;
+
+import io.reactivex.rxjava3.schedulers.Schedulers;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Every journaled commit waits for its fsync; concurrentLockUnlock shows how many commits one fsync covers.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JournalBenchmark {
+
+    @State(Scope.Thread)
+    public static class ThreadKey {
+
+        private static final AtomicInteger NEXT = new AtomicInteger();
+
+        private final String resource = "Resource" + NEXT.incrementAndGet();
+    }
+
+    @Param({"InMemory", "Journaled"})
+    public String persistence;
+
+    private Path directory;
+    private SimpleResourceAcquisitionService<String> service;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("ras-journal");
+        if (persistence.equals("Journaled")) {
+            ResourceAcquisitionJournal<String> journal = new ResourceAcquisitionJournal<>(directory.resolve("locks.journal"), ResourceKeyCodec.utf8());
+            service = new SimpleResourceAcquisitionService<>(Schedulers.single(), TimeSpan.Default, ServiceImplementation.NOOP_METER, journal);
+        } else {
+            service = new SimpleResourceAcquisitionService<>(Schedulers.single(), TimeSpan.Default, ServiceImplementation.NOOP_METER);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        service.close();
+        try (var files = Files.list(directory)) {
+            for (Path file : files.toList()) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    @Benchmark
+    public ResourceAcquisitionResponse lockUnlock() {
+        service.commit(ResourceAcquisitionCommand.Lock, "User1", "Resource");
+        return service.commit(ResourceAcquisitionCommand.Unlock, "User1", "Resource");
+    }
+
+    @Benchmark
+    public ResourceAcquisitionResponse renewal() {
+        return service.commit(ResourceAcquisitionCommand.Lock, "User1", "Resource");
+    }
+
+    @Benchmark
+    @Threads(4)
+    public ResourceAcquisitionResponse concurrentLockUnlock(final ThreadKey key) {
+        service.commit(ResourceAcquisitionCommand.Lock, "User1", key.resource);
+        return service.commit(ResourceAcquisitionCommand.Unlock, "User1", key.resource);
+    }
+}
@@ -0,0 +1,97 @@
+package ras;
+
+import io.reactivex.rxjava3.schedulers.TestScheduler;
+
+import java.time.Clock;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LeaseRenewalBenchmark {
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class SchedulerOperations {
+
+        public long scheduled;
+        public long cancelled;
+
+        TestScheduler testScheduler;
+        SimpleResourceAcquisitionService<String> service;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            testScheduler = new TestScheduler();
+            service = new SimpleResourceAcquisitionService<>(
+                    new CountingAutoUnlockScheduler(testScheduler, this),
+                    TimeSpan.Default,
+                    Clock.systemUTC(),
+                    ResourceAcquisitionMetrics.createDefault());
+        }
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            scheduled = 0;
+            cancelled = 0;
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            service.close();
+        }
+    }
+
+    private static final class CountingAutoUnlockScheduler implements SimpleResourceAcquisitionService.AutoUnlockScheduler {
+
+        private final SimpleResourceAcquisitionService.RxAutoUnlockScheduler delegate;
+        private final SchedulerOperations operations;
+
+        CountingAutoUnlockScheduler(final TestScheduler scheduler, final SchedulerOperations operations) {
+            this.delegate = new SimpleResourceAcquisitionService.RxAutoUnlockScheduler(scheduler);
+            this.operations = operations;
+        }
+
+        @Override
+        public SimpleResourceAcquisitionService.Cancellable schedule(final Runnable command, final TimeSpan delay) {
+            operations.scheduled++;
+            final SimpleResourceAcquisitionService.Cancellable cancellable = delegate.schedule(command, delay);
+            return () -> {
+                operations.cancelled++;
+                cancellable.cancel();
+            };
+        }
+
+        @Override
+        public long now(final TimeUnit unit) {
+            return delegate.now(unit);
+        }
+
+        @Override
+        public void close() {
+            delegate.close();
+        }
+    }
+
+    @Benchmark
+    public ResourceAcquisitionResponse heartbeatEverySecond(final SchedulerOperations state) {
+        state.testScheduler.advanceTimeBy(1, TimeUnit.SECONDS);
+        return state.service.commit(ResourceAcquisitionCommand.Lock, "User", "Resource");
+    }
+}
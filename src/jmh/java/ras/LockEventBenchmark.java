@@ -0,0 +1,62 @@
+package ras;
+
+import io.reactivex.rxjava3.core.BackpressureOverflowStrategy;
+import io.reactivex.rxjava3.disposables.CompositeDisposable;
+import io.reactivex.rxjava3.schedulers.Schedulers;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LockEventBenchmark {
+
+    private static final String RESOURCE = "Resource";
+
+    @Param({"0", "1", "4"})
+    public int subscribers;
+
+    private SimpleResourceAcquisitionService<String> service;
+    private final CompositeDisposable subscriptions = new CompositeDisposable();
+
+    @Setup(Level.Trial)
+    public void setUp(final Blackhole blackhole) {
+        service = new SimpleResourceAcquisitionService<>(
+                Schedulers.single(), TimeSpan.Default, ServiceImplementation.TICK, ServiceImplementation.NOOP_METER);
+        for (int i = 0; i < subscribers; i++) {
+            subscriptions.add(service.lockEvents(Schedulers.computation(), 1 << 14, BackpressureOverflowStrategy.DROP_OLDEST)
+                    .subscribe(blackhole::consume));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        subscriptions.dispose();
+        service.close();
+    }
+
+    // Each invocation publishes an Acquired and an Unlocked event to every subscriber.
+    @Benchmark
+    public void lockUnlock(final Blackhole blackhole) {
+        blackhole.consume(service.commit(ResourceAcquisitionCommand.Lock, "User1", RESOURCE));
+        blackhole.consume(service.commit(ResourceAcquisitionCommand.Unlock, "User1", RESOURCE));
+    }
+}
@@ -0,0 +1,52 @@
+package ras;
+
+import io.reactivex.rxjava3.schedulers.Schedulers;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+@BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LockHandOffBenchmark {
+
+    private static final String RESOURCE = "Resource";
+    private static final TimeSpan WAIT_TIMEOUT = new TimeSpan(1, TimeUnit.SECONDS);
+
+    private SimpleResourceAcquisitionService<String> service;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        service = new SimpleResourceAcquisitionService<>(
+                Schedulers.single(), TimeSpan.Default, ServiceImplementation.TICK, ServiceImplementation.NOOP_METER);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        service.close();
+    }
+
+    @Benchmark
+    public void unlockHandsOffToWaiter(final Blackhole blackhole) {
+        service.commit(ResourceAcquisitionCommand.Lock, "Holder", RESOURCE);
+        service.lockAsync("Waiter", RESOURCE, WAIT_TIMEOUT).subscribe(blackhole::consume);
+        service.commit(ResourceAcquisitionCommand.Unlock, "Holder", RESOURCE);
+        service.commit(ResourceAcquisitionCommand.Unlock, "Waiter", RESOURCE);
+    }
+}
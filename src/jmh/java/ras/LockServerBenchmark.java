@@ -0,0 +1,69 @@
+package ras;
+
+import io.reactivex.rxjava3.schedulers.Schedulers;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LockServerBenchmark {
+
+    // Each invocation is one round trip over loopback carrying 2 * pipelineDepth commands.
+    @Param({"1", "16", "256"})
+    public int pipelineDepth;
+
+    private SimpleResourceAcquisitionService<String> service;
+    private ResourceAcquisitionServer<String> server;
+    private ResourceAcquisitionClient<String> client;
+    private List<ResourceAcquisitionRequest<String>> batch;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        service = new SimpleResourceAcquisitionService<>(
+                Schedulers.single(), TimeSpan.Default, ServiceImplementation.TICK, ServiceImplementation.NOOP_METER);
+        server = new ResourceAcquisitionServer<>(service, ResourceKeyCodec.utf8(), new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        client = new ResourceAcquisitionClient<>(server.getLocalAddress(), ResourceKeyCodec.utf8());
+        batch = new ArrayList<>(2 * pipelineDepth);
+        for (int i = 0; i < pipelineDepth; i++) {
+            batch.add(new ResourceAcquisitionRequest<>(ResourceAcquisitionCommand.Lock, "User1", "Resource" + i));
+        }
+        for (int i = 0; i < pipelineDepth; i++) {
+            batch.add(new ResourceAcquisitionRequest<>(ResourceAcquisitionCommand.Unlock, "User1", "Resource" + i));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        client.close();
+        server.close();
+        service.close();
+    }
+
+    @Benchmark
+    public List<ResourceAcquisitionResponse> roundTrip() {
+        return client.commitAll(batch);
+    }
+}
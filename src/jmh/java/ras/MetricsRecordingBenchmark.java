@@ -0,0 +1,87 @@
+package ras;
+
+import io.opentelemetry.sdk.metrics.SdkMeterProvider;
+import io.opentelemetry.sdk.testing.exporter.InMemoryMetricReader;
+import io.reactivex.rxjava3.schedulers.Schedulers;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Lock/Unlock on the concurrent service with a real SDK meter, recording synchronously or into striped cells. Each
+// thread locks its own keys, so the metrics are the only state the threads share.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MetricsRecordingBenchmark {
+
+    private static final int KEYS_PER_THREAD = 1 << 10;
+
+    @State(Scope.Benchmark)
+    public static class ServiceState {
+
+        @Param({"false", "true"})
+        public boolean striped;
+
+        SdkMeterProvider meterProvider;
+        ConcurrentResourceAcquisitionService<String> service;
+        final AtomicInteger threads = new AtomicInteger();
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            meterProvider = SdkMeterProvider.builder().registerMetricReader(InMemoryMetricReader.create()).build();
+            final ResourceAcquisitionMetrics metrics = striped
+                    ? ResourceAcquisitionMetrics.striped(meterProvider.get(ResourceAcquisitionMetrics.METER_NAME))
+                    : new ResourceAcquisitionMetrics(meterProvider.get(ResourceAcquisitionMetrics.METER_NAME));
+            service = new ConcurrentResourceAcquisitionService<>(Schedulers.single(), TimeSpan.Default, metrics);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            service.close();
+            meterProvider.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ClientState {
+
+        String userName;
+        String[] resources;
+        int next;
+
+        @Setup(Level.Trial)
+        public void setUp(final ServiceState state) {
+            final int thread = state.threads.incrementAndGet();
+            userName = "User" + thread;
+            resources = new String[KEYS_PER_THREAD];
+            for (int i = 0; i < KEYS_PER_THREAD; i++) {
+                resources[i] = "Thread" + thread + "-Resource" + i;
+            }
+        }
+    }
+
+    @Benchmark
+    @Threads(4)
+    public ResourceAcquisitionResponse lockUnlock(final ServiceState state, final ClientState client) {
+        final String resource = client.resources[client.next++ & (KEYS_PER_THREAD - 1)];
+        state.service.commit(ResourceAcquisitionCommand.Lock, client.userName, resource);
+        return state.service.commit(ResourceAcquisitionCommand.Unlock, client.userName, resource);
+    }
+}
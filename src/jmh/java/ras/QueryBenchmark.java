@@ -0,0 +1,103 @@
+package ras;
+
+import io.reactivex.rxjava3.schedulers.Schedulers;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+// Readers run next to writers that lock and unlock as fast as they can. The "probe" group reads through commit, which
+// is the only way to ask without the query API.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Group)
+public class QueryBenchmark {
+
+    private static final int KEYS = 1 << 12;
+    private static final String[] RESOURCES = new String[KEYS];
+    private static final String[] USERS = {"User0", "User1", "User2", "User3"};
+
+    static {
+        for (int i = 0; i < KEYS; i++) {
+            RESOURCES[i] = "Resource" + i;
+        }
+    }
+
+    private SimpleResourceAcquisitionService<String> service;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        service = new SimpleResourceAcquisitionService<>(
+                Schedulers.single(), TimeSpan.Default, ServiceImplementation.TICK, ServiceImplementation.NOOP_METER);
+        for (int i = 0; i < KEYS; i += 2) {
+            service.commit(ResourceAcquisitionCommand.Lock, USERS[(i >> 1) & 3], RESOURCES[i]);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        service.close();
+    }
+
+    private void write(final Blackhole blackhole) {
+        final String resource = RESOURCES[ThreadLocalRandom.current().nextInt(KEYS)];
+        blackhole.consume(service.commit(ResourceAcquisitionCommand.Lock, "Writer", resource));
+        blackhole.consume(service.commit(ResourceAcquisitionCommand.Unlock, "Writer", resource));
+    }
+
+    @Benchmark
+    @Group("query")
+    @GroupThreads(2)
+    public void queryWriter(final Blackhole blackhole) {
+        write(blackhole);
+    }
+
+    @Benchmark
+    @Group("query")
+    @GroupThreads(2)
+    public void queryReader(final Blackhole blackhole) {
+        final String resource = RESOURCES[ThreadLocalRandom.current().nextInt(KEYS)];
+        blackhole.consume(service.isLocked(resource));
+        blackhole.consume(service.holderOf(resource));
+    }
+
+    @Benchmark
+    @Group("query")
+    @GroupThreads(1)
+    public void queryOwnerReader(final Blackhole blackhole) {
+        blackhole.consume(service.locksHeldBy(USERS[ThreadLocalRandom.current().nextInt(USERS.length)]));
+    }
+
+    @Benchmark
+    @Group("probe")
+    @GroupThreads(2)
+    public void probeWriter(final Blackhole blackhole) {
+        write(blackhole);
+    }
+
+    @Benchmark
+    @Group("probe")
+    @GroupThreads(2)
+    public void probeReader(final Blackhole blackhole) {
+        final String resource = RESOURCES[ThreadLocalRandom.current().nextInt(KEYS)];
+        blackhole.consume(service.commit(ResourceAcquisitionCommand.Unlock, "Reader", resource));
+    }
+}
@@ -0,0 +1,70 @@
+package ras;
+
+import io.reactivex.rxjava3.schedulers.Schedulers;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ReplicationBenchmark {
+
+    @Param({"None", "Standby"})
+    public String replication;
+
+    private SimpleResourceAcquisitionService<String> service;
+    private ResourceAcquisitionStandby<String> standby;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        service = new SimpleResourceAcquisitionService<>(Schedulers.single(), TimeSpan.Default, ServiceImplementation.NOOP_METER);
+        if (replication.equals("Standby")) {
+            try (ServerSocketChannel server = ServerSocketChannel.open().bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0))) {
+                standby = new ResourceAcquisitionStandby<>(SocketChannel.open(server.getLocalAddress()), ResourceKeyCodec.utf8());
+                service.replicateTo(server.accept(), ResourceKeyCodec.utf8());
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        service.close();
+        if (standby != null) {
+            standby.close();
+        }
+    }
+
+    @Benchmark
+    public ResourceAcquisitionResponse lockUnlock() {
+        service.commit(ResourceAcquisitionCommand.Lock, "User1", "Resource");
+        return service.commit(ResourceAcquisitionCommand.Unlock, "User1", "Resource");
+    }
+
+    // One commit followed by a wait for the standby's acknowledgement, the cost of a failover-safe lock.
+    @Benchmark
+    public boolean lockAndAwaitReplication() {
+        service.commit(ResourceAcquisitionCommand.Lock, "User1", "Resource");
+        return service.awaitReplication(TimeSpan.Default);
+    }
+}
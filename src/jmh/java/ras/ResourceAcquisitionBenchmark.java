@@ -0,0 +1,130 @@
+package ras;
+
+import io.reactivex.rxjava3.schedulers.Schedulers;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResourceAcquisitionBenchmark {
+
+    private static final String HOT_RESOURCE = "Hot";
+    private static final int ZIPF_SAMPLES = 1 << 14;
+
+    @State(Scope.Benchmark)
+    public static class ServiceState {
+
+        @Param({"Simple", "SimpleTimingWheel", "Concurrent", "Sharded", "RingBuffer"})
+        public ServiceImplementation implementation;
+
+        @Param({"10000"})
+        public int zipfResources;
+
+        @Param({"1.1"})
+        public double zipfExponent;
+
+        ResourceAcquisitionService<String> service;
+        String[] resources;
+        double[] zipfDistribution;
+        final AtomicInteger threads = new AtomicInteger();
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            service = implementation.create(Schedulers.single(), TimeSpan.Default);
+            service.commit(ResourceAcquisitionCommand.Lock, "Owner", HOT_RESOURCE);
+
+            resources = new String[zipfResources];
+            zipfDistribution = new double[zipfResources];
+            double total = 0;
+            for (int i = 0; i < zipfResources; i++) {
+                resources[i] = "Resource" + i;
+                total += 1.0 / Math.pow(i + 1, zipfExponent);
+                zipfDistribution[i] = total;
+            }
+            for (int i = 0; i < zipfResources; i++) {
+                zipfDistribution[i] /= total;
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws Exception {
+            ServiceImplementation.close(service);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ClientState {
+
+        String userName;
+        String resource;
+        String[] zipfResources;
+        int next;
+
+        @Setup(Level.Trial)
+        public void setUp(final ServiceState state) {
+            final int thread = state.threads.incrementAndGet();
+            userName = "User" + thread;
+            resource = "Private" + thread;
+
+            final Random random = new Random(thread);
+            zipfResources = new String[ZIPF_SAMPLES];
+            for (int i = 0; i < ZIPF_SAMPLES; i++) {
+                int index = Arrays.binarySearch(state.zipfDistribution, random.nextDouble());
+                zipfResources[i] = state.resources[index < 0 ? -index - 1 : index];
+            }
+        }
+
+        String nextZipfResource() {
+            return zipfResources[next++ & (ZIPF_SAMPLES - 1)];
+        }
+    }
+
+    @Benchmark
+    public ResourceAcquisitionResponse uncontendedLockUnlock(final ServiceState state, final ClientState client) {
+        state.service.commit(ResourceAcquisitionCommand.Lock, client.userName, client.resource);
+        return state.service.commit(ResourceAcquisitionCommand.Unlock, client.userName, client.resource);
+    }
+
+    @Benchmark
+    public ResourceAcquisitionResponse sameOwnerRenewal(final ServiceState state, final ClientState client) {
+        return state.service.commit(ResourceAcquisitionCommand.Lock, client.userName, client.resource);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public ResourceAcquisitionResponse hotKeyLockFailed(final ServiceState state, final ClientState client) {
+        return state.service.commit(ResourceAcquisitionCommand.Lock, client.userName, HOT_RESOURCE);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public ResourceAcquisitionResponse zipfLockUnlock(final ServiceState state, final ClientState client) {
+        final String resource = client.nextZipfResource();
+        final ResourceAcquisitionResponse response = state.service.commit(ResourceAcquisitionCommand.Lock, client.userName, resource);
+        if (response.getCommitResult() == ResourceAcquisitionCommandResult.LockSucceeded) {
+            return state.service.commit(ResourceAcquisitionCommand.Unlock, client.userName, resource);
+        }
+        return response;
+    }
+}
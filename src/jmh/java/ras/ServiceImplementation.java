@@ -0,0 +1,51 @@
+package ras;
+
+import io.opentelemetry.api.metrics.Meter;
+import io.opentelemetry.api.metrics.MeterProvider;
+import io.reactivex.rxjava3.core.Scheduler;
+
+import java.util.concurrent.TimeUnit;
+
+public enum ServiceImplementation {
+    Simple {
+        @Override
+        <T> ResourceAcquisitionService<T> create(final Scheduler scheduler, final TimeSpan unlockTimeout) {
+            return new SimpleResourceAcquisitionService<>(scheduler, unlockTimeout, NOOP_METER);
+        }
+    },
+    SimpleTimingWheel {
+        @Override
+        <T> ResourceAcquisitionService<T> create(final Scheduler scheduler, final TimeSpan unlockTimeout) {
+            return new SimpleResourceAcquisitionService<>(scheduler, unlockTimeout, TICK, NOOP_METER);
+        }
+    },
+    Concurrent {
+        @Override
+        <T> ResourceAcquisitionService<T> create(final Scheduler scheduler, final TimeSpan unlockTimeout) {
+            return new ConcurrentResourceAcquisitionService<>(scheduler, unlockTimeout, NOOP_METER);
+        }
+    },
+    Sharded {
+        @Override
+        <T> ResourceAcquisitionService<T> create(final Scheduler scheduler, final TimeSpan unlockTimeout) {
+            return new ShardedResourceAcquisitionService<>(scheduler, unlockTimeout, Runtime.getRuntime().availableProcessors(), NOOP_METER);
+        }
+    },
+    RingBuffer {
+        @Override
+        <T> ResourceAcquisitionService<T> create(final Scheduler scheduler, final TimeSpan unlockTimeout) {
+            return new RingBufferResourceAcquisitionService<>(scheduler, unlockTimeout, RingBufferResourceAcquisitionService.DEFAULT_CAPACITY, NOOP_METER);
+        }
+    };
+
+    static final Meter NOOP_METER = MeterProvider.noop().get(ResourceAcquisitionMetrics.METER_NAME);
+    static final TimeSpan TICK = new TimeSpan(10, TimeUnit.MILLISECONDS);
+
+    abstract <T> ResourceAcquisitionService<T> create(Scheduler scheduler, TimeSpan unlockTimeout);
+
+    static void close(final ResourceAcquisitionService<?> service) throws Exception {
+        if (service instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package ras;
+
+import io.reactivex.rxjava3.schedulers.Schedulers;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ShardScalingBenchmark {
+
+    private static final int KEYS_PER_THREAD = 1 << 10;
+
+    @State(Scope.Benchmark)
+    public static class ServiceState {
+
+        @Param({"Simple", "Concurrent", "Sharded", "RingBuffer"})
+        public ServiceImplementation implementation;
+
+        ResourceAcquisitionService<String> service;
+        final AtomicInteger threads = new AtomicInteger();
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            service = implementation.create(Schedulers.single(), TimeSpan.Default);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws Exception {
+            ServiceImplementation.close(service);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ClientState {
+
+        String userName;
+        String[] resources;
+        int next;
+
+        @Setup(Level.Trial)
+        public void setUp(final ServiceState state) {
+            final int thread = state.threads.incrementAndGet();
+            userName = "User" + thread;
+            resources = new String[KEYS_PER_THREAD];
+            for (int i = 0; i < KEYS_PER_THREAD; i++) {
+                resources[i] = "Thread" + thread + "-Resource" + i;
+            }
+        }
+    }
+
+    private static ResourceAcquisitionResponse lockUnlock(final ServiceState state, final ClientState client) {
+        final String resource = client.resources[client.next++ & (KEYS_PER_THREAD - 1)];
+        state.service.commit(ResourceAcquisitionCommand.Lock, client.userName, resource);
+        return state.service.commit(ResourceAcquisitionCommand.Unlock, client.userName, resource);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public ResourceAcquisitionResponse threads01(final ServiceState state, final ClientState client) {
+        return lockUnlock(state, client);
+    }
+
+    @Benchmark
+    @Threads(2)
+    public ResourceAcquisitionResponse threads02(final ServiceState state, final ClientState client) {
+        return lockUnlock(state, client);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public ResourceAcquisitionResponse threads04(final ServiceState state, final ClientState client) {
+        return lockUnlock(state, client);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public ResourceAcquisitionResponse threads08(final ServiceState state, final ClientState client) {
+        return lockUnlock(state, client);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public ResourceAcquisitionResponse threads16(final ServiceState state, final ClientState client) {
+        return lockUnlock(state, client);
+    }
+
+    @Benchmark
+    @Threads(32)
+    public ResourceAcquisitionResponse threads32(final ServiceState state, final ClientState client) {
+        return lockUnlock(state, client);
+    }
+
+    @Benchmark
+    @Threads(64)
+    public ResourceAcquisitionResponse threads64(final ServiceState state, final ClientState client) {
+        return lockUnlock(state, client);
+    }
+}
@@ -0,0 +1,65 @@
+package ras;
+
+import io.reactivex.rxjava3.schedulers.Schedulers;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// A hot key already held by `holders` readers. Joining and leaving should cost about the same at every size, because
+// a reader adds one entry to the holder set instead of copying it.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SharedLeaseBenchmark {
+
+    private static final String HOT_KEY = "HotKey";
+    private static final String READER = "Reader";
+    private static final String WRITER = "Writer";
+
+    @Param({"0", "16", "256"})
+    public int holders;
+
+    private SimpleResourceAcquisitionService<String> service;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        service = new SimpleResourceAcquisitionService<>(
+                Schedulers.single(), TimeSpan.Default, ServiceImplementation.TICK, ServiceImplementation.NOOP_METER);
+        for (int i = 0; i < holders; i++) {
+            service.lockShared("Holder" + i, HOT_KEY);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        service.close();
+    }
+
+    @Benchmark
+    public ResourceAcquisitionResponse readerJoinsAndLeaves() {
+        service.lockShared(READER, HOT_KEY);
+        return service.unlockShared(READER, HOT_KEY);
+    }
+
+    @Benchmark
+    public ResourceAcquisitionResponse exclusiveLockAndUnlock() {
+        service.commit(ResourceAcquisitionCommand.Lock, WRITER, WRITER);
+        return service.commit(ResourceAcquisitionCommand.Unlock, WRITER, WRITER);
+    }
+}
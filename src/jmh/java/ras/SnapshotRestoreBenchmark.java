@@ -0,0 +1,72 @@
+package ras;
+
+import io.reactivex.rxjava3.schedulers.Schedulers;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx12g")
+@State(Scope.Benchmark)
+public class SnapshotRestoreBenchmark {
+
+    @Param({"1000000", "10000000"})
+    public int entries;
+
+    private Path directory;
+    private Path snapshot;
+    private SimpleResourceAcquisitionService<Long> service;
+
+    @Setup(Level.Trial)
+    public void writeSnapshot() throws Exception {
+        directory = Files.createTempDirectory("ras-snapshot");
+        snapshot = directory.resolve("locks.snapshot");
+        final AcquiredResource lockedItem = AcquiredResource.createNew("Owner", ResourceAcquisitionState.Locked, TimeSpan.Default);
+        try (var writer = new ResourceAcquisitionSnapshot.Writer<>(snapshot, ResourceKeyCodec.int64())) {
+            for (long resource = 0; resource < entries; resource++) {
+                writer.write(resource, lockedItem);
+            }
+            writer.commit();
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void createService() {
+        service = new SimpleResourceAcquisitionService<>(
+                Schedulers.single(), TimeSpan.Default, ServiceImplementation.TICK, ServiceImplementation.NOOP_METER);
+    }
+
+    @TearDown(Level.Invocation)
+    public void closeService() {
+        service.close();
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteSnapshot() throws Exception {
+        Files.delete(snapshot);
+        Files.delete(directory);
+    }
+
+    @Benchmark
+    public int restore() throws Exception {
+        return service.restoreSnapshot(snapshot, ResourceKeyCodec.int64());
+    }
+}
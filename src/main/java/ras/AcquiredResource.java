@@ -38,6 +38,13 @@ public final class AcquiredResource implements Comparable<AcquiredResource> {
         return new AcquiredResource(userName, state, stateTimeout, timestamp);
     }
 
+    static AcquiredResource restore(final String userName,
+                                    final ResourceAcquisitionState state,
+                                    final TimeSpan stateTimeout,
+                                    final long timestampMillis) {
+        return new AcquiredResource(userName, state, stateTimeout, new TimeSpan(timestampMillis, TimeUnit.MILLISECONDS));
+    }
+
     public final String getUserName() {
         return userName;
     }
@@ -0,0 +1,42 @@
+package ras;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+final class CanonicalOrder {
+
+    private CanonicalOrder() {
+    }
+
+    static <T> List<T> of(final Collection<T> resources) {
+        final List<T> ordered = new ArrayList<>(new LinkedHashSet<>(resources));
+        if (ordered.isEmpty()) {
+            throw new IllegalArgumentException("resources must not be empty");
+        }
+        ordered.sort(CanonicalOrder::compare);
+        for (int i = 1; i < ordered.size(); i++) {
+            if (compare(ordered.get(i - 1), ordered.get(i)) == 0) {
+                throw new IllegalArgumentException("resources " + ordered.get(i - 1) + " and " + ordered.get(i) + " have no canonical order");
+            }
+        }
+        return ordered;
+    }
+
+    // Keys of different classes order by class name, keys of one Comparable class by their natural order, and anything
+    // else by hash and then by string form. This is not a total order: distinct keys can still compare as 0 (a natural
+    // order inconsistent with equals, or a shared hash and string form). No property left would order them the same way
+    // for every caller, so of rejects them rather than lock them in an arbitrary sequence.
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    static int compare(final Object left, final Object right) {
+        if (left.getClass() != right.getClass()) {
+            return left.getClass().getName().compareTo(right.getClass().getName());
+        }
+        if (left instanceof Comparable comparable) {
+            return comparable.compareTo(right);
+        }
+        final int byHash = Integer.compare(left.hashCode(), right.hashCode());
+        return byHash != 0 ? byHash : left.toString().compareTo(right.toString());
+    }
+}
@@ -0,0 +1,448 @@
+package ras;
+
+import io.opentelemetry.api.metrics.Meter;
+import io.reactivex.rxjava3.core.Scheduler;
+import io.reactivex.rxjava3.schedulers.Schedulers;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+
+import ras.SimpleResourceAcquisitionService.AutoUnlockScheduler;
+import ras.SimpleResourceAcquisitionService.Cancellable;
+import ras.SimpleResourceAcquisitionService.RxAutoUnlockScheduler;
+
+public class ConcurrentResourceAcquisitionService<T> implements ResourceAcquisitionService<T>, AutoCloseable {
+
+    private final AutoUnlockScheduler scheduler;
+    private final TimeSpan unlockTimeout;
+    private final long unlockTimeoutNanos;
+    private final Clock clock;
+    private final ResourceAcquisitionMetrics metrics;
+    private final ConcurrentMap<T, AutoUnlockableResource> repository = new ConcurrentHashMap<>();
+
+    private final class AutoUnlockableResource
+            implements Runnable, BiFunction<T, AutoUnlockableResource, AutoUnlockableResource> {
+
+        private final T resource;
+        private final long acquiredAt;
+        private volatile AcquiredResource acquiredResource;
+        private long unlockDeadline;
+        private Cancellable unlockSubscription;
+        private LeaseGroup group;
+        private boolean unlocked;
+        private long unlockedAt;
+
+        AutoUnlockableResource(final T resource, final AcquiredResource acquiredResource) {
+            this.resource = resource;
+            this.acquiredResource = acquiredResource;
+            this.acquiredAt = scheduler.now(TimeUnit.NANOSECONDS);
+            this.unlockDeadline = acquiredAt + unlockTimeoutNanos;
+        }
+
+        AutoUnlockableResource(final T resource, final AcquiredResource acquiredResource, final long acquiredAt, final long unlockDeadline) {
+            this.resource = resource;
+            this.acquiredResource = acquiredResource;
+            this.acquiredAt = acquiredAt;
+            this.unlockDeadline = unlockDeadline;
+        }
+
+        void scheduleUnlock() {
+            unlockSubscription = scheduler.schedule(this, unlockTimeout);
+        }
+
+        AutoUnlockableResource scheduleUnlock(final TimeSpan delay) {
+            unlockSubscription = scheduler.schedule(this, delay);
+            return this;
+        }
+
+        void renew(final AcquiredResource renewedResource) {
+            acquiredResource = renewedResource;
+            unlockDeadline = scheduler.now(TimeUnit.NANOSECONDS) + unlockTimeoutNanos;
+        }
+
+        void cancelUnlock() {
+            if (group != null) {
+                group.leave();
+                group = null;
+            } else {
+                unlockSubscription.cancel();
+            }
+        }
+
+        AcquiredResource getAcquiredResource() {
+            return acquiredResource;
+        }
+
+        @Override
+        public void run() {
+            repository.computeIfPresent(resource, this);
+            recordExpiry();
+        }
+
+        void recordExpiry() {
+            if (unlocked) {
+                metrics.recordLockReleased();
+                metrics.recordExpiryLag(unlockedAt - unlockDeadline);
+                metrics.recordHoldDuration(unlockedAt - acquiredAt);
+            }
+        }
+
+        @Override
+        public AutoUnlockableResource apply(final T resource, final AutoUnlockableResource lockedItem) {
+            if (lockedItem != this) {
+                return lockedItem;
+            }
+            return expire();
+        }
+
+        private AutoUnlockableResource expire() {
+            final long now = scheduler.now(TimeUnit.NANOSECONDS);
+            final long remaining = unlockDeadline - now;
+            if (remaining > 0) {
+                unlockSubscription = scheduler.schedule(this, new TimeSpan(remaining, TimeUnit.NANOSECONDS));
+                return this;
+            }
+            unlocked = true;
+            unlockedAt = now;
+            return null;
+        }
+    }
+
+    private final class LeaseGroup implements Runnable, BiFunction<T, AutoUnlockableResource, AutoUnlockableResource> {
+
+        private final long unlockDeadline = scheduler.now(TimeUnit.NANOSECONDS) + unlockTimeoutNanos;
+        private final List<AutoUnlockableResource> members;
+        private final AtomicInteger liveMembers = new AtomicInteger();
+        private volatile Cancellable unlockSubscription = () -> {
+        };
+
+        LeaseGroup(final int size) {
+            this.members = new ArrayList<>(size);
+        }
+
+        void join(final AutoUnlockableResource member) {
+            member.group = this;
+            member.unlockDeadline = unlockDeadline;
+            members.add(member);
+            liveMembers.incrementAndGet();
+        }
+
+        void scheduleUnlock() {
+            unlockSubscription = scheduler.schedule(this, unlockTimeout);
+        }
+
+        void leave() {
+            if (liveMembers.decrementAndGet() == 0) {
+                unlockSubscription.cancel();
+            }
+        }
+
+        @Override
+        public void run() {
+            for (final AutoUnlockableResource member : members) {
+                repository.computeIfPresent(member.resource, this);
+                member.recordExpiry();
+            }
+        }
+
+        @Override
+        public AutoUnlockableResource apply(final T resource, final AutoUnlockableResource lockedItem) {
+            if (lockedItem.group != this) {
+                return lockedItem;
+            }
+            lockedItem.group = null;
+            return lockedItem.expire();
+        }
+    }
+
+    private final class GroupLockCommandProcessor implements BiFunction<T, AutoUnlockableResource, AutoUnlockableResource> {
+
+        private final String userName;
+        private final AcquiredResource lockedResource;
+        private final LeaseGroup group;
+        private final List<GroupLockUndo> undoLog;
+        private AutoUnlockableResource blockingItem;
+
+        GroupLockCommandProcessor(final String userName, final int size) {
+            this.userName = userName;
+            this.lockedResource = AcquiredResource.createNew(userName, ResourceAcquisitionState.Locked, unlockTimeout, clock);
+            this.group = new LeaseGroup(size);
+            this.undoLog = new ArrayList<>(size);
+        }
+
+        ResourceAcquisitionGroupResponse<T> commit(final List<T> resources) {
+            for (final T resource : resources) {
+                repository.compute(resource, this);
+                if (blockingItem != null) {
+                    for (int i = undoLog.size() - 1; i >= 0; i--) {
+                        final GroupLockUndo undo = undoLog.get(i);
+                        repository.computeIfPresent(undo.lockedItem.resource, undo);
+                    }
+                    return new ResourceAcquisitionGroupResponse<>(ResourceAcquisitionCommandResult.LockFailed, blockingItem.getAcquiredResource(), resource);
+                }
+            }
+            group.scheduleUnlock();
+            return new ResourceAcquisitionGroupResponse<>(ResourceAcquisitionCommandResult.LockSucceeded, lockedResource, null);
+        }
+
+        @Override
+        public AutoUnlockableResource apply(final T resource, final AutoUnlockableResource existingItem) {
+            if (existingItem == null) {
+                final AutoUnlockableResource lockedItem = new AutoUnlockableResource(resource, lockedResource);
+                undoLog.add(new GroupLockUndo(lockedItem, null, 0L));
+                group.join(lockedItem);
+                metrics.recordLockAcquired();
+                return lockedItem;
+            }
+            if (!existingItem.getAcquiredResource().getUserName().equalsIgnoreCase(userName)) {
+                blockingItem = existingItem;
+                return existingItem;
+            }
+            undoLog.add(new GroupLockUndo(existingItem, existingItem.getAcquiredResource(), existingItem.unlockDeadline));
+            existingItem.cancelUnlock();
+            existingItem.renew(lockedResource);
+            group.join(existingItem);
+            return existingItem;
+        }
+
+        // Puts a lease back the way it was before this request touched it, unless someone else changed it since.
+        private final class GroupLockUndo implements BiFunction<T, AutoUnlockableResource, AutoUnlockableResource> {
+
+            private final AutoUnlockableResource lockedItem;
+            private final AcquiredResource previousResource;
+            private final long previousDeadline;
+
+            GroupLockUndo(final AutoUnlockableResource lockedItem, final AcquiredResource previousResource, final long previousDeadline) {
+                this.lockedItem = lockedItem;
+                this.previousResource = previousResource;
+                this.previousDeadline = previousDeadline;
+            }
+
+            @Override
+            public AutoUnlockableResource apply(final T resource, final AutoUnlockableResource currentItem) {
+                if (currentItem.group != group) {
+                    return currentItem;
+                }
+                lockedItem.group = null;
+                if (previousResource == null) {
+                    metrics.recordLockReleased();
+                    return null;
+                }
+                lockedItem.acquiredResource = previousResource;
+                lockedItem.unlockDeadline = previousDeadline;
+                final long remaining = Math.max(0L, previousDeadline - scheduler.now(TimeUnit.NANOSECONDS));
+                lockedItem.scheduleUnlock(new TimeSpan(remaining, TimeUnit.NANOSECONDS));
+                return lockedItem;
+            }
+        }
+    }
+
+    private interface ResourceAcquisitionCommandProcessor<T> {
+        ResourceAcquisitionResponse commit(String userName, T resource);
+    }
+
+    private final class ResourceLockCommandProcessor
+            implements ResourceAcquisitionCommandProcessor<T>, BiFunction<T, AutoUnlockableResource, AutoUnlockableResource> {
+
+        private String userName;
+        private AutoUnlockableResource existingItem;
+        private AutoUnlockableResource lockedItem;
+        private AcquiredResource lockedResource;
+
+        @Override
+        public ResourceAcquisitionResponse commit(final String userName, final T resource) {
+            this.userName = userName;
+            repository.compute(resource, this);
+
+            if (lockedItem == null) {
+                return new ResourceAcquisitionResponse(ResourceAcquisitionCommandResult.LockFailed, existingItem.getAcquiredResource());
+            }
+            if (existingItem == null) {
+                metrics.recordLockAcquired();
+            }
+            return new ResourceAcquisitionResponse(ResourceAcquisitionCommandResult.LockSucceeded, lockedResource);
+        }
+
+        @Override
+        public AutoUnlockableResource apply(final T resource, final AutoUnlockableResource existingItem) {
+            this.existingItem = existingItem;
+            if (existingItem != null) {
+                if (!existingItem.getAcquiredResource().getUserName().equalsIgnoreCase(userName)) {
+                    return existingItem;
+                }
+            }
+
+            final AcquiredResource newItem = AcquiredResource.createNew(userName, ResourceAcquisitionState.Locked, unlockTimeout, clock);
+            if (existingItem != null) {
+                existingItem.renew(newItem);
+                lockedItem = existingItem;
+            } else {
+                lockedItem = new AutoUnlockableResource(resource, newItem);
+                lockedItem.scheduleUnlock();
+            }
+            lockedResource = newItem;
+            return lockedItem;
+        }
+    }
+
+    private final class ResourceUnlockCommandProcessor
+            implements ResourceAcquisitionCommandProcessor<T>, BiFunction<T, AutoUnlockableResource, AutoUnlockableResource> {
+
+        private String userName;
+        private AutoUnlockableResource existingItem;
+        private boolean unlocked;
+
+        @Override
+        public ResourceAcquisitionResponse commit(final String userName, final T resource) {
+            this.userName = userName;
+            repository.computeIfPresent(resource, this);
+
+            if (unlocked) {
+                metrics.recordLockReleased();
+                if (metrics.isHoldDurationEnabled()) {
+                    metrics.recordHoldDuration(scheduler.now(TimeUnit.NANOSECONDS) - existingItem.acquiredAt);
+                }
+                final AcquiredResource unlockedItem = AcquiredResource.createNew(userName, ResourceAcquisitionState.Unlocked, unlockTimeout, clock);
+                return new ResourceAcquisitionResponse(ResourceAcquisitionCommandResult.UnlockSucceeded, unlockedItem);
+            }
+            if (existingItem != null) {
+                return new ResourceAcquisitionResponse(ResourceAcquisitionCommandResult.UnlockFailed, existingItem.getAcquiredResource());
+            }
+            final AcquiredResource unlockedItem = AcquiredResource.createNew(userName, ResourceAcquisitionState.Unlocked, unlockTimeout, clock);
+            return new ResourceAcquisitionResponse(ResourceAcquisitionCommandResult.UnlockFailed, unlockedItem);
+        }
+
+        @Override
+        public AutoUnlockableResource apply(final T resource, final AutoUnlockableResource existingItem) {
+            this.existingItem = existingItem;
+            if (!existingItem.getAcquiredResource().getUserName().equalsIgnoreCase(userName)) {
+                return existingItem;
+            }
+            existingItem.cancelUnlock();
+            unlocked = true;
+            return null;
+        }
+    }
+
+    private ResourceAcquisitionCommandProcessor<T> createCommandProcessor(ResourceAcquisitionCommand command) {
+        return switch (command) {
+            case Lock -> new ResourceLockCommandProcessor();
+            case Unlock -> new ResourceUnlockCommandProcessor();
+        };
+    }
+
+    public ConcurrentResourceAcquisitionService(final Scheduler scheduler, final TimeSpan unlockTimeout, final Meter meter) {
+        this(scheduler, unlockTimeout, new ResourceAcquisitionMetrics(meter));
+    }
+
+    public ConcurrentResourceAcquisitionService(final Scheduler scheduler,
+                                                final TimeSpan unlockTimeout,
+                                                final ResourceAcquisitionMetrics metrics) {
+        this(new RxAutoUnlockScheduler(scheduler), unlockTimeout, Clock.systemUTC(), metrics);
+    }
+
+    public ConcurrentResourceAcquisitionService(final Scheduler scheduler, final TimeSpan unlockTimeout) {
+        this(new RxAutoUnlockScheduler(scheduler), unlockTimeout, Clock.systemUTC(), ResourceAcquisitionMetrics.createDefault());
+    }
+
+    ConcurrentResourceAcquisitionService(final AutoUnlockScheduler scheduler,
+                                         final TimeSpan unlockTimeout,
+                                         final Clock clock,
+                                         final ResourceAcquisitionMetrics metrics) {
+        this.scheduler = Objects.requireNonNull(scheduler, "scheduler");
+        this.unlockTimeout = Objects.requireNonNull(unlockTimeout, "unlockTimeout");
+        this.unlockTimeoutNanos = unlockTimeout.getUnit().toNanos(unlockTimeout.getInterval());
+        this.clock = Objects.requireNonNull(clock, "clock");
+        this.metrics = Objects.requireNonNull(metrics, "metrics");
+        metrics.observeActiveLocks(repository::size);
+    }
+
+    public ConcurrentResourceAcquisitionService(final Scheduler scheduler) {
+        this(scheduler, TimeSpan.Default);
+    }
+
+    public ConcurrentResourceAcquisitionService(final TimeSpan unlockTimeout) {
+        this(Schedulers.computation(), unlockTimeout);
+    }
+
+    public ConcurrentResourceAcquisitionService() {
+        this(TimeSpan.Default);
+    }
+
+    @Override
+    public ResourceAcquisitionResponse commit(ResourceAcquisitionCommand command, String userName, T resource) {
+        final boolean timed = metrics.isCommitDurationEnabled();
+        final long startNanos = timed ? System.nanoTime() : 0L;
+        metrics.recordCommand(command);
+        final ResourceAcquisitionCommandProcessor<T> commandProcessor = createCommandProcessor(command);
+        final ResourceAcquisitionResponse response = commandProcessor.commit(userName, resource);
+        metrics.recordResult(response.getCommitResult());
+        if (timed) {
+            metrics.recordCommitDuration(System.nanoTime() - startNanos);
+        }
+        return response;
+    }
+
+    public ResourceAcquisitionGroupResponse<T> lockAll(final String userName, final Collection<T> resources) {
+        final List<T> ordered = CanonicalOrder.of(resources);
+        final boolean timed = metrics.isCommitDurationEnabled();
+        final long startNanos = timed ? System.nanoTime() : 0L;
+        metrics.recordCommand(ResourceAcquisitionCommand.Lock);
+        final ResourceAcquisitionGroupResponse<T> response = new GroupLockCommandProcessor(userName, ordered.size()).commit(ordered);
+        metrics.recordResult(response.getCommitResult());
+        if (timed) {
+            metrics.recordCommitDuration(System.nanoTime() - startNanos);
+        }
+        return response;
+    }
+
+    public void writeSnapshot(final Path path, final ResourceKeyCodec<T> codec) throws IOException {
+        try (var writer = new ResourceAcquisitionSnapshot.Writer<>(path, codec)) {
+            for (final AutoUnlockableResource item : repository.values()) {
+                writer.write(item.resource, item.getAcquiredResource());
+            }
+            writer.commit();
+        }
+    }
+
+    public int restoreSnapshot(final Path path, final ResourceKeyCodec<T> codec) throws IOException {
+        final long nowMillis = clock.millis();
+        final long now = scheduler.now(TimeUnit.NANOSECONDS);
+        int restored = 0;
+        try (var reader = new ResourceAcquisitionSnapshot.Reader<>(path, codec)) {
+            for (ResourceAcquisitionSnapshot.Entry<T> entry = reader.next(); entry != null; entry = reader.next()) {
+                final AcquiredResource lockedItem = entry.lockedItem();
+                final TimeSpan timeout = lockedItem.getStateTimeout();
+                final long timestampMillis = lockedItem.getUtcTimeStamp().getInterval();
+                final long remainingMillis = timestampMillis + timeout.getUnit().toMillis(timeout.getInterval()) - nowMillis;
+                if (lockedItem.getState() != ResourceAcquisitionState.Locked || remainingMillis <= 0) {
+                    continue;
+                }
+                final AutoUnlockableResource restoredItem = new AutoUnlockableResource(entry.resource(), lockedItem,
+                        now - TimeUnit.MILLISECONDS.toNanos(nowMillis - timestampMillis),
+                        now + TimeUnit.MILLISECONDS.toNanos(remainingMillis));
+                final TimeSpan delay = new TimeSpan(remainingMillis, TimeUnit.MILLISECONDS);
+                if (repository.computeIfAbsent(entry.resource(), resource -> restoredItem.scheduleUnlock(delay)) == restoredItem) {
+                    metrics.recordLockAcquired();
+                    restored++;
+                }
+            }
+        }
+        return restored;
+    }
+
+    @Override
+    public void close() {
+        scheduler.close();
+    }
+}
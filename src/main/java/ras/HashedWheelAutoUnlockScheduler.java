@@ -0,0 +1,159 @@
+package ras;
+
+import io.reactivex.rxjava3.core.Scheduler;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+import ras.SimpleResourceAcquisitionService.AutoUnlockScheduler;
+import ras.SimpleResourceAcquisitionService.Cancellable;
+
+final class HashedWheelAutoUnlockScheduler implements AutoUnlockScheduler {
+
+    static final int MAX_WHEEL_SIZE = 1 << 16;
+
+    private final Scheduler.Worker worker;
+    private final long tickNanos;
+    private final long startNanos;
+    private final int mask;
+    private final WheelTimeout[] wheel;
+    private long tick;
+
+    private final class WheelTimeout implements Cancellable {
+
+        private volatile Runnable command;
+        private long remainingRounds;
+        private int bucket = -1;
+        private WheelTimeout previous;
+        private WheelTimeout next;
+
+        WheelTimeout(final Runnable command) {
+            this.command = command;
+        }
+
+        @Override
+        public void cancel() {
+            command = null;
+            synchronized (HashedWheelAutoUnlockScheduler.this) {
+                if (bucket >= 0) {
+                    unlink(this);
+                }
+            }
+        }
+    }
+
+    HashedWheelAutoUnlockScheduler(final Scheduler scheduler, final TimeSpan tickDuration, final int wheelSize) {
+        Objects.requireNonNull(scheduler, "scheduler");
+        Objects.requireNonNull(tickDuration, "tickDuration");
+        if (tickDuration.getInterval() <= 0) {
+            throw new IllegalArgumentException("tickDuration must be positive");
+        }
+        if (wheelSize <= 0 || wheelSize > MAX_WHEEL_SIZE) {
+            throw new IllegalArgumentException("wheelSize must be in range [1, " + MAX_WHEEL_SIZE + "]");
+        }
+        final int size = Integer.highestOneBit(wheelSize) == wheelSize ? wheelSize : Integer.highestOneBit(wheelSize) << 1;
+        this.tickNanos = tickDuration.getUnit().toNanos(tickDuration.getInterval());
+        this.wheel = new WheelTimeout[size];
+        this.mask = size - 1;
+        this.worker = scheduler.createWorker();
+        this.startNanos = worker.now(TimeUnit.NANOSECONDS);
+        worker.schedulePeriodically(this::onTick, tickNanos, tickNanos, TimeUnit.NANOSECONDS);
+    }
+
+    static int wheelSizeFor(final TimeSpan timeout, final TimeSpan tickDuration) {
+        final long ticks = Math.max(1L, timeout.getUnit().toNanos(timeout.getInterval())
+                / Math.max(1L, tickDuration.getUnit().toNanos(tickDuration.getInterval())));
+        return (int) Math.min(MAX_WHEEL_SIZE, ticks);
+    }
+
+    @Override
+    public Cancellable schedule(final Runnable command, final TimeSpan delay) {
+        final WheelTimeout timeout = new WheelTimeout(command);
+        final long delayNanos = Math.max(0L, delay.getUnit().toNanos(delay.getInterval()));
+        final long elapsedNanos = worker.now(TimeUnit.NANOSECONDS) - startNanos;
+        final long deadlineTick = (elapsedNanos + delayNanos + tickNanos - 1) / tickNanos;
+        synchronized (this) {
+            final long ticks = Math.max(1L, deadlineTick - tick);
+            timeout.remainingRounds = (ticks - 1) / wheel.length;
+            link(timeout, (int) ((tick + ticks) & mask));
+        }
+        return timeout;
+    }
+
+    @Override
+    public long now(final TimeUnit unit) {
+        return worker.now(unit);
+    }
+
+    private void onTick() {
+        WheelTimeout expired = null;
+        synchronized (this) {
+            tick++;
+            WheelTimeout timeout = wheel[(int) (tick & mask)];
+            while (timeout != null) {
+                final WheelTimeout next = timeout.next;
+                if (timeout.remainingRounds == 0) {
+                    unlink(timeout);
+                    timeout.next = expired;
+                    expired = timeout;
+                } else {
+                    timeout.remainingRounds--;
+                }
+                timeout = next;
+            }
+        }
+        while (expired != null) {
+            final WheelTimeout next = expired.next;
+            final Runnable command = expired.command;
+            expired.command = null;
+            expired.next = null;
+            if (command != null) {
+                command.run();
+            }
+            expired = next;
+        }
+    }
+
+    private void link(final WheelTimeout timeout, final int bucket) {
+        final WheelTimeout head = wheel[bucket];
+        timeout.bucket = bucket;
+        timeout.next = head;
+        if (head != null) {
+            head.previous = timeout;
+        }
+        wheel[bucket] = timeout;
+    }
+
+    private void unlink(final WheelTimeout timeout) {
+        if (timeout.previous != null) {
+            timeout.previous.next = timeout.next;
+        } else {
+            wheel[timeout.bucket] = timeout.next;
+        }
+        if (timeout.next != null) {
+            timeout.next.previous = timeout.previous;
+        }
+        timeout.bucket = -1;
+        timeout.previous = null;
+        timeout.next = null;
+    }
+
+    @Override
+    public void close() {
+        worker.dispose();
+        synchronized (this) {
+            for (int i = 0; i < wheel.length; i++) {
+                WheelTimeout timeout = wheel[i];
+                wheel[i] = null;
+                while (timeout != null) {
+                    final WheelTimeout next = timeout.next;
+                    timeout.command = null;
+                    timeout.bucket = -1;
+                    timeout.previous = null;
+                    timeout.next = null;
+                    timeout = next;
+                }
+            }
+        }
+    }
+}
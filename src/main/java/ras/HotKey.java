@@ -0,0 +1,21 @@
+package ras;
+
+public final class HotKey<T> {
+
+    private final T resource;
+    private final long estimate;
+
+    public HotKey(final T resource, final long estimate) {
+        this.resource = resource;
+        this.estimate = estimate;
+    }
+
+    public final T getResource() {
+        return resource;
+    }
+
+    // An upper bound on the true total: collisions in the sketch can only add to it.
+    public final long getEstimate() {
+        return estimate;
+    }
+}
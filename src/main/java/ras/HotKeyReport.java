@@ -0,0 +1,30 @@
+package ras;
+
+import java.util.List;
+
+public final class HotKeyReport<T> {
+
+    private final List<HotKey<T>> lockAttempts;
+    private final List<HotKey<T>> lockFailures;
+    private final List<HotKey<T>> holdTimes;
+
+    public HotKeyReport(final List<HotKey<T>> lockAttempts, final List<HotKey<T>> lockFailures, final List<HotKey<T>> holdTimes) {
+        this.lockAttempts = List.copyOf(lockAttempts);
+        this.lockFailures = List.copyOf(lockFailures);
+        this.holdTimes = List.copyOf(holdTimes);
+    }
+
+    // Each list holds the hottest resources first.
+    public final List<HotKey<T>> getLockAttempts() {
+        return lockAttempts;
+    }
+
+    public final List<HotKey<T>> getLockFailures() {
+        return lockFailures;
+    }
+
+    // Estimates are total nanoseconds held.
+    public final List<HotKey<T>> getHoldTimes() {
+        return holdTimes;
+    }
+}
@@ -0,0 +1,151 @@
+package ras;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Bounded-memory heavy hitters: a count-min sketch with conservative update estimates the total of every key, and the
+// size keys with the highest estimates are kept as candidates in an indexed min-heap. An add costs DEPTH counter updates,
+// one map lookup and at most one O(log size) sift. Estimates never undercount.
+final class HotKeySketch<T> {
+
+    static final int DEPTH = 4;
+    static final int WIDTH_BITS = 12;
+    static final int WIDTH = 1 << WIDTH_BITS;
+    static final int MAX_SIZE = 1 << 10;
+
+    private static final long[] SEEDS = {0x9E3779B97F4A7C15L, 0xC2B2AE3D27D4EB4FL, 0x165667B19E3779F9L, 0xD6E8FEB86659FD93L};
+
+    private static final class Candidate<K> {
+
+        private final K key;
+        private long estimate;
+        private int index;
+
+        Candidate(final K key, final long estimate) {
+            this.key = key;
+            this.estimate = estimate;
+        }
+    }
+
+    private final int size;
+    private final long[] counters = new long[DEPTH * WIDTH];
+    private final int[] slots = new int[DEPTH];
+    private final Map<T, Candidate<T>> candidates;
+    // Candidates ordered by estimate, smallest first; each candidate knows its own slot.
+    private final Candidate<T>[] heap;
+
+    @SuppressWarnings("unchecked")
+    HotKeySketch(final int size) {
+        if (size <= 0 || size > MAX_SIZE) {
+            throw new IllegalArgumentException("size must be between 1 and " + MAX_SIZE);
+        }
+        this.size = size;
+        this.candidates = new HashMap<>(2 * size);
+        this.heap = (Candidate<T>[]) new Candidate<?>[size];
+    }
+
+    // Estimates of a key never shrink, so a candidate that grows only ever moves down the heap.
+    void add(final T key, final long weight) {
+        final long estimate = update(key, weight);
+        final Candidate<T> candidate = candidates.get(key);
+        if (candidate != null) {
+            candidate.estimate = estimate;
+            siftDown(candidate.index);
+        } else if (candidates.size() < size) {
+            final Candidate<T> added = new Candidate<>(key, estimate);
+            candidates.put(key, added);
+            heap[candidates.size() - 1] = added;
+            siftUp(candidates.size() - 1);
+        } else if (estimate > heap[0].estimate) {
+            candidates.remove(heap[0].key);
+            final Candidate<T> added = new Candidate<>(key, estimate);
+            candidates.put(key, added);
+            heap[0] = added;
+            siftDown(0);
+        }
+    }
+
+    long estimate(final T key) {
+        final long hash = key.hashCode();
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            estimate = Math.min(estimate, counters[slotOf(hash, row)]);
+        }
+        return estimate;
+    }
+
+    List<HotKey<T>> top() {
+        final List<HotKey<T>> top = new ArrayList<>(candidates.size());
+        for (final T key : candidates.keySet()) {
+            top.add(new HotKey<>(key, estimate(key)));
+        }
+        top.sort(Comparator.comparingLong(HotKey<T>::getEstimate).reversed());
+        return top;
+    }
+
+    // Conservative update raises only the counters below the new minimum, which keeps collisions from inflating the
+    // estimates of keys that share a counter.
+    private long update(final T key, final long weight) {
+        final long hash = key.hashCode();
+        long minimum = Long.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            slots[row] = slotOf(hash, row);
+            minimum = Math.min(minimum, counters[slots[row]]);
+        }
+        final long estimate = minimum + weight;
+        for (int row = 0; row < DEPTH; row++) {
+            if (counters[slots[row]] < estimate) {
+                counters[slots[row]] = estimate;
+            }
+        }
+        return estimate;
+    }
+
+    private void siftUp(int index) {
+        final Candidate<T> moving = heap[index];
+        while (index > 0) {
+            final int parent = (index - 1) >>> 1;
+            if (heap[parent].estimate <= moving.estimate) {
+                break;
+            }
+            place(heap[parent], index);
+            index = parent;
+        }
+        place(moving, index);
+    }
+
+    private void siftDown(int index) {
+        final Candidate<T> moving = heap[index];
+        final int count = candidates.size();
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= count) {
+                break;
+            }
+            if (child + 1 < count && heap[child + 1].estimate < heap[child].estimate) {
+                child++;
+            }
+            if (moving.estimate <= heap[child].estimate) {
+                break;
+            }
+            place(heap[child], index);
+            index = child;
+        }
+        place(moving, index);
+    }
+
+    private void place(final Candidate<T> candidate, final int index) {
+        heap[index] = candidate;
+        candidate.index = index;
+    }
+
+    private static int slotOf(final long hash, final int row) {
+        long mixed = hash ^ SEEDS[row];
+        mixed = (mixed ^ (mixed >>> 33)) * 0xFF51AFD7ED558CCDL;
+        mixed = (mixed ^ (mixed >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return row * WIDTH + (int) (mixed >>> (Long.SIZE - WIDTH_BITS));
+    }
+}
@@ -0,0 +1,42 @@
+package ras;
+
+import java.util.List;
+
+// Tracks the resources with the most lock attempts, lock failures and hold time. Updated under the service lock.
+final class HotKeyTracker<T> {
+
+    private final HotKeySketch<T> lockAttempts;
+    private final HotKeySketch<T> lockFailures;
+    private final HotKeySketch<T> holdTimes;
+
+    HotKeyTracker(final int size) {
+        this.lockAttempts = new HotKeySketch<>(size);
+        this.lockFailures = new HotKeySketch<>(size);
+        this.holdTimes = new HotKeySketch<>(size);
+    }
+
+    void recordLockAttempt(final T resource, final ResourceAcquisitionCommandResult result) {
+        lockAttempts.add(resource, 1);
+        if (result == ResourceAcquisitionCommandResult.LockFailed) {
+            lockFailures.add(resource, 1);
+        }
+    }
+
+    // A group attempt counts once for every resource; the failure goes to the resource that blocked it.
+    void recordGroupLockAttempt(final List<T> resources, final T blockingResource) {
+        for (final T resource : resources) {
+            lockAttempts.add(resource, 1);
+        }
+        if (blockingResource != null) {
+            lockFailures.add(blockingResource, 1);
+        }
+    }
+
+    void recordHoldTime(final T resource, final long nanos) {
+        holdTimes.add(resource, nanos);
+    }
+
+    HotKeyReport<T> report() {
+        return new HotKeyReport<>(lockAttempts.top(), lockFailures.top(), holdTimes.top());
+    }
+}
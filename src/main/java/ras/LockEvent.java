@@ -0,0 +1,27 @@
+package ras;
+
+public final class LockEvent<T> {
+
+    private final LockEventType type;
+    private final T resource;
+    private final AcquiredResource acquiredResource;
+
+    public LockEvent(final LockEventType type, final T resource, final AcquiredResource acquiredResource) {
+        this.type = type;
+        this.resource = resource;
+        this.acquiredResource = acquiredResource;
+    }
+
+    public final LockEventType getType() {
+        return type;
+    }
+
+    public final T getResource() {
+        return resource;
+    }
+
+    // The lease the event applies to; for Unlocked and Expired it is the lease that ended.
+    public final AcquiredResource getAcquiredResource() {
+        return acquiredResource;
+    }
+}
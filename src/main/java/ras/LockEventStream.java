@@ -0,0 +1,184 @@
+package ras;
+
+import io.reactivex.rxjava3.core.BackpressureOverflowStrategy;
+import io.reactivex.rxjava3.core.Flowable;
+import io.reactivex.rxjava3.core.Scheduler;
+import io.reactivex.rxjava3.exceptions.MissingBackpressureException;
+import io.reactivex.rxjava3.plugins.RxJavaPlugins;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+// Fans lock events out to subscribers. Publishing only appends to each subscriber's bounded queue; delivery runs on
+// the subscriber's own scheduler worker, so a slow subscriber loses events or fails instead of stalling the service.
+final class LockEventStream<T> {
+
+    private final List<EventSubscription> subscriptions = new CopyOnWriteArrayList<>();
+    private volatile boolean completed;
+
+    boolean hasSubscribers() {
+        return !subscriptions.isEmpty();
+    }
+
+    void publish(final LockEventType type, final T resource, final AcquiredResource acquiredResource) {
+        final LockEvent<T> event = new LockEvent<>(type, resource, acquiredResource);
+        for (final EventSubscription subscription : subscriptions) {
+            subscription.offer(event);
+        }
+    }
+
+    void complete() {
+        completed = true;
+        for (final EventSubscription subscription : subscriptions) {
+            subscription.complete();
+        }
+    }
+
+    Flowable<List<LockEvent<T>>> events(final Scheduler scheduler, final int capacity, final BackpressureOverflowStrategy overflowStrategy) {
+        Objects.requireNonNull(scheduler, "scheduler");
+        Objects.requireNonNull(overflowStrategy, "overflowStrategy");
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        return Flowable.fromPublisher(subscriber -> new EventSubscription(subscriber, scheduler.createWorker(), capacity, overflowStrategy).start());
+    }
+
+    private final class EventSubscription implements Subscription, Runnable {
+
+        private final Subscriber<? super List<LockEvent<T>>> downstream;
+        private final Scheduler.Worker worker;
+        private final int capacity;
+        private final BackpressureOverflowStrategy overflowStrategy;
+        private final ArrayDeque<LockEvent<T>> queue = new ArrayDeque<>();
+        // Starts at one so nothing drains until onSubscribe has returned.
+        private final AtomicInteger wip = new AtomicInteger(1);
+        private final AtomicLong requested = new AtomicLong();
+        private boolean overflowed;
+        private boolean done;
+        private volatile boolean cancelled;
+
+        EventSubscription(final Subscriber<? super List<LockEvent<T>>> downstream,
+                          final Scheduler.Worker worker,
+                          final int capacity,
+                          final BackpressureOverflowStrategy overflowStrategy) {
+            this.downstream = downstream;
+            this.worker = worker;
+            this.capacity = capacity;
+            this.overflowStrategy = overflowStrategy;
+        }
+
+        // Registers before onSubscribe, so no event published after it returns is missed, and a cancel from inside
+        // onSubscribe is honoured.
+        void start() {
+            subscriptions.add(this);
+            downstream.onSubscribe(this);
+            if (cancelled) {
+                subscriptions.remove(this);
+                return;
+            }
+            if (completed) {
+                complete();
+            }
+            if (wip.decrementAndGet() != 0) {
+                worker.schedule(this);
+            }
+        }
+
+        void offer(final LockEvent<T> event) {
+            synchronized (this) {
+                if (queue.size() == capacity) {
+                    switch (overflowStrategy) {
+                        case DROP_LATEST -> queue.pollLast();
+                        case DROP_OLDEST -> queue.pollFirst();
+                        default -> {
+                            overflowed = true;
+                            queue.clear();
+                        }
+                    }
+                }
+                queue.offer(event);
+            }
+            schedule();
+        }
+
+        void complete() {
+            synchronized (this) {
+                done = true;
+            }
+            schedule();
+        }
+
+        @Override
+        public void request(final long n) {
+            if (n <= 0) {
+                RxJavaPlugins.onError(new IllegalArgumentException("n > 0 required but it was " + n));
+                return;
+            }
+            requested.getAndAccumulate(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+            schedule();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            subscriptions.remove(this);
+            worker.dispose();
+            synchronized (this) {
+                queue.clear();
+            }
+        }
+
+        private void schedule() {
+            if (wip.getAndIncrement() == 0) {
+                worker.schedule(this);
+            }
+        }
+
+        // Each batch takes everything queued, so one request covers up to capacity events.
+        @Override
+        public void run() {
+            int missed = 1;
+            do {
+                if (cancelled) {
+                    return;
+                }
+                List<LockEvent<T>> batch = null;
+                final boolean failed;
+                final boolean finished;
+                synchronized (this) {
+                    failed = overflowed;
+                    if (!failed && !queue.isEmpty() && requested.get() != 0) {
+                        batch = new ArrayList<>(queue);
+                        queue.clear();
+                    }
+                    finished = done && queue.isEmpty();
+                }
+                if (failed) {
+                    cancel();
+                    downstream.onError(new MissingBackpressureException("lock event queue is full"));
+                    return;
+                }
+                if (batch != null) {
+                    if (requested.get() != Long.MAX_VALUE) {
+                        requested.decrementAndGet();
+                    }
+                    downstream.onNext(batch);
+                }
+                if (finished) {
+                    cancel();
+                    downstream.onComplete();
+                    return;
+                }
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+    }
+}
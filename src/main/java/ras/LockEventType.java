@@ -0,0 +1,5 @@
+package ras;
+
+public enum LockEventType {
+    Acquired, Renewed, Unlocked, Expired
+}
@@ -0,0 +1,346 @@
+package ras;
+
+import io.opentelemetry.api.metrics.Meter;
+import io.reactivex.rxjava3.core.Scheduler;
+import io.reactivex.rxjava3.schedulers.Schedulers;
+
+import java.time.Clock;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+public class LongResourceAcquisitionService implements ResourceAcquisitionService<Long>, AutoCloseable {
+
+    static final TimeSpan DEFAULT_TICK_DURATION = new TimeSpan(10, TimeUnit.MILLISECONDS);
+
+    private static final int NONE = -1;
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final Scheduler.Worker worker;
+    private final TimeSpan unlockTimeout;
+    private final long unlockTimeoutNanos;
+    private final long tickNanos;
+    private final long startNanos;
+    private final Clock clock;
+    private final ResourceAcquisitionMetrics metrics;
+
+    // Open-addressing index from resource to lease slot; tableLeases holds slot + 1 so that 0 marks a free bucket.
+    private long[] tableKeys = new long[INITIAL_CAPACITY];
+    private int[] tableLeases = new int[INITIAL_CAPACITY];
+    private int tableMask = INITIAL_CAPACITY - 1;
+    private int size;
+
+    // Lease slots, one column per field. Released slots are chained through wheelNext.
+    private long[] leaseKeys = new long[INITIAL_CAPACITY];
+    private String[] owners = new String[INITIAL_CAPACITY];
+    private long[] timestamps = new long[INITIAL_CAPACITY];
+    private long[] acquiredAt = new long[INITIAL_CAPACITY];
+    private long[] deadlines = new long[INITIAL_CAPACITY];
+    private int[] wheelBuckets = new int[INITIAL_CAPACITY];
+    private int[] wheelNext = new int[INITIAL_CAPACITY];
+    private int[] wheelPrevious = new int[INITIAL_CAPACITY];
+    // Failure responses built on the first conflict and reused until the lease is renewed or released.
+    private ResourceAcquisitionResponse[] lockFailedResponses = new ResourceAcquisitionResponse[INITIAL_CAPACITY];
+    private ResourceAcquisitionResponse[] unlockFailedResponses = new ResourceAcquisitionResponse[INITIAL_CAPACITY];
+    private int leaseCount;
+    private int freeLease = NONE;
+
+    private final int[] wheel;
+    private final int wheelMask;
+    private long tick;
+
+    public LongResourceAcquisitionService(final Scheduler scheduler, final TimeSpan unlockTimeout, final Meter meter) {
+        this(scheduler, unlockTimeout, DEFAULT_TICK_DURATION, Clock.systemUTC(), new ResourceAcquisitionMetrics(meter));
+    }
+
+    public LongResourceAcquisitionService(final Scheduler scheduler,
+                                          final TimeSpan unlockTimeout,
+                                          final TimeSpan tickDuration,
+                                          final Meter meter) {
+        this(scheduler, unlockTimeout, tickDuration, Clock.systemUTC(), new ResourceAcquisitionMetrics(meter));
+    }
+
+    public LongResourceAcquisitionService(final Scheduler scheduler, final TimeSpan unlockTimeout) {
+        this(scheduler, unlockTimeout, DEFAULT_TICK_DURATION, Clock.systemUTC(), ResourceAcquisitionMetrics.createDefault());
+    }
+
+    LongResourceAcquisitionService(final Scheduler scheduler,
+                                   final TimeSpan unlockTimeout,
+                                   final TimeSpan tickDuration,
+                                   final Clock clock,
+                                   final ResourceAcquisitionMetrics metrics) {
+        Objects.requireNonNull(scheduler, "scheduler");
+        this.unlockTimeout = Objects.requireNonNull(unlockTimeout, "unlockTimeout");
+        this.clock = Objects.requireNonNull(clock, "clock");
+        this.metrics = Objects.requireNonNull(metrics, "metrics");
+        metrics.observeActiveLocks(this::activeLocks);
+        Objects.requireNonNull(tickDuration, "tickDuration");
+        if (tickDuration.getInterval() <= 0) {
+            throw new IllegalArgumentException("tickDuration must be positive");
+        }
+        this.unlockTimeoutNanos = unlockTimeout.getUnit().toNanos(unlockTimeout.getInterval());
+        this.tickNanos = tickDuration.getUnit().toNanos(tickDuration.getInterval());
+        final int wheelSize = Integer.highestOneBit(HashedWheelAutoUnlockScheduler.wheelSizeFor(unlockTimeout, tickDuration) * 2 - 1);
+        this.wheel = new int[wheelSize];
+        this.wheelMask = wheelSize - 1;
+        Arrays.fill(wheel, NONE);
+        this.worker = scheduler.createWorker();
+        this.startNanos = worker.now(TimeUnit.NANOSECONDS);
+        worker.schedulePeriodically(this::onTick, tickNanos, tickNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public LongResourceAcquisitionService(final Scheduler scheduler) {
+        this(scheduler, TimeSpan.Default);
+    }
+
+    public LongResourceAcquisitionService(final TimeSpan unlockTimeout) {
+        this(Schedulers.computation(), unlockTimeout);
+    }
+
+    public LongResourceAcquisitionService() {
+        this(TimeSpan.Default);
+    }
+
+    public ResourceAcquisitionResponse commit(final ResourceAcquisitionCommand command, final String userName, final long resource) {
+        final boolean timed = metrics.isCommitDurationEnabled();
+        final long startNanos = timed ? System.nanoTime() : 0L;
+        metrics.recordCommand(command);
+        final ResourceAcquisitionResponse response;
+        synchronized (this) {
+            response = switch (command) {
+                case Lock -> lock(userName, resource);
+                case Unlock -> unlock(userName, resource);
+            };
+        }
+        metrics.recordResult(response.getCommitResult());
+        if (timed) {
+            metrics.recordCommitDuration(System.nanoTime() - startNanos);
+        }
+        return response;
+    }
+
+    @Override
+    public ResourceAcquisitionResponse commit(final ResourceAcquisitionCommand command, final String userName, final Long resource) {
+        return commit(command, userName, resource.longValue());
+    }
+
+    private ResourceAcquisitionResponse lock(final String userName, final long resource) {
+        final int lease = find(resource);
+        if (lease != NONE && !owners[lease].equalsIgnoreCase(userName)) {
+            if (lockFailedResponses[lease] == null) {
+                lockFailedResponses[lease] = new ResourceAcquisitionResponse(ResourceAcquisitionCommandResult.LockFailed, acquiredResource(lease));
+            }
+            return lockFailedResponses[lease];
+        }
+
+        final AcquiredResource newItem = AcquiredResource.createNew(userName, ResourceAcquisitionState.Locked, unlockTimeout, clock);
+        final long now = worker.now(TimeUnit.NANOSECONDS);
+        if (lease != NONE) {
+            owners[lease] = userName;
+            timestamps[lease] = newItem.getUtcTimeStamp().getInterval();
+            deadlines[lease] = now + unlockTimeoutNanos;
+            lockFailedResponses[lease] = null;
+            unlockFailedResponses[lease] = null;
+        } else {
+            final int newLease = allocateLease();
+            leaseKeys[newLease] = resource;
+            owners[newLease] = userName;
+            timestamps[newLease] = newItem.getUtcTimeStamp().getInterval();
+            acquiredAt[newLease] = now;
+            deadlines[newLease] = now + unlockTimeoutNanos;
+            insert(resource, newLease);
+            link(newLease, bucketFor(deadlines[newLease]));
+            metrics.recordLockAcquired();
+        }
+        return new ResourceAcquisitionResponse(ResourceAcquisitionCommandResult.LockSucceeded, newItem);
+    }
+
+    private ResourceAcquisitionResponse unlock(final String userName, final long resource) {
+        final int lease = find(resource);
+        if (lease != NONE) {
+            if (!owners[lease].equalsIgnoreCase(userName)) {
+                if (unlockFailedResponses[lease] == null) {
+                    unlockFailedResponses[lease] = new ResourceAcquisitionResponse(ResourceAcquisitionCommandResult.UnlockFailed, acquiredResource(lease));
+                }
+                return unlockFailedResponses[lease];
+            }
+            if (metrics.isHoldDurationEnabled()) {
+                metrics.recordHoldDuration(worker.now(TimeUnit.NANOSECONDS) - acquiredAt[lease]);
+            }
+            release(lease);
+            final AcquiredResource unlockedItem = AcquiredResource.createNew(userName, ResourceAcquisitionState.Unlocked, unlockTimeout, clock);
+            return new ResourceAcquisitionResponse(ResourceAcquisitionCommandResult.UnlockSucceeded, unlockedItem);
+        }
+        final AcquiredResource unlockedItem = AcquiredResource.createNew(userName, ResourceAcquisitionState.Unlocked, unlockTimeout, clock);
+        return new ResourceAcquisitionResponse(ResourceAcquisitionCommandResult.UnlockFailed, unlockedItem);
+    }
+
+    private AcquiredResource acquiredResource(final int lease) {
+        return AcquiredResource.restore(owners[lease], ResourceAcquisitionState.Locked, unlockTimeout, timestamps[lease]);
+    }
+
+    private void release(final int lease) {
+        unlink(lease);
+        remove(leaseKeys[lease]);
+        owners[lease] = null;
+        lockFailedResponses[lease] = null;
+        unlockFailedResponses[lease] = null;
+        wheelNext[lease] = freeLease;
+        freeLease = lease;
+        metrics.recordLockReleased();
+    }
+
+    private void onTick() {
+        synchronized (this) {
+            tick++;
+            final long now = worker.now(TimeUnit.NANOSECONDS);
+            final int bucket = (int) (tick & wheelMask);
+            int lease = wheel[bucket];
+            while (lease != NONE) {
+                final int nextLease = wheelNext[lease];
+                final long deadline = deadlines[lease];
+                if (deadline - now <= 0) {
+                    metrics.recordExpiryLag(now - deadline);
+                    metrics.recordHoldDuration(now - acquiredAt[lease]);
+                    release(lease);
+                } else {
+                    final int target = bucketFor(deadline);
+                    if (target != bucket) {
+                        unlink(lease);
+                        link(lease, target);
+                    }
+                }
+                lease = nextLease;
+            }
+        }
+    }
+
+    private int bucketFor(final long deadline) {
+        final long deadlineTick = Math.max(tick + 1, (deadline - startNanos + tickNanos - 1) / tickNanos);
+        return (int) (deadlineTick & wheelMask);
+    }
+
+    private void link(final int lease, final int bucket) {
+        final int head = wheel[bucket];
+        wheelBuckets[lease] = bucket;
+        wheelPrevious[lease] = NONE;
+        wheelNext[lease] = head;
+        if (head != NONE) {
+            wheelPrevious[head] = lease;
+        }
+        wheel[bucket] = lease;
+    }
+
+    private void unlink(final int lease) {
+        final int previous = wheelPrevious[lease];
+        final int next = wheelNext[lease];
+        if (previous != NONE) {
+            wheelNext[previous] = next;
+        } else {
+            wheel[wheelBuckets[lease]] = next;
+        }
+        if (next != NONE) {
+            wheelPrevious[next] = previous;
+        }
+    }
+
+    private int allocateLease() {
+        if (freeLease != NONE) {
+            final int lease = freeLease;
+            freeLease = wheelNext[lease];
+            return lease;
+        }
+        if (leaseCount == owners.length) {
+            final int capacity = leaseCount * 2;
+            leaseKeys = Arrays.copyOf(leaseKeys, capacity);
+            owners = Arrays.copyOf(owners, capacity);
+            timestamps = Arrays.copyOf(timestamps, capacity);
+            acquiredAt = Arrays.copyOf(acquiredAt, capacity);
+            deadlines = Arrays.copyOf(deadlines, capacity);
+            wheelBuckets = Arrays.copyOf(wheelBuckets, capacity);
+            wheelNext = Arrays.copyOf(wheelNext, capacity);
+            wheelPrevious = Arrays.copyOf(wheelPrevious, capacity);
+            lockFailedResponses = Arrays.copyOf(lockFailedResponses, capacity);
+            unlockFailedResponses = Arrays.copyOf(unlockFailedResponses, capacity);
+        }
+        return leaseCount++;
+    }
+
+    private static int hash(final long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        h ^= h >>> 32;
+        return (int) (h ^ (h >>> 16));
+    }
+
+    private int find(final long key) {
+        int index = hash(key) & tableMask;
+        while (tableLeases[index] != 0) {
+            if (tableKeys[index] == key) {
+                return tableLeases[index] - 1;
+            }
+            index = (index + 1) & tableMask;
+        }
+        return NONE;
+    }
+
+    private void insert(final long key, final int lease) {
+        if ((size + 1) * 4L > tableLeases.length * 3L) {
+            resize(tableLeases.length * 2);
+        }
+        int index = hash(key) & tableMask;
+        while (tableLeases[index] != 0) {
+            index = (index + 1) & tableMask;
+        }
+        tableKeys[index] = key;
+        tableLeases[index] = lease + 1;
+        size++;
+    }
+
+    private void remove(final long key) {
+        int index = hash(key) & tableMask;
+        while (tableKeys[index] != key) {
+            index = (index + 1) & tableMask;
+        }
+        tableLeases[index] = 0;
+        size--;
+
+        int next = (index + 1) & tableMask;
+        while (tableLeases[next] != 0) {
+            final int ideal = hash(tableKeys[next]) & tableMask;
+            if (((next - ideal) & tableMask) >= ((next - index) & tableMask)) {
+                tableKeys[index] = tableKeys[next];
+                tableLeases[index] = tableLeases[next];
+                tableLeases[next] = 0;
+                index = next;
+            }
+            next = (next + 1) & tableMask;
+        }
+    }
+
+    private void resize(final int capacity) {
+        final long[] oldKeys = tableKeys;
+        final int[] oldLeases = tableLeases;
+        tableKeys = new long[capacity];
+        tableLeases = new int[capacity];
+        tableMask = capacity - 1;
+        for (int i = 0; i < oldLeases.length; i++) {
+            if (oldLeases[i] != 0) {
+                int index = hash(oldKeys[i]) & tableMask;
+                while (tableLeases[index] != 0) {
+                    index = (index + 1) & tableMask;
+                }
+                tableKeys[index] = oldKeys[i];
+                tableLeases[index] = oldLeases[i];
+            }
+        }
+    }
+
+    private synchronized long activeLocks() {
+        return size;
+    }
+
+    @Override
+    public void close() {
+        worker.dispose();
+    }
+}
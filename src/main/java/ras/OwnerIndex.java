@@ -0,0 +1,73 @@
+package ras;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+// Orders leases by owner, ignoring case, then by a serial number. Looking up one owner reads a contiguous range
+// without locks, and the leases themselves are the entries, so indexing a lease allocates only a skip-list node.
+final class OwnerIndex<T> {
+
+    abstract static class Entry<T> {
+
+        final T resource;
+        private final long serial;
+
+        Entry(final T resource, final long serial) {
+            this.resource = resource;
+            this.serial = serial;
+        }
+
+        // Must stay equal, ignoring case, for as long as the entry is indexed.
+        abstract String owner();
+    }
+
+    private static final class Bound<T> extends Entry<T> {
+
+        private final String owner;
+
+        Bound(final String owner, final long serial) {
+            super(null, serial);
+            this.owner = owner;
+        }
+
+        @Override
+        String owner() {
+            return owner;
+        }
+    }
+
+    private static final Comparator<Entry<?>> ORDER = Comparator.<Entry<?>, String>comparing(Entry::owner, String.CASE_INSENSITIVE_ORDER)
+            .thenComparingLong(entry -> entry.serial);
+
+    private final ConcurrentSkipListSet<Entry<T>> entries = new ConcurrentSkipListSet<>(ORDER);
+    private long nextSerial;
+
+    // Callers serialize writes, so the serial counter needs no atomics.
+    long nextSerial() {
+        return nextSerial++;
+    }
+
+    void add(final Entry<T> entry) {
+        entries.add(entry);
+    }
+
+    void remove(final Entry<T> entry) {
+        entries.remove(entry);
+    }
+
+    // A live view of one owner's range; walking it costs O(log n) plus the owner's entries.
+    Set<Entry<T>> entriesOf(final String owner) {
+        return entries.subSet(new Bound<>(owner, Long.MIN_VALUE), true, new Bound<>(owner, Long.MAX_VALUE), true);
+    }
+
+    List<T> resourcesOf(final String owner) {
+        final List<T> resources = new ArrayList<>();
+        for (final Entry<T> entry : entriesOf(owner)) {
+            resources.add(entry.resource);
+        }
+        return resources;
+    }
+}
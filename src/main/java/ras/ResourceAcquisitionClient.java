@@ -0,0 +1,112 @@
+package ras;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Talks to a ResourceAcquisitionServer over one connection. commitAll writes every request before reading any reply,
+// so a batch costs one round trip. A lost connection or a server that stays silent for longer than the timeout surfaces
+// as an UncheckedIOException and closes the client, because the stream may have stopped inside a frame.
+public final class ResourceAcquisitionClient<T> implements ResourceAcquisitionService<T>, AutoCloseable {
+
+    private final ResourceKeyCodec<T> codec;
+    private final long timeoutMillis;
+    private final SocketChannel channel;
+    private final Selector selector;
+    private final SelectionKey key;
+    private final ReentrantLock lock = new ReentrantLock();
+    private ByteBuffer input = ByteBuffer.allocate(ResourceAcquisitionProtocol.BUFFER_SIZE);
+    private ByteBuffer output = ByteBuffer.allocate(ResourceAcquisitionProtocol.BUFFER_SIZE);
+
+    public ResourceAcquisitionClient(final InetSocketAddress address, final ResourceKeyCodec<T> codec) throws IOException {
+        this(address, codec, TimeSpan.Default);
+    }
+
+    public ResourceAcquisitionClient(final InetSocketAddress address, final ResourceKeyCodec<T> codec, final TimeSpan timeout) throws IOException {
+        this.codec = Objects.requireNonNull(codec, "codec");
+        Objects.requireNonNull(timeout, "timeout");
+        this.timeoutMillis = timeout.getUnit().toMillis(timeout.getInterval());
+        if (timeoutMillis <= 0) {
+            throw new IllegalArgumentException("timeout must be at least one millisecond");
+        }
+        this.channel = SocketChannel.open(address);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        channel.configureBlocking(false);
+        this.selector = Selector.open();
+        this.key = channel.register(selector, SelectionKey.OP_READ);
+    }
+
+    @Override
+    public ResourceAcquisitionResponse commit(final ResourceAcquisitionCommand command, final String userName, final T resource) {
+        return commitAll(List.of(new ResourceAcquisitionRequest<>(command, userName, resource))).get(0);
+    }
+
+    @Override
+    public List<ResourceAcquisitionResponse> commitAll(final List<ResourceAcquisitionRequest<T>> requests) {
+        lock.lock();
+        try {
+            // A request that cannot be encoded fails before anything is sent and leaves the connection usable.
+            output.clear();
+            for (final ResourceAcquisitionRequest<T> request : requests) {
+                output = ResourceAcquisitionProtocol.writeRequest(output, request, codec);
+            }
+            output.flip();
+            return ResourceAcquisitionProtocol.unchecked(() -> exchange(requests.size()));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private List<ResourceAcquisitionResponse> exchange(final int count) throws IOException {
+        if (!channel.isOpen()) {
+            throw new ClosedChannelException();
+        }
+        try {
+            return receive(count);
+        } catch (IOException | RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    // Writes and reads interleave so that a batch larger than both socket buffers cannot deadlock against the server.
+    private List<ResourceAcquisitionResponse> receive(final int count) throws IOException {
+        final List<ResourceAcquisitionResponse> responses = new ArrayList<>(count);
+        while (responses.size() < count) {
+            key.interestOps(output.hasRemaining() ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+            if (selector.select(timeoutMillis) == 0) {
+                throw new SocketTimeoutException("no reply from the server within " + timeoutMillis + " ms");
+            }
+            selector.selectedKeys().clear();
+            if (output.hasRemaining()) {
+                channel.write(output);
+            }
+            if (channel.read(input) < 0) {
+                throw new EOFException("server closed the connection");
+            }
+            input.flip();
+            while (ResourceAcquisitionProtocol.hasFrame(input)) {
+                responses.add(ResourceAcquisitionProtocol.readResponse(input));
+            }
+            input = ResourceAcquisitionProtocol.compact(input);
+        }
+        return responses;
+    }
+
+    @Override
+    public void close() throws IOException {
+        selector.close();
+        channel.close();
+    }
+}
@@ -0,0 +1,28 @@
+package ras;
+
+public final class ResourceAcquisitionGroupResponse<T> {
+
+    private final ResourceAcquisitionCommandResult commitResult;
+    private final AcquiredResource acquiredResource;
+    private final T blockingResource;
+
+    public ResourceAcquisitionGroupResponse(final ResourceAcquisitionCommandResult commitResult,
+                                            final AcquiredResource acquiredResource,
+                                            final T blockingResource) {
+        this.commitResult = commitResult;
+        this.acquiredResource = acquiredResource;
+        this.blockingResource = blockingResource;
+    }
+
+    public final ResourceAcquisitionCommandResult getCommitResult() {
+        return commitResult;
+    }
+
+    public final AcquiredResource getResource() {
+        return acquiredResource;
+    }
+
+    public final T getBlockingResource() {
+        return blockingResource;
+    }
+}
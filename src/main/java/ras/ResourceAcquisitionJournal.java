@@ -0,0 +1,423 @@
+package ras;
+
+import io.reactivex.rxjava3.core.Scheduler;
+import io.reactivex.rxjava3.schedulers.Schedulers;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+// Appends go to the active segment, path.<generation>, a memory-mapped file of capacity fixed-size records. A full
+// segment is sealed and a fresh one takes over; the sync worker then folds the sealed segments into the compacted
+// base file at path, off the service lock. Replay reads the base and then every segment in generation order. A crash
+// between replacing the base and deleting the folded segments leaves segments whose records the base already holds;
+// replaying them again ends in the same state.
+public final class ResourceAcquisitionJournal<T> implements AutoCloseable {
+
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+    public static final TimeSpan DEFAULT_SYNC_INTERVAL = new TimeSpan(10, TimeUnit.MILLISECONDS);
+
+    static final int RECORD_SIZE = 256;
+    static final int MAGIC = 0x5241534A;
+    static final int VERSION = 1;
+
+    private static final byte LOCK = 1;
+    private static final byte UNLOCK = 2;
+    private static final int TYPE_OFFSET = Integer.BYTES;
+    private static final int TIMESTAMP_OFFSET = TYPE_OFFSET + 1;
+    private static final int DEADLINE_OFFSET = TIMESTAMP_OFFSET + Long.BYTES;
+    private static final int KEY_OFFSET = DEADLINE_OFFSET + Long.BYTES;
+    private static final int MAX_PAYLOAD = RECORD_SIZE - KEY_OFFSET - 2 * Short.BYTES;
+
+    record Lease<K>(K resource, String userName, long timestampMillis, long deadlineMillis) {
+    }
+
+    private record Segment(Path path, MappedByteBuffer buffer) {
+    }
+
+    // One record's bytes. The appender and the compaction each own one, so they can run at the same time.
+    private static final class RecordBuffer {
+
+        private final CRC32C checksum = new CRC32C();
+        private final byte[] record = new byte[RECORD_SIZE];
+        private final ByteBuffer view = ByteBuffer.wrap(record);
+
+        void encode(final byte type, final byte[] key, final byte[] owner, final long timestampMillis, final long deadlineMillis) {
+            Arrays.fill(record, (byte) 0);
+            record[TYPE_OFFSET] = type;
+            view.putLong(TIMESTAMP_OFFSET, timestampMillis);
+            view.putLong(DEADLINE_OFFSET, deadlineMillis);
+            view.putShort(KEY_OFFSET, (short) key.length);
+            System.arraycopy(key, 0, record, KEY_OFFSET + Short.BYTES, key.length);
+            final int ownerOffset = KEY_OFFSET + Short.BYTES + key.length;
+            view.putShort(ownerOffset, (short) owner.length);
+            System.arraycopy(owner, 0, record, ownerOffset + Short.BYTES, owner.length);
+            view.putInt(0, checksumOfRecord());
+        }
+
+        // Whether the slot holds an intact record; an unwritten or torn slot fails its checksum.
+        boolean read(final MappedByteBuffer buffer, final int index) {
+            buffer.get(offsetOf(index), record);
+            return view.getInt(0) == checksumOfRecord();
+        }
+
+        private int checksumOfRecord() {
+            checksum.reset();
+            checksum.update(record, TYPE_OFFSET, RECORD_SIZE - TYPE_OFFSET);
+            return (int) checksum.getValue();
+        }
+    }
+
+    private final Path path;
+    private final Pattern segmentName;
+    private final ResourceKeyCodec<T> codec;
+    private final int capacity;
+    private final Scheduler.Worker worker;
+    private final RecordBuffer appendRecord = new RecordBuffer();
+    private final List<Lease<T>> recoveredLeases;
+    // Orders forces: a caller that gets the lock after a force began finds its records already covered.
+    private final ReentrantLock syncLock = new ReentrantLock();
+    // Guards the segment lists and the active segment, for the short hand-offs between appender, sync and compaction.
+    private final ReentrantLock segmentsLock = new ReentrantLock();
+    private final ReentrantLock compactionLock = new ReentrantLock();
+    private final List<Segment> sealed = new ArrayList<>();
+    private final List<MappedByteBuffer> unforced = new ArrayList<>();
+    private Segment active;
+    private long generation;
+    private int position;
+    private volatile long appended;
+    private volatile long durable;
+    private MappedByteBuffer base;
+    private boolean closed;
+    private volatile IOException compactionFailure;
+
+    public ResourceAcquisitionJournal(final Path path, final ResourceKeyCodec<T> codec) throws IOException {
+        this(path, codec, DEFAULT_CAPACITY, Schedulers.io(), DEFAULT_SYNC_INTERVAL);
+    }
+
+    public ResourceAcquisitionJournal(final Path path,
+                                      final ResourceKeyCodec<T> codec,
+                                      final int capacity,
+                                      final Scheduler syncScheduler,
+                                      final TimeSpan syncInterval) throws IOException {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        if (syncInterval.getInterval() <= 0) {
+            throw new IllegalArgumentException("syncInterval must be positive");
+        }
+        this.path = Objects.requireNonNull(path, "path").toAbsolutePath();
+        this.segmentName = Pattern.compile(Pattern.quote(this.path.getFileName().toString()) + "\\.(\\d+)");
+        this.codec = Objects.requireNonNull(codec, "codec");
+        this.capacity = capacity;
+        final Map<T, Lease<T>> leases = new LinkedHashMap<>();
+        if (Files.exists(this.path)) {
+            base = mapExisting(this.path);
+            replay(base, leases, appendRecord);
+        }
+        for (final Map.Entry<Long, Path> segment : existingSegments().entrySet()) {
+            final MappedByteBuffer buffer = mapExisting(segment.getValue());
+            replay(buffer, leases, appendRecord);
+            sealed.add(new Segment(segment.getValue(), buffer));
+            generation = segment.getKey();
+        }
+        this.recoveredLeases = new ArrayList<>(leases.values());
+        this.active = createSegment(++generation);
+        this.worker = syncScheduler.createWorker();
+        worker.schedulePeriodically(this::sync, syncInterval.getInterval(), syncInterval.getInterval(), syncInterval.getUnit());
+        if (!sealed.isEmpty()) {
+            worker.schedule(this::compact);
+        }
+    }
+
+    List<Lease<T>> getRecoveredLeases() {
+        return recoveredLeases;
+    }
+
+    long unsyncedRecords() {
+        syncLock.lock();
+        try {
+            return appended - durable;
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    // The record methods return the journal position just past the new record, for sync(position).
+    long recordLock(final T resource, final String userName, final long timestampMillis, final long deadlineMillis) {
+        return append(LOCK, resource, userName, timestampMillis, deadlineMillis);
+    }
+
+    void checkRecord(final T resource, final String userName) {
+        checkPayload(codec.encode(resource), userName.getBytes(StandardCharsets.UTF_8));
+    }
+
+    long recordUnlock(final T resource) {
+        return append(UNLOCK, resource, "", 0L, 0L);
+    }
+
+    public void sync() {
+        sync(appended);
+    }
+
+    // Group commit: returns once every record before the position is on disk. A position already covered returns
+    // without the lock; callers that arrive while another caller forces the segments wait on it, and most find their
+    // records covered by that force when they get it.
+    void sync(final long position) {
+        if (durable >= position) {
+            return;
+        }
+        syncLock.lock();
+        try {
+            // Runs at most once: a force covers everything appended before it started.
+            while (durable < position) {
+                final long batch = appended;
+                final List<MappedByteBuffer> buffers;
+                segmentsLock.lock();
+                try {
+                    buffers = new ArrayList<>(unforced);
+                    unforced.clear();
+                    buffers.add(active.buffer());
+                } finally {
+                    segmentsLock.unlock();
+                }
+                for (final MappedByteBuffer buffer : buffers) {
+                    buffer.force();
+                }
+                durable = batch;
+            }
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    // Waits for a compaction in progress, which keeps its files consistent, and forces what is left. A compaction that
+    // starts later leaves the files alone.
+    @Override
+    public void close() {
+        worker.dispose();
+        compactionLock.lock();
+        try {
+            closed = true;
+        } finally {
+            compactionLock.unlock();
+        }
+        sync();
+    }
+
+    // The last compaction's failure, or null once one succeeds. A failed compaction keeps every segment and the next
+    // rotation tries again, so the journal stays complete; the failure usually means the disk is full or unwritable.
+    public IOException compactionFailure() {
+        return compactionFailure;
+    }
+
+    private long append(final byte type, final T resource, final String userName, final long timestampMillis, final long deadlineMillis) {
+        final byte[] key = codec.encode(resource);
+        final byte[] owner = userName.getBytes(StandardCharsets.UTF_8);
+        checkPayload(key, owner);
+        if (position == capacity) {
+            rotate();
+        }
+        appendRecord.encode(type, key, owner, timestampMillis, deadlineMillis);
+        active.buffer().put(offsetOf(position), appendRecord.record);
+        position++;
+        return ++appended;
+    }
+
+    // Creating and mapping the next segment is the only file work an append ever does.
+    private void rotate() {
+        final Segment next;
+        try {
+            next = createSegment(generation + 1);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        segmentsLock.lock();
+        try {
+            sealed.add(active);
+            unforced.add(active.buffer());
+            active = next;
+        } finally {
+            segmentsLock.unlock();
+        }
+        generation++;
+        position = 0;
+        worker.schedule(this::compact);
+    }
+
+    // Folds the base and the sealed segments into a new base. The segments are deleted only once the new base and its
+    // directory entry are on disk; a failure before that keeps them, and the next rotation tries again.
+    void compact() {
+        compactionLock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            final List<Segment> segments;
+            segmentsLock.lock();
+            try {
+                segments = new ArrayList<>(sealed);
+            } finally {
+                segmentsLock.unlock();
+            }
+            if (segments.isEmpty()) {
+                return;
+            }
+            final RecordBuffer record = new RecordBuffer();
+            final Map<T, Lease<T>> leases = new LinkedHashMap<>();
+            if (base != null) {
+                replay(base, leases, record);
+            }
+            for (final Segment segment : segments) {
+                replay(segment.buffer(), leases, record);
+            }
+            final Path compacted = path.resolveSibling(path.getFileName() + ".compact");
+            try {
+                final MappedByteBuffer mapped;
+                try (FileChannel target = FileChannel.open(compacted,
+                        StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                    mapped = map(target, Math.max(1, leases.size()));
+                }
+                int index = 0;
+                for (final Lease<T> lease : leases.values()) {
+                    record.encode(LOCK, codec.encode(lease.resource()), lease.userName().getBytes(StandardCharsets.UTF_8),
+                            lease.timestampMillis(), lease.deadlineMillis());
+                    mapped.put(offsetOf(index++), record.record);
+                }
+                mapped.force();
+                Files.move(compacted, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                base = mapped;
+                forceDirectory();
+            } catch (IOException e) {
+                deleteQuietly(compacted, e);
+                compactionFailure = e;
+                return;
+            }
+            // The base now holds every folded record, so a segment left behind by a failed delete replays to the same
+            // leases and is only a stale file.
+            segmentsLock.lock();
+            try {
+                sealed.subList(0, segments.size()).clear();
+            } finally {
+                segmentsLock.unlock();
+            }
+            IOException failure = null;
+            for (final Segment segment : segments) {
+                try {
+                    Files.deleteIfExists(segment.path());
+                } catch (IOException e) {
+                    failure = e;
+                }
+            }
+            compactionFailure = failure;
+        } finally {
+            compactionLock.unlock();
+        }
+    }
+
+    // Makes the rename of the new base durable before the segments it replaces are deleted.
+    private void forceDirectory() throws IOException {
+        try (FileChannel directory = FileChannel.open(path.getParent(), StandardOpenOption.READ)) {
+            directory.force(true);
+        }
+    }
+
+    private static void deleteQuietly(final Path file, final IOException failure) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            failure.addSuppressed(e);
+        }
+    }
+
+    private static void checkPayload(final byte[] key, final byte[] owner) {
+        if (key.length + owner.length > MAX_PAYLOAD) {
+            throw new IllegalArgumentException("resource and user name must encode to at most " + MAX_PAYLOAD + " bytes");
+        }
+    }
+
+    // Applies one file's records in order, stopping at the first torn record.
+    private void replay(final MappedByteBuffer buffer, final Map<T, Lease<T>> leases, final RecordBuffer record) {
+        final int records = buffer.capacity() / RECORD_SIZE - 1;
+        for (int index = 0; index < records && record.read(buffer, index); index++) {
+            final ByteBuffer view = record.view;
+            final int keyLength = view.getShort(KEY_OFFSET);
+            final int keyOffset = KEY_OFFSET + Short.BYTES;
+            final T resource = codec.decode(Arrays.copyOfRange(record.record, keyOffset, keyOffset + keyLength));
+            if (record.record[TYPE_OFFSET] == LOCK) {
+                final int ownerOffset = keyOffset + keyLength;
+                final String userName = new String(record.record, ownerOffset + Short.BYTES, view.getShort(ownerOffset), StandardCharsets.UTF_8);
+                leases.put(resource, new Lease<>(resource, userName, view.getLong(TIMESTAMP_OFFSET), view.getLong(DEADLINE_OFFSET)));
+            } else {
+                leases.remove(resource);
+            }
+        }
+    }
+
+    private TreeMap<Long, Path> existingSegments() throws IOException {
+        final TreeMap<Long, Path> segments = new TreeMap<>();
+        try (Stream<Path> files = Files.list(path.getParent())) {
+            for (final Path file : (Iterable<Path>) files::iterator) {
+                final Matcher matcher = segmentName.matcher(file.getFileName().toString());
+                if (matcher.matches()) {
+                    segments.put(Long.parseLong(matcher.group(1)), file);
+                }
+            }
+        }
+        return segments;
+    }
+
+    private Segment createSegment(final long segmentGeneration) throws IOException {
+        final Path segmentPath = path.resolveSibling(path.getFileName() + "." + segmentGeneration);
+        try (FileChannel channel = FileChannel.open(segmentPath,
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return new Segment(segmentPath, map(channel, capacity));
+        }
+    }
+
+    private static MappedByteBuffer mapExisting(final Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            if (size < 2L * RECORD_SIZE || size % RECORD_SIZE != 0) {
+                throw new IOException(file + " is not a resource acquisition journal");
+            }
+            final MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (mapped.getInt(0) != MAGIC || mapped.getInt(Integer.BYTES) != VERSION || mapped.getInt(2 * Integer.BYTES) != RECORD_SIZE) {
+                throw new IOException(file + " is not a resource acquisition journal");
+            }
+            return mapped;
+        }
+    }
+
+    private static MappedByteBuffer map(final FileChannel target, final int records) throws IOException {
+        final MappedByteBuffer mapped = target.map(FileChannel.MapMode.READ_WRITE, 0, (long) (records + 1) * RECORD_SIZE);
+        mapped.putInt(0, MAGIC);
+        mapped.putInt(Integer.BYTES, VERSION);
+        mapped.putInt(2 * Integer.BYTES, RECORD_SIZE);
+        return mapped;
+    }
+
+    private static int offsetOf(final int index) {
+        return (index + 1) * RECORD_SIZE;
+    }
+}
@@ -3,11 +3,22 @@ package ras;
 import io.opentelemetry.api.GlobalOpenTelemetry;
 import io.opentelemetry.api.common.AttributeKey;
 import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.BatchCallback;
+import io.opentelemetry.api.metrics.DoubleHistogram;
 import io.opentelemetry.api.metrics.LongCounter;
+import io.opentelemetry.api.metrics.LongCounterBuilder;
 import io.opentelemetry.api.metrics.LongUpDownCounter;
+import io.opentelemetry.api.metrics.LongUpDownCounterBuilder;
 import io.opentelemetry.api.metrics.Meter;
+import io.opentelemetry.api.metrics.ObservableDoubleMeasurement;
+import io.opentelemetry.api.metrics.ObservableLongMeasurement;
 
+import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
 
 public final class ResourceAcquisitionMetrics {
 
@@ -15,47 +26,344 @@ public final class ResourceAcquisitionMetrics {
     static final String COMMANDS_METRIC_NAME = "ras.resource_acquisition.commands";
     static final String RESULTS_METRIC_NAME = "ras.resource_acquisition.results";
     static final String ACTIVE_LOCKS_METRIC_NAME = "ras.resource_acquisition.active_locks";
+    static final String COMMIT_DURATION_METRIC_NAME = "ras.resource_acquisition.commit.duration";
+    static final String HOLD_DURATION_METRIC_NAME = "ras.resource_acquisition.lock.hold_duration";
+    static final String EXPIRY_LAG_METRIC_NAME = "ras.resource_acquisition.expiry.lag";
+    static final String REPLICATION_LAG_METRIC_NAME = "ras.resource_acquisition.replication.lag";
+    static final String HOT_KEY_LOCK_ATTEMPTS_METRIC_NAME = "ras.resource_acquisition.hot_keys.lock_attempts";
+    static final String HOT_KEY_LOCK_FAILURES_METRIC_NAME = "ras.resource_acquisition.hot_keys.lock_failures";
+    static final String HOT_KEY_HOLD_TIME_METRIC_NAME = "ras.resource_acquisition.hot_keys.hold_time";
+
+    static final List<Double> DEFAULT_COMMIT_DURATION_BUCKETS = List.of(
+            0.000_001, 0.000_005, 0.000_01, 0.000_05, 0.000_1, 0.000_5, 0.001, 0.005, 0.01, 0.05, 0.1);
+    static final List<Double> DEFAULT_HOLD_DURATION_BUCKETS = List.of(
+            0.01, 0.1, 0.5, 1.0, 5.0, 10.0, 30.0, 60.0, 300.0, 900.0, 3600.0);
+    static final List<Double> DEFAULT_EXPIRY_LAG_BUCKETS = List.of(
+            0.000_1, 0.000_5, 0.001, 0.005, 0.01, 0.05, 0.1, 0.5, 1.0, 5.0);
+    static final List<Double> DEFAULT_REPLICATION_LAG_BUCKETS = List.of(
+            0.000_1, 0.000_5, 0.001, 0.005, 0.01, 0.05, 0.1, 0.5, 1.0, 5.0);
+
+    private static final double NANOS_PER_SECOND = 1_000_000_000.0;
+
+    static final AttributeKey<Long> SHARD_ATTRIBUTE = AttributeKey.longKey("shard");
 
     private static final AttributeKey<String> COMMAND_ATTRIBUTE = AttributeKey.stringKey("command");
     private static final AttributeKey<String> RESULT_ATTRIBUTE = AttributeKey.stringKey("result");
+    private static final AttributeKey<String> RESOURCE_ATTRIBUTE = AttributeKey.stringKey("resource");
 
+    private final Meter meter;
+    private final Attributes attributes;
+    private final Attributes[] commandAttributes;
+    private final Attributes[] resultAttributes;
     private final LongCounter commandCounter;
     private final LongCounter resultCounter;
     private final LongUpDownCounter activeLocksCounter;
+    // Striped mode only: this view's counts, and every view sharing the observable instruments. Null otherwise.
+    private final List<ResourceAcquisitionMetrics> stripedViews;
+    private final LongAdder[] commandCounts;
+    private final LongAdder[] resultCounts;
+    // Striped mode only: the lease count of the service recording into this view, read when the meter collects.
+    private volatile LongSupplier activeLocks;
+    private final DoubleHistogram commitDuration;
+    private final DoubleHistogram holdDuration;
+    private final DoubleHistogram expiryLag;
+    private final DoubleHistogram replicationLag;
 
     public ResourceAcquisitionMetrics(final Meter meter) {
-        Objects.requireNonNull(meter, "meter");
-        this.commandCounter = meter.counterBuilder(COMMANDS_METRIC_NAME)
+        this(meter, DEFAULT_COMMIT_DURATION_BUCKETS, DEFAULT_HOLD_DURATION_BUCKETS, DEFAULT_EXPIRY_LAG_BUCKETS);
+    }
+
+    public ResourceAcquisitionMetrics(final Meter meter,
+                                      final List<Double> commitDurationBuckets,
+                                      final List<Double> holdDurationBuckets,
+                                      final List<Double> expiryLagBuckets) {
+        this(meter, commitDurationBuckets, holdDurationBuckets, expiryLagBuckets, DEFAULT_REPLICATION_LAG_BUCKETS);
+    }
+
+    public ResourceAcquisitionMetrics(final Meter meter,
+                                      final List<Double> commitDurationBuckets,
+                                      final List<Double> holdDurationBuckets,
+                                      final List<Double> expiryLagBuckets,
+                                      final List<Double> replicationLagBuckets) {
+        this(meter, commitDurationBuckets, holdDurationBuckets, expiryLagBuckets, replicationLagBuckets, false);
+    }
+
+    private ResourceAcquisitionMetrics(final Meter meter,
+                                       final List<Double> commitDurationBuckets,
+                                       final List<Double> holdDurationBuckets,
+                                       final List<Double> expiryLagBuckets,
+                                       final List<Double> replicationLagBuckets,
+                                       final boolean striped) {
+        this.meter = Objects.requireNonNull(meter, "meter");
+        this.attributes = Attributes.empty();
+        this.commandAttributes = attributesOf(attributes, COMMAND_ATTRIBUTE, ResourceAcquisitionCommand.values());
+        this.resultAttributes = attributesOf(attributes, RESULT_ATTRIBUTE, ResourceAcquisitionCommandResult.values());
+        final LongCounterBuilder commands = meter.counterBuilder(COMMANDS_METRIC_NAME)
                 .setDescription("Number of resource acquisition commands received.")
-                .setUnit("{command}")
-                .build();
-        this.resultCounter = meter.counterBuilder(RESULTS_METRIC_NAME)
+                .setUnit("{command}");
+        final LongCounterBuilder results = meter.counterBuilder(RESULTS_METRIC_NAME)
                 .setDescription("Number of resource acquisition command results produced.")
-                .setUnit("{result}")
-                .build();
-        this.activeLocksCounter = meter.upDownCounterBuilder(ACTIVE_LOCKS_METRIC_NAME)
+                .setUnit("{result}");
+        final LongUpDownCounterBuilder activeLocks = meter.upDownCounterBuilder(ACTIVE_LOCKS_METRIC_NAME)
                 .setDescription("Current number of resources held by the acquisition service.")
-                .setUnit("{lock}")
+                .setUnit("{lock}");
+        if (striped) {
+            this.stripedViews = new CopyOnWriteArrayList<>();
+            this.commandCounts = addersOf(ResourceAcquisitionCommand.values().length);
+            this.resultCounts = addersOf(ResourceAcquisitionCommandResult.values().length);
+            this.commandCounter = null;
+            this.resultCounter = null;
+            this.activeLocksCounter = null;
+            stripedViews.add(this);
+            commands.buildWithCallback(measurement -> {
+                for (final ResourceAcquisitionMetrics view : stripedViews) {
+                    observe(measurement, view.commandCounts, view.commandAttributes);
+                }
+            });
+            results.buildWithCallback(measurement -> {
+                for (final ResourceAcquisitionMetrics view : stripedViews) {
+                    observe(measurement, view.resultCounts, view.resultAttributes);
+                }
+            });
+            activeLocks.buildWithCallback(measurement -> {
+                for (final ResourceAcquisitionMetrics view : stripedViews) {
+                    final LongSupplier count = view.activeLocks;
+                    if (count != null) {
+                        measurement.record(count.getAsLong(), view.attributes);
+                    }
+                }
+            });
+        } else {
+            this.stripedViews = null;
+            this.commandCounts = null;
+            this.resultCounts = null;
+            this.commandCounter = commands.build();
+            this.resultCounter = results.build();
+            this.activeLocksCounter = activeLocks.build();
+        }
+        this.commitDuration = meter.histogramBuilder(COMMIT_DURATION_METRIC_NAME)
+                .setDescription("Duration of resource acquisition commits, including time spent waiting for the service lock.")
+                .setUnit("s")
+                .setExplicitBucketBoundariesAdvice(Objects.requireNonNull(commitDurationBuckets, "commitDurationBuckets"))
+                .build();
+        this.holdDuration = meter.histogramBuilder(HOLD_DURATION_METRIC_NAME)
+                .setDescription("Time a resource stayed locked, from acquisition to unlock or expiry.")
+                .setUnit("s")
+                .setExplicitBucketBoundariesAdvice(Objects.requireNonNull(holdDurationBuckets, "holdDurationBuckets"))
+                .build();
+        this.expiryLag = meter.histogramBuilder(EXPIRY_LAG_METRIC_NAME)
+                .setDescription("Delay between a lock's unlock deadline and the moment its expiry was processed.")
+                .setUnit("s")
+                .setExplicitBucketBoundariesAdvice(Objects.requireNonNull(expiryLagBuckets, "expiryLagBuckets"))
                 .build();
+        this.replicationLag = meter.histogramBuilder(REPLICATION_LAG_METRIC_NAME)
+                .setDescription("Time from a lease change on the primary to its acknowledgement by a standby.")
+                .setUnit("s")
+                .setExplicitBucketBoundariesAdvice(Objects.requireNonNull(replicationLagBuckets, "replicationLagBuckets"))
+                .build();
+    }
+
+    private ResourceAcquisitionMetrics(final ResourceAcquisitionMetrics metrics, final Attributes attributes) {
+        this.meter = metrics.meter;
+        this.attributes = metrics.attributes.toBuilder().putAll(attributes).build();
+        this.commandAttributes = attributesOf(this.attributes, COMMAND_ATTRIBUTE, ResourceAcquisitionCommand.values());
+        this.resultAttributes = attributesOf(this.attributes, RESULT_ATTRIBUTE, ResourceAcquisitionCommandResult.values());
+        this.commandCounter = metrics.commandCounter;
+        this.resultCounter = metrics.resultCounter;
+        this.activeLocksCounter = metrics.activeLocksCounter;
+        this.stripedViews = metrics.stripedViews;
+        if (stripedViews != null) {
+            this.commandCounts = addersOf(commandAttributes.length);
+            this.resultCounts = addersOf(resultAttributes.length);
+            stripedViews.add(this);
+        } else {
+            this.commandCounts = null;
+            this.resultCounts = null;
+        }
+        this.commitDuration = metrics.commitDuration;
+        this.holdDuration = metrics.holdDuration;
+        this.expiryLag = metrics.expiryLag;
+        this.replicationLag = metrics.replicationLag;
+    }
+
+    private static Attributes[] attributesOf(final Attributes base, final AttributeKey<String> key, final Enum<?>[] values) {
+        final Attributes[] attributes = new Attributes[values.length];
+        for (Enum<?> value : values) {
+            attributes[value.ordinal()] = base.toBuilder().put(key, value.name()).build();
+        }
+        return attributes;
+    }
+
+    private static LongAdder[] addersOf(final int length) {
+        final LongAdder[] adders = new LongAdder[length];
+        for (int i = 0; i < length; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    private static void observe(final ObservableLongMeasurement measurement, final LongAdder[] counts, final Attributes[] attributes) {
+        for (int i = 0; i < counts.length; i++) {
+            final long count = counts[i].sum();
+            if (count != 0) {
+                measurement.record(count, attributes[i]);
+            }
+        }
     }
 
     public static ResourceAcquisitionMetrics createDefault() {
         return new ResourceAcquisitionMetrics(GlobalOpenTelemetry.getMeter(METER_NAME));
     }
 
+    // Counts commands and results in LongAdder cells and reports them through observable instruments when the meter
+    // collects, so recording never enters the SDK. Active locks are read from the lease count each service registers
+    // with observeActiveLocks. Views made by forShard share the instruments. Create one striped instance per meter: a
+    // second one would report the same series twice. Histograms stay synchronous.
+    public static ResourceAcquisitionMetrics striped(final Meter meter) {
+        return new ResourceAcquisitionMetrics(meter,
+                DEFAULT_COMMIT_DURATION_BUCKETS,
+                DEFAULT_HOLD_DURATION_BUCKETS,
+                DEFAULT_EXPIRY_LAG_BUCKETS,
+                DEFAULT_REPLICATION_LAG_BUCKETS,
+                true);
+    }
+
+    public ResourceAcquisitionMetrics forShard(final int shard) {
+        return new ResourceAcquisitionMetrics(this, Attributes.of(SHARD_ATTRIBUTE, (long) shard));
+    }
+
+    // Drops a striped view from collection, so the views of a closed service stop reporting and can be collected.
+    // Synchronous metrics have nothing to release.
+    public void unregister() {
+        if (stripedViews != null) {
+            stripedViews.remove(this);
+        }
+    }
+
+    // Services call this once with their lease count. A striped view reports it as the active-lock count, replacing
+    // any earlier supplier; synchronous metrics count acquires and releases instead and ignore it.
+    public void observeActiveLocks(final LongSupplier activeLocks) {
+        Objects.requireNonNull(activeLocks, "activeLocks");
+        if (stripedViews != null) {
+            this.activeLocks = activeLocks;
+        }
+    }
+
     public void recordCommand(final ResourceAcquisitionCommand command) {
-        commandCounter.add(1, Attributes.of(COMMAND_ATTRIBUTE, command.name()));
+        if (commandCounts != null) {
+            commandCounts[command.ordinal()].increment();
+        } else {
+            commandCounter.add(1, commandAttributes[command.ordinal()]);
+        }
     }
 
     public void recordResult(final ResourceAcquisitionCommandResult result) {
-        resultCounter.add(1, Attributes.of(RESULT_ATTRIBUTE, result.name()));
+        if (resultCounts != null) {
+            resultCounts[result.ordinal()].increment();
+        } else {
+            resultCounter.add(1, resultAttributes[result.ordinal()]);
+        }
+    }
+
+    public void recordCommands(final int[] countsByCommand) {
+        for (int i = 0; i < countsByCommand.length; i++) {
+            if (countsByCommand[i] == 0) {
+                continue;
+            }
+            if (commandCounts != null) {
+                commandCounts[i].add(countsByCommand[i]);
+            } else {
+                commandCounter.add(countsByCommand[i], commandAttributes[i]);
+            }
+        }
+    }
+
+    public void recordResults(final int[] countsByResult) {
+        for (int i = 0; i < countsByResult.length; i++) {
+            if (countsByResult[i] == 0) {
+                continue;
+            }
+            if (resultCounts != null) {
+                resultCounts[i].add(countsByResult[i]);
+            } else {
+                resultCounter.add(countsByResult[i], resultAttributes[i]);
+            }
+        }
     }
 
     public void recordLockAcquired() {
-        activeLocksCounter.add(1);
+        if (activeLocksCounter != null) {
+            activeLocksCounter.add(1, attributes);
+        }
     }
 
     public void recordLockReleased() {
-        activeLocksCounter.add(-1);
+        recordLocksReleased(1);
+    }
+
+    public void recordLocksReleased(final int count) {
+        if (activeLocksCounter != null) {
+            activeLocksCounter.add(-count, attributes);
+        }
+    }
+
+    public boolean isCommitDurationEnabled() {
+        return commitDuration.isEnabled();
+    }
+
+    public void recordCommitDuration(final long nanos) {
+        commitDuration.record(nanos / NANOS_PER_SECOND, attributes);
+    }
+
+    public boolean isHoldDurationEnabled() {
+        return holdDuration.isEnabled();
+    }
+
+    public void recordHoldDuration(final long nanos) {
+        holdDuration.record(nanos / NANOS_PER_SECOND, attributes);
+    }
+
+    public void recordExpiryLag(final long nanos) {
+        expiryLag.record(nanos / NANOS_PER_SECOND, attributes);
+    }
+
+    public void recordReplicationLag(final long nanos) {
+        replicationLag.record(nanos / NANOS_PER_SECOND, attributes);
+    }
+
+    // Publishes the tracked hot keys as gauges with a resource attribute. Only the top keys of each report are observed,
+    // so the number of series stays bounded by the tracker size.
+    public BatchCallback observeHotKeys(final Supplier<? extends HotKeyReport<?>> reports) {
+        Objects.requireNonNull(reports, "reports");
+        final ObservableLongMeasurement lockAttempts = meter.gaugeBuilder(HOT_KEY_LOCK_ATTEMPTS_METRIC_NAME)
+                .setDescription("Estimated lock attempts on the resources with the most attempts.")
+                .setUnit("{attempt}")
+                .ofLongs()
+                .buildObserver();
+        final ObservableLongMeasurement lockFailures = meter.gaugeBuilder(HOT_KEY_LOCK_FAILURES_METRIC_NAME)
+                .setDescription("Estimated failed lock attempts on the resources with the most failures.")
+                .setUnit("{failure}")
+                .ofLongs()
+                .buildObserver();
+        final ObservableDoubleMeasurement holdTime = meter.gaugeBuilder(HOT_KEY_HOLD_TIME_METRIC_NAME)
+                .setDescription("Estimated total time held of the resources held longest.")
+                .setUnit("s")
+                .buildObserver();
+        return meter.batchCallback(() -> {
+            final HotKeyReport<?> report = reports.get();
+            for (final HotKey<?> hotKey : report.getLockAttempts()) {
+                lockAttempts.record(hotKey.getEstimate(), attributesOf(hotKey));
+            }
+            for (final HotKey<?> hotKey : report.getLockFailures()) {
+                lockFailures.record(hotKey.getEstimate(), attributesOf(hotKey));
+            }
+            for (final HotKey<?> hotKey : report.getHoldTimes()) {
+                holdTime.record(hotKey.getEstimate() / NANOS_PER_SECOND, attributesOf(hotKey));
+            }
+        }, lockAttempts, lockFailures, holdTime);
+    }
+
+    private Attributes attributesOf(final HotKey<?> hotKey) {
+        return attributes.toBuilder().put(RESOURCE_ATTRIBUTE, String.valueOf(hotKey.getResource())).build();
     }
 }
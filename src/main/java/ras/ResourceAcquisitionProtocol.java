@@ -0,0 +1,157 @@
+package ras;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+// Length-prefixed frames spoken by ResourceAcquisitionServer and ResourceAcquisitionClient. Every frame starts with the
+// length of its body as an int; strings and keys are a short length followed by their bytes.
+//   request:  command:byte user key
+//   response: result:byte user state:byte timestampMillis:long timeout:long timeoutUnit:byte fencingToken:long
+final class ResourceAcquisitionProtocol {
+
+    static final int MAX_FIELD_LENGTH = 0xFFFF;
+    static final int MAX_FRAME_LENGTH = 1 + 2 * (Short.BYTES + MAX_FIELD_LENGTH);
+    static final int BUFFER_SIZE = 1 << 16;
+
+    private static final int REQUEST_OVERHEAD = Integer.BYTES + 1 + 2 * Short.BYTES;
+    private static final int RESPONSE_OVERHEAD = Integer.BYTES + 1 + Short.BYTES + 1 + 3 * Long.BYTES + 1;
+    private static final ResourceAcquisitionCommand[] COMMANDS = ResourceAcquisitionCommand.values();
+    private static final ResourceAcquisitionCommandResult[] RESULTS = ResourceAcquisitionCommandResult.values();
+    private static final ResourceAcquisitionState[] STATES = ResourceAcquisitionState.values();
+    private static final TimeUnit[] UNITS = TimeUnit.values();
+
+    interface IoCall<R> {
+        R call() throws IOException;
+    }
+
+    private ResourceAcquisitionProtocol() {
+    }
+
+    static <R> R unchecked(final IoCall<R> call) {
+        try {
+            return call.call();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static <T> ByteBuffer writeRequest(final ByteBuffer buffer, final ResourceAcquisitionRequest<T> request, final ResourceKeyCodec<T> codec) {
+        final byte[] user = checkLength(request.getUserName().getBytes(StandardCharsets.UTF_8));
+        final byte[] key = checkLength(codec.encode(request.getResource()));
+        final int length = REQUEST_OVERHEAD + user.length + key.length;
+        return reserve(buffer, length)
+                .putInt(length - Integer.BYTES)
+                .put((byte) request.getCommand().ordinal())
+                .putShort((short) user.length).put(user)
+                .putShort((short) key.length).put(key);
+    }
+
+    static <T> ResourceAcquisitionRequest<T> readRequest(final ByteBuffer buffer, final ResourceKeyCodec<T> codec) throws ProtocolException {
+        final ByteBuffer frame = nextFrame(buffer);
+        final ResourceAcquisitionCommand command = valueOf(COMMANDS, frame.get());
+        final String userName = new String(readField(frame), StandardCharsets.UTF_8);
+        final T resource = codec.decode(readField(frame));
+        checkConsumed(frame);
+        return new ResourceAcquisitionRequest<>(command, userName, resource);
+    }
+
+    static ByteBuffer writeResponse(final ByteBuffer buffer, final ResourceAcquisitionResponse response) {
+        final AcquiredResource acquiredResource = response.getResource();
+        final byte[] user = checkLength(acquiredResource.getUserName().getBytes(StandardCharsets.UTF_8));
+        final TimeSpan timestamp = acquiredResource.getUtcTimeStamp();
+        final TimeSpan timeout = acquiredResource.getStateTimeout();
+        final int length = RESPONSE_OVERHEAD + user.length;
+        return reserve(buffer, length)
+                .putInt(length - Integer.BYTES)
+                .put((byte) response.getCommitResult().ordinal())
+                .putShort((short) user.length).put(user)
+                .put((byte) acquiredResource.getState().ordinal())
+                .putLong(timestamp.getUnit().toMillis(timestamp.getInterval()))
+                .putLong(timeout.getInterval())
+                .put((byte) timeout.getUnit().ordinal())
+                .putLong(response.getFencingToken());
+    }
+
+    static ResourceAcquisitionResponse readResponse(final ByteBuffer buffer) throws ProtocolException {
+        final ByteBuffer frame = nextFrame(buffer);
+        final ResourceAcquisitionCommandResult result = valueOf(RESULTS, frame.get());
+        final String userName = new String(readField(frame), StandardCharsets.UTF_8);
+        final ResourceAcquisitionState state = valueOf(STATES, frame.get());
+        final long timestampMillis = frame.getLong();
+        final long timeout = frame.getLong();
+        final TimeUnit unit = valueOf(UNITS, frame.get());
+        final long fencingToken = frame.getLong();
+        checkConsumed(frame);
+        return new ResourceAcquisitionResponse(
+                result, AcquiredResource.restore(userName, state, new TimeSpan(timeout, unit), timestampMillis), fencingToken);
+    }
+
+    // Whether the buffer, in read mode, holds a whole frame. A length outside the protocol's range fails the connection
+    // before anything is allocated for it.
+    static boolean hasFrame(final ByteBuffer buffer) throws ProtocolException {
+        if (buffer.remaining() < Integer.BYTES) {
+            return false;
+        }
+        final int length = buffer.getInt(buffer.position());
+        if (length < 0 || length > MAX_FRAME_LENGTH) {
+            throw new ProtocolException("frame length " + length + " is out of range");
+        }
+        return buffer.remaining() - Integer.BYTES >= length;
+    }
+
+    // Switches a read buffer back to write mode, growing it when the partial frame at its head would not fit.
+    static ByteBuffer compact(final ByteBuffer buffer) {
+        if (buffer.remaining() >= Integer.BYTES) {
+            final int frameLength = Integer.BYTES + buffer.getInt(buffer.position());
+            if (frameLength > buffer.capacity()) {
+                return ByteBuffer.allocate(frameLength).put(buffer);
+            }
+        }
+        return buffer.compact();
+    }
+
+    private static ByteBuffer reserve(final ByteBuffer buffer, final int length) {
+        if (buffer.remaining() >= length) {
+            return buffer;
+        }
+        return ByteBuffer.allocate(Math.max(2 * buffer.capacity(), buffer.position() + length)).put(buffer.flip());
+    }
+
+    private static ByteBuffer nextFrame(final ByteBuffer buffer) {
+        final int length = buffer.getInt();
+        final ByteBuffer frame = buffer.slice(buffer.position(), length);
+        buffer.position(buffer.position() + length);
+        return frame;
+    }
+
+    private static byte[] readField(final ByteBuffer frame) {
+        final byte[] field = new byte[Short.toUnsignedInt(frame.getShort())];
+        frame.get(field);
+        return field;
+    }
+
+    private static <E> E valueOf(final E[] values, final byte ordinal) throws ProtocolException {
+        final int index = Byte.toUnsignedInt(ordinal);
+        if (index >= values.length) {
+            throw new ProtocolException("unknown " + values.getClass().getComponentType().getSimpleName() + " " + index);
+        }
+        return values[index];
+    }
+
+    private static void checkConsumed(final ByteBuffer frame) throws ProtocolException {
+        if (frame.hasRemaining()) {
+            throw new ProtocolException(frame.remaining() + " unexpected bytes at the end of a frame");
+        }
+    }
+
+    private static byte[] checkLength(final byte[] field) {
+        if (field.length > MAX_FIELD_LENGTH) {
+            throw new IllegalArgumentException("user names and keys must encode to at most " + MAX_FIELD_LENGTH + " bytes");
+        }
+        return field;
+    }
+}
@@ -0,0 +1,320 @@
+package ras;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+// Ships a primary's lease changes to one standby. The service appends records under its lock; the shipping thread
+// sends everything appended since the previous frame as one batch and waits for the standby to acknowledge it, so
+// records pile up into larger batches while the standby falls behind. Once more than maxPendingBytes pile up, the
+// replicator gives up on the standby instead of buffering without bound, and the service drops it.
+//   frame:  length:int sequence:long record*   (sequence counts every record shipped so far)
+//   record: LOCK key user timestampMillis:long deadlineMillis:long tokens:long | UNLOCK key | RESET tokens:long
+// tokens bounds every fencing token the primary has issued, so a promoted standby never reissues one.
+//   ack:    sequence:long
+final class ResourceAcquisitionReplicator<T> implements AutoCloseable {
+
+    static final byte LOCK = 1;
+    static final byte UNLOCK = 2;
+    static final byte RESET = 3;
+    static final int HEADER_SIZE = Integer.BYTES + Long.BYTES;
+    static final int MAX_PENDING_BYTES = 64 << 20;
+
+    private static final int INITIAL_BATCH_SIZE = 1 << 12;
+    private static final ThreadFactory REPLICATION_THREADS = runnable -> {
+        final Thread thread = new Thread(runnable, "ras-replication");
+        thread.setDaemon(true);
+        return thread;
+    };
+
+    private final ByteChannel standby;
+    private final ResourceKeyCodec<T> codec;
+    private final ResourceAcquisitionMetrics metrics;
+    private final Consumer<ResourceAcquisitionReplicator<T>> onFailure;
+    // Zero for a standby the service does not wait for; otherwise how long a commit waits for its acknowledgement.
+    private final long ackTimeoutNanos;
+    private final int maxPendingBytes;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final ByteBuffer ack = ByteBuffer.allocate(Long.BYTES);
+    private final Thread thread;
+    private ByteBuffer pending = ByteBuffer.allocate(INITIAL_BATCH_SIZE).position(HEADER_SIZE);
+    private ByteBuffer shipping = ByteBuffer.allocate(INITIAL_BATCH_SIZE);
+    private long appended;
+    private long acknowledged;
+    // The same progress in the service's change positions, which every standby shares.
+    private long appendedChange;
+    private long shippedChange;
+    private long acknowledgedChange;
+    private long oldestPendingNanos;
+    private long oldestShippedNanos;
+    private boolean stopped;
+    private boolean failed;
+
+    // The standby starts from a reset followed by the primary's live leases, which include every change up to the
+    // given position, so it can join at any time.
+    ResourceAcquisitionReplicator(final ByteChannel standby,
+                                  final ResourceKeyCodec<T> codec,
+                                  final ResourceAcquisitionMetrics metrics,
+                                  final Collection<ResourceAcquisitionJournal.Lease<T>> leases,
+                                  final long fencingTokens,
+                                  final long change,
+                                  final long ackTimeoutNanos,
+                                  final int maxPendingBytes,
+                                  final Consumer<ResourceAcquisitionReplicator<T>> onFailure) {
+        this.standby = standby;
+        this.codec = codec;
+        this.metrics = metrics;
+        this.ackTimeoutNanos = ackTimeoutNanos;
+        this.maxPendingBytes = maxPendingBytes;
+        this.onFailure = onFailure;
+        this.thread = REPLICATION_THREADS.newThread(this::ship);
+        recordReset(fencingTokens);
+        for (final ResourceAcquisitionJournal.Lease<T> lease : leases) {
+            recordLock(lease.resource(), lease.userName(), lease.timestampMillis(), lease.deadlineMillis(), fencingTokens, change);
+        }
+        this.appendedChange = change;
+        thread.start();
+    }
+
+    void recordLock(final T resource,
+                    final String userName,
+                    final long timestampMillis,
+                    final long deadlineMillis,
+                    final long fencingTokens,
+                    final long change) {
+        final byte[] key = codec.encode(resource);
+        final byte[] owner = userName.getBytes(StandardCharsets.UTF_8);
+        lock.lock();
+        try {
+            final ByteBuffer buffer = reserve(1 + Integer.BYTES + key.length + Integer.BYTES + owner.length + 3 * Long.BYTES);
+            if (buffer != null) {
+                buffer.put(LOCK)
+                        .putInt(key.length).put(key)
+                        .putInt(owner.length).put(owner)
+                        .putLong(timestampMillis)
+                        .putLong(deadlineMillis)
+                        .putLong(fencingTokens);
+                appended(change);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void recordUnlock(final T resource, final long change) {
+        final byte[] key = codec.encode(resource);
+        lock.lock();
+        try {
+            final ByteBuffer buffer = reserve(1 + Integer.BYTES + key.length);
+            if (buffer != null) {
+                buffer.put(UNLOCK).putInt(key.length).put(key);
+                appended(change);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    boolean isSynchronous() {
+        return ackTimeoutNanos != 0L;
+    }
+
+    long appendedSequence() {
+        lock.lock();
+        try {
+            return appended;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Whether the standby acknowledged every record up to the sequence before the deadline. A standby that failed never
+    // will, and an interrupt ends the wait early with the interrupt kept.
+    boolean awaitAcknowledged(final long sequence, final long deadlineNanos) {
+        lock.lock();
+        try {
+            while (acknowledged < sequence && !stopped) {
+                final long remaining = deadlineNanos - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                changed.awaitNanos(remaining);
+            }
+            return acknowledged >= sequence;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Whether the standby acknowledged the batch holding the service's change at the position within the ack timeout.
+    // Like a journal sync, an interrupt does not cut the wait short, so it cannot get a healthy standby dropped; it is
+    // kept for the caller.
+    boolean awaitChange(final long change) {
+        final long deadlineNanos = System.nanoTime() + ackTimeoutNanos;
+        boolean interrupted = false;
+        lock.lock();
+        try {
+            while (acknowledgedChange < change && !stopped) {
+                final long remaining = deadlineNanos - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                try {
+                    changed.awaitNanos(remaining);
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            return acknowledgedChange >= change;
+        } finally {
+            lock.unlock();
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // Records still waiting to be shipped are dropped; call awaitReplication first to hand them over. The interrupt
+    // breaks off a blocked write or read, and the shipping thread closes the channel as it exits.
+    @Override
+    public void close() {
+        stop();
+        thread.interrupt();
+    }
+
+    static byte[] readField(final ByteBuffer buffer) {
+        final byte[] field = new byte[buffer.getInt()];
+        buffer.get(field);
+        return field;
+    }
+
+    private void recordReset(final long fencingTokens) {
+        final ByteBuffer buffer = reserve(1 + Long.BYTES);
+        if (buffer != null) {
+            buffer.put(RESET).putLong(fencingTokens);
+            appended++;
+        }
+    }
+
+    private void appended(final long change) {
+        appended++;
+        appendedChange = change;
+        changed.signalAll();
+    }
+
+    // Null when the record would take the backlog past maxPendingBytes. The replicator then fails, and the interrupt
+    // breaks off a write the stalled standby never drains, so the shipping thread can report it. The backlog stays
+    // full, so later records are refused too until the service drops the standby.
+    private ByteBuffer reserve(final int length) {
+        if (pending.position() + length > maxPendingBytes) {
+            fail();
+            thread.interrupt();
+            return null;
+        }
+        if (pending.position() == HEADER_SIZE) {
+            oldestPendingNanos = System.nanoTime();
+        }
+        if (pending.remaining() < length) {
+            pending = ByteBuffer.allocate(Math.min(maxPendingBytes, Math.max(2 * pending.capacity(), pending.position() + length)))
+                    .put(pending.flip());
+        }
+        return pending;
+    }
+
+    private void ship() {
+        try (standby) {
+            while (nextBatch()) {
+                while (shipping.hasRemaining()) {
+                    standby.write(shipping);
+                }
+                ack.clear();
+                while (ack.hasRemaining()) {
+                    if (standby.read(ack) < 0) {
+                        throw new EOFException("standby closed the connection");
+                    }
+                }
+                acknowledge(ack.getLong(0));
+            }
+        } catch (IOException e) {
+            fail();
+        }
+        if (isFailed()) {
+            onFailure.accept(this);
+        }
+    }
+
+    private boolean nextBatch() {
+        lock.lock();
+        try {
+            while (pending.position() == HEADER_SIZE && !stopped) {
+                changed.awaitUninterruptibly();
+            }
+            if (stopped) {
+                return false;
+            }
+            final ByteBuffer batch = pending.putInt(0, pending.position() - Integer.BYTES).putLong(Integer.BYTES, appended);
+            pending = shipping.clear().position(HEADER_SIZE);
+            shipping = batch.flip();
+            shippedChange = appendedChange;
+            oldestShippedNanos = oldestPendingNanos;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void acknowledge(final long sequence) {
+        final long shippedSince;
+        lock.lock();
+        try {
+            acknowledged = sequence;
+            acknowledgedChange = shippedChange;
+            shippedSince = oldestShippedNanos;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        metrics.recordReplicationLag(System.nanoTime() - shippedSince);
+    }
+
+    private void stop() {
+        lock.lock();
+        try {
+            stopped = true;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Stops shipping for good and lets the shipping thread report the standby to the service as it exits.
+    private void fail() {
+        lock.lock();
+        try {
+            failed = true;
+            stop();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean isFailed() {
+        lock.lock();
+        try {
+            return failed;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
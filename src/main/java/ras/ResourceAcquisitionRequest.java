@@ -0,0 +1,30 @@
+package ras;
+
+import java.util.Objects;
+
+public final class ResourceAcquisitionRequest<T> {
+
+    private final ResourceAcquisitionCommand command;
+    private final String userName;
+    private final T resource;
+
+    public ResourceAcquisitionRequest(final ResourceAcquisitionCommand command,
+                                      final String userName,
+                                      final T resource) {
+        this.command = Objects.requireNonNull(command, "command");
+        this.userName = Objects.requireNonNull(userName, "userName");
+        this.resource = resource;
+    }
+
+    public final ResourceAcquisitionCommand getCommand() {
+        return command;
+    }
+
+    public final String getUserName() {
+        return userName;
+    }
+
+    public final T getResource() {
+        return resource;
+    }
+}
@@ -2,13 +2,23 @@ package ras;
 
 public final class ResourceAcquisitionResponse {
 
+    public static final long NO_FENCING_TOKEN = 0L;
+
     private final ResourceAcquisitionCommandResult commitResult;
     private final AcquiredResource acquiredResource;
+    private final long fencingToken;
 
     public ResourceAcquisitionResponse(final ResourceAcquisitionCommandResult commitResult,
                                        final AcquiredResource acquiredResource) {
+        this(commitResult, acquiredResource, NO_FENCING_TOKEN);
+    }
+
+    public ResourceAcquisitionResponse(final ResourceAcquisitionCommandResult commitResult,
+                                       final AcquiredResource acquiredResource,
+                                       final long fencingToken) {
         this.commitResult = commitResult;
         this.acquiredResource = acquiredResource;
+        this.fencingToken = fencingToken;
     }
 
     public final ResourceAcquisitionCommandResult getCommitResult() {
@@ -18,4 +28,9 @@ public final class ResourceAcquisitionResponse {
     public final AcquiredResource getResource() {
         return acquiredResource;
     }
+
+    // Set on successful locks by services that issue fencing tokens; failures never reveal the holder's token.
+    public final long getFencingToken() {
+        return fencingToken;
+    }
 }
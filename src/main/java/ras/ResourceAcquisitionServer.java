@@ -0,0 +1,172 @@
+package ras;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ThreadFactory;
+
+// Serves a ResourceAcquisitionService over TCP from one selector thread. Clients may pipeline any number of requests:
+// every complete frame that one read delivers is applied with a single commitAll, and the responses go back in one
+// write. A client that stops reading has its responses queued, and its connection is not read again until they drain.
+// commitAll runs on the selector thread itself, so a service that blocks in it, such as one whose journal waits for
+// fsync, holds up every connection until it returns.
+public final class ResourceAcquisitionServer<T> implements AutoCloseable {
+
+    private static final ThreadFactory SERVER_THREADS = runnable -> {
+        final Thread thread = new Thread(runnable, "ras-lock-server");
+        thread.setDaemon(true);
+        return thread;
+    };
+
+    private final ResourceAcquisitionService<T> service;
+    private final ResourceKeyCodec<T> codec;
+    private final Selector selector;
+    private final ServerSocketChannel serverChannel;
+    private final Thread thread;
+    private volatile boolean closed;
+
+    private final class Connection {
+
+        private final SocketChannel channel;
+        private final SelectionKey key;
+        private final List<ResourceAcquisitionRequest<T>> batch = new ArrayList<>();
+        private ByteBuffer input = ByteBuffer.allocate(ResourceAcquisitionProtocol.BUFFER_SIZE);
+        private ByteBuffer output = ByteBuffer.allocate(ResourceAcquisitionProtocol.BUFFER_SIZE);
+
+        Connection(final SocketChannel channel, final SelectionKey key) {
+            this.channel = channel;
+            this.key = key;
+        }
+
+        void read() throws IOException {
+            if (channel.read(input) < 0) {
+                channel.close();
+                return;
+            }
+            input.flip();
+            while (ResourceAcquisitionProtocol.hasFrame(input)) {
+                batch.add(ResourceAcquisitionProtocol.readRequest(input, codec));
+            }
+            input = ResourceAcquisitionProtocol.compact(input);
+            if (batch.isEmpty()) {
+                return;
+            }
+            final List<ResourceAcquisitionResponse> responses = service.commitAll(batch);
+            batch.clear();
+            for (final ResourceAcquisitionResponse response : responses) {
+                output = ResourceAcquisitionProtocol.writeResponse(output, response);
+            }
+            flush();
+        }
+
+        void flush() throws IOException {
+            output.flip();
+            channel.write(output);
+            output.compact();
+            key.interestOps(output.position() == 0 ? SelectionKey.OP_READ : SelectionKey.OP_WRITE);
+        }
+    }
+
+    public ResourceAcquisitionServer(final ResourceAcquisitionService<T> service,
+                                     final ResourceKeyCodec<T> codec,
+                                     final InetSocketAddress address) throws IOException {
+        this.service = Objects.requireNonNull(service, "service");
+        this.codec = Objects.requireNonNull(codec, "codec");
+        this.selector = Selector.open();
+        this.serverChannel = ServerSocketChannel.open();
+        try {
+            serverChannel.bind(address);
+            serverChannel.configureBlocking(false);
+            serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            serverChannel.close();
+            selector.close();
+            throw e;
+        }
+        this.thread = SERVER_THREADS.newThread(() -> ResourceAcquisitionProtocol.unchecked(this::serve));
+        thread.start();
+    }
+
+    public InetSocketAddress getLocalAddress() throws IOException {
+        return (InetSocketAddress) serverChannel.getLocalAddress();
+    }
+
+    private Void serve() throws IOException {
+        try {
+            while (!closed) {
+                selector.select();
+                final Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    final SelectionKey key = keys.next();
+                    keys.remove();
+                    if (key.isAcceptable()) {
+                        accept();
+                    } else {
+                        exchange(key);
+                    }
+                }
+            }
+            return null;
+        } finally {
+            for (final SelectionKey key : selector.keys()) {
+                key.channel().close();
+            }
+            selector.close();
+        }
+    }
+
+    // One readiness event may stand for several connections or, if a peer gave up in between, for none.
+    private void accept() throws IOException {
+        for (SocketChannel channel = serverChannel.accept(); channel != null; channel = serverChannel.accept()) {
+            register(channel);
+        }
+    }
+
+    // A connection that cannot be set up is closed on its own; the server and the other connections carry on.
+    void register(final SocketChannel channel) throws IOException {
+        try {
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            final SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+            key.attach(new Connection(channel, key));
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void exchange(final SelectionKey key) throws IOException {
+        final Connection connection = (Connection) key.attachment();
+        try {
+            if (key.isReadable()) {
+                connection.read();
+            } else {
+                connection.flush();
+            }
+        } catch (IOException | RuntimeException e) {
+            // A malformed frame, a failed command or a reset peer ends only this connection.
+            connection.channel.close();
+        }
+    }
+
+    // Open connections are closed without draining; commands they already delivered stay applied.
+    @Override
+    public void close() {
+        closed = true;
+        selector.wakeup();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
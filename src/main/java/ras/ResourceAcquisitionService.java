@@ -1,5 +1,16 @@
 package ras;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public interface ResourceAcquisitionService<T> {
     ResourceAcquisitionResponse commit(ResourceAcquisitionCommand command, String userName, T resource);
+
+    default List<ResourceAcquisitionResponse> commitAll(final List<ResourceAcquisitionRequest<T>> requests) {
+        final List<ResourceAcquisitionResponse> responses = new ArrayList<>(requests.size());
+        for (final ResourceAcquisitionRequest<T> request : requests) {
+            responses.add(commit(request.getCommand(), request.getUserName(), request.getResource()));
+        }
+        return responses;
+    }
 }
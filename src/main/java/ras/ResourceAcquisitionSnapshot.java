@@ -0,0 +1,176 @@
+package ras;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+
+final class ResourceAcquisitionSnapshot {
+
+    static final int MAGIC = 0x52415353;
+    static final int VERSION = 1;
+    static final int MAX_FIELD_LENGTH = 0xFFFF;
+
+    private static final int BUFFER_SIZE = 1 << 18;
+    private static final byte END = 0;
+    private static final byte ENTRY = 1;
+    private static final int ENTRY_OVERHEAD = 1 + 2 * Short.BYTES + 1 + 2 * Long.BYTES + 1;
+    private static final ResourceAcquisitionState[] STATES = ResourceAcquisitionState.values();
+    private static final TimeUnit[] UNITS = TimeUnit.values();
+
+    record Entry<K>(K resource, AcquiredResource lockedItem) {
+    }
+
+    private ResourceAcquisitionSnapshot() {
+    }
+
+    static final class Writer<T> implements AutoCloseable {
+
+        private final Path path;
+        private final Path temporary;
+        private final ResourceKeyCodec<T> codec;
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        private long count;
+        private boolean committed;
+
+        Writer(final Path path, final ResourceKeyCodec<T> codec) throws IOException {
+            this.path = path;
+            this.temporary = path.resolveSibling(path.getFileName() + ".tmp");
+            this.codec = codec;
+            this.channel = FileChannel.open(temporary,
+                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+            buffer.putInt(MAGIC).putInt(VERSION);
+        }
+
+        void write(final T resource, final AcquiredResource lockedItem) throws IOException {
+            final byte[] key = checkLength(codec.encode(resource));
+            final byte[] owner = checkLength(lockedItem.getUserName().getBytes(StandardCharsets.UTF_8));
+            final TimeSpan timestamp = lockedItem.getUtcTimeStamp();
+            final TimeSpan timeout = lockedItem.getStateTimeout();
+            reserve(ENTRY_OVERHEAD + key.length + owner.length);
+            buffer.put(ENTRY)
+                    .putShort((short) key.length).put(key)
+                    .putShort((short) owner.length).put(owner)
+                    .put((byte) lockedItem.getState().ordinal())
+                    .putLong(timestamp.getUnit().toMillis(timestamp.getInterval()))
+                    .putLong(timeout.getInterval())
+                    .put((byte) timeout.getUnit().ordinal());
+            count++;
+        }
+
+        void commit() throws IOException {
+            reserve(1 + Long.BYTES);
+            buffer.put(END).putLong(count);
+            drain();
+            channel.force(true);
+            channel.close();
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            committed = true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!committed) {
+                channel.close();
+                Files.deleteIfExists(temporary);
+            }
+        }
+
+        private void reserve(final int length) throws IOException {
+            if (buffer.remaining() < length) {
+                drain();
+            }
+        }
+
+        private void drain() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        private static byte[] checkLength(final byte[] field) {
+            if (field.length > MAX_FIELD_LENGTH) {
+                throw new IllegalArgumentException("snapshot fields must encode to at most " + MAX_FIELD_LENGTH + " bytes");
+            }
+            return field;
+        }
+    }
+
+    // Streams the entries back one at a time; next() returns null after the last one, once the count checks out.
+    static final class Reader<T> implements AutoCloseable {
+
+        private final Path path;
+        private final ResourceKeyCodec<T> codec;
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).flip();
+        private long count;
+
+        Reader(final Path path, final ResourceKeyCodec<T> codec) throws IOException {
+            this.path = path;
+            this.codec = codec;
+            this.channel = FileChannel.open(path, StandardOpenOption.READ);
+            try {
+                fill(channel, buffer, 2 * Integer.BYTES);
+                if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                    throw new IOException(path + " is not a resource acquisition snapshot");
+                }
+            } catch (IOException e) {
+                channel.close();
+                throw e;
+            }
+        }
+
+        Entry<T> next() throws IOException {
+            fill(channel, buffer, 1 + Long.BYTES);
+            if (buffer.get() == END) {
+                if (buffer.getLong() != count) {
+                    throw new IOException(path + " is corrupt: entry count does not match");
+                }
+                return null;
+            }
+            final T resource = codec.decode(readField(channel, buffer));
+            final String userName = new String(readField(channel, buffer), StandardCharsets.UTF_8);
+            fill(channel, buffer, 1 + 2 * Long.BYTES + 1);
+            final ResourceAcquisitionState state = STATES[buffer.get()];
+            final long timestampMillis = buffer.getLong();
+            final TimeSpan timeout = new TimeSpan(buffer.getLong(), UNITS[buffer.get()]);
+            count++;
+            return new Entry<>(resource, AcquiredResource.restore(userName, state, timeout, timestampMillis));
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    private static byte[] readField(final FileChannel channel, final ByteBuffer buffer) throws IOException {
+        fill(channel, buffer, Short.BYTES);
+        final byte[] field = new byte[Short.toUnsignedInt(buffer.getShort())];
+        fill(channel, buffer, field.length);
+        buffer.get(field);
+        return field;
+    }
+
+    private static void fill(final FileChannel channel, final ByteBuffer buffer, final int length) throws IOException {
+        if (buffer.remaining() >= length) {
+            return;
+        }
+        buffer.compact();
+        while (buffer.position() < length) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException("snapshot ends unexpectedly");
+            }
+        }
+        buffer.flip();
+    }
+}
@@ -0,0 +1,142 @@
+package ras;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ThreadFactory;
+
+// Follows the lease changes a primary ships with replicateTo and keeps a passive copy of its exclusive leases. The copy
+// expires nothing and serves no commands; promote hands it to a service, which re-arms every lease for the time left
+// until its own deadline.
+public final class ResourceAcquisitionStandby<T> implements AutoCloseable {
+
+    private static final ThreadFactory STANDBY_THREADS = runnable -> {
+        final Thread thread = new Thread(runnable, "ras-standby");
+        thread.setDaemon(true);
+        return thread;
+    };
+
+    private final ByteChannel primary;
+    private final ResourceKeyCodec<T> codec;
+    private final Map<T, ResourceAcquisitionJournal.Lease<T>> leases = new LinkedHashMap<>();
+    private final Thread thread;
+    private long fencingTokens;
+    private volatile RuntimeException failure;
+
+    public ResourceAcquisitionStandby(final ByteChannel primary, final ResourceKeyCodec<T> codec) {
+        this.primary = Objects.requireNonNull(primary, "primary");
+        this.codec = Objects.requireNonNull(codec, "codec");
+        this.thread = STANDBY_THREADS.newThread(this::follow);
+        thread.start();
+    }
+
+    public int leaseCount() {
+        synchronized (leases) {
+            return leases.size();
+        }
+    }
+
+    // Why the standby stopped following the primary on a frame it could not apply, or null. Its copy may then be
+    // missing changes the primary made, and promote refuses it.
+    public RuntimeException failure() {
+        return failure;
+    }
+
+    // Stops following the primary and restores the replicated leases into the service. Returns the number restored;
+    // leases whose deadline has passed are dropped. The service's fencing tokens continue above the primary's.
+    public int promote(final SimpleResourceAcquisitionService<T> service) throws IOException {
+        Objects.requireNonNull(service, "service");
+        close();
+        if (failure != null) {
+            throw new IOException("the standby stopped following the primary on a corrupt frame", failure);
+        }
+        final List<ResourceAcquisitionJournal.Lease<T>> replicated;
+        final long issuedTokens;
+        synchronized (leases) {
+            replicated = new ArrayList<>(leases.values());
+            issuedTokens = fencingTokens;
+        }
+        return service.restoreLeases(replicated, issuedTokens);
+    }
+
+    @Override
+    public void close() throws IOException {
+        primary.close();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void follow() {
+        try (primary) {
+            receive();
+        } catch (IOException e) {
+            // The primary is gone or the standby was closed; the changes applied so far stay until promote or close.
+        }
+    }
+
+    // Each frame is applied whole before it is acknowledged, so an acknowledged change is always in the copy. A frame
+    // that cannot be applied is never acknowledged. The failure is kept before follow closes the channel, so by the time
+    // the primary sees the connection drop, failure reports it.
+    private void receive() throws IOException {
+        final ByteBuffer header = ByteBuffer.allocate(ResourceAcquisitionReplicator.HEADER_SIZE);
+        final ByteBuffer ack = ByteBuffer.allocate(Long.BYTES);
+        ByteBuffer records = ByteBuffer.allocate(0);
+        try {
+            while (true) {
+                readFully(header.clear());
+                final int length = header.getInt(0) - Long.BYTES;
+                if (records.capacity() < length) {
+                    records = ByteBuffer.allocate(length);
+                }
+                readFully(records.clear().limit(length));
+                apply(records.flip());
+                ack.clear().putLong(0, header.getLong(Integer.BYTES));
+                while (ack.hasRemaining()) {
+                    primary.write(ack);
+                }
+            }
+        } catch (RuntimeException e) {
+            // A truncated frame, a key the codec rejects, or an unknown record type.
+            failure = e;
+        }
+    }
+
+    private void readFully(final ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (primary.read(buffer) < 0) {
+                throw new EOFException("primary closed the connection");
+            }
+        }
+    }
+
+    private void apply(final ByteBuffer records) {
+        synchronized (leases) {
+            while (records.hasRemaining()) {
+                final byte type = records.get();
+                if (type == ResourceAcquisitionReplicator.LOCK) {
+                    final T resource = codec.decode(ResourceAcquisitionReplicator.readField(records));
+                    final String userName = new String(ResourceAcquisitionReplicator.readField(records), StandardCharsets.UTF_8);
+                    leases.put(resource, new ResourceAcquisitionJournal.Lease<>(resource, userName, records.getLong(), records.getLong()));
+                    fencingTokens = Math.max(fencingTokens, records.getLong());
+                } else if (type == ResourceAcquisitionReplicator.UNLOCK) {
+                    leases.remove(codec.decode(ResourceAcquisitionReplicator.readField(records)));
+                } else if (type == ResourceAcquisitionReplicator.RESET) {
+                    leases.clear();
+                    fencingTokens = Math.max(fencingTokens, records.getLong());
+                } else {
+                    throw new IllegalStateException("unknown replication record type " + type);
+                }
+            }
+        }
+    }
+}
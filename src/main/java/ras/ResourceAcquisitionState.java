@@ -1,5 +1,5 @@
 package ras;
 
 public enum ResourceAcquisitionState {
-    Locked, Unlocked
+    Locked, Unlocked, Shared
 }
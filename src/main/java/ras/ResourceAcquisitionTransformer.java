@@ -0,0 +1,181 @@
+package ras;
+
+import io.reactivex.rxjava3.core.Flowable;
+import io.reactivex.rxjava3.core.FlowableOperator;
+import io.reactivex.rxjava3.core.FlowableSubscriber;
+import io.reactivex.rxjava3.core.FlowableTransformer;
+import io.reactivex.rxjava3.operators.SpscArrayQueue;
+import io.reactivex.rxjava3.plugins.RxJavaPlugins;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+// Applies a stream of requests to a service in batches sized by downstream demand. At most prefetch requests are
+// buffered, so a slow subscriber stops upstream intake instead of letting the queue grow.
+public final class ResourceAcquisitionTransformer<T>
+        implements FlowableTransformer<ResourceAcquisitionRequest<T>, ResourceAcquisitionResponse>,
+        FlowableOperator<ResourceAcquisitionResponse, ResourceAcquisitionRequest<T>> {
+
+    private final ResourceAcquisitionService<T> service;
+    private final int prefetch;
+
+    public ResourceAcquisitionTransformer(final ResourceAcquisitionService<T> service, final int prefetch) {
+        if (prefetch <= 0) {
+            throw new IllegalArgumentException("prefetch must be positive");
+        }
+        this.service = Objects.requireNonNull(service, "service");
+        this.prefetch = prefetch;
+    }
+
+    public ResourceAcquisitionTransformer(final ResourceAcquisitionService<T> service) {
+        this(service, Flowable.bufferSize());
+    }
+
+    @Override
+    public Publisher<ResourceAcquisitionResponse> apply(final Flowable<ResourceAcquisitionRequest<T>> upstream) {
+        return upstream.lift(this);
+    }
+
+    @Override
+    public Subscriber<? super ResourceAcquisitionRequest<T>> apply(final Subscriber<? super ResourceAcquisitionResponse> downstream) {
+        return new CommitSubscriber(downstream);
+    }
+
+    private final class CommitSubscriber implements FlowableSubscriber<ResourceAcquisitionRequest<T>>, Subscription {
+
+        private final Subscriber<? super ResourceAcquisitionResponse> downstream;
+        private final SpscArrayQueue<ResourceAcquisitionRequest<T>> queue = new SpscArrayQueue<>(prefetch);
+        private final AtomicInteger wip = new AtomicInteger();
+        private final AtomicLong requested = new AtomicLong();
+        private final int limit = prefetch - (prefetch >> 2);
+        private final List<ResourceAcquisitionRequest<T>> batch = new ArrayList<>();
+        private Subscription upstream;
+        private int consumed;
+        private volatile boolean done;
+        private volatile boolean cancelled;
+        private Throwable error;
+
+        CommitSubscriber(final Subscriber<? super ResourceAcquisitionResponse> downstream) {
+            this.downstream = downstream;
+        }
+
+        @Override
+        public void onSubscribe(final Subscription subscription) {
+            upstream = subscription;
+            downstream.onSubscribe(this);
+            subscription.request(prefetch);
+        }
+
+        @Override
+        public void onNext(final ResourceAcquisitionRequest<T> request) {
+            if (!queue.offer(request)) {
+                upstream.cancel();
+                onError(new IllegalStateException("upstream ignored backpressure"));
+                return;
+            }
+            drain();
+        }
+
+        @Override
+        public void onError(final Throwable throwable) {
+            error = throwable;
+            done = true;
+            drain();
+        }
+
+        @Override
+        public void onComplete() {
+            done = true;
+            drain();
+        }
+
+        @Override
+        public void request(final long n) {
+            if (n <= 0) {
+                RxJavaPlugins.onError(new IllegalArgumentException("n > 0 required but it was " + n));
+                return;
+            }
+            requested.getAndAccumulate(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            upstream.cancel();
+            if (wip.getAndIncrement() == 0) {
+                queue.clear();
+            }
+        }
+
+        // Serialized by the work-in-progress counter; whoever moves it off zero drains for everyone who came later.
+        private void drain() {
+            if (wip.getAndIncrement() != 0) {
+                return;
+            }
+            int missed = 1;
+            do {
+                if (cancelled) {
+                    queue.clear();
+                    return;
+                }
+                final boolean terminated = done;
+                final long demand = requested.get();
+                ResourceAcquisitionRequest<T> request;
+                while (batch.size() < demand && (request = queue.poll()) != null) {
+                    batch.add(request);
+                }
+                if (!batch.isEmpty() && !emit()) {
+                    return;
+                }
+                if (terminated && queue.isEmpty()) {
+                    if (error != null) {
+                        downstream.onError(error);
+                    } else {
+                        downstream.onComplete();
+                    }
+                    return;
+                }
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private boolean emit() {
+            final List<ResourceAcquisitionResponse> responses;
+            try {
+                responses = service.commitAll(batch);
+            } catch (RuntimeException e) {
+                cancelled = true;
+                upstream.cancel();
+                queue.clear();
+                downstream.onError(e);
+                return false;
+            } finally {
+                batch.clear();
+            }
+            for (ResourceAcquisitionResponse response : responses) {
+                if (cancelled) {
+                    queue.clear();
+                    return false;
+                }
+                downstream.onNext(response);
+            }
+            if (requested.get() != Long.MAX_VALUE) {
+                requested.addAndGet(-responses.size());
+            }
+            consumed += responses.size();
+            if (consumed >= limit) {
+                upstream.request(consumed);
+                consumed = 0;
+            }
+            return true;
+        }
+    }
+}
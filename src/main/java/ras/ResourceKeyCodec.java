@@ -0,0 +1,39 @@
+package ras;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+public interface ResourceKeyCodec<T> {
+
+    byte[] encode(T resource);
+
+    T decode(byte[] bytes);
+
+    static ResourceKeyCodec<String> utf8() {
+        return new ResourceKeyCodec<>() {
+            @Override
+            public byte[] encode(final String resource) {
+                return resource.getBytes(StandardCharsets.UTF_8);
+            }
+
+            @Override
+            public String decode(final byte[] bytes) {
+                return new String(bytes, StandardCharsets.UTF_8);
+            }
+        };
+    }
+
+    static ResourceKeyCodec<Long> int64() {
+        return new ResourceKeyCodec<>() {
+            @Override
+            public byte[] encode(final Long resource) {
+                return ByteBuffer.allocate(Long.BYTES).putLong(0, resource).array();
+            }
+
+            @Override
+            public Long decode(final byte[] bytes) {
+                return ByteBuffer.wrap(bytes).getLong();
+            }
+        };
+    }
+}
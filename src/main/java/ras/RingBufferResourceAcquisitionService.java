@@ -0,0 +1,442 @@
+package ras;
+
+import io.opentelemetry.api.metrics.Meter;
+import io.reactivex.rxjava3.core.Scheduler;
+import io.reactivex.rxjava3.schedulers.Schedulers;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+import ras.SimpleResourceAcquisitionService.AutoUnlockScheduler;
+import ras.SimpleResourceAcquisitionService.Cancellable;
+import ras.SimpleResourceAcquisitionService.RxAutoUnlockScheduler;
+
+public final class RingBufferResourceAcquisitionService<T> implements ResourceAcquisitionService<T>, AutoCloseable {
+
+    public static final int DEFAULT_CAPACITY = 1 << 14;
+
+    private static final long CLOSED = Long.MIN_VALUE;
+    private static final int SPINS_BEFORE_PARK = 100;
+    private static final long PRODUCER_BACKOFF_NANOS = 1_000L;
+    private static final ThreadFactory ENGINE_THREADS = runnable -> {
+        final Thread thread = new Thread(runnable, "ras-ring-buffer-engine");
+        thread.setDaemon(true);
+        return thread;
+    };
+
+    private final AutoUnlockScheduler scheduler;
+    private final TimeSpan unlockTimeout;
+    private final long unlockTimeoutNanos;
+    private final Clock clock;
+    private final ResourceAcquisitionMetrics metrics;
+    private final Slot[] slots;
+    private final int mask;
+    private final AtomicLong claimed = new AtomicLong();
+    private final AtomicLong consumed = new AtomicLong();
+    private final ThreadLocal<ResponseWaiter> responseWaiters = ThreadLocal.withInitial(ResponseWaiter::new);
+    private final Map<T, Lease> repository = new HashMap<>();
+    private final Thread engine;
+    private volatile boolean sleeping;
+    // Set by close() when it runs on the engine thread, and only read there.
+    private long stopSequence = Long.MAX_VALUE;
+
+    private final class Slot {
+
+        private volatile long sequence = -1L;
+        private ResourceAcquisitionCommand command;
+        private String userName;
+        private T resource;
+        private Consumer<ResourceAcquisitionResponse> callback;
+        private Lease expiring;
+        private boolean timed;
+        private long startNanos;
+
+        void clear() {
+            command = null;
+            userName = null;
+            resource = null;
+            callback = null;
+            expiring = null;
+        }
+    }
+
+    private final class Lease implements Runnable {
+
+        private final T resource;
+        private final long acquiredAt;
+        private AcquiredResource acquiredResource;
+        private long unlockDeadline;
+        private Cancellable unlockSubscription;
+        private ResourceAcquisitionResponse lockFailedResponse;
+        private ResourceAcquisitionResponse unlockFailedResponse;
+
+        Lease(final T resource, final AcquiredResource acquiredResource) {
+            this.resource = resource;
+            this.acquiredResource = acquiredResource;
+            this.acquiredAt = scheduler.now(TimeUnit.NANOSECONDS);
+            this.unlockDeadline = acquiredAt + unlockTimeoutNanos;
+        }
+
+        void renew(final AcquiredResource renewedResource) {
+            acquiredResource = renewedResource;
+            unlockDeadline = scheduler.now(TimeUnit.NANOSECONDS) + unlockTimeoutNanos;
+            lockFailedResponse = null;
+            unlockFailedResponse = null;
+        }
+
+        ResourceAcquisitionResponse getLockFailedResponse() {
+            if (lockFailedResponse == null) {
+                lockFailedResponse = new ResourceAcquisitionResponse(ResourceAcquisitionCommandResult.LockFailed, acquiredResource);
+            }
+            return lockFailedResponse;
+        }
+
+        ResourceAcquisitionResponse getUnlockFailedResponse() {
+            if (unlockFailedResponse == null) {
+                unlockFailedResponse = new ResourceAcquisitionResponse(ResourceAcquisitionCommandResult.UnlockFailed, acquiredResource);
+            }
+            return unlockFailedResponse;
+        }
+
+        // Runs on the timer thread and only hands the expiry to the engine.
+        @Override
+        public void run() {
+            final long sequence = claim(1);
+            if (sequence != CLOSED) {
+                final Slot slot = awaitSlot(sequence);
+                slot.expiring = this;
+                publish(slot, sequence);
+            }
+        }
+    }
+
+    private final class ResponseWaiter implements Consumer<ResourceAcquisitionResponse> {
+
+        private final Thread thread = Thread.currentThread();
+        private volatile ResourceAcquisitionResponse response;
+
+        @Override
+        public void accept(final ResourceAcquisitionResponse response) {
+            this.response = response;
+            LockSupport.unpark(thread);
+        }
+
+        ResourceAcquisitionResponse await() {
+            ResourceAcquisitionResponse received;
+            while ((received = response) == null) {
+                LockSupport.park(this);
+            }
+            response = null;
+            return received;
+        }
+    }
+
+    private static final class BatchCollector implements Consumer<ResourceAcquisitionResponse> {
+
+        private final Thread thread = Thread.currentThread();
+        private final List<ResourceAcquisitionResponse> responses;
+        private final int expected;
+        private volatile boolean done;
+
+        BatchCollector(final int expected) {
+            this.responses = new ArrayList<>(expected);
+            this.expected = expected;
+        }
+
+        @Override
+        public void accept(final ResourceAcquisitionResponse response) {
+            responses.add(response);
+            if (responses.size() == expected) {
+                done = true;
+                LockSupport.unpark(thread);
+            }
+        }
+
+        List<ResourceAcquisitionResponse> await() {
+            while (!done) {
+                LockSupport.park(this);
+            }
+            return responses;
+        }
+    }
+
+    public RingBufferResourceAcquisitionService(final Scheduler scheduler, final TimeSpan unlockTimeout, final int capacity, final Meter meter) {
+        this(new RxAutoUnlockScheduler(scheduler), unlockTimeout, Clock.systemUTC(), new ResourceAcquisitionMetrics(meter), capacity, ENGINE_THREADS);
+    }
+
+    public RingBufferResourceAcquisitionService(final Scheduler scheduler, final TimeSpan unlockTimeout, final int capacity) {
+        this(new RxAutoUnlockScheduler(scheduler), unlockTimeout, Clock.systemUTC(), ResourceAcquisitionMetrics.createDefault(), capacity, ENGINE_THREADS);
+    }
+
+    public RingBufferResourceAcquisitionService() {
+        this(Schedulers.computation(), TimeSpan.Default, DEFAULT_CAPACITY);
+    }
+
+    @SuppressWarnings("unchecked")
+    RingBufferResourceAcquisitionService(final AutoUnlockScheduler scheduler,
+                                         final TimeSpan unlockTimeout,
+                                         final Clock clock,
+                                         final ResourceAcquisitionMetrics metrics,
+                                         final int capacity,
+                                         final ThreadFactory threadFactory) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("capacity must be a positive power of two");
+        }
+        this.scheduler = Objects.requireNonNull(scheduler, "scheduler");
+        this.unlockTimeout = Objects.requireNonNull(unlockTimeout, "unlockTimeout");
+        this.unlockTimeoutNanos = unlockTimeout.getUnit().toNanos(unlockTimeout.getInterval());
+        this.clock = Objects.requireNonNull(clock, "clock");
+        this.metrics = Objects.requireNonNull(metrics, "metrics");
+        // Only the engine writes the repository; the collector reads its size unsynchronized and may see a stale count.
+        metrics.observeActiveLocks(repository::size);
+        this.slots = (Slot[]) new RingBufferResourceAcquisitionService<?>.Slot[capacity];
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = new Slot();
+        }
+        this.mask = capacity - 1;
+        this.engine = threadFactory.newThread(this::runEngine);
+        engine.start();
+    }
+
+    @Override
+    public ResourceAcquisitionResponse commit(final ResourceAcquisitionCommand command, final String userName, final T resource) {
+        checkNotEngineThread();
+        final ResponseWaiter waiter = responseWaiters.get();
+        publish(command, userName, resource, waiter);
+        return waiter.await();
+    }
+
+    @Override
+    public List<ResourceAcquisitionResponse> commitAll(final List<ResourceAcquisitionRequest<T>> requests) {
+        checkNotEngineThread();
+        if (requests.isEmpty()) {
+            return List.of();
+        }
+        final BatchCollector collector = new BatchCollector(requests.size());
+        publishAll(requests, collector);
+        return collector.await();
+    }
+
+    public CompletableFuture<ResourceAcquisitionResponse> commitAsync(final ResourceAcquisitionCommand command,
+                                                                      final String userName,
+                                                                      final T resource) {
+        final CompletableFuture<ResourceAcquisitionResponse> future = new CompletableFuture<>();
+        publish(command, userName, resource, future::complete);
+        return future;
+    }
+
+    public void publish(final ResourceAcquisitionCommand command,
+                        final String userName,
+                        final T resource,
+                        final Consumer<ResourceAcquisitionResponse> callback) {
+        Objects.requireNonNull(command, "command");
+        Objects.requireNonNull(callback, "callback");
+        final long sequence = claimOrThrow(1);
+        final Slot slot = awaitSlot(sequence);
+        write(slot, command, userName, resource, callback);
+        publish(slot, sequence);
+    }
+
+    // Responses for one call reach the callback in input order on the engine thread.
+    public void publishAll(final List<ResourceAcquisitionRequest<T>> requests, final Consumer<ResourceAcquisitionResponse> callback) {
+        Objects.requireNonNull(callback, "callback");
+        for (int from = 0; from < requests.size(); from += slots.length) {
+            final int count = Math.min(slots.length, requests.size() - from);
+            final long first = claimOrThrow(count);
+            for (int i = 0; i < count; i++) {
+                final ResourceAcquisitionRequest<T> request = requests.get(from + i);
+                final Slot slot = awaitSlot(first + i);
+                write(slot, request.getCommand(), request.getUserName(), request.getResource(), callback);
+                publish(slot, first + i);
+            }
+        }
+    }
+
+    private void write(final Slot slot,
+                       final ResourceAcquisitionCommand command,
+                       final String userName,
+                       final T resource,
+                       final Consumer<ResourceAcquisitionResponse> callback) {
+        slot.command = command;
+        slot.userName = userName;
+        slot.resource = resource;
+        slot.callback = callback;
+        slot.timed = metrics.isCommitDurationEnabled();
+        slot.startNanos = slot.timed ? System.nanoTime() : 0L;
+    }
+
+    // close() swaps in a negative cursor, so every claim after it stays negative.
+    private long claim(final int count) {
+        final long sequence = claimed.getAndAdd(count);
+        return sequence < 0 ? CLOSED : sequence;
+    }
+
+    private long claimOrThrow(final int count) {
+        final long sequence = claim(count);
+        if (sequence == CLOSED) {
+            throw new IllegalStateException("service is closed");
+        }
+        return sequence;
+    }
+
+    private Slot awaitSlot(final long sequence) {
+        while (sequence - consumed.get() >= slots.length) {
+            LockSupport.parkNanos(this, PRODUCER_BACKOFF_NANOS);
+        }
+        return slots[(int) sequence & mask];
+    }
+
+    private void publish(final Slot slot, final long sequence) {
+        slot.sequence = sequence;
+        if (sleeping) {
+            LockSupport.unpark(engine);
+        }
+    }
+
+    private void checkNotEngineThread() {
+        if (Thread.currentThread() == engine) {
+            throw new IllegalStateException("synchronous commits cannot be made from the engine thread");
+        }
+    }
+
+    private void runEngine() {
+        long next = 0;
+        int idleSpins = 0;
+        while (true) {
+            final Slot slot = slots[(int) next & mask];
+            if (slot.sequence != next) {
+                if (idleSpins < SPINS_BEFORE_PARK) {
+                    idleSpins++;
+                    Thread.onSpinWait();
+                } else {
+                    sleeping = true;
+                    while (slot.sequence != next) {
+                        LockSupport.park(this);
+                    }
+                    sleeping = false;
+                    idleSpins = 0;
+                }
+                continue;
+            }
+            idleSpins = 0;
+            final boolean stop = process(slot);
+            slot.clear();
+            consumed.lazySet(++next);
+            if (stop || next == stopSequence) {
+                return;
+            }
+        }
+    }
+
+    private boolean process(final Slot slot) {
+        if (slot.expiring != null) {
+            expire(slot.expiring);
+            return false;
+        }
+        if (slot.command == null) {
+            return true;
+        }
+        final ResourceAcquisitionResponse response = switch (slot.command) {
+            case Lock -> lock(slot.userName, slot.resource);
+            case Unlock -> unlock(slot.userName, slot.resource);
+        };
+        metrics.recordCommand(slot.command);
+        metrics.recordResult(response.getCommitResult());
+        if (slot.timed) {
+            metrics.recordCommitDuration(System.nanoTime() - slot.startNanos);
+        }
+        try {
+            slot.callback.accept(response);
+        } catch (RuntimeException e) {
+            engine.getUncaughtExceptionHandler().uncaughtException(engine, e);
+        }
+        return false;
+    }
+
+    private ResourceAcquisitionResponse lock(final String userName, final T resource) {
+        final Lease existingItem = repository.get(resource);
+        if (existingItem != null) {
+            if (!existingItem.acquiredResource.getUserName().equalsIgnoreCase(userName)) {
+                return existingItem.getLockFailedResponse();
+            }
+        }
+
+        final AcquiredResource newItem = AcquiredResource.createNew(userName, ResourceAcquisitionState.Locked, unlockTimeout, clock);
+        if (existingItem != null) {
+            existingItem.renew(newItem);
+        } else {
+            final Lease lockedItem = new Lease(resource, newItem);
+            repository.put(resource, lockedItem);
+            lockedItem.unlockSubscription = scheduler.schedule(lockedItem, unlockTimeout);
+            metrics.recordLockAcquired();
+        }
+        return new ResourceAcquisitionResponse(ResourceAcquisitionCommandResult.LockSucceeded, newItem);
+    }
+
+    private ResourceAcquisitionResponse unlock(final String userName, final T resource) {
+        final Lease existingItem = repository.get(resource);
+        if (existingItem != null) {
+            if (!existingItem.acquiredResource.getUserName().equalsIgnoreCase(userName)) {
+                return existingItem.getUnlockFailedResponse();
+            }
+
+            existingItem.unlockSubscription.cancel();
+            repository.remove(resource);
+            metrics.recordLockReleased();
+            if (metrics.isHoldDurationEnabled()) {
+                metrics.recordHoldDuration(scheduler.now(TimeUnit.NANOSECONDS) - existingItem.acquiredAt);
+            }
+            final AcquiredResource unlockedItem = AcquiredResource.createNew(userName, ResourceAcquisitionState.Unlocked, unlockTimeout, clock);
+            return new ResourceAcquisitionResponse(ResourceAcquisitionCommandResult.UnlockSucceeded, unlockedItem);
+        }
+        final AcquiredResource unlockedItem = AcquiredResource.createNew(userName, ResourceAcquisitionState.Unlocked, unlockTimeout, clock);
+        return new ResourceAcquisitionResponse(ResourceAcquisitionCommandResult.UnlockFailed, unlockedItem);
+    }
+
+    private void expire(final Lease lease) {
+        if (repository.get(lease.resource) != lease) {
+            return;
+        }
+        final long now = scheduler.now(TimeUnit.NANOSECONDS);
+        final long remaining = lease.unlockDeadline - now;
+        if (remaining > 0) {
+            lease.unlockSubscription = scheduler.schedule(lease, new TimeSpan(remaining, TimeUnit.NANOSECONDS));
+            return;
+        }
+        repository.remove(lease.resource);
+        metrics.recordLockReleased();
+        metrics.recordExpiryLag(-remaining);
+        metrics.recordHoldDuration(now - lease.acquiredAt);
+    }
+
+    // Everything published before close is still applied; later publishes are rejected.
+    @Override
+    public void close() {
+        final long current = claimed.getAndSet(CLOSED);
+        if (current < 0) {
+            return;
+        }
+        scheduler.close();
+        if (Thread.currentThread() == engine) {
+            // The engine cannot wait for a slot it has to free itself, so it stops on its own at the close point.
+            stopSequence = current;
+            return;
+        }
+        publish(awaitSlot(current), current);
+        try {
+            engine.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package ras;
+
+import io.opentelemetry.api.metrics.Meter;
+import io.reactivex.rxjava3.core.BackpressureOverflowStrategy;
+import io.reactivex.rxjava3.core.Flowable;
+import io.reactivex.rxjava3.core.Scheduler;
+import io.reactivex.rxjava3.core.Single;
+import io.reactivex.rxjava3.schedulers.Schedulers;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.IntFunction;
+
+import ras.SimpleResourceAcquisitionService.AutoUnlockScheduler;
+import ras.SimpleResourceAcquisitionService.RxAutoUnlockScheduler;
+
+public class ShardedResourceAcquisitionService<T> implements ResourceAcquisitionService<T>, AutoCloseable {
+
+    private static final int GOLDEN_RATIO = 0x9E3779B9;
+
+    private final List<SimpleResourceAcquisitionService<T>> shards;
+    private final List<ResourceAcquisitionMetrics> shardMetrics;
+
+    public ShardedResourceAcquisitionService(final Scheduler scheduler, final TimeSpan unlockTimeout, final int shardCount, final Meter meter) {
+        this(scheduler, unlockTimeout, shardCount, new ResourceAcquisitionMetrics(meter));
+    }
+
+    public ShardedResourceAcquisitionService(final Scheduler scheduler,
+                                             final TimeSpan unlockTimeout,
+                                             final int shardCount,
+                                             final ResourceAcquisitionMetrics metrics) {
+        this(shard -> new RxAutoUnlockScheduler(scheduler), unlockTimeout, Clock.systemUTC(), metrics, shardCount);
+    }
+
+    public ShardedResourceAcquisitionService(final Scheduler scheduler, final TimeSpan unlockTimeout, final int shardCount) {
+        this(scheduler, unlockTimeout, shardCount, ResourceAcquisitionMetrics.createDefault());
+    }
+
+    ShardedResourceAcquisitionService(final IntFunction<AutoUnlockScheduler> schedulers,
+                                      final TimeSpan unlockTimeout,
+                                      final Clock clock,
+                                      final ResourceAcquisitionMetrics metrics,
+                                      final int shardCount) {
+        if (shardCount <= 0) {
+            throw new IllegalArgumentException("shardCount must be positive");
+        }
+        Objects.requireNonNull(metrics, "metrics");
+        this.shards = new ArrayList<>(shardCount);
+        this.shardMetrics = new ArrayList<>(shardCount);
+        for (int shard = 0; shard < shardCount; shard++) {
+            shardMetrics.add(metrics.forShard(shard));
+            shards.add(new SimpleResourceAcquisitionService<>(schedulers.apply(shard), unlockTimeout, clock, shardMetrics.get(shard)));
+        }
+    }
+
+    public ShardedResourceAcquisitionService(final int shardCount) {
+        this(Schedulers.computation(), TimeSpan.Default, shardCount);
+    }
+
+    public ShardedResourceAcquisitionService() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public int getShardCount() {
+        return shards.size();
+    }
+
+    // Routes on the high bits of a multiplied hash so each shard's HashMap still sees well-spread low bits.
+    int shardOf(final T resource) {
+        final long mixed = Integer.toUnsignedLong(Objects.hashCode(resource) * GOLDEN_RATIO);
+        return (int) ((mixed * shards.size()) >>> Integer.SIZE);
+    }
+
+    private SimpleResourceAcquisitionService<T> shardFor(final T resource) {
+        return shards.get(shardOf(resource));
+    }
+
+    @Override
+    public ResourceAcquisitionResponse commit(final ResourceAcquisitionCommand command, final String userName, final T resource) {
+        return shardFor(resource).commit(command, userName, resource);
+    }
+
+    @Override
+    public List<ResourceAcquisitionResponse> commitAll(final List<ResourceAcquisitionRequest<T>> requests) {
+        final List<List<ResourceAcquisitionRequest<T>>> batches = new ArrayList<>(shards.size());
+        final List<List<Integer>> positions = new ArrayList<>(shards.size());
+        for (int shard = 0; shard < shards.size(); shard++) {
+            batches.add(new ArrayList<>());
+            positions.add(new ArrayList<>());
+        }
+        for (int i = 0; i < requests.size(); i++) {
+            final int shard = shardOf(requests.get(i).getResource());
+            batches.get(shard).add(requests.get(i));
+            positions.get(shard).add(i);
+        }
+
+        final ResourceAcquisitionResponse[] responses = new ResourceAcquisitionResponse[requests.size()];
+        for (int shard = 0; shard < shards.size(); shard++) {
+            if (batches.get(shard).isEmpty()) {
+                continue;
+            }
+            final List<ResourceAcquisitionResponse> shardResponses = shards.get(shard).commitAll(batches.get(shard));
+            for (int i = 0; i < shardResponses.size(); i++) {
+                responses[positions.get(shard).get(i)] = shardResponses.get(i);
+            }
+        }
+        return List.of(responses);
+    }
+
+    public ResourceAcquisitionResponse renew(final T resource, final long fencingToken) {
+        return shardFor(resource).renew(resource, fencingToken);
+    }
+
+    public ResourceAcquisitionResponse unlock(final T resource, final long fencingToken) {
+        return shardFor(resource).unlock(resource, fencingToken);
+    }
+
+    public ResourceAcquisitionResponse lockShared(final String userName, final T resource) {
+        return shardFor(resource).lockShared(userName, resource);
+    }
+
+    public ResourceAcquisitionResponse unlockShared(final String userName, final T resource) {
+        return shardFor(resource).unlockShared(userName, resource);
+    }
+
+    public boolean isLocked(final T resource) {
+        return shardFor(resource).isLocked(resource);
+    }
+
+    public AcquiredResource holderOf(final T resource) {
+        return shardFor(resource).holderOf(resource);
+    }
+
+    public int sharedHolderCount(final T resource) {
+        return shardFor(resource).sharedHolderCount(resource);
+    }
+
+    public List<T> locksHeldBy(final String userName) {
+        final List<T> resources = new ArrayList<>();
+        for (final SimpleResourceAcquisitionService<T> shard : shards) {
+            resources.addAll(shard.locksHeldBy(userName));
+        }
+        return resources;
+    }
+
+    public int releaseAll(final String userName) {
+        int released = 0;
+        for (final SimpleResourceAcquisitionService<T> shard : shards) {
+            released += shard.releaseAll(userName);
+        }
+        return released;
+    }
+
+    public Single<ResourceAcquisitionResponse> lockAsync(final String userName, final T resource, final TimeSpan waitTimeout) {
+        return shardFor(resource).lockAsync(userName, resource, waitTimeout);
+    }
+
+    public ResourceAcquisitionResponse acquire(final String userName, final T resource, final TimeSpan waitTimeout) {
+        return shardFor(resource).acquire(userName, resource, waitTimeout);
+    }
+
+    // Each shard keeps its own bounded queue, so events are ordered per resource but not across shards.
+    public Flowable<List<LockEvent<T>>> lockEvents(final Scheduler scheduler,
+                                                   final int capacity,
+                                                   final BackpressureOverflowStrategy overflowStrategy) {
+        final List<Flowable<List<LockEvent<T>>>> streams = new ArrayList<>(shards.size());
+        for (final SimpleResourceAcquisitionService<T> shard : shards) {
+            streams.add(shard.lockEvents(scheduler, capacity, overflowStrategy));
+        }
+        return Flowable.merge(streams);
+    }
+
+    @Override
+    public void close() {
+        shards.forEach(SimpleResourceAcquisitionService::close);
+        shardMetrics.forEach(ResourceAcquisitionMetrics::unregister);
+    }
+}
@@ -1,26 +1,72 @@
 package ras;
 
+import io.opentelemetry.api.metrics.BatchCallback;
 import io.opentelemetry.api.metrics.Meter;
+import io.reactivex.rxjava3.core.BackpressureOverflowStrategy;
+import io.reactivex.rxjava3.core.Flowable;
 import io.reactivex.rxjava3.core.Scheduler;
+import io.reactivex.rxjava3.core.Single;
+import io.reactivex.rxjava3.core.SingleEmitter;
 import io.reactivex.rxjava3.disposables.Disposable;
 import io.reactivex.rxjava3.schedulers.Schedulers;
 
+import java.io.IOException;
+import java.nio.channels.ByteChannel;
+import java.nio.file.Path;
 import java.time.Clock;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 public class SimpleResourceAcquisitionService<T> implements ResourceAcquisitionService<T>, AutoCloseable {
 
+    private static final int COMMAND_COUNT = ResourceAcquisitionCommand.values().length;
+    private static final int RESULT_COUNT = ResourceAcquisitionCommandResult.values().length;
+    private static final int FENCING_TOKEN_CLOCK_SHIFT = 20;
+
+    // Guards every mutation. A ReentrantLock rather than the object monitor, so virtual threads that contend for it or
+    // wait in acquire unmount from their carrier instead of pinning it.
+    private final ReentrantLock lock = new ReentrantLock();
     private final AutoUnlockScheduler scheduler;
     private final TimeSpan unlockTimeout;
+    private final long unlockTimeoutNanos;
     private final Clock clock;
     private final ResourceAcquisitionMetrics metrics;
-    private final Map<T, AutoUnlockableResource> repository = new HashMap<>();
+    private final ResourceAcquisitionJournal<T> journal;
+    private final Map<T, AutoUnlockableResource> repository = new ConcurrentHashMap<>();
+    private final Map<T, SharedLease> sharedLeases = new ConcurrentHashMap<>();
+    private final OwnerIndex<T> owners = new OwnerIndex<>();
+    // Changed under the lock; copy-on-write so that callers can wait for synchronous standbys after releasing it.
+    private final List<ResourceAcquisitionReplicator<T>> replicas = new CopyOnWriteArrayList<>();
+    private final Map<T, ArrayDeque<Waiter>> waiters = new HashMap<>();
+    private final LockEventStream<T> events = new LockEventStream<>();
+    private final ResourceAcquisitionCommandProcessor<T> lockProcessor = new ResourceLockCommandProcessor();
+    private final ResourceAcquisitionCommandProcessor<T> unlockProcessor = new ResourceUnlockCommandProcessor();
+    private Waiter grantedWaiter;
+    // Where the journal records of the current critical section end; 0 when it wrote none.
+    private long journalPosition;
+    // The position of the last journaled change: the journal's own, or a plain count when there is no journal.
+    // Standbys are told it with every change, so a caller can wait for the one that holds its section's last change.
+    private long changes;
+    private long nextFencingToken;
+    private HotKeyTracker<T> hotKeys;
+    private BatchCallback hotKeyGauges;
 
     interface AutoUnlockScheduler extends AutoCloseable {
         Cancellable schedule(Runnable command, TimeSpan delay);
 
+        long now(TimeUnit unit);
+
         @Override
         void close();
     }
@@ -43,29 +89,346 @@ public class SimpleResourceAcquisitionService<T> implements ResourceAcquisitionS
             return disposable::dispose;
         }
 
+        @Override
+        public long now(final TimeUnit unit) {
+            return worker.now(unit);
+        }
+
         @Override
         public void close() {
             worker.dispose();
         }
     }
 
-    private static final class AutoUnlockableResource {
+    private final class AutoUnlockableResource extends OwnerIndex.Entry<T> implements Runnable {
+
+        private final long acquiredAt;
+        private final long fencingToken;
+        private final SharedLease sharedLease;
+        private volatile AcquiredResource acquiredResource;
+        private long unlockDeadline;
+        private Cancellable unlockSubscription;
+        private LeaseGroup group;
+        private ResourceAcquisitionResponse lockFailedResponse;
+        private ResourceAcquisitionResponse unlockFailedResponse;
 
-        private final AcquiredResource acquiredResource;
-        private final Cancellable unlockSubscription;
+        public AutoUnlockableResource(final T resource, final AcquiredResource acquiredResource) {
+            this(resource, acquiredResource, scheduler.now(TimeUnit.NANOSECONDS), null);
+        }
+
+        public AutoUnlockableResource(final T resource, final AcquiredResource acquiredResource, final SharedLease sharedLease) {
+            this(resource, acquiredResource, scheduler.now(TimeUnit.NANOSECONDS), sharedLease);
+        }
 
-        public AutoUnlockableResource(final Cancellable unlockSubscription, final AcquiredResource acquiredResource) {
-            this.unlockSubscription = Objects.requireNonNull(unlockSubscription, "unlockSubscription");
+        private AutoUnlockableResource(final T resource,
+                                       final AcquiredResource acquiredResource,
+                                       final long acquiredAt,
+                                       final SharedLease sharedLease) {
+            super(resource, owners.nextSerial());
+            this.fencingToken = ++nextFencingToken;
+            this.sharedLease = sharedLease;
             this.acquiredResource = acquiredResource;
+            this.acquiredAt = acquiredAt;
+            this.unlockDeadline = acquiredAt + unlockTimeoutNanos;
+        }
+
+        public void scheduleUnlock() {
+            unlockSubscription = scheduler.schedule(this, unlockTimeout);
+        }
+
+        public void scheduleUnlock(final long deadline, final TimeSpan delay) {
+            unlockDeadline = deadline;
+            unlockSubscription = scheduler.schedule(this, delay);
+        }
+
+        public void renew(final AcquiredResource renewedResource) {
+            acquiredResource = renewedResource;
+            unlockDeadline = scheduler.now(TimeUnit.NANOSECONDS) + unlockTimeoutNanos;
+            lockFailedResponse = null;
+            unlockFailedResponse = null;
         }
 
         public void cancelUnlock() {
-            unlockSubscription.cancel();
+            if (group != null) {
+                group.leave();
+                group = null;
+            } else {
+                unlockSubscription.cancel();
+            }
         }
 
         public AcquiredResource getAcquiredResource() {
             return acquiredResource;
         }
+
+        @Override
+        String owner() {
+            return acquiredResource.getUserName();
+        }
+
+        public ResourceAcquisitionResponse getLockFailedResponse() {
+            if (lockFailedResponse == null) {
+                lockFailedResponse = new ResourceAcquisitionResponse(ResourceAcquisitionCommandResult.LockFailed, acquiredResource);
+            }
+            return lockFailedResponse;
+        }
+
+        public ResourceAcquisitionResponse getUnlockFailedResponse() {
+            if (unlockFailedResponse == null) {
+                unlockFailedResponse = new ResourceAcquisitionResponse(ResourceAcquisitionCommandResult.UnlockFailed, acquiredResource);
+            }
+            return unlockFailedResponse;
+        }
+
+        @Override
+        public void run() {
+            final Waiter granted;
+            final long journaled;
+            lock.lock();
+            try {
+                if (!isLive()) {
+                    return;
+                }
+                granted = expire(scheduler.now(TimeUnit.NANOSECONDS));
+            } finally {
+                journaled = takeJournalPosition();
+                lock.unlock();
+            }
+            if (granted != null) {
+                awaitDurable(journaled);
+                granted.complete();
+            }
+        }
+
+        private boolean isLive() {
+            return sharedLease == null ? repository.get(resource) == this : sharedLease.holders.get(owner()) == this;
+        }
+
+        private Waiter expire(final long now) {
+            final long remaining = unlockDeadline - now;
+            if (remaining > 0) {
+                unlockSubscription = scheduler.schedule(this, new TimeSpan(remaining, TimeUnit.NANOSECONDS));
+                return null;
+            }
+            if (sharedLease == null) {
+                journalUnlock(resource);
+            }
+            removeLease(this);
+            publishEvent(LockEventType.Expired, resource, acquiredResource);
+            metrics.recordLockReleased();
+            metrics.recordExpiryLag(-remaining);
+            recordHoldDuration(this, now);
+            return handOff(resource);
+        }
+    }
+
+    private final class LeaseGroup implements Runnable {
+
+        private final long unlockDeadline = scheduler.now(TimeUnit.NANOSECONDS) + unlockTimeoutNanos;
+        private final List<AutoUnlockableResource> members;
+        private int liveMembers;
+        private Cancellable unlockSubscription;
+
+        LeaseGroup(final int size) {
+            this.members = new ArrayList<>(size);
+        }
+
+        void join(final AutoUnlockableResource member) {
+            member.group = this;
+            member.unlockDeadline = unlockDeadline;
+            members.add(member);
+            liveMembers++;
+        }
+
+        void scheduleUnlock() {
+            unlockSubscription = scheduler.schedule(this, unlockTimeout);
+        }
+
+        void leave() {
+            if (--liveMembers == 0) {
+                unlockSubscription.cancel();
+            }
+        }
+
+        @Override
+        public void run() {
+            final List<Waiter> granted = new ArrayList<>();
+            final long journaled;
+            lock.lock();
+            try {
+                final long now = scheduler.now(TimeUnit.NANOSECONDS);
+                for (final AutoUnlockableResource member : members) {
+                    if (member.group != this) {
+                        continue;
+                    }
+                    member.group = null;
+                    final Waiter waiter = member.expire(now);
+                    if (waiter != null) {
+                        granted.add(waiter);
+                    }
+                }
+            } finally {
+                journaled = takeJournalPosition();
+                lock.unlock();
+            }
+            awaitDurable(journaled);
+            granted.forEach(Waiter::complete);
+        }
+    }
+
+    // Holders of one resource's shared lease, keyed by user name ignoring case. Each holder is its own lease with its own
+    // expiry; acquiring adds one entry instead of copying the holder set, and the count is published for queries.
+    private final class SharedLease {
+
+        private final TreeMap<String, AutoUnlockableResource> holders = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        private volatile int holderCount;
+        // The holder reported by holderOf and by LockFailed responses: the first by owner name.
+        private volatile AutoUnlockableResource firstHolder;
+
+        void add(final AutoUnlockableResource holder) {
+            holders.put(holder.owner(), holder);
+            published();
+        }
+
+        void remove(final AutoUnlockableResource holder) {
+            holders.remove(holder.owner());
+            published();
+        }
+
+        ResourceAcquisitionResponse getLockFailedResponse() {
+            return firstHolder.getLockFailedResponse();
+        }
+
+        private void published() {
+            final Map.Entry<String, AutoUnlockableResource> first = holders.firstEntry();
+            firstHolder = first == null ? null : first.getValue();
+            holderCount = holders.size();
+        }
+    }
+
+    private abstract class Waiter {
+
+        final T resource;
+        final String userName;
+        Cancellable waitTimeout;
+        ResourceAcquisitionResponse response;
+        // Where the journal records of a handed-over lease end.
+        long journalPosition;
+
+        Waiter(final T resource, final String userName) {
+            this.resource = resource;
+            this.userName = userName;
+        }
+
+        abstract void complete();
+
+        abstract void fail(RuntimeException error);
+    }
+
+    private final class AsyncWaiter extends Waiter implements Runnable {
+
+        private final SingleEmitter<ResourceAcquisitionResponse> emitter;
+
+        AsyncWaiter(final T resource, final String userName, final SingleEmitter<ResourceAcquisitionResponse> emitter) {
+            super(resource, userName);
+            this.emitter = emitter;
+        }
+
+        void cancel() {
+            lock.lock();
+            try {
+                if (removeWaiter(this)) {
+                    waitTimeout.cancel();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        void complete() {
+            metrics.recordResult(response.getCommitResult());
+            emitter.onSuccess(response);
+        }
+
+        @Override
+        void fail(final RuntimeException error) {
+            emitter.tryOnError(error);
+        }
+
+        @Override
+        public void run() {
+            lock.lock();
+            try {
+                if (!removeWaiter(this)) {
+                    return;
+                }
+                response = lockFailedResponseOf(resource);
+            } finally {
+                lock.unlock();
+            }
+            complete();
+        }
+    }
+
+    // Waits on its own condition of the service lock and keeps its own deadline instead of a scheduler timer. Cancelling
+    // its wait timeout is therefore what wakes it: handOff does that under the lock, after the lease is already granted.
+    private final class BlockingWaiter extends Waiter implements Cancellable {
+
+        private final Condition released = lock.newCondition();
+        private boolean done;
+        private RuntimeException failure;
+
+        BlockingWaiter(final T resource, final String userName) {
+            super(resource, userName);
+            this.waitTimeout = this;
+        }
+
+        // Called with the lock held; awaiting releases it until the waiter is woken or its deadline passes.
+        void await(final long deadline) {
+            boolean interrupted = false;
+            while (!done) {
+                final long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    removeWaiter(this);
+                    response = lockFailedResponseOf(resource);
+                    break;
+                }
+                try {
+                    released.awaitNanos(remaining);
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        }
+
+        @Override
+        public void cancel() {
+            done = true;
+            released.signal();
+        }
+
+        @Override
+        void complete() {
+            // Already woken by cancel() when the lease was handed over.
+        }
+
+        @Override
+        void fail(final RuntimeException error) {
+            lock.lock();
+            try {
+                failure = error;
+                cancel();
+            } finally {
+                lock.unlock();
+            }
+        }
     }
 
     private interface ResourceAcquisitionCommandProcessor<T> {
@@ -76,36 +439,34 @@ public class SimpleResourceAcquisitionService<T> implements ResourceAcquisitionS
 
         @Override
         public ResourceAcquisitionResponse commit(String userName, final T resource) {
+            final ResourceAcquisitionResponse response = lock(userName, resource);
+            if (hotKeys != null) {
+                hotKeys.recordLockAttempt(resource, response.getCommitResult());
+            }
+            return response;
+        }
 
+        private ResourceAcquisitionResponse lock(final String userName, final T resource) {
             final AutoUnlockableResource existingItem = repository.get(resource);
             if (existingItem != null) {
-                final AcquiredResource existingResource = existingItem.getAcquiredResource();
-                if (!existingResource.getUserName().equalsIgnoreCase(userName)) {
-                    return new ResourceAcquisitionResponse(ResourceAcquisitionCommandResult.LockFailed, existingResource);
+                if (!existingItem.getAcquiredResource().getUserName().equalsIgnoreCase(userName)) {
+                    return existingItem.getLockFailedResponse();
                 }
-                existingItem.cancelUnlock();
+                return renewLease(existingItem, userName);
+            }
+            final SharedLease sharedLease = sharedLeases.get(resource);
+            if (sharedLease != null) {
+                return sharedLease.getLockFailedResponse();
             }
 
             final AcquiredResource newItem = AcquiredResource.createNew(userName, ResourceAcquisitionState.Locked, unlockTimeout, clock);
-            final Cancellable unlockSubscription = scheduler.schedule(new Runnable() {
-                @Override
-                public void run() {
-                    synchronized (SimpleResourceAcquisitionService.this) {
-                        AutoUnlockableResource lockedItem = repository.get(resource);
-                        if (lockedItem != null && newItem == lockedItem.getAcquiredResource()) {
-                            repository.remove(resource);
-                            metrics.recordLockReleased();
-                        }
-                    }
-                }
-            }, unlockTimeout);
-            final AutoUnlockableResource unlockableResource = new AutoUnlockableResource(unlockSubscription, newItem);
-            repository.put(resource, unlockableResource);
-
-            if (existingItem == null) {
-                metrics.recordLockAcquired();
-            }
-            return new ResourceAcquisitionResponse(ResourceAcquisitionCommandResult.LockSucceeded, newItem);
+            journalLock(resource, newItem);
+            final AutoUnlockableResource lockedItem = new AutoUnlockableResource(resource, newItem);
+            addLease(lockedItem);
+            lockedItem.scheduleUnlock();
+            metrics.recordLockAcquired();
+            publishEvent(LockEventType.Acquired, resource, newItem);
+            return new ResourceAcquisitionResponse(ResourceAcquisitionCommandResult.LockSucceeded, newItem, lockedItem.fencingToken);
         }
     }
 
@@ -114,31 +475,443 @@ public class SimpleResourceAcquisitionService<T> implements ResourceAcquisitionS
         @Override
         public ResourceAcquisitionResponse commit(String userName, T resource) {
             final AutoUnlockableResource existingItem = repository.get(resource);
-            final AcquiredResource unlockedItem = AcquiredResource.createNew(userName, ResourceAcquisitionState.Unlocked, unlockTimeout, clock);
             if (existingItem != null) {
-                final AcquiredResource acquiredResource = existingItem.getAcquiredResource();
-                if (!acquiredResource.getUserName().equalsIgnoreCase(userName)) {
-                    return new ResourceAcquisitionResponse(ResourceAcquisitionCommandResult.UnlockFailed, acquiredResource);
+                if (!existingItem.getAcquiredResource().getUserName().equalsIgnoreCase(userName)) {
+                    return existingItem.getUnlockFailedResponse();
                 }
+                return unlockLease(existingItem, userName);
+            }
+            final AcquiredResource unlockedItem = AcquiredResource.createNew(userName, ResourceAcquisitionState.Unlocked, unlockTimeout, clock);
+            return new ResourceAcquisitionResponse(ResourceAcquisitionCommandResult.UnlockFailed, unlockedItem);
+        }
+    }
 
-                existingItem.cancelUnlock();
-                repository.remove(resource);
-                metrics.recordLockReleased();
-                return new ResourceAcquisitionResponse(ResourceAcquisitionCommandResult.UnlockSucceeded, unlockedItem);
+    private ResourceAcquisitionResponse renewLease(final AutoUnlockableResource lockedItem, final String userName) {
+        final AcquiredResource newItem = AcquiredResource.createNew(userName, ResourceAcquisitionState.Locked, unlockTimeout, clock);
+        journalLock(lockedItem.resource, newItem);
+        lockedItem.renew(newItem);
+        publishEvent(LockEventType.Renewed, lockedItem.resource, newItem);
+        return new ResourceAcquisitionResponse(ResourceAcquisitionCommandResult.LockSucceeded, newItem, lockedItem.fencingToken);
+    }
+
+    private ResourceAcquisitionResponse unlockLease(final AutoUnlockableResource lockedItem, final String userName) {
+        journalUnlock(lockedItem.resource);
+        lockedItem.cancelUnlock();
+        removeLease(lockedItem);
+        publishEvent(LockEventType.Unlocked, lockedItem.resource, lockedItem.getAcquiredResource());
+        metrics.recordLockReleased();
+        if (isHoldDurationTracked()) {
+            recordHoldDuration(lockedItem, scheduler.now(TimeUnit.NANOSECONDS));
+        }
+        grantedWaiter = handOff(lockedItem.resource);
+        final AcquiredResource unlockedItem = AcquiredResource.createNew(userName, ResourceAcquisitionState.Unlocked, unlockTimeout, clock);
+        return new ResourceAcquisitionResponse(ResourceAcquisitionCommandResult.UnlockSucceeded, unlockedItem);
+    }
+
+    // Readers join the shared lease unless a writer holds the resource or is already queued for it, so a steady stream
+    // of readers cannot starve a waiting writer. A holder that locks again renews only its own expiry.
+    private ResourceAcquisitionResponse lockSharedLease(final String userName, final T resource) {
+        final AutoUnlockableResource existingItem = repository.get(resource);
+        if (existingItem != null) {
+            return existingItem.getLockFailedResponse();
+        }
+        SharedLease sharedLease = sharedLeases.get(resource);
+        final AcquiredResource newItem = AcquiredResource.createNew(userName, ResourceAcquisitionState.Shared, unlockTimeout, clock);
+        if (sharedLease == null) {
+            sharedLease = new SharedLease();
+            sharedLeases.put(resource, sharedLease);
+        } else {
+            final AutoUnlockableResource holder = sharedLease.holders.get(userName);
+            if (holder != null) {
+                holder.renew(newItem);
+                publishEvent(LockEventType.Renewed, resource, newItem);
+                return new ResourceAcquisitionResponse(ResourceAcquisitionCommandResult.LockSucceeded, newItem);
             }
+            if (waiters.containsKey(resource)) {
+                return sharedLease.getLockFailedResponse();
+            }
+        }
+        final AutoUnlockableResource holder = new AutoUnlockableResource(resource, newItem, sharedLease);
+        addLease(holder);
+        holder.scheduleUnlock();
+        metrics.recordLockAcquired();
+        publishEvent(LockEventType.Acquired, resource, newItem);
+        return new ResourceAcquisitionResponse(ResourceAcquisitionCommandResult.LockSucceeded, newItem);
+    }
+
+    private ResourceAcquisitionResponse unlockSharedLease(final String userName, final T resource) {
+        final AutoUnlockableResource existingItem = repository.get(resource);
+        if (existingItem != null) {
+            return existingItem.getUnlockFailedResponse();
+        }
+        final SharedLease sharedLease = sharedLeases.get(resource);
+        final AutoUnlockableResource holder = sharedLease == null ? null : sharedLease.holders.get(userName);
+        final AcquiredResource unlockedItem = AcquiredResource.createNew(userName, ResourceAcquisitionState.Unlocked, unlockTimeout, clock);
+        if (holder == null) {
             return new ResourceAcquisitionResponse(ResourceAcquisitionCommandResult.UnlockFailed, unlockedItem);
         }
+        holder.cancelUnlock();
+        removeLease(holder);
+        publishEvent(LockEventType.Unlocked, resource, holder.getAcquiredResource());
+        metrics.recordLockReleased();
+        if (isHoldDurationTracked()) {
+            recordHoldDuration(holder, scheduler.now(TimeUnit.NANOSECONDS));
+        }
+        grantedWaiter = handOff(resource);
+        return new ResourceAcquisitionResponse(ResourceAcquisitionCommandResult.UnlockSucceeded, unlockedItem);
+    }
+
+    // Token commands compare one long instead of case-folding owner names. A lease that is gone, or that was granted
+    // again under a newer token, rejects the stale token.
+    private ResourceAcquisitionResponse commitToken(final ResourceAcquisitionCommand command, final T resource, final long fencingToken) {
+        final AutoUnlockableResource existingItem = repository.get(resource);
+        final boolean renew = command == ResourceAcquisitionCommand.Lock;
+        if (existingItem == null) {
+            final AcquiredResource unlockedItem = AcquiredResource.createNew("", ResourceAcquisitionState.Unlocked, unlockTimeout, clock);
+            return new ResourceAcquisitionResponse(
+                    renew ? ResourceAcquisitionCommandResult.LockFailed : ResourceAcquisitionCommandResult.UnlockFailed, unlockedItem);
+        }
+        if (existingItem.fencingToken != fencingToken) {
+            return renew ? existingItem.getLockFailedResponse() : existingItem.getUnlockFailedResponse();
+        }
+        final String owner = existingItem.getAcquiredResource().getUserName();
+        return renew ? renewLease(existingItem, owner) : unlockLease(existingItem, owner);
+    }
+
+    private int releaseOwnedBy(final String userName, final List<Waiter> granted) {
+        final List<OwnerIndex.Entry<T>> owned = new ArrayList<>(owners.entriesOf(userName));
+        final boolean timed = isHoldDurationTracked();
+        final long now = timed ? scheduler.now(TimeUnit.NANOSECONDS) : 0L;
+        for (final OwnerIndex.Entry<T> entry : owned) {
+            final AutoUnlockableResource lockedItem = (AutoUnlockableResource) entry;
+            if (lockedItem.sharedLease == null) {
+                journalUnlock(lockedItem.resource);
+            }
+            lockedItem.cancelUnlock();
+            removeLease(lockedItem);
+            publishEvent(LockEventType.Unlocked, lockedItem.resource, lockedItem.getAcquiredResource());
+            if (timed) {
+                recordHoldDuration(lockedItem, now);
+            }
+            final Waiter waiter = handOff(lockedItem.resource);
+            if (waiter != null) {
+                granted.add(waiter);
+            }
+        }
+        return owned.size();
+    }
+
+    private ResourceAcquisitionGroupResponse<T> lockGroup(final String userName, final List<T> resources) {
+        for (final T resource : resources) {
+            final AutoUnlockableResource existingItem = repository.get(resource);
+            if (existingItem != null && !existingItem.getAcquiredResource().getUserName().equalsIgnoreCase(userName)) {
+                return new ResourceAcquisitionGroupResponse<>(ResourceAcquisitionCommandResult.LockFailed, existingItem.getAcquiredResource(), resource);
+            }
+            final SharedLease sharedLease = sharedLeases.get(resource);
+            if (sharedLease != null) {
+                return new ResourceAcquisitionGroupResponse<>(
+                        ResourceAcquisitionCommandResult.LockFailed, sharedLease.getLockFailedResponse().getResource(), resource);
+            }
+            if (journal != null) {
+                journal.checkRecord(resource, userName);
+            }
+        }
+
+        final AcquiredResource newItem = AcquiredResource.createNew(userName, ResourceAcquisitionState.Locked, unlockTimeout, clock);
+        final LeaseGroup group = new LeaseGroup(resources.size());
+        for (final T resource : resources) {
+            journalLock(resource, newItem);
+            AutoUnlockableResource lockedItem = repository.get(resource);
+            if (lockedItem != null) {
+                lockedItem.cancelUnlock();
+                lockedItem.renew(newItem);
+                publishEvent(LockEventType.Renewed, resource, newItem);
+            } else {
+                lockedItem = new AutoUnlockableResource(resource, newItem);
+                addLease(lockedItem);
+                metrics.recordLockAcquired();
+                publishEvent(LockEventType.Acquired, resource, newItem);
+            }
+            group.join(lockedItem);
+        }
+        group.scheduleUnlock();
+        return new ResourceAcquisitionGroupResponse<>(ResourceAcquisitionCommandResult.LockSucceeded, newItem, null);
+    }
+
+    private Waiter handOff(final T resource) {
+        if (waiters.isEmpty()) {
+            return null;
+        }
+        final ArrayDeque<Waiter> queue = waiters.get(resource);
+        if (queue == null || sharedLeases.containsKey(resource)) {
+            return null;
+        }
+        final Waiter waiter = queue.poll();
+        if (queue.isEmpty()) {
+            waiters.remove(resource);
+        }
+        waiter.waitTimeout.cancel();
+        waiter.response = lockProcessor.commit(waiter.userName, resource);
+        waiter.journalPosition = journalPosition;
+        return waiter;
+    }
+
+    private ResourceAcquisitionResponse lockFailedResponseOf(final T resource) {
+        final AutoUnlockableResource lockedItem = repository.get(resource);
+        return lockedItem != null ? lockedItem.getLockFailedResponse() : sharedLeases.get(resource).getLockFailedResponse();
+    }
+
+    private void addLease(final AutoUnlockableResource lockedItem) {
+        if (lockedItem.sharedLease == null) {
+            repository.put(lockedItem.resource, lockedItem);
+        } else {
+            lockedItem.sharedLease.add(lockedItem);
+        }
+        owners.add(lockedItem);
+    }
+
+    private void removeLease(final AutoUnlockableResource lockedItem) {
+        final SharedLease sharedLease = lockedItem.sharedLease;
+        if (sharedLease == null) {
+            repository.remove(lockedItem.resource);
+        } else {
+            sharedLease.remove(lockedItem);
+            if (sharedLease.holders.isEmpty()) {
+                sharedLeases.remove(lockedItem.resource);
+            }
+        }
+        owners.remove(lockedItem);
+    }
+
+    // Exclusive leases plus every shared holder, the same leases that recordLockAcquired counts.
+    private long activeLocks() {
+        long count = repository.size();
+        for (final SharedLease sharedLease : sharedLeases.values()) {
+            count += sharedLease.holderCount;
+        }
+        return count;
+    }
+
+    // Hold time feeds the histogram and the hot key tracker; the clock is read only when one of them is on.
+    private boolean isHoldDurationTracked() {
+        return hotKeys != null || metrics.isHoldDurationEnabled();
+    }
+
+    private void recordHoldDuration(final AutoUnlockableResource lockedItem, final long now) {
+        final long heldNanos = now - lockedItem.acquiredAt;
+        metrics.recordHoldDuration(heldNanos);
+        if (hotKeys != null) {
+            hotKeys.recordHoldTime(lockedItem.resource, heldNanos);
+        }
+    }
+
+    private void publishEvent(final LockEventType type, final T resource, final AcquiredResource acquiredResource) {
+        if (events.hasSubscribers()) {
+            events.publish(type, resource, acquiredResource);
+        }
+    }
+
+    private boolean removeWaiter(final Waiter waiter) {
+        final ArrayDeque<Waiter> queue = waiters.get(waiter.resource);
+        if (queue == null || !queue.remove(waiter)) {
+            return false;
+        }
+        if (queue.isEmpty()) {
+            waiters.remove(waiter.resource);
+        }
+        return true;
+    }
+
+    // Every journaled change is also shipped to the standbys, in the same order.
+    private void journalLock(final T resource, final AcquiredResource lockedItem) {
+        journalLock(resource, lockedItem.getUserName(), lockedItem.getUtcTimeStamp().getInterval(), deadlineMillisOf(lockedItem));
+    }
+
+    private void journalLock(final T resource, final String userName, final long timestampMillis, final long deadlineMillis) {
+        changed(journal != null ? journal.recordLock(resource, userName, timestampMillis, deadlineMillis) : changes + 1);
+        // Journaled before the lease is created, so the bound covers the token it is about to take.
+        for (int i = 0; i < replicas.size(); i++) {
+            replicas.get(i).recordLock(resource, userName, timestampMillis, deadlineMillis, nextFencingToken + 1, changes);
+        }
+    }
+
+    private void journalUnlock(final T resource) {
+        changed(journal != null ? journal.recordUnlock(resource) : changes + 1);
+        for (int i = 0; i < replicas.size(); i++) {
+            replicas.get(i).recordUnlock(resource, changes);
+        }
+    }
+
+    private void changed(final long position) {
+        changes = position;
+        journalPosition = position;
+    }
+
+    private long lastChange() {
+        lock.lock();
+        try {
+            return changes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void dropReplica(final ResourceAcquisitionReplicator<T> replica) {
+        lock.lock();
+        try {
+            replicas.remove(replica);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Called under the lock as a critical section ends, so the caller waits only for the records its own section wrote.
+    private long takeJournalPosition() {
+        final long position = journalPosition;
+        journalPosition = 0L;
+        return position;
+    }
+
+    // Called after the service lock is released and before a caller learns the outcome, so one fsync, and one
+    // acknowledgement from each synchronous standby, covers the changes of every thread that committed in the meantime.
+    // A section that journaled nothing does not wait. A synchronous standby that misses its ack timeout is dropped, and
+    // the caller gets an IllegalStateException because its change may not have reached that standby.
+    private void awaitDurable(final long position) {
+        if (position == 0L) {
+            return;
+        }
+        if (journal != null) {
+            journal.sync(position);
+        }
+        // Checked first so that a service without standbys does not allocate an iterator on every commit.
+        if (replicas.isEmpty()) {
+            return;
+        }
+        for (final ResourceAcquisitionReplicator<T> replica : replicas) {
+            if (replica.isSynchronous() && !replica.awaitChange(position)) {
+                dropReplica(replica);
+                replica.close();
+                throw new IllegalStateException("a synchronous standby did not acknowledge the change in time and was dropped");
+            }
+        }
+    }
+
+    private List<ResourceAcquisitionJournal.Lease<T>> liveLeases() {
+        final List<ResourceAcquisitionJournal.Lease<T>> leases = new ArrayList<>(repository.size());
+        for (final AutoUnlockableResource item : repository.values()) {
+            final AcquiredResource lockedItem = item.getAcquiredResource();
+            leases.add(new ResourceAcquisitionJournal.Lease<>(
+                    item.resource, lockedItem.getUserName(), lockedItem.getUtcTimeStamp().getInterval(), deadlineMillisOf(lockedItem)));
+        }
+        return leases;
+    }
+
+    private static long deadlineMillisOf(final AcquiredResource lockedItem) {
+        final TimeSpan timeout = lockedItem.getStateTimeout();
+        return lockedItem.getUtcTimeStamp().getInterval() + timeout.getUnit().toMillis(timeout.getInterval());
+    }
+
+    // Tokens continue above issuedTokens, the highest token the leases' previous owner may have handed out.
+    int restoreLeases(final Collection<ResourceAcquisitionJournal.Lease<T>> leases, final long issuedTokens) {
+        final int restored;
+        final long journaled;
+        lock.lock();
+        try {
+            nextFencingToken = Math.max(nextFencingToken, issuedTokens);
+            final long nowMillis = clock.millis();
+            final long now = scheduler.now(TimeUnit.NANOSECONDS);
+            int count = 0;
+            for (final ResourceAcquisitionJournal.Lease<T> lease : leases) {
+                final AcquiredResource lockedItem = AcquiredResource.restore(
+                        lease.userName(), ResourceAcquisitionState.Locked, unlockTimeout, lease.timestampMillis());
+                if (restoreLease(lease.resource(), lockedItem, lease.deadlineMillis(), nowMillis, now)) {
+                    journalLock(lease.resource(), lease.userName(), lease.timestampMillis(), lease.deadlineMillis());
+                    count++;
+                }
+            }
+            restored = count;
+        } finally {
+            journaled = takeJournalPosition();
+            lock.unlock();
+        }
+        awaitDurable(journaled);
+        return restored;
     }
 
-    private ResourceAcquisitionCommandProcessor<T> createCommandProcessor(ResourceAcquisitionCommand command) {
+    // The journal already holds the recovered leases; only the ones that expired while the service was down are
+    // journaled, as unlocks, so the next compaction drops them.
+    private void recoverLeases(final Collection<ResourceAcquisitionJournal.Lease<T>> leases) {
+        lock.lock();
+        try {
+            final long nowMillis = clock.millis();
+            final long now = scheduler.now(TimeUnit.NANOSECONDS);
+            for (final ResourceAcquisitionJournal.Lease<T> lease : leases) {
+                final AcquiredResource lockedItem = AcquiredResource.restore(
+                        lease.userName(), ResourceAcquisitionState.Locked, unlockTimeout, lease.timestampMillis());
+                if (!restoreLease(lease.resource(), lockedItem, lease.deadlineMillis(), nowMillis, now)) {
+                    journal.recordUnlock(lease.resource());
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        journal.sync();
+    }
+
+    private boolean restoreLease(final T resource,
+                                 final AcquiredResource lockedItem,
+                                 final long deadlineMillis,
+                                 final long nowMillis,
+                                 final long now) {
+        final long remainingMillis = deadlineMillis - nowMillis;
+        if (remainingMillis <= 0 || repository.containsKey(resource) || sharedLeases.containsKey(resource)) {
+            return false;
+        }
+        final long timestampMillis = lockedItem.getUtcTimeStamp().getInterval();
+        final AutoUnlockableResource restoredItem = new AutoUnlockableResource(
+                resource, lockedItem, now - TimeUnit.MILLISECONDS.toNanos(nowMillis - timestampMillis), null);
+        addLease(restoredItem);
+        restoredItem.scheduleUnlock(now + TimeUnit.MILLISECONDS.toNanos(remainingMillis), new TimeSpan(remainingMillis, TimeUnit.MILLISECONDS));
+        metrics.recordLockAcquired();
+        return true;
+    }
+
+    private ResourceAcquisitionCommandProcessor<T> getCommandProcessor(ResourceAcquisitionCommand command) {
         return switch (command) {
-            case Lock -> new ResourceLockCommandProcessor();
-            case Unlock -> new ResourceUnlockCommandProcessor();
+            case Lock -> lockProcessor;
+            case Unlock -> unlockProcessor;
         };
     }
 
     public SimpleResourceAcquisitionService(final Scheduler scheduler, final TimeSpan unlockTimeout, final Meter meter) {
-        this(new RxAutoUnlockScheduler(scheduler), unlockTimeout, Clock.systemUTC(), new ResourceAcquisitionMetrics(meter));
+        this(scheduler, unlockTimeout, new ResourceAcquisitionMetrics(meter));
+    }
+
+    public SimpleResourceAcquisitionService(final Scheduler scheduler,
+                                            final TimeSpan unlockTimeout,
+                                            final ResourceAcquisitionMetrics metrics) {
+        this(new RxAutoUnlockScheduler(scheduler), unlockTimeout, Clock.systemUTC(), metrics);
+    }
+
+    public SimpleResourceAcquisitionService(final Scheduler scheduler,
+                                            final TimeSpan unlockTimeout,
+                                            final Meter meter,
+                                            final ResourceAcquisitionJournal<T> journal) {
+        this(new RxAutoUnlockScheduler(scheduler),
+                unlockTimeout,
+                Clock.systemUTC(),
+                new ResourceAcquisitionMetrics(meter),
+                Objects.requireNonNull(journal, "journal"));
+    }
+
+    public SimpleResourceAcquisitionService(final Scheduler scheduler,
+                                            final TimeSpan unlockTimeout,
+                                            final TimeSpan tickDuration,
+                                            final Meter meter) {
+        this(new HashedWheelAutoUnlockScheduler(scheduler, tickDuration, HashedWheelAutoUnlockScheduler.wheelSizeFor(unlockTimeout, tickDuration)),
+                unlockTimeout,
+                Clock.systemUTC(),
+                new ResourceAcquisitionMetrics(meter));
     }
 
     public SimpleResourceAcquisitionService(final Scheduler scheduler, final TimeSpan unlockTimeout) {
@@ -149,10 +922,27 @@ public class SimpleResourceAcquisitionService<T> implements ResourceAcquisitionS
                                      final TimeSpan unlockTimeout,
                                      final Clock clock,
                                      final ResourceAcquisitionMetrics metrics) {
+        this(scheduler, unlockTimeout, clock, metrics, null);
+    }
+
+    SimpleResourceAcquisitionService(final AutoUnlockScheduler scheduler,
+                                     final TimeSpan unlockTimeout,
+                                     final Clock clock,
+                                     final ResourceAcquisitionMetrics metrics,
+                                     final ResourceAcquisitionJournal<T> journal) {
         this.scheduler = Objects.requireNonNull(scheduler, "scheduler");
         this.unlockTimeout = Objects.requireNonNull(unlockTimeout, "unlockTimeout");
+        this.unlockTimeoutNanos = unlockTimeout.getUnit().toNanos(unlockTimeout.getInterval());
         this.clock = Objects.requireNonNull(clock, "clock");
         this.metrics = Objects.requireNonNull(metrics, "metrics");
+        this.journal = journal;
+        metrics.observeActiveLocks(this::activeLocks);
+        // Tokens start from the wall clock so they keep increasing across restarts, as long as the service issues fewer
+        // than about a million tokens per millisecond on average.
+        this.nextFencingToken = clock.millis() << FENCING_TOKEN_CLOCK_SHIFT;
+        if (journal != null) {
+            recoverLeases(journal.getRecoveredLeases());
+        }
     }
 
     public SimpleResourceAcquisitionService(final Scheduler scheduler) {
@@ -168,16 +958,465 @@ public class SimpleResourceAcquisitionService<T> implements ResourceAcquisitionS
     }
 
     @Override
-    public synchronized ResourceAcquisitionResponse commit(ResourceAcquisitionCommand command, String userName, T resource) {
+    public ResourceAcquisitionResponse commit(ResourceAcquisitionCommand command, String userName, T resource) {
+        final boolean timed = metrics.isCommitDurationEnabled();
+        final long startNanos = timed ? System.nanoTime() : 0L;
+        metrics.recordCommand(command);
+        final ResourceAcquisitionCommandProcessor<T> commandProcessor = getCommandProcessor(command);
+        final ResourceAcquisitionResponse response;
+        final Waiter granted;
+        final long journaled;
+        lock.lock();
+        try {
+            response = commandProcessor.commit(userName, resource);
+            granted = grantedWaiter;
+            grantedWaiter = null;
+        } finally {
+            journaled = takeJournalPosition();
+            lock.unlock();
+        }
+        metrics.recordResult(response.getCommitResult());
+        if (timed) {
+            metrics.recordCommitDuration(System.nanoTime() - startNanos);
+        }
+        awaitDurable(journaled);
+        if (granted != null) {
+            granted.complete();
+        }
+        return response;
+    }
+
+    @Override
+    public List<ResourceAcquisitionResponse> commitAll(final List<ResourceAcquisitionRequest<T>> requests) {
+        final boolean timed = metrics.isCommitDurationEnabled();
+        final long startNanos = timed ? System.nanoTime() : 0L;
+        final List<ResourceAcquisitionResponse> responses = new ArrayList<>(requests.size());
+        final int[] commandCounts = new int[COMMAND_COUNT];
+        final int[] resultCounts = new int[RESULT_COUNT];
+        List<Waiter> granted = null;
+        long journaled = 0L;
+        try {
+            lock.lock();
+            try {
+                for (final ResourceAcquisitionRequest<T> request : requests) {
+                    final ResourceAcquisitionCommand command = request.getCommand();
+                    commandCounts[command.ordinal()]++;
+                    final ResourceAcquisitionResponse response = getCommandProcessor(command).commit(request.getUserName(), request.getResource());
+                    resultCounts[response.getCommitResult().ordinal()]++;
+                    responses.add(response);
+                    if (grantedWaiter != null) {
+                        if (granted == null) {
+                            granted = new ArrayList<>();
+                        }
+                        granted.add(grantedWaiter);
+                        grantedWaiter = null;
+                    }
+                }
+            } finally {
+                journaled = takeJournalPosition();
+                lock.unlock();
+            }
+        } finally {
+            awaitDurable(journaled);
+            metrics.recordCommands(commandCounts);
+            metrics.recordResults(resultCounts);
+            if (timed) {
+                metrics.recordCommitDuration(System.nanoTime() - startNanos);
+            }
+            if (granted != null) {
+                granted.forEach(Waiter::complete);
+            }
+        }
+        return responses;
+    }
+
+    public ResourceAcquisitionGroupResponse<T> lockAll(final String userName, final Collection<T> resources) {
+        final List<T> ordered = CanonicalOrder.of(resources);
+        final boolean timed = metrics.isCommitDurationEnabled();
+        final long startNanos = timed ? System.nanoTime() : 0L;
+        metrics.recordCommand(ResourceAcquisitionCommand.Lock);
+        final ResourceAcquisitionGroupResponse<T> response;
+        final long journaled;
+        lock.lock();
+        try {
+            response = lockGroup(userName, ordered);
+            if (hotKeys != null) {
+                hotKeys.recordGroupLockAttempt(ordered, response.getBlockingResource());
+            }
+        } finally {
+            journaled = takeJournalPosition();
+            lock.unlock();
+        }
+        metrics.recordResult(response.getCommitResult());
+        if (timed) {
+            metrics.recordCommitDuration(System.nanoTime() - startNanos);
+        }
+        awaitDurable(journaled);
+        return response;
+    }
+
+    public ResourceAcquisitionResponse renew(final T resource, final long fencingToken) {
+        return commitByToken(ResourceAcquisitionCommand.Lock, resource, fencingToken);
+    }
+
+    public ResourceAcquisitionResponse unlock(final T resource, final long fencingToken) {
+        return commitByToken(ResourceAcquisitionCommand.Unlock, resource, fencingToken);
+    }
+
+    public ResourceAcquisitionResponse lockShared(final String userName, final T resource) {
+        return commitShared(ResourceAcquisitionCommand.Lock, userName, resource);
+    }
+
+    public ResourceAcquisitionResponse unlockShared(final String userName, final T resource) {
+        return commitShared(ResourceAcquisitionCommand.Unlock, userName, resource);
+    }
+
+    private ResourceAcquisitionResponse commitShared(final ResourceAcquisitionCommand command, final String userName, final T resource) {
+        final boolean timed = metrics.isCommitDurationEnabled();
+        final long startNanos = timed ? System.nanoTime() : 0L;
         metrics.recordCommand(command);
-        final ResourceAcquisitionCommandProcessor<T> commandProcessor = createCommandProcessor(command);
-        final ResourceAcquisitionResponse response = commandProcessor.commit(userName, resource);
+        final ResourceAcquisitionResponse response;
+        final Waiter granted;
+        final long journaled;
+        lock.lock();
+        try {
+            if (command == ResourceAcquisitionCommand.Lock) {
+                response = lockSharedLease(userName, resource);
+                if (hotKeys != null) {
+                    hotKeys.recordLockAttempt(resource, response.getCommitResult());
+                }
+            } else {
+                response = unlockSharedLease(userName, resource);
+            }
+            granted = grantedWaiter;
+            grantedWaiter = null;
+        } finally {
+            journaled = takeJournalPosition();
+            lock.unlock();
+        }
         metrics.recordResult(response.getCommitResult());
+        if (timed) {
+            metrics.recordCommitDuration(System.nanoTime() - startNanos);
+        }
+        awaitDurable(journaled);
+        if (granted != null) {
+            granted.complete();
+        }
         return response;
     }
 
+    private ResourceAcquisitionResponse commitByToken(final ResourceAcquisitionCommand command, final T resource, final long fencingToken) {
+        final boolean timed = metrics.isCommitDurationEnabled();
+        final long startNanos = timed ? System.nanoTime() : 0L;
+        metrics.recordCommand(command);
+        final ResourceAcquisitionResponse response;
+        final Waiter granted;
+        final long journaled;
+        lock.lock();
+        try {
+            response = commitToken(command, resource, fencingToken);
+            granted = grantedWaiter;
+            grantedWaiter = null;
+        } finally {
+            journaled = takeJournalPosition();
+            lock.unlock();
+        }
+        metrics.recordResult(response.getCommitResult());
+        if (timed) {
+            metrics.recordCommitDuration(System.nanoTime() - startNanos);
+        }
+        awaitDurable(journaled);
+        if (granted != null) {
+            granted.complete();
+        }
+        return response;
+    }
+
+    // Drops every lease the user holds, ignoring case, in one pass over that user's range of the owner index.
+    public int releaseAll(final String userName) {
+        final boolean timed = metrics.isCommitDurationEnabled();
+        final long startNanos = timed ? System.nanoTime() : 0L;
+        final List<Waiter> granted = new ArrayList<>();
+        final int released;
+        final long journaled;
+        lock.lock();
+        try {
+            released = releaseOwnedBy(userName, granted);
+        } finally {
+            journaled = takeJournalPosition();
+            lock.unlock();
+        }
+        if (released != 0) {
+            metrics.recordLocksReleased(released);
+        }
+        if (timed) {
+            metrics.recordCommitDuration(System.nanoTime() - startNanos);
+        }
+        awaitDurable(journaled);
+        granted.forEach(Waiter::complete);
+        return released;
+    }
+
+    public Single<ResourceAcquisitionResponse> lockAsync(final String userName, final T resource, final TimeSpan waitTimeout) {
+        Objects.requireNonNull(waitTimeout, "waitTimeout");
+        return Single.create(emitter -> {
+            metrics.recordCommand(ResourceAcquisitionCommand.Lock);
+            final AsyncWaiter waiter = new AsyncWaiter(resource, userName, emitter);
+            final long journaled;
+            lock.lock();
+            try {
+                waiter.response = lockProcessor.commit(userName, resource);
+                if (waiter.response.getCommitResult() == ResourceAcquisitionCommandResult.LockFailed) {
+                    if (journal != null) {
+                        journal.checkRecord(resource, userName);
+                    }
+                    waiters.computeIfAbsent(resource, key -> new ArrayDeque<>()).add(waiter);
+                    waiter.waitTimeout = scheduler.schedule(waiter, waitTimeout);
+                    emitter.setCancellable(waiter::cancel);
+                    return;
+                }
+            } finally {
+                journaled = takeJournalPosition();
+                lock.unlock();
+            }
+            awaitDurable(journaled);
+            waiter.complete();
+        });
+    }
+
+    // Blocks the calling thread until the lease is granted or the wait times out. The wait is not interruptible: an
+    // interrupt is kept for the caller and the call still returns the outcome.
+    public ResourceAcquisitionResponse acquire(final String userName, final T resource, final TimeSpan waitTimeout) {
+        Objects.requireNonNull(waitTimeout, "waitTimeout");
+        final long deadline = System.nanoTime() + waitTimeout.getUnit().toNanos(waitTimeout.getInterval());
+        metrics.recordCommand(ResourceAcquisitionCommand.Lock);
+        final BlockingWaiter waiter = new BlockingWaiter(resource, userName);
+        final long journaled;
+        lock.lock();
+        try {
+            waiter.response = lockProcessor.commit(userName, resource);
+            if (waiter.response.getCommitResult() == ResourceAcquisitionCommandResult.LockFailed) {
+                if (journal != null) {
+                    journal.checkRecord(resource, userName);
+                }
+                waiters.computeIfAbsent(resource, key -> new ArrayDeque<>()).add(waiter);
+                waiter.await(deadline);
+            }
+        } finally {
+            // A lease handed over while this thread waited was journaled by the section that released it.
+            journaled = Math.max(takeJournalPosition(), waiter.journalPosition);
+            lock.unlock();
+        }
+        awaitDurable(journaled);
+        metrics.recordResult(waiter.response.getCommitResult());
+        return waiter.response;
+    }
+
+    // Queries read the concurrent repository and owner index without the service lock, so they never wait for
+    // writers. A lease whose timer is due but has not fired yet still counts as held, as it does for commit. A resource
+    // held only in shared mode counts as locked, and its first holder by owner name is reported.
+    public boolean isLocked(final T resource) {
+        return repository.containsKey(resource) || sharedHolderCount(resource) != 0;
+    }
+
+    public AcquiredResource holderOf(final T resource) {
+        AutoUnlockableResource lockedItem = repository.get(resource);
+        if (lockedItem == null) {
+            final SharedLease sharedLease = sharedLeases.get(resource);
+            lockedItem = sharedLease == null ? null : sharedLease.firstHolder;
+        }
+        return lockedItem == null ? null : lockedItem.getAcquiredResource();
+    }
+
+    public int sharedHolderCount(final T resource) {
+        final SharedLease sharedLease = sharedLeases.get(resource);
+        return sharedLease == null ? 0 : sharedLease.holderCount;
+    }
+
+    public List<T> locksHeldBy(final String userName) {
+        return owners.resourcesOf(userName);
+    }
+
+    // Events are published under the service lock, so every subscriber sees them in commit order.
+    public Flowable<List<LockEvent<T>>> lockEvents(final Scheduler scheduler,
+                                                   final int capacity,
+                                                   final BackpressureOverflowStrategy overflowStrategy) {
+        return events.events(scheduler, capacity, overflowStrategy);
+    }
+
+    public Flowable<List<LockEvent<T>>> lockEvents() {
+        return lockEvents(Schedulers.single(), Flowable.bufferSize(), BackpressureOverflowStrategy.ERROR);
+    }
+
+    // Iterates the concurrent repository without the service lock, so commands keep running while the file is written.
+    // Each lease is captured as it stood at some point during the write; the snapshot is consistent per resource
+    // rather than point-in-time.
+    public void writeSnapshot(final Path path, final ResourceKeyCodec<T> codec) throws IOException {
+        try (var writer = new ResourceAcquisitionSnapshot.Writer<>(path, codec)) {
+            for (final AutoUnlockableResource item : repository.values()) {
+                writer.write(item.resource, item.getAcquiredResource());
+            }
+            writer.commit();
+        }
+    }
+
+    // Streams every exclusive lease change to a standby over the channel, starting with the current leases. Shared leases
+    // are not replicated. A standby whose channel fails, or that falls so far behind that its backlog would pass
+    // ResourceAcquisitionReplicator.MAX_PENDING_BYTES, is dropped.
+    public void replicateTo(final ByteChannel standby, final ResourceKeyCodec<T> codec) {
+        replicateTo(standby, codec, 0L, ResourceAcquisitionReplicator.MAX_PENDING_BYTES);
+    }
+
+    // Attaches a synchronous standby. Like a journal's fsync, every commit that changes a lease then returns only once
+    // the standby has acknowledged the batch that holds the change, and this call only once it holds the current
+    // leases. A standby that takes longer than ackTimeout is dropped and the waiting call throws an
+    // IllegalStateException; its change stays applied on the primary.
+    public void replicateTo(final ByteChannel standby, final ResourceKeyCodec<T> codec, final TimeSpan ackTimeout) {
+        Objects.requireNonNull(ackTimeout, "ackTimeout");
+        final long ackTimeoutNanos = ackTimeout.getUnit().toNanos(ackTimeout.getInterval());
+        if (ackTimeoutNanos <= 0) {
+            throw new IllegalArgumentException("ackTimeout must be positive");
+        }
+        replicateTo(standby, codec, ackTimeoutNanos, ResourceAcquisitionReplicator.MAX_PENDING_BYTES);
+    }
+
+    void replicateTo(final ByteChannel standby, final ResourceKeyCodec<T> codec, final long ackTimeoutNanos, final int maxPendingBytes) {
+        Objects.requireNonNull(standby, "standby");
+        Objects.requireNonNull(codec, "codec");
+        final ResourceAcquisitionReplicator<T> replica;
+        final long snapshot;
+        lock.lock();
+        try {
+            replica = new ResourceAcquisitionReplicator<>(
+                    standby, codec, metrics, liveLeases(), nextFencingToken, changes, ackTimeoutNanos, maxPendingBytes, this::dropReplica);
+            replicas.add(replica);
+            snapshot = replica.appendedSequence();
+        } finally {
+            lock.unlock();
+        }
+        if (replica.isSynchronous() && !replica.awaitAcknowledged(snapshot, System.nanoTime() + ackTimeoutNanos)) {
+            dropReplica(replica);
+            replica.close();
+            throw new IllegalStateException("a synchronous standby did not acknowledge the current leases in time and was dropped");
+        }
+    }
+
+    // Waits until every standby connected now has acknowledged the lease changes committed before the call. Returns
+    // false when the timeout passes first, a standby fails, or the calling thread is interrupted.
+    public boolean awaitReplication(final TimeSpan timeout) {
+        Objects.requireNonNull(timeout, "timeout");
+        final long deadline = System.nanoTime() + timeout.getUnit().toNanos(timeout.getInterval());
+        final List<ResourceAcquisitionReplicator<T>> standbys;
+        final long[] sequences;
+        lock.lock();
+        try {
+            standbys = new ArrayList<>(replicas);
+            sequences = new long[standbys.size()];
+            for (int i = 0; i < sequences.length; i++) {
+                sequences[i] = standbys.get(i).appendedSequence();
+            }
+        } finally {
+            lock.unlock();
+        }
+        for (int i = 0; i < sequences.length; i++) {
+            if (!standbys.get(i).awaitAcknowledged(sequences[i], deadline)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Starts tracking the size resources with the most lock attempts, lock failures and hold time, or restarts it with
+    // empty sketches. Each tracked command adds a constant cost under the service lock. The first call also registers
+    // the hot key gauges on the service's meter.
+    public void trackHotKeys(final int size) {
+        final HotKeyTracker<T> tracker = new HotKeyTracker<>(size);
+        lock.lock();
+        try {
+            hotKeys = tracker;
+            if (hotKeyGauges == null) {
+                hotKeyGauges = metrics.observeHotKeys(this::hotKeyReport);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public HotKeyReport<T> hotKeyReport() {
+        lock.lock();
+        try {
+            if (hotKeys == null) {
+                throw new IllegalStateException("hot key tracking is off");
+            }
+            return hotKeys.report();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Flowable<HotKeyReport<T>> hotKeyReports(final Scheduler scheduler, final TimeSpan period) {
+        Objects.requireNonNull(scheduler, "scheduler");
+        return Flowable.interval(period.getInterval(), period.getInterval(), period.getUnit(), scheduler).map(tick -> hotKeyReport());
+    }
+
+    // Entries are decoded outside the service lock and restored one at a time. A corrupt file stops the restore with an
+    // IOException; the leases before the damage stay restored.
+    public int restoreSnapshot(final Path path, final ResourceKeyCodec<T> codec) throws IOException {
+        int restored = 0;
+        try (var reader = new ResourceAcquisitionSnapshot.Reader<>(path, codec)) {
+            for (ResourceAcquisitionSnapshot.Entry<T> entry = reader.next(); entry != null; entry = reader.next()) {
+                final AcquiredResource lockedItem = entry.lockedItem();
+                if (lockedItem.getState() == ResourceAcquisitionState.Locked && restoreSnapshotEntry(entry.resource(), lockedItem)) {
+                    restored++;
+                }
+            }
+        } finally {
+            awaitDurable(lastChange());
+        }
+        return restored;
+    }
+
+    private boolean restoreSnapshotEntry(final T resource, final AcquiredResource lockedItem) {
+        lock.lock();
+        try {
+            if (!restoreLease(resource, lockedItem, deadlineMillisOf(lockedItem), clock.millis(), scheduler.now(TimeUnit.NANOSECONDS))) {
+                return false;
+            }
+            journalLock(resource, lockedItem);
+            return true;
+        } finally {
+            // restoreSnapshot waits for every change once it is done.
+            takeJournalPosition();
+            lock.unlock();
+        }
+    }
+
     @Override
     public void close() {
         scheduler.close();
+        if (journal != null) {
+            journal.close();
+        }
+        final List<Waiter> pending = new ArrayList<>();
+        final List<ResourceAcquisitionReplicator<T>> standbys;
+        final BatchCallback gauges;
+        lock.lock();
+        try {
+            waiters.values().forEach(pending::addAll);
+            waiters.clear();
+            standbys = new ArrayList<>(replicas);
+            replicas.clear();
+            gauges = hotKeyGauges;
+        } finally {
+            lock.unlock();
+        }
+        standbys.forEach(ResourceAcquisitionReplicator::close);
+        if (gauges != null) {
+            gauges.close();
+        }
+        for (final Waiter waiter : pending) {
+            waiter.fail(new IllegalStateException("service is closed"));
+        }
+        events.complete();
     }
 }
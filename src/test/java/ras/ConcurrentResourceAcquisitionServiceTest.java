@@ -0,0 +1,522 @@
+package ras;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+import io.opentelemetry.api.metrics.MeterProvider;
+import io.opentelemetry.sdk.metrics.SdkMeterProvider;
+import io.opentelemetry.sdk.metrics.data.LongPointData;
+import io.opentelemetry.sdk.metrics.data.MetricData;
+import io.opentelemetry.sdk.testing.exporter.InMemoryMetricReader;
+import io.reactivex.rxjava3.schedulers.Schedulers;
+import io.reactivex.rxjava3.schedulers.TestScheduler;
+
+public class ConcurrentResourceAcquisitionServiceTest {
+
+    private static final int THREADS = 8;
+    private static final int ITERATIONS = 2_000;
+    private static final int HOT_OWNERSHIPS = 200;
+
+    private record Ownership(String userName, long acquiredAt, long releasedAt) {
+    }
+
+    private static final class StaleAutoUnlockScheduler implements SimpleResourceAcquisitionService.AutoUnlockScheduler {
+
+        private final List<Runnable> commands = new ArrayList<>();
+
+        @Override
+        public SimpleResourceAcquisitionService.Cancellable schedule(final Runnable command, final TimeSpan delay) {
+            commands.add(command);
+            return () -> {
+            };
+        }
+
+        @Override
+        public long now(final TimeUnit unit) {
+            return 0L;
+        }
+
+        public void runCommand(final int index) {
+            commands.get(index).run();
+        }
+
+        @Override
+        public void close() {
+            commands.clear();
+        }
+    }
+
+    // Runs a side effect the second time it is hashed, which is the lockAll compute after the canonical-order dedup.
+    private static final class TrapKey implements Comparable<TrapKey> {
+
+        private final int id;
+        private Runnable trap;
+        private int hashes;
+
+        TrapKey(final int id) {
+            this.id = id;
+        }
+
+        @Override
+        public int hashCode() {
+            if (trap != null && ++hashes == 2) {
+                final Runnable armed = trap;
+                trap = null;
+                armed.run();
+            }
+            return id;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            return o instanceof TrapKey that && id == that.id;
+        }
+
+        @Override
+        public int compareTo(final TrapKey o) {
+            return Integer.compare(id, o.id);
+        }
+    }
+
+    private ConcurrentResourceAcquisitionService<String> createService(final SimpleResourceAcquisitionService.AutoUnlockScheduler scheduler) {
+        return new ConcurrentResourceAcquisitionService<>(
+                scheduler,
+                TimeSpan.Default,
+                Clock.fixed(Instant.parse("2026-01-01T00:00:00Z"), ZoneOffset.UTC),
+                ResourceAcquisitionMetrics.createDefault());
+    }
+
+    private static long activeLocks(final InMemoryMetricReader metricReader) {
+        return metricReader.collectAllMetrics().stream()
+                .filter(metric -> metric.getName().equals(ResourceAcquisitionMetrics.ACTIVE_LOCKS_METRIC_NAME))
+                .map(MetricData::getLongSumData)
+                .flatMap(data -> data.getPoints().stream())
+                .mapToLong(LongPointData::getValue)
+                .sum();
+    }
+
+    private static <R> List<R> runConcurrently(final int threads, final Callable<R> task) throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final CountDownLatch start = new CountDownLatch(1);
+            final List<Future<R>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return task.call();
+                }));
+            }
+            start.countDown();
+            final List<R> results = new ArrayList<>();
+            for (Future<R> future : futures) {
+                results.add(future.get(1, TimeUnit.MINUTES));
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testCommitAllAppliesRequestsInOrder() {
+        try (ConcurrentResourceAcquisitionService<String> service = createService(
+                new SimpleResourceAcquisitionService.RxAutoUnlockScheduler(new TestScheduler()))) {
+            List<ResourceAcquisitionResponse> responses = service.commitAll(List.of(
+                    new ResourceAcquisitionRequest<>(ResourceAcquisitionCommand.Lock, "User1", "Item1"),
+                    new ResourceAcquisitionRequest<>(ResourceAcquisitionCommand.Lock, "User2", "Item1"),
+                    new ResourceAcquisitionRequest<>(ResourceAcquisitionCommand.Unlock, "User1", "Item1"),
+                    new ResourceAcquisitionRequest<>(ResourceAcquisitionCommand.Lock, "User2", "Item1")));
+
+            assertEquals(List.of(
+                            ResourceAcquisitionCommandResult.LockSucceeded,
+                            ResourceAcquisitionCommandResult.LockFailed,
+                            ResourceAcquisitionCommandResult.UnlockSucceeded,
+                            ResourceAcquisitionCommandResult.LockSucceeded),
+                    responses.stream().map(ResourceAcquisitionResponse::getCommitResult).toList());
+        }
+    }
+
+    @Test
+    public void testLockAllSharesOneTimerAndExpiresTogether() {
+        InMemoryMetricReader metricReader = InMemoryMetricReader.create();
+        SdkMeterProvider meterProvider = SdkMeterProvider.builder()
+                .registerMetricReader(metricReader)
+                .build();
+        TestScheduler scheduler = new TestScheduler();
+        try (ConcurrentResourceAcquisitionService<String> service = new ConcurrentResourceAcquisitionService<>(
+                scheduler, TimeSpan.Default, meterProvider.get(ResourceAcquisitionMetrics.METER_NAME))) {
+            ResourceAcquisitionGroupResponse<String> response = service.lockAll("User1", List.of("Item2", "Item1"));
+            assertEquals(ResourceAcquisitionCommandResult.LockSucceeded, response.getCommitResult());
+            assertEquals("User1", response.getResource().getUserName());
+            assertEquals(ResourceAcquisitionCommandResult.LockFailed,
+                    service.commit(ResourceAcquisitionCommand.Lock, "User2", "Item1").getCommitResult());
+            assertEquals(2, activeLocks(metricReader));
+
+            scheduler.advanceTimeBy(TimeSpan.Default.getInterval(), TimeSpan.Default.getUnit());
+            assertEquals(0, activeLocks(metricReader));
+            assertEquals(ResourceAcquisitionCommandResult.LockSucceeded,
+                    service.commit(ResourceAcquisitionCommand.Lock, "User2", "Item2").getCommitResult());
+        } finally {
+            meterProvider.close();
+        }
+    }
+
+    @Test
+    public void testGroupTimerFiresOnceForAllMembers() {
+        StaleAutoUnlockScheduler scheduler = new StaleAutoUnlockScheduler();
+        ConcurrentResourceAcquisitionService<String> service = createService(scheduler);
+
+        service.lockAll("User1", List.of("Item1", "Item2", "Item3"));
+        assertEquals(1, scheduler.commands.size());
+
+        scheduler.runCommand(0);
+        assertEquals(4, scheduler.commands.size());
+        assertEquals(ResourceAcquisitionCommandResult.LockFailed,
+                service.commit(ResourceAcquisitionCommand.Lock, "User2", "Item3").getCommitResult());
+    }
+
+    @Test
+    public void testLockAllRollsBackToTheFirstBlockedResource() {
+        TestScheduler scheduler = new TestScheduler();
+        try (ConcurrentResourceAcquisitionService<String> service = createService(new SimpleResourceAcquisitionService.RxAutoUnlockScheduler(scheduler))) {
+            service.commit(ResourceAcquisitionCommand.Lock, "User1", "Item1");
+            scheduler.advanceTimeBy(10, TimeUnit.SECONDS);
+            service.commit(ResourceAcquisitionCommand.Lock, "User2", "Item3");
+            service.commit(ResourceAcquisitionCommand.Lock, "User2", "Item5");
+
+            ResourceAcquisitionGroupResponse<String> response = service.lockAll("User1", List.of("Item5", "Item4", "Item3", "Item2", "Item1"));
+
+            assertEquals(ResourceAcquisitionCommandResult.LockFailed, response.getCommitResult());
+            assertEquals("Item3", response.getBlockingResource());
+            assertEquals("User2", response.getResource().getUserName());
+            assertEquals(ResourceAcquisitionCommandResult.LockSucceeded,
+                    service.commit(ResourceAcquisitionCommand.Lock, "User3", "Item2").getCommitResult());
+            assertEquals(ResourceAcquisitionCommandResult.LockSucceeded,
+                    service.commit(ResourceAcquisitionCommand.Lock, "User3", "Item4").getCommitResult());
+
+            scheduler.advanceTimeBy(19_999, TimeUnit.MILLISECONDS);
+            assertEquals(ResourceAcquisitionCommandResult.LockFailed,
+                    service.commit(ResourceAcquisitionCommand.Lock, "User3", "Item1").getCommitResult());
+            scheduler.advanceTimeBy(1, TimeUnit.MILLISECONDS);
+            assertEquals(ResourceAcquisitionCommandResult.LockSucceeded,
+                    service.commit(ResourceAcquisitionCommand.Lock, "User3", "Item1").getCommitResult());
+        }
+    }
+
+    @Test
+    public void testGroupTimerSkipsMembersThatMovedOn() {
+        TestScheduler scheduler = new TestScheduler();
+        try (ConcurrentResourceAcquisitionService<String> service = createService(new SimpleResourceAcquisitionService.RxAutoUnlockScheduler(scheduler))) {
+            service.lockAll("User1", List.of("Item1", "Item2", "Item3", "Item4"));
+            scheduler.advanceTimeBy(10, TimeUnit.SECONDS);
+            service.commit(ResourceAcquisitionCommand.Lock, "User1", "Item2");
+            service.lockAll("User1", List.of("Item3"));
+            service.commit(ResourceAcquisitionCommand.Unlock, "User1", "Item4");
+            service.lockAll("User1", List.of("Item5", "Item6"));
+            service.commit(ResourceAcquisitionCommand.Unlock, "User1", "Item5");
+            service.commit(ResourceAcquisitionCommand.Unlock, "User1", "Item6");
+
+            scheduler.advanceTimeBy(20, TimeUnit.SECONDS);
+            assertEquals(ResourceAcquisitionCommandResult.LockSucceeded,
+                    service.commit(ResourceAcquisitionCommand.Lock, "User2", "Item1").getCommitResult());
+            assertEquals(ResourceAcquisitionCommandResult.LockFailed,
+                    service.commit(ResourceAcquisitionCommand.Lock, "User2", "Item2").getCommitResult());
+            assertEquals(ResourceAcquisitionCommandResult.LockFailed,
+                    service.commit(ResourceAcquisitionCommand.Lock, "User2", "Item3").getCommitResult());
+
+            scheduler.advanceTimeBy(10, TimeUnit.SECONDS);
+            assertEquals(ResourceAcquisitionCommandResult.LockSucceeded,
+                    service.commit(ResourceAcquisitionCommand.Lock, "User2", "Item2").getCommitResult());
+            assertEquals(ResourceAcquisitionCommandResult.LockSucceeded,
+                    service.commit(ResourceAcquisitionCommand.Lock, "User2", "Item3").getCommitResult());
+        }
+    }
+
+    @Test
+    public void testRollbackLeavesLeasesChangedByOthersAlone() {
+        TestScheduler scheduler = new TestScheduler();
+        try (ConcurrentResourceAcquisitionService<TrapKey> service = new ConcurrentResourceAcquisitionService<>(
+                new SimpleResourceAcquisitionService.RxAutoUnlockScheduler(scheduler),
+                TimeSpan.Default,
+                Clock.fixed(Instant.parse("2026-01-01T00:00:00Z"), ZoneOffset.UTC),
+                ResourceAcquisitionMetrics.createDefault())) {
+            TrapKey first = new TrapKey(1);
+            TrapKey blocked = new TrapKey(2);
+            service.commit(ResourceAcquisitionCommand.Lock, "User2", blocked);
+            blocked.trap = () -> {
+                service.commit(ResourceAcquisitionCommand.Unlock, "User1", first);
+                service.commit(ResourceAcquisitionCommand.Lock, "User3", first);
+            };
+
+            ResourceAcquisitionGroupResponse<TrapKey> response = service.lockAll("User1", List.of(blocked, first));
+
+            assertEquals(blocked, response.getBlockingResource());
+            assertEquals("User3", service.commit(ResourceAcquisitionCommand.Lock, "User1", first).getResource().getUserName());
+        }
+    }
+
+    @Test
+    public void testLockAndUnlockFollowSimpleServiceSemantics() {
+        ConcurrentResourceAcquisitionService<String> service = createService(new StaleAutoUnlockScheduler());
+
+        ResourceAcquisitionResponse response = service.commit(ResourceAcquisitionCommand.Unlock, "User1", "Item1");
+        assertEquals(ResourceAcquisitionCommandResult.UnlockFailed, response.getCommitResult());
+        assertEquals("User1", response.getResource().getUserName());
+        assertEquals(ResourceAcquisitionState.Unlocked, response.getResource().getState());
+
+        response = service.commit(ResourceAcquisitionCommand.Lock, "User1", "Item1");
+        assertEquals(ResourceAcquisitionCommandResult.LockSucceeded, response.getCommitResult());
+        assertEquals("User1", response.getResource().getUserName());
+        assertEquals(ResourceAcquisitionState.Locked, response.getResource().getState());
+        assertEquals(TimeSpan.Default, response.getResource().getStateTimeout());
+
+        response = service.commit(ResourceAcquisitionCommand.Lock, "user1", "Item1");
+        assertEquals(ResourceAcquisitionCommandResult.LockSucceeded, response.getCommitResult());
+        assertEquals("user1", response.getResource().getUserName());
+
+        response = service.commit(ResourceAcquisitionCommand.Lock, "User2", "Item1");
+        assertEquals(ResourceAcquisitionCommandResult.LockFailed, response.getCommitResult());
+        assertEquals("user1", response.getResource().getUserName());
+        assertEquals(ResourceAcquisitionState.Locked, response.getResource().getState());
+
+        response = service.commit(ResourceAcquisitionCommand.Unlock, "User2", "Item1");
+        assertEquals(ResourceAcquisitionCommandResult.UnlockFailed, response.getCommitResult());
+        assertEquals("user1", response.getResource().getUserName());
+        assertEquals(ResourceAcquisitionState.Locked, response.getResource().getState());
+
+        response = service.commit(ResourceAcquisitionCommand.Unlock, "User1", "Item1");
+        assertEquals(ResourceAcquisitionCommandResult.UnlockSucceeded, response.getCommitResult());
+        assertEquals("User1", response.getResource().getUserName());
+        assertEquals(ResourceAcquisitionState.Unlocked, response.getResource().getState());
+
+        response = service.commit(ResourceAcquisitionCommand.Lock, "User2", "Item1");
+        assertEquals(ResourceAcquisitionCommandResult.LockSucceeded, response.getCommitResult());
+    }
+
+    @Test
+    public void testCanLockAgainAfterTimeoutExpired() {
+        TestScheduler testScheduler = new TestScheduler();
+        ConcurrentResourceAcquisitionService<String> service = createService(
+                new SimpleResourceAcquisitionService.RxAutoUnlockScheduler(testScheduler));
+
+        service.commit(ResourceAcquisitionCommand.Lock, "User1", "Item1");
+        testScheduler.advanceTimeBy(15, TimeUnit.SECONDS);
+        service.commit(ResourceAcquisitionCommand.Lock, "User1", "Item1");
+        testScheduler.advanceTimeBy(15, TimeUnit.SECONDS);
+
+        ResourceAcquisitionResponse response = service.commit(ResourceAcquisitionCommand.Lock, "User2", "Item1");
+        assertEquals(ResourceAcquisitionCommandResult.LockFailed, response.getCommitResult());
+
+        testScheduler.advanceTimeBy(15, TimeUnit.SECONDS);
+
+        response = service.commit(ResourceAcquisitionCommand.Lock, "User2", "Item1");
+        assertEquals(ResourceAcquisitionCommandResult.LockSucceeded, response.getCommitResult());
+        assertEquals("User2", response.getResource().getUserName());
+    }
+
+    @Test
+    public void testStaleUnlockDoesNotRemoveRefreshedOrManuallyUnlockedResource() {
+        StaleAutoUnlockScheduler scheduler = new StaleAutoUnlockScheduler();
+        ConcurrentResourceAcquisitionService<String> service = createService(scheduler);
+
+        service.commit(ResourceAcquisitionCommand.Lock, "User1", "Item1");
+        service.commit(ResourceAcquisitionCommand.Lock, "User1", "Item1");
+        scheduler.runCommand(0);
+
+        ResourceAcquisitionResponse response = service.commit(ResourceAcquisitionCommand.Lock, "User2", "Item1");
+        assertEquals(ResourceAcquisitionCommandResult.LockFailed, response.getCommitResult());
+
+        service.commit(ResourceAcquisitionCommand.Unlock, "User1", "Item1");
+        service.commit(ResourceAcquisitionCommand.Lock, "User2", "Item1");
+        scheduler.runCommand(1);
+
+        response = service.commit(ResourceAcquisitionCommand.Lock, "User1", "Item1");
+        assertEquals(ResourceAcquisitionCommandResult.LockFailed, response.getCommitResult());
+        assertEquals("User2", response.getResource().getUserName());
+    }
+
+    @Test
+    public void testActiveLocksMetricTracksAcquisitionsAndReleases() {
+        InMemoryMetricReader metricReader = InMemoryMetricReader.create();
+        SdkMeterProvider meterProvider = SdkMeterProvider.builder()
+                .registerMetricReader(metricReader)
+                .build();
+        TestScheduler scheduler = new TestScheduler();
+        ConcurrentResourceAcquisitionService<String> service = new ConcurrentResourceAcquisitionService<>(
+                scheduler,
+                TimeSpan.Default,
+                meterProvider.get(ResourceAcquisitionMetrics.METER_NAME));
+
+        service.commit(ResourceAcquisitionCommand.Lock, "User1", "Item1");
+        service.commit(ResourceAcquisitionCommand.Lock, "User1", "Item1");
+        service.commit(ResourceAcquisitionCommand.Lock, "User1", "Item2");
+        service.commit(ResourceAcquisitionCommand.Lock, "User1", "Item3");
+        service.commit(ResourceAcquisitionCommand.Unlock, "User1", "Item2");
+        scheduler.advanceTimeBy(TimeSpan.Default.getInterval(), TimeSpan.Default.getUnit());
+
+        long activeLocks = metricReader.collectAllMetrics().stream()
+                .filter(metric -> metric.getName().equals(ResourceAcquisitionMetrics.ACTIVE_LOCKS_METRIC_NAME))
+                .map(MetricData::getLongSumData)
+                .flatMap(data -> data.getPoints().stream())
+                .mapToLong(LongPointData::getValue)
+                .sum();
+        meterProvider.close();
+        service.close();
+
+        assertEquals(0, activeLocks);
+    }
+
+    @Test
+    public void testStripedMetricsReportTheLeaseCount() {
+        InMemoryMetricReader metricReader = InMemoryMetricReader.create();
+        SdkMeterProvider meterProvider = SdkMeterProvider.builder()
+                .registerMetricReader(metricReader)
+                .build();
+        try (ConcurrentResourceAcquisitionService<String> service = new ConcurrentResourceAcquisitionService<>(
+                new SimpleResourceAcquisitionService.RxAutoUnlockScheduler(new TestScheduler()),
+                TimeSpan.Default,
+                Clock.systemUTC(),
+                ResourceAcquisitionMetrics.striped(meterProvider.get(ResourceAcquisitionMetrics.METER_NAME)))) {
+            assertEquals(0, activeLocks(metricReader));
+            service.commit(ResourceAcquisitionCommand.Lock, "User1", "Item1");
+            service.lockAll("User2", List.of("Item2", "Item3"));
+            assertEquals(3, activeLocks(metricReader));
+        } finally {
+            meterProvider.close();
+        }
+    }
+
+    @Test
+    public void testConstructorsAndClose() {
+        TestScheduler scheduler = new TestScheduler();
+        ConcurrentResourceAcquisitionService<String> service = new ConcurrentResourceAcquisitionService<>(scheduler);
+        ResourceAcquisitionResponse response = service.commit(ResourceAcquisitionCommand.Lock, "User1", "Item1");
+        service.close();
+        scheduler.advanceTimeBy(TimeSpan.Default.getInterval(), TimeSpan.Default.getUnit());
+
+        assertEquals(TimeSpan.Default, response.getResource().getStateTimeout());
+        assertEquals(ResourceAcquisitionCommandResult.LockFailed,
+                service.commit(ResourceAcquisitionCommand.Lock, "User2", "Item1").getCommitResult());
+
+        TimeSpan timeout = new TimeSpan(5, TimeUnit.SECONDS);
+        try (var timed = new ConcurrentResourceAcquisitionService<String>(
+                scheduler, timeout, MeterProvider.noop().get(ResourceAcquisitionMetrics.METER_NAME))) {
+            assertEquals(timeout, timed.commit(ResourceAcquisitionCommand.Lock, "User1", "Item1").getResource().getStateTimeout());
+        }
+        try (var defaults = new ConcurrentResourceAcquisitionService<String>()) {
+            assertEquals(TimeSpan.Default, defaults.commit(ResourceAcquisitionCommand.Lock, "User1", "Item1").getResource().getStateTimeout());
+        }
+    }
+
+    @Test
+    public void testCommandsOnDistinctResourcesAllSucceedConcurrently() throws Exception {
+        try (var service = new ConcurrentResourceAcquisitionService<String>(Schedulers.single())) {
+            AtomicLong nextThread = new AtomicLong();
+            List<Integer> succeeded = runConcurrently(THREADS, () -> {
+                String userName = "User" + nextThread.incrementAndGet();
+                int count = 0;
+                for (int i = 0; i < ITERATIONS; i++) {
+                    String resource = userName + "/Item" + i;
+                    if (service.commit(ResourceAcquisitionCommand.Lock, userName, resource).getCommitResult()
+                            == ResourceAcquisitionCommandResult.LockSucceeded) {
+                        count++;
+                    }
+                    if (service.commit(ResourceAcquisitionCommand.Unlock, userName, resource).getCommitResult()
+                            == ResourceAcquisitionCommandResult.UnlockSucceeded) {
+                        count++;
+                    }
+                }
+                return count;
+            });
+
+            assertEquals(List.of(2 * ITERATIONS, 2 * ITERATIONS, 2 * ITERATIONS, 2 * ITERATIONS,
+                    2 * ITERATIONS, 2 * ITERATIONS, 2 * ITERATIONS, 2 * ITERATIONS), succeeded);
+        }
+    }
+
+    @Test
+    public void testOwnershipIntervalsOnHotResourceAreLinearizable() throws Exception {
+        try (var service = new ConcurrentResourceAcquisitionService<String>(Schedulers.single())) {
+            AtomicLong clock = new AtomicLong();
+            AtomicLong nextThread = new AtomicLong();
+            List<List<Ownership>> histories = runConcurrently(THREADS, () -> {
+                String userName = "User" + nextThread.incrementAndGet();
+                List<Ownership> history = new ArrayList<>();
+                // A failed Lock returns at once, so how many attempts succeed depends on scheduling: a holder preempted
+                // on a busy machine lets the others spend their attempts on LockFailed. Count ownerships instead; the
+                // runner's timeout interrupts the loop if the key is never handed over.
+                while (history.size() < HOT_OWNERSHIPS && !Thread.currentThread().isInterrupted()) {
+                    ResourceAcquisitionResponse lock = service.commit(ResourceAcquisitionCommand.Lock, userName, "Hot");
+                    long acquiredAt = clock.incrementAndGet();
+                    if (lock.getCommitResult() == ResourceAcquisitionCommandResult.LockFailed) {
+                        assertTrue(!lock.getResource().getUserName().equals(userName));
+                        continue;
+                    }
+                    assertEquals(userName, lock.getResource().getUserName());
+
+                    ResourceAcquisitionResponse unlockByOther = service.commit(ResourceAcquisitionCommand.Unlock, userName + "x", "Hot");
+                    assertEquals(ResourceAcquisitionCommandResult.UnlockFailed, unlockByOther.getCommitResult());
+                    assertEquals(userName, unlockByOther.getResource().getUserName());
+
+                    long releasedAt = clock.incrementAndGet();
+                    ResourceAcquisitionResponse unlock = service.commit(ResourceAcquisitionCommand.Unlock, userName, "Hot");
+                    assertEquals(ResourceAcquisitionCommandResult.UnlockSucceeded, unlock.getCommitResult());
+                    history.add(new Ownership(userName, acquiredAt, releasedAt));
+                }
+                return history;
+            });
+
+            List<Ownership> ownerships = new ArrayList<>();
+            histories.forEach(ownerships::addAll);
+            ownerships.sort(Comparator.comparingLong(Ownership::acquiredAt));
+            assertEquals(THREADS * HOT_OWNERSHIPS, ownerships.size());
+            for (int i = 1; i < ownerships.size(); i++) {
+                Ownership previous = ownerships.get(i - 1);
+                Ownership current = ownerships.get(i);
+                assertTrue(previous.releasedAt() < current.acquiredAt(),
+                        () -> previous + " overlaps " + current);
+            }
+        }
+    }
+
+    @Test
+    public void testOwnerRenewalsRaceWithForeignLocksWithoutLosingOwnership() throws Exception {
+        try (var service = new ConcurrentResourceAcquisitionService<String>(Schedulers.single())) {
+            service.commit(ResourceAcquisitionCommand.Lock, "Owner", "Hot");
+            AtomicLong nextThread = new AtomicLong();
+            List<Long> failures = runConcurrently(THREADS, () -> {
+                boolean owner = nextThread.incrementAndGet() % 2 == 0;
+                long unexpected = 0;
+                for (int i = 0; i < ITERATIONS; i++) {
+                    ResourceAcquisitionResponse response = owner
+                            ? service.commit(ResourceAcquisitionCommand.Lock, "Owner", "Hot")
+                            : service.commit(ResourceAcquisitionCommand.Lock, "Intruder", "Hot");
+                    ResourceAcquisitionCommandResult expected = owner
+                            ? ResourceAcquisitionCommandResult.LockSucceeded
+                            : ResourceAcquisitionCommandResult.LockFailed;
+                    if (response.getCommitResult() != expected || !response.getResource().getUserName().equals("Owner")) {
+                        unexpected++;
+                    }
+                }
+                return unexpected;
+            });
+
+            assertEquals(List.of(0L, 0L, 0L, 0L, 0L, 0L, 0L, 0L), failures);
+        }
+    }
+}
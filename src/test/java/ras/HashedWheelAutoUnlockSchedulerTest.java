@@ -0,0 +1,169 @@
+package ras;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+import io.opentelemetry.api.metrics.MeterProvider;
+import io.reactivex.rxjava3.schedulers.TestScheduler;
+
+public class HashedWheelAutoUnlockSchedulerTest {
+
+    private static final TimeSpan TICK = new TimeSpan(10, TimeUnit.MILLISECONDS);
+
+    @Test
+    public void testCommandFiresOnFirstTickAtOrAfterDeadline() {
+        TestScheduler testScheduler = new TestScheduler();
+        List<Long> firedAt = new ArrayList<>();
+        try (var scheduler = new HashedWheelAutoUnlockScheduler(testScheduler, TICK, 8)) {
+            testScheduler.advanceTimeBy(3, TimeUnit.MILLISECONDS);
+            scheduler.schedule(() -> firedAt.add(testScheduler.now(TimeUnit.MILLISECONDS)), new TimeSpan(25, TimeUnit.MILLISECONDS));
+
+            testScheduler.advanceTimeBy(26, TimeUnit.MILLISECONDS);
+            assertEquals(List.of(), firedAt);
+
+            testScheduler.advanceTimeBy(1, TimeUnit.MILLISECONDS);
+            assertEquals(List.of(30L), firedAt);
+        }
+    }
+
+    @Test
+    public void testZeroDelayFiresOnNextTick() {
+        TestScheduler testScheduler = new TestScheduler();
+        List<String> fired = new ArrayList<>();
+        try (var scheduler = new HashedWheelAutoUnlockScheduler(testScheduler, TICK, 8)) {
+            testScheduler.advanceTimeBy(10, TimeUnit.MILLISECONDS);
+            scheduler.schedule(() -> fired.add("now"), new TimeSpan(0, TimeUnit.MILLISECONDS));
+
+            testScheduler.advanceTimeBy(10, TimeUnit.MILLISECONDS);
+            assertEquals(List.of("now"), fired);
+        }
+    }
+
+    @Test
+    public void testDelaysLongerThanOneRotationWaitForRemainingRounds() {
+        TestScheduler testScheduler = new TestScheduler();
+        List<String> fired = new ArrayList<>();
+        try (var scheduler = new HashedWheelAutoUnlockScheduler(testScheduler, TICK, 3)) {
+            scheduler.schedule(() -> fired.add("short"), new TimeSpan(10, TimeUnit.MILLISECONDS));
+            scheduler.schedule(() -> fired.add("long"), new TimeSpan(90, TimeUnit.MILLISECONDS));
+
+            testScheduler.advanceTimeBy(10, TimeUnit.MILLISECONDS);
+            assertEquals(List.of("short"), fired);
+
+            testScheduler.advanceTimeBy(70, TimeUnit.MILLISECONDS);
+            assertEquals(List.of("short"), fired);
+
+            testScheduler.advanceTimeBy(10, TimeUnit.MILLISECONDS);
+            assertEquals(List.of("short", "long"), fired);
+        }
+    }
+
+    @Test
+    public void testAllEntriesOfATickExpireTogetherAndCancelledOnesAreSkipped() {
+        TestScheduler testScheduler = new TestScheduler();
+        List<Integer> fired = new ArrayList<>();
+        try (var scheduler = new HashedWheelAutoUnlockScheduler(testScheduler, TICK, 4)) {
+            TimeSpan delay = new TimeSpan(20, TimeUnit.MILLISECONDS);
+            List<SimpleResourceAcquisitionService.Cancellable> cancellables = new ArrayList<>();
+            for (int i = 0; i < 5; i++) {
+                final int index = i;
+                cancellables.add(scheduler.schedule(() -> fired.add(index), delay));
+            }
+            cancellables.get(0).cancel();
+            cancellables.get(2).cancel();
+            cancellables.get(4).cancel();
+            cancellables.get(4).cancel();
+
+            testScheduler.advanceTimeBy(20, TimeUnit.MILLISECONDS);
+            assertEquals(List.of(1, 3), fired);
+
+            cancellables.get(1).cancel();
+            testScheduler.advanceTimeBy(100, TimeUnit.MILLISECONDS);
+            assertEquals(List.of(1, 3), fired);
+        }
+    }
+
+    @Test
+    public void testExpiredCommandCanCancelAnotherExpiredEntry() {
+        TestScheduler testScheduler = new TestScheduler();
+        List<String> fired = new ArrayList<>();
+        try (var scheduler = new HashedWheelAutoUnlockScheduler(testScheduler, TICK, 4)) {
+            TimeSpan delay = new TimeSpan(10, TimeUnit.MILLISECONDS);
+            List<SimpleResourceAcquisitionService.Cancellable> second = new ArrayList<>();
+            scheduler.schedule(() -> {
+                fired.add("first");
+                second.get(0).cancel();
+            }, delay);
+            second.add(scheduler.schedule(() -> fired.add("second"), delay));
+
+            testScheduler.advanceTimeBy(10, TimeUnit.MILLISECONDS);
+            assertEquals(List.of("first"), fired);
+        }
+    }
+
+    @Test
+    public void testCloseStopsTicksAndDropsPendingEntries() {
+        TestScheduler testScheduler = new TestScheduler();
+        List<String> fired = new ArrayList<>();
+        HashedWheelAutoUnlockScheduler scheduler = new HashedWheelAutoUnlockScheduler(testScheduler, TICK, 4);
+        TimeSpan delay = new TimeSpan(10, TimeUnit.MILLISECONDS);
+        scheduler.schedule(() -> fired.add("first"), delay);
+        SimpleResourceAcquisitionService.Cancellable second = scheduler.schedule(() -> fired.add("second"), delay);
+
+        scheduler.close();
+        second.cancel();
+        testScheduler.advanceTimeBy(100, TimeUnit.MILLISECONDS);
+
+        assertEquals(List.of(), fired);
+    }
+
+    @Test
+    public void testInvalidConfigurationIsRejected() {
+        TestScheduler testScheduler = new TestScheduler();
+        assertThrows(IllegalArgumentException.class,
+                () -> new HashedWheelAutoUnlockScheduler(testScheduler, new TimeSpan(0, TimeUnit.MILLISECONDS), 8));
+        assertThrows(IllegalArgumentException.class,
+                () -> new HashedWheelAutoUnlockScheduler(testScheduler, TICK, 0));
+        assertThrows(IllegalArgumentException.class,
+                () -> new HashedWheelAutoUnlockScheduler(testScheduler, TICK, HashedWheelAutoUnlockScheduler.MAX_WHEEL_SIZE + 1));
+    }
+
+    @Test
+    public void testWheelSizeCoversOneUnlockTimeout() {
+        assertEquals(3000, HashedWheelAutoUnlockScheduler.wheelSizeFor(TimeSpan.Default, TICK));
+        assertEquals(1, HashedWheelAutoUnlockScheduler.wheelSizeFor(new TimeSpan(1, TimeUnit.MILLISECONDS), TICK));
+        assertEquals(HashedWheelAutoUnlockScheduler.MAX_WHEEL_SIZE,
+                HashedWheelAutoUnlockScheduler.wheelSizeFor(TimeSpan.Default, new TimeSpan(1, TimeUnit.MICROSECONDS)));
+    }
+
+    @Test
+    public void testServiceExpiresLeasesThroughTimingWheel() {
+        TestScheduler testScheduler = new TestScheduler();
+        try (var service = new SimpleResourceAcquisitionService<String>(
+                testScheduler,
+                TimeSpan.Default,
+                TICK,
+                MeterProvider.noop().get(ResourceAcquisitionMetrics.METER_NAME))) {
+            for (int i = 0; i < 1_000; i++) {
+                service.commit(ResourceAcquisitionCommand.Lock, "User1", "Item" + i);
+            }
+            service.commit(ResourceAcquisitionCommand.Unlock, "User1", "Item0");
+
+            testScheduler.advanceTimeBy(29_990, TimeUnit.MILLISECONDS);
+            assertEquals(ResourceAcquisitionCommandResult.LockFailed,
+                    service.commit(ResourceAcquisitionCommand.Lock, "User2", "Item1").getCommitResult());
+
+            testScheduler.advanceTimeBy(10, TimeUnit.MILLISECONDS);
+            for (int i = 0; i < 1_000; i++) {
+                assertTrue(service.commit(ResourceAcquisitionCommand.Lock, "User2", "Item" + i).getCommitResult()
+                        == ResourceAcquisitionCommandResult.LockSucceeded);
+            }
+        }
+    }
+}
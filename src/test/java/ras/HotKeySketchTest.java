@@ -0,0 +1,109 @@
+package ras;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+public class HotKeySketchTest {
+
+    private static final int KEYS = 50_000;
+    private static final int EVENTS = 200_000;
+
+    // Draws key ranks from a Zipf distribution with exponent 1.1, the skew of a few hot resources among many cold ones.
+    private static List<String> zipfStream(final Random random) {
+        final double[] cumulative = new double[KEYS];
+        double total = 0;
+        for (int rank = 0; rank < KEYS; rank++) {
+            total += 1 / Math.pow(rank + 1, 1.1);
+            cumulative[rank] = total;
+        }
+        final List<String> stream = new ArrayList<>(EVENTS);
+        for (int event = 0; event < EVENTS; event++) {
+            final int rank = Arrays.binarySearch(cumulative, random.nextDouble() * total);
+            stream.add("Item" + (rank < 0 ? -rank - 1 : rank));
+        }
+        return stream;
+    }
+
+    @Test
+    public void testTopKeysOfASkewedStreamAreFoundWithBoundedError() {
+        final HotKeySketch<String> sketch = new HotKeySketch<>(10);
+        final Map<String, Long> exact = new HashMap<>();
+        for (final String key : zipfStream(new Random(42))) {
+            sketch.add(key, 1);
+            exact.merge(key, 1L, Long::sum);
+        }
+
+        final List<String> expected = exact.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                .limit(10)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+        assertEquals(expected, sketch.top().stream().map(HotKey::getResource).collect(Collectors.toList()));
+
+        // Count-min bound: an estimate exceeds the truth by more than e / WIDTH of the stream with probability at most
+        // e^-DEPTH, and never undercounts.
+        final long bound = (long) Math.ceil(Math.E / HotKeySketch.WIDTH * EVENTS);
+        int overBound = 0;
+        for (final Map.Entry<String, Long> entry : exact.entrySet()) {
+            final long error = sketch.estimate(entry.getKey()) - entry.getValue();
+            assertTrue(error >= 0);
+            if (error > bound) {
+                overBound++;
+            }
+        }
+        assertTrue(overBound <= exact.size() * Math.exp(-HotKeySketch.DEPTH), overBound + " estimates over the bound");
+        for (final String key : expected) {
+            assertTrue(sketch.estimate(key) - exact.get(key) <= bound, key);
+        }
+    }
+
+    @Test
+    public void testWeightedAddsRankByTotalWeight() {
+        final HotKeySketch<String> sketch = new HotKeySketch<>(2);
+        sketch.add("Item1", 10);
+        sketch.add("Item2", 30);
+        sketch.add("Item3", 5);
+        sketch.add("Item3", 20);
+
+        final List<HotKey<String>> top = sketch.top();
+        assertEquals(List.of("Item2", "Item3"), top.stream().map(HotKey::getResource).collect(Collectors.toList()));
+        assertEquals(List.of(30L, 25L), top.stream().map(HotKey::getEstimate).collect(Collectors.toList()));
+        assertEquals(0, sketch.estimate("Item4"));
+    }
+
+    @Test
+    public void testCandidatesThatFallBehindAreReplacedInAnyArrivalOrder() {
+        List<String> stream = new ArrayList<>();
+        for (int key = 0; key < 20; key++) {
+            for (int count = 0; count <= key; count++) {
+                stream.add("Item" + key);
+            }
+        }
+        Collections.shuffle(stream, new Random(7));
+        HotKeySketch<String> sketch = new HotKeySketch<>(3);
+        for (String key : stream) {
+            sketch.add(key, 1);
+        }
+
+        List<HotKey<String>> top = sketch.top();
+        assertEquals(List.of("Item19", "Item18", "Item17"), top.stream().map(HotKey::getResource).collect(Collectors.toList()));
+        assertEquals(List.of(20L, 19L, 18L), top.stream().map(HotKey::getEstimate).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testSizeIsBounded() {
+        assertThrows(IllegalArgumentException.class, () -> new HotKeySketch<String>(0));
+        assertThrows(IllegalArgumentException.class, () -> new HotKeySketch<String>(HotKeySketch.MAX_SIZE + 1));
+    }
+}
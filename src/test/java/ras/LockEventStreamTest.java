@@ -0,0 +1,187 @@
+package ras;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+import io.reactivex.rxjava3.core.BackpressureOverflowStrategy;
+import io.reactivex.rxjava3.exceptions.MissingBackpressureException;
+import io.reactivex.rxjava3.plugins.RxJavaPlugins;
+import io.reactivex.rxjava3.schedulers.TestScheduler;
+import io.reactivex.rxjava3.subscribers.TestSubscriber;
+
+public class LockEventStreamTest {
+
+    private static final AcquiredResource LEASE = AcquiredResource.createNew(
+            "User1", ResourceAcquisitionState.Locked, TimeSpan.Default, Clock.fixed(Instant.parse("2026-01-01T00:00:00Z"), ZoneOffset.UTC));
+
+    private static List<String> resources(final List<LockEvent<String>> batch) {
+        return batch.stream().map(LockEvent::getResource).collect(Collectors.toList());
+    }
+
+    private static void publish(final LockEventStream<String> stream, final String... resources) {
+        for (String resource : resources) {
+            stream.publish(LockEventType.Acquired, resource, LEASE);
+        }
+    }
+
+    @Test
+    public void testEventsAreDeliveredInBatchesOnTheSubscriberScheduler() {
+        TestScheduler scheduler = new TestScheduler();
+        LockEventStream<String> stream = new LockEventStream<>();
+        assertFalse(stream.hasSubscribers());
+        TestSubscriber<List<LockEvent<String>>> subscriber = stream.events(scheduler, 8, BackpressureOverflowStrategy.ERROR).test();
+        assertTrue(stream.hasSubscribers());
+
+        publish(stream, "Item1", "Item2", "Item3");
+        subscriber.assertEmpty();
+        scheduler.triggerActions();
+        subscriber.assertValueCount(1);
+        assertEquals(List.of("Item1", "Item2", "Item3"), resources(subscriber.values().get(0)));
+        LockEvent<String> event = subscriber.values().get(0).get(0);
+        assertEquals(LockEventType.Acquired, event.getType());
+        assertEquals(LEASE, event.getAcquiredResource());
+
+        publish(stream, "Item4");
+        scheduler.triggerActions();
+        subscriber.assertValueCount(2);
+        assertEquals(List.of("Item4"), resources(subscriber.values().get(1)));
+    }
+
+    @Test
+    public void testOverflowStrategiesDropOrFail() {
+        TestScheduler scheduler = new TestScheduler();
+        LockEventStream<String> stream = new LockEventStream<>();
+        TestSubscriber<List<LockEvent<String>>> dropLatest = stream.events(scheduler, 2, BackpressureOverflowStrategy.DROP_LATEST).test(0);
+        TestSubscriber<List<LockEvent<String>>> dropOldest = stream.events(scheduler, 2, BackpressureOverflowStrategy.DROP_OLDEST).test(0);
+        TestSubscriber<List<LockEvent<String>>> failing = stream.events(scheduler, 2, BackpressureOverflowStrategy.ERROR).test(0);
+
+        publish(stream, "Item1", "Item2", "Item3", "Item4");
+        scheduler.triggerActions();
+        dropLatest.assertEmpty();
+        dropOldest.assertEmpty();
+        failing.assertNoValues().assertError(MissingBackpressureException.class);
+
+        dropLatest.request(1);
+        dropOldest.request(1);
+        scheduler.triggerActions();
+        assertEquals(List.of("Item1", "Item4"), resources(dropLatest.values().get(0)));
+        assertEquals(List.of("Item3", "Item4"), resources(dropOldest.values().get(0)));
+
+        dropLatest.cancel();
+        dropOldest.cancel();
+        assertFalse(stream.hasSubscribers());
+    }
+
+    @Test
+    public void testCompletionWaitsForQueuedEventsAndLateSubscribersCompleteAtOnce() {
+        TestScheduler scheduler = new TestScheduler();
+        LockEventStream<String> stream = new LockEventStream<>();
+        TestSubscriber<List<LockEvent<String>>> subscriber = stream.events(scheduler, 4, BackpressureOverflowStrategy.ERROR).test(0);
+        publish(stream, "Item1");
+        stream.complete();
+        scheduler.triggerActions();
+        subscriber.assertNotComplete();
+
+        subscriber.request(1);
+        scheduler.triggerActions();
+        subscriber.assertValueCount(1).assertComplete();
+        assertFalse(stream.hasSubscribers());
+
+        TestSubscriber<List<LockEvent<String>>> late = stream.events(scheduler, 4, BackpressureOverflowStrategy.ERROR).test();
+        scheduler.triggerActions();
+        late.assertNoValues().assertComplete();
+    }
+
+    @Test
+    public void testCancellingFromOnNextStopsDelivery() {
+        TestScheduler scheduler = new TestScheduler();
+        LockEventStream<String> stream = new LockEventStream<>();
+        List<List<LockEvent<String>>> received = new CopyOnWriteArrayList<>();
+        TestSubscriber<List<LockEvent<String>>> subscriber = new TestSubscriber<>() {
+            @Override
+            public void onNext(final List<LockEvent<String>> batch) {
+                received.add(batch);
+                publish(stream, "Item2");
+                cancel();
+            }
+        };
+        stream.events(scheduler, 4, BackpressureOverflowStrategy.ERROR).subscribe(subscriber);
+        publish(stream, "Item1");
+        scheduler.triggerActions();
+        scheduler.triggerActions();
+
+        assertEquals(1, received.size());
+        assertFalse(stream.hasSubscribers());
+    }
+
+    @Test
+    public void testEventsPublishedDuringOnSubscribeAreKeptAndCancellingThereUnregisters() {
+        TestScheduler scheduler = new TestScheduler();
+        LockEventStream<String> stream = new LockEventStream<>();
+        TestSubscriber<List<LockEvent<String>>> subscriber = new TestSubscriber<>() {
+            @Override
+            protected void onStart() {
+                publish(stream, "Item1");
+                request(1);
+            }
+        };
+        stream.events(scheduler, 4, BackpressureOverflowStrategy.ERROR).subscribe(subscriber);
+        scheduler.triggerActions();
+        assertEquals(List.of("Item1"), resources(subscriber.values().get(0)));
+
+        TestSubscriber<List<LockEvent<String>>> cancelled = new TestSubscriber<>() {
+            @Override
+            protected void onStart() {
+                cancel();
+            }
+        };
+        stream.events(scheduler, 4, BackpressureOverflowStrategy.ERROR).subscribe(cancelled);
+        subscriber.cancel();
+        assertFalse(stream.hasSubscribers());
+    }
+
+    @Test
+    public void testUnboundedDemandIsNotDecremented() {
+        TestScheduler scheduler = new TestScheduler();
+        LockEventStream<String> stream = new LockEventStream<>();
+        TestSubscriber<List<LockEvent<String>>> subscriber = stream.events(scheduler, 4, BackpressureOverflowStrategy.ERROR).test(Long.MAX_VALUE - 1);
+        subscriber.request(Long.MAX_VALUE - 1);
+        for (int i = 0; i < 3; i++) {
+            publish(stream, "Item" + i);
+            scheduler.advanceTimeBy(1, TimeUnit.SECONDS);
+        }
+        subscriber.assertValueCount(3);
+    }
+
+    @Test
+    public void testInvalidArgumentsAreRejected() {
+        List<Throwable> errors = new CopyOnWriteArrayList<>();
+        RxJavaPlugins.setErrorHandler(errors::add);
+        try {
+            TestScheduler scheduler = new TestScheduler();
+            LockEventStream<String> stream = new LockEventStream<>();
+            TestSubscriber<List<LockEvent<String>>> subscriber = stream.events(scheduler, 4, BackpressureOverflowStrategy.ERROR).test(0);
+            subscriber.request(0);
+            assertEquals(1, errors.size());
+            assertInstanceOf(IllegalArgumentException.class, errors.get(0));
+
+            assertThrows(IllegalArgumentException.class, () -> stream.events(scheduler, 0, BackpressureOverflowStrategy.ERROR));
+            assertThrows(NullPointerException.class, () -> stream.events(scheduler, 4, null));
+            assertThrows(NullPointerException.class, () -> stream.events(null, 4, BackpressureOverflowStrategy.ERROR));
+        } finally {
+            RxJavaPlugins.reset();
+        }
+    }
+}
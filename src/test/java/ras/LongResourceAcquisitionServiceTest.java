@@ -0,0 +1,321 @@
+package ras;
+
+import java.lang.management.ManagementFactory;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+import io.opentelemetry.api.metrics.MeterProvider;
+import io.opentelemetry.sdk.metrics.SdkMeterProvider;
+import io.opentelemetry.sdk.metrics.data.LongPointData;
+import io.opentelemetry.sdk.metrics.data.MetricData;
+import io.opentelemetry.sdk.testing.exporter.InMemoryMetricReader;
+import io.reactivex.rxjava3.schedulers.TestScheduler;
+
+public class LongResourceAcquisitionServiceTest {
+
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2026-01-01T00:00:00Z"), ZoneOffset.UTC);
+
+    private LongResourceAcquisitionService createService(final TestScheduler scheduler, final TimeSpan tickDuration) {
+        return new LongResourceAcquisitionService(scheduler, TimeSpan.Default, tickDuration, CLOCK, ResourceAcquisitionMetrics.createDefault());
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    @Test
+    public void testLockAndUnlockFollowSimpleServiceSemantics() {
+        TestScheduler scheduler = new TestScheduler();
+        try (LongResourceAcquisitionService service = createService(scheduler, LongResourceAcquisitionService.DEFAULT_TICK_DURATION)) {
+            ResourceAcquisitionResponse response = service.commit(ResourceAcquisitionCommand.Unlock, "User1", 1L);
+            assertEquals(ResourceAcquisitionCommandResult.UnlockFailed, response.getCommitResult());
+            assertEquals("User1", response.getResource().getUserName());
+            assertEquals(ResourceAcquisitionState.Unlocked, response.getResource().getState());
+
+            response = service.commit(ResourceAcquisitionCommand.Lock, "User1", 1L);
+            assertEquals(ResourceAcquisitionCommandResult.LockSucceeded, response.getCommitResult());
+            assertEquals("User1", response.getResource().getUserName());
+            assertEquals(ResourceAcquisitionState.Locked, response.getResource().getState());
+            assertEquals(TimeSpan.Default, response.getResource().getStateTimeout());
+            TimeSpan lockTimestamp = response.getResource().getUtcTimeStamp();
+
+            response = service.commit(ResourceAcquisitionCommand.Lock, "user1", 1L);
+            assertEquals(ResourceAcquisitionCommandResult.LockSucceeded, response.getCommitResult());
+
+            response = service.commit(ResourceAcquisitionCommand.Lock, "User2", 1L);
+            assertEquals(ResourceAcquisitionCommandResult.LockFailed, response.getCommitResult());
+            assertEquals("user1", response.getResource().getUserName());
+            assertEquals(ResourceAcquisitionState.Locked, response.getResource().getState());
+            assertEquals(TimeSpan.Default, response.getResource().getStateTimeout());
+            assertEquals(lockTimestamp, response.getResource().getUtcTimeStamp());
+
+            response = service.commit(ResourceAcquisitionCommand.Unlock, "User2", 1L);
+            assertEquals(ResourceAcquisitionCommandResult.UnlockFailed, response.getCommitResult());
+            assertEquals("user1", response.getResource().getUserName());
+
+            response = service.commit(ResourceAcquisitionCommand.Unlock, "User1", 1L);
+            assertEquals(ResourceAcquisitionCommandResult.UnlockSucceeded, response.getCommitResult());
+            assertEquals(ResourceAcquisitionState.Unlocked, response.getResource().getState());
+
+            response = service.commit(ResourceAcquisitionCommand.Lock, "User2", Long.valueOf(1L));
+            assertEquals(ResourceAcquisitionCommandResult.LockSucceeded, response.getCommitResult());
+        }
+    }
+
+    @Test
+    public void testLeasesExpireAfterLastRenewal() {
+        TestScheduler scheduler = new TestScheduler();
+        try (LongResourceAcquisitionService service = createService(scheduler, new TimeSpan(1, TimeUnit.SECONDS))) {
+            service.commit(ResourceAcquisitionCommand.Lock, "User1", 1L);
+            service.commit(ResourceAcquisitionCommand.Lock, "User1", 2L);
+            scheduler.advanceTimeBy(15, TimeUnit.SECONDS);
+            service.commit(ResourceAcquisitionCommand.Lock, "User1", 1L);
+            scheduler.advanceTimeBy(15, TimeUnit.SECONDS);
+
+            assertEquals(ResourceAcquisitionCommandResult.LockFailed,
+                    service.commit(ResourceAcquisitionCommand.Lock, "User2", 1L).getCommitResult());
+            assertEquals(ResourceAcquisitionCommandResult.LockSucceeded,
+                    service.commit(ResourceAcquisitionCommand.Lock, "User2", 2L).getCommitResult());
+
+            scheduler.advanceTimeBy(14, TimeUnit.SECONDS);
+            assertEquals(ResourceAcquisitionCommandResult.LockFailed,
+                    service.commit(ResourceAcquisitionCommand.Lock, "User2", 1L).getCommitResult());
+
+            scheduler.advanceTimeBy(1, TimeUnit.SECONDS);
+            assertEquals(ResourceAcquisitionCommandResult.LockSucceeded,
+                    service.commit(ResourceAcquisitionCommand.Lock, "User2", 1L).getCommitResult());
+        }
+    }
+
+    @Test
+    public void testLeasesLongerThanOneWheelRotationWaitForTheirDeadline() {
+        TestScheduler scheduler = new TestScheduler();
+        TimeSpan tick = new TimeSpan(1, TimeUnit.SECONDS);
+        try (LongResourceAcquisitionService service = new LongResourceAcquisitionService(
+                scheduler, TimeSpan.Default, tick, CLOCK, ResourceAcquisitionMetrics.createDefault())) {
+            service.commit(ResourceAcquisitionCommand.Lock, "User1", 1L);
+            for (int i = 0; i < 100; i++) {
+                scheduler.advanceTimeBy(1, TimeUnit.SECONDS);
+                service.commit(ResourceAcquisitionCommand.Lock, "User1", 1L);
+            }
+
+            scheduler.advanceTimeBy(29, TimeUnit.SECONDS);
+            assertEquals(ResourceAcquisitionCommandResult.LockFailed,
+                    service.commit(ResourceAcquisitionCommand.Lock, "User2", 1L).getCommitResult());
+            scheduler.advanceTimeBy(1, TimeUnit.SECONDS);
+            assertEquals(ResourceAcquisitionCommandResult.LockSucceeded,
+                    service.commit(ResourceAcquisitionCommand.Lock, "User2", 1L).getCommitResult());
+        }
+    }
+
+    @Test
+    public void testLeasesOutlastingTheLargestWheelStayInTheirBucket() {
+        TestScheduler scheduler = new TestScheduler();
+        TimeSpan timeout = new TimeSpan(1, TimeUnit.SECONDS);
+        try (LongResourceAcquisitionService service = new LongResourceAcquisitionService(
+                scheduler, timeout, new TimeSpan(10, TimeUnit.MICROSECONDS), CLOCK, ResourceAcquisitionMetrics.createDefault())) {
+            service.commit(ResourceAcquisitionCommand.Lock, "User1", 1L);
+
+            scheduler.advanceTimeBy(999, TimeUnit.MILLISECONDS);
+            assertEquals(ResourceAcquisitionCommandResult.LockFailed,
+                    service.commit(ResourceAcquisitionCommand.Lock, "User2", 1L).getCommitResult());
+            scheduler.advanceTimeBy(1, TimeUnit.MILLISECONDS);
+            assertEquals(ResourceAcquisitionCommandResult.LockSucceeded,
+                    service.commit(ResourceAcquisitionCommand.Lock, "User2", 1L).getCommitResult());
+        }
+    }
+
+    @Test
+    public void testTableGrowsAndShrinksWithoutLosingLeases() {
+        TestScheduler scheduler = new TestScheduler();
+        try (LongResourceAcquisitionService service = createService(scheduler, LongResourceAcquisitionService.DEFAULT_TICK_DURATION)) {
+            Random random = new Random(7);
+            Set<Long> locked = new HashSet<>();
+            for (int i = 0; i < 20_000; i++) {
+                long resource = random.nextInt(4_096);
+                if (locked.remove(resource)) {
+                    assertEquals(ResourceAcquisitionCommandResult.UnlockSucceeded,
+                            service.commit(ResourceAcquisitionCommand.Unlock, "User1", resource).getCommitResult());
+                } else {
+                    locked.add(resource);
+                    assertEquals(ResourceAcquisitionCommandResult.LockSucceeded,
+                            service.commit(ResourceAcquisitionCommand.Lock, "User1", resource).getCommitResult());
+                }
+            }
+            for (long resource = 0; resource < 4_096; resource++) {
+                ResourceAcquisitionCommandResult expected = locked.contains(resource)
+                        ? ResourceAcquisitionCommandResult.LockFailed
+                        : ResourceAcquisitionCommandResult.LockSucceeded;
+                assertEquals(expected, service.commit(ResourceAcquisitionCommand.Lock, "User2", resource).getCommitResult());
+            }
+
+            scheduler.advanceTimeBy(TimeSpan.Default.getInterval(), TimeSpan.Default.getUnit());
+            for (long resource = 0; resource < 4_096; resource++) {
+                assertEquals(ResourceAcquisitionCommandResult.LockSucceeded,
+                        service.commit(ResourceAcquisitionCommand.Lock, "User3", resource).getCommitResult());
+            }
+        }
+    }
+
+    @Test
+    public void testMetricsTrackActiveLocks() {
+        InMemoryMetricReader metricReader = InMemoryMetricReader.create();
+        SdkMeterProvider meterProvider = SdkMeterProvider.builder()
+                .registerMetricReader(metricReader)
+                .build();
+        TestScheduler scheduler = new TestScheduler();
+        LongResourceAcquisitionService service = new LongResourceAcquisitionService(
+                scheduler, TimeSpan.Default, meterProvider.get(ResourceAcquisitionMetrics.METER_NAME));
+
+        service.commit(ResourceAcquisitionCommand.Lock, "User1", 1L);
+        service.commit(ResourceAcquisitionCommand.Lock, "User1", 2L);
+        service.commit(ResourceAcquisitionCommand.Unlock, "User1", 1L);
+        service.commit(ResourceAcquisitionCommand.Lock, "User1", 3L);
+        scheduler.advanceTimeBy(TimeSpan.Default.getInterval(), TimeSpan.Default.getUnit());
+
+        long activeLocks = metricReader.collectAllMetrics().stream()
+                .filter(metric -> metric.getName().equals(ResourceAcquisitionMetrics.ACTIVE_LOCKS_METRIC_NAME))
+                .map(MetricData::getLongSumData)
+                .flatMap(data -> data.getPoints().stream())
+                .mapToLong(LongPointData::getValue)
+                .sum();
+        meterProvider.close();
+        service.close();
+
+        assertEquals(0, activeLocks);
+    }
+
+    @Test
+    public void testStripedMetricsReportTheLeaseCount() {
+        InMemoryMetricReader metricReader = InMemoryMetricReader.create();
+        SdkMeterProvider meterProvider = SdkMeterProvider.builder()
+                .registerMetricReader(metricReader)
+                .build();
+        try (LongResourceAcquisitionService service = new LongResourceAcquisitionService(
+                new TestScheduler(), TimeSpan.Default, LongResourceAcquisitionService.DEFAULT_TICK_DURATION, Clock.systemUTC(),
+                ResourceAcquisitionMetrics.striped(meterProvider.get(ResourceAcquisitionMetrics.METER_NAME)))) {
+            service.commit(ResourceAcquisitionCommand.Lock, "User1", 1L);
+            service.commit(ResourceAcquisitionCommand.Lock, "User1", 2L);
+            service.commit(ResourceAcquisitionCommand.Unlock, "User1", 1L);
+
+            long activeLocks = metricReader.collectAllMetrics().stream()
+                    .filter(metric -> metric.getName().equals(ResourceAcquisitionMetrics.ACTIVE_LOCKS_METRIC_NAME))
+                    .map(MetricData::getLongSumData)
+                    .flatMap(data -> data.getPoints().stream())
+                    .mapToLong(LongPointData::getValue)
+                    .sum();
+            assertEquals(1, activeLocks);
+        } finally {
+            meterProvider.close();
+        }
+    }
+
+    @Test
+    public void testConstructors() {
+        TestScheduler scheduler = new TestScheduler();
+        TimeSpan timeout = new TimeSpan(5, TimeUnit.SECONDS);
+        try (var service = new LongResourceAcquisitionService(
+                scheduler, timeout, new TimeSpan(1, TimeUnit.MILLISECONDS), MeterProvider.noop().get(ResourceAcquisitionMetrics.METER_NAME))) {
+            assertEquals(timeout, service.commit(ResourceAcquisitionCommand.Lock, "User1", 1L).getResource().getStateTimeout());
+        }
+        try (var service = new LongResourceAcquisitionService(scheduler)) {
+            assertEquals(TimeSpan.Default, service.commit(ResourceAcquisitionCommand.Lock, "User1", 1L).getResource().getStateTimeout());
+        }
+        try (var service = new LongResourceAcquisitionService()) {
+            assertEquals(TimeSpan.Default, service.commit(ResourceAcquisitionCommand.Lock, "User1", 1L).getResource().getStateTimeout());
+        }
+        assertThrows(IllegalArgumentException.class,
+                () -> createService(scheduler, new TimeSpan(0, TimeUnit.MILLISECONDS)));
+    }
+
+    @Test
+    public void testFailedCommandsReuseTheHolderResponseUntilTheLeaseChanges() {
+        TestScheduler scheduler = new TestScheduler();
+        try (LongResourceAcquisitionService service = createService(scheduler, LongResourceAcquisitionService.DEFAULT_TICK_DURATION)) {
+            service.commit(ResourceAcquisitionCommand.Lock, "User1", 1L);
+            ResourceAcquisitionResponse lockFailed = service.commit(ResourceAcquisitionCommand.Lock, "User2", 1L);
+            ResourceAcquisitionResponse unlockFailed = service.commit(ResourceAcquisitionCommand.Unlock, "User2", 1L);
+            assertSame(lockFailed, service.commit(ResourceAcquisitionCommand.Lock, "User3", 1L));
+            assertSame(unlockFailed, service.commit(ResourceAcquisitionCommand.Unlock, "User3", 1L));
+
+            long allocated = allocatedBytes(20_000, () -> {
+                service.commit(ResourceAcquisitionCommand.Lock, "User2", 1L);
+                service.commit(ResourceAcquisitionCommand.Unlock, "User2", 1L);
+            });
+            assertEquals(0, allocated / 20_000);
+
+            service.commit(ResourceAcquisitionCommand.Lock, "user1", 1L);
+            ResourceAcquisitionResponse renewed = service.commit(ResourceAcquisitionCommand.Lock, "User2", 1L);
+            assertNotSame(lockFailed, renewed);
+            assertEquals("user1", renewed.getResource().getUserName());
+            assertNotSame(unlockFailed, service.commit(ResourceAcquisitionCommand.Unlock, "User2", 1L));
+
+            service.commit(ResourceAcquisitionCommand.Unlock, "User1", 1L);
+            service.commit(ResourceAcquisitionCommand.Lock, "User4", 1L);
+            assertEquals("User4", service.commit(ResourceAcquisitionCommand.Lock, "User2", 1L).getResource().getUserName());
+            assertEquals("User4", service.commit(ResourceAcquisitionCommand.Unlock, "User2", 1L).getResource().getUserName());
+        }
+    }
+
+    private static long allocatedBytes(final int iterations, final Runnable operation) {
+        final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        for (int i = 0; i < iterations; i++) {
+            operation.run();
+        }
+        final long before = threads.getThreadAllocatedBytes(Thread.currentThread().threadId());
+        for (int i = 0; i < iterations; i++) {
+            operation.run();
+        }
+        return threads.getThreadAllocatedBytes(Thread.currentThread().threadId()) - before;
+    }
+
+    @Test
+    public void testHeapFootprintIsAFractionOfGenericService() {
+        final int leases = 200_000;
+        final String userName = "User1";
+
+        long baseline = usedHeap();
+        TestScheduler genericScheduler = new TestScheduler();
+        SimpleResourceAcquisitionService<Long> generic = new SimpleResourceAcquisitionService<>(
+                new SimpleResourceAcquisitionService.RxAutoUnlockScheduler(genericScheduler),
+                TimeSpan.Default,
+                CLOCK,
+                ResourceAcquisitionMetrics.createDefault());
+        for (long resource = 0; resource < leases; resource++) {
+            generic.commit(ResourceAcquisitionCommand.Lock, userName, resource);
+        }
+        long genericBytes = usedHeap() - baseline;
+        generic.close();
+        generic = null;
+        genericScheduler = null;
+
+        baseline = usedHeap();
+        LongResourceAcquisitionService primitive = createService(new TestScheduler(), LongResourceAcquisitionService.DEFAULT_TICK_DURATION);
+        for (long resource = 0; resource < leases; resource++) {
+            primitive.commit(ResourceAcquisitionCommand.Lock, userName, resource);
+        }
+        long primitiveBytes = usedHeap() - baseline;
+        assertEquals(ResourceAcquisitionCommandResult.LockFailed,
+                primitive.commit(ResourceAcquisitionCommand.Lock, "User2", leases - 1L).getCommitResult());
+        primitive.close();
+
+        assertTrue(primitiveBytes * 2 < genericBytes,
+                () -> "primitive service used " + primitiveBytes / leases + " bytes/lease, generic service used " + genericBytes / leases);
+    }
+}
@@ -0,0 +1,393 @@
+package ras;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import io.opentelemetry.api.metrics.MeterProvider;
+import io.reactivex.rxjava3.schedulers.TestScheduler;
+
+public class ResourceAcquisitionJournalTest {
+
+    private static final Instant START = Instant.parse("2026-01-01T00:00:00Z");
+    private static final TimeSpan SYNC_INTERVAL = new TimeSpan(10, TimeUnit.MILLISECONDS);
+
+    @TempDir
+    Path directory;
+
+    private static Clock clockAt(final long offsetMillis) {
+        return Clock.fixed(START.plusMillis(offsetMillis), ZoneOffset.UTC);
+    }
+
+    private <T> ResourceAcquisitionJournal<T> openJournal(final Path path, final ResourceKeyCodec<T> codec, final int capacity) throws IOException {
+        return new ResourceAcquisitionJournal<>(path, codec, capacity, new TestScheduler(), SYNC_INTERVAL);
+    }
+
+    private static <T> SimpleResourceAcquisitionService<T> createService(final TestScheduler scheduler,
+                                                                         final Clock clock,
+                                                                         final ResourceAcquisitionJournal<T> journal) {
+        return new SimpleResourceAcquisitionService<>(
+                new SimpleResourceAcquisitionService.RxAutoUnlockScheduler(scheduler),
+                TimeSpan.Default,
+                clock,
+                ResourceAcquisitionMetrics.createDefault(),
+                journal);
+    }
+
+    private List<String> journalFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString()).filter(name -> name.startsWith("locks.journal")).sorted().toList();
+        }
+    }
+
+    private static void writeFile(final Path path, final ByteBuffer content) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            channel.write(content);
+        }
+    }
+
+    @Test
+    public void testLeasesSurviveRestartAndExpireAtTheirOriginalDeadline() throws IOException {
+        Path path = directory.resolve("locks.journal");
+        TestScheduler scheduler = new TestScheduler();
+        try (var service = createService(scheduler, clockAt(0), openJournal(path, ResourceKeyCodec.utf8(), 16))) {
+            service.commit(ResourceAcquisitionCommand.Lock, "User1", "Item1");
+            service.commit(ResourceAcquisitionCommand.Lock, "User1", "Item2");
+            service.commit(ResourceAcquisitionCommand.Lock, "User2", "Item3");
+            service.commit(ResourceAcquisitionCommand.Unlock, "User1", "Item2");
+            service.commit(ResourceAcquisitionCommand.Unlock, "User1", "Item3");
+        }
+
+        TestScheduler restartedScheduler = new TestScheduler();
+        try (var service = createService(restartedScheduler, clockAt(10_000), openJournal(path, ResourceKeyCodec.utf8(), 16))) {
+            ResourceAcquisitionResponse response = service.commit(ResourceAcquisitionCommand.Lock, "User3", "Item1");
+            assertEquals(ResourceAcquisitionCommandResult.LockFailed, response.getCommitResult());
+            assertEquals("User1", response.getResource().getUserName());
+            assertEquals(START.toEpochMilli(), response.getResource().getUtcTimeStamp().getInterval());
+            assertEquals(ResourceAcquisitionCommandResult.LockFailed,
+                    service.commit(ResourceAcquisitionCommand.Lock, "User3", "Item3").getCommitResult());
+            assertEquals(ResourceAcquisitionCommandResult.LockSucceeded,
+                    service.commit(ResourceAcquisitionCommand.Lock, "User3", "Item2").getCommitResult());
+
+            restartedScheduler.advanceTimeBy(19_999, TimeUnit.MILLISECONDS);
+            assertEquals(ResourceAcquisitionCommandResult.LockFailed,
+                    service.commit(ResourceAcquisitionCommand.Lock, "User3", "Item1").getCommitResult());
+            restartedScheduler.advanceTimeBy(1, TimeUnit.MILLISECONDS);
+            assertEquals(ResourceAcquisitionCommandResult.LockSucceeded,
+                    service.commit(ResourceAcquisitionCommand.Lock, "User3", "Item1").getCommitResult());
+        }
+    }
+
+    @Test
+    public void testLeasesPastTheirDeadlineAreDroppedOnRestart() throws IOException {
+        Path path = directory.resolve("locks.journal");
+        try (var service = createService(new TestScheduler(), clockAt(0), openJournal(path, ResourceKeyCodec.utf8(), 16))) {
+            service.commit(ResourceAcquisitionCommand.Lock, "User1", "Item1");
+        }
+        try (var service = createService(new TestScheduler(), clockAt(30_000), openJournal(path, ResourceKeyCodec.utf8(), 16))) {
+            assertEquals(ResourceAcquisitionCommandResult.LockSucceeded,
+                    service.commit(ResourceAcquisitionCommand.Lock, "User2", "Item1").getCommitResult());
+            service.commit(ResourceAcquisitionCommand.Unlock, "User2", "Item1");
+        }
+        try (var journal = openJournal(path, ResourceKeyCodec.utf8(), 16)) {
+            assertEquals(List.of(), journal.getRecoveredLeases());
+        }
+    }
+
+    @Test
+    public void testExpiryIsJournaled() throws IOException {
+        Path path = directory.resolve("locks.journal");
+        TestScheduler scheduler = new TestScheduler();
+        try (var service = createService(scheduler, clockAt(0), openJournal(path, ResourceKeyCodec.utf8(), 16))) {
+            service.commit(ResourceAcquisitionCommand.Lock, "User1", "Item1");
+            service.commit(ResourceAcquisitionCommand.Lock, "User1", "Item2");
+            scheduler.advanceTimeBy(15, TimeUnit.SECONDS);
+            service.commit(ResourceAcquisitionCommand.Lock, "User1", "Item2");
+            scheduler.advanceTimeBy(15, TimeUnit.SECONDS);
+        }
+        try (var journal = openJournal(path, ResourceKeyCodec.utf8(), 16)) {
+            assertEquals(List.of(new ResourceAcquisitionJournal.Lease<>("Item2", "User1", START.toEpochMilli(), START.toEpochMilli() + 30_000)),
+                    journal.getRecoveredLeases());
+        }
+    }
+
+    @Test
+    public void testFullSegmentsAreCompactedInTheBackground() throws IOException {
+        Path path = directory.resolve("locks.journal");
+        TestScheduler syncScheduler = new TestScheduler();
+        try (var service = createService(new TestScheduler(), clockAt(0),
+                new ResourceAcquisitionJournal<>(path, ResourceKeyCodec.int64(), 2, syncScheduler, SYNC_INTERVAL))) {
+            for (long i = 0; i < 20; i++) {
+                service.commit(ResourceAcquisitionCommand.Lock, "User1", -1L);
+                service.commit(ResourceAcquisitionCommand.Unlock, "User1", -1L);
+            }
+            for (long i = 0; i < 5; i++) {
+                service.commit(ResourceAcquisitionCommand.Lock, "User1", i);
+            }
+            assertEquals(23, journalFiles().size());
+
+            syncScheduler.triggerActions();
+            assertEquals(List.of("locks.journal", "locks.journal.23"), journalFiles());
+            assertEquals(5L * ResourceAcquisitionJournal.RECORD_SIZE, Files.size(path));
+        }
+        TestScheduler restartScheduler = new TestScheduler();
+        try (var journal = new ResourceAcquisitionJournal<>(path, ResourceKeyCodec.int64(), 2, restartScheduler, SYNC_INTERVAL)) {
+            assertEquals(List.of(0L, 1L, 2L, 3L, 4L),
+                    journal.getRecoveredLeases().stream().map(ResourceAcquisitionJournal.Lease::resource).toList());
+            restartScheduler.triggerActions();
+            assertEquals(List.of("locks.journal", "locks.journal.24"), journalFiles());
+        }
+    }
+
+    @Test
+    public void testSegmentsLeftBehindByACompactionReplayToTheSameLeases() throws IOException {
+        Path path = directory.resolve("locks.journal");
+        Path first = directory.resolve("locks.journal.1");
+        TestScheduler syncScheduler = new TestScheduler();
+        try (var journal = new ResourceAcquisitionJournal<>(path, ResourceKeyCodec.utf8(), 1, syncScheduler, SYNC_INTERVAL)) {
+            journal.recordLock("Item1", "User1", 1L, 2L);
+            journal.recordLock("Item2", "User1", 1L, 2L);
+            journal.recordUnlock("Item1");
+            byte[] sealed = Files.readAllBytes(first);
+            syncScheduler.triggerActions();
+            assertEquals(List.of("locks.journal", "locks.journal.3"), journalFiles());
+            Files.write(first, sealed);
+        }
+        try (var journal = openJournal(path, ResourceKeyCodec.utf8(), 1)) {
+            assertEquals(List.of("Item2"), journal.getRecoveredLeases().stream().map(ResourceAcquisitionJournal.Lease::resource).toList());
+        }
+    }
+
+    @Test
+    public void testCommitReturnsOnceItsRecordsAreForced() throws IOException {
+        Path path = directory.resolve("locks.journal");
+        try (var journal = openJournal(path, ResourceKeyCodec.utf8(), 4);
+             var service = createService(new TestScheduler(), clockAt(0), journal)) {
+            service.commit(ResourceAcquisitionCommand.Lock, "User1", "Item1");
+            assertEquals(0, journal.unsyncedRecords());
+
+            journal.recordUnlock("Item1");
+            assertEquals(1, journal.unsyncedRecords());
+            journal.sync();
+            journal.sync();
+            assertEquals(0, journal.unsyncedRecords());
+        }
+    }
+
+    @Test
+    public void testCommitsThatJournalNothingDoNotWaitForOthersRecords() throws IOException {
+        Path path = directory.resolve("locks.journal");
+        try (var journal = openJournal(path, ResourceKeyCodec.utf8(), 4);
+             var service = createService(new TestScheduler(), clockAt(0), journal)) {
+            service.commit(ResourceAcquisitionCommand.Lock, "User1", "Item1");
+            journal.recordUnlock("Item2");
+
+            assertEquals(ResourceAcquisitionCommandResult.LockFailed,
+                    service.commit(ResourceAcquisitionCommand.Lock, "User2", "Item1").getCommitResult());
+            assertEquals(ResourceAcquisitionCommandResult.UnlockFailed,
+                    service.commit(ResourceAcquisitionCommand.Unlock, "User2", "Item1").getCommitResult());
+            assertEquals(1, journal.unsyncedRecords());
+
+            service.commit(ResourceAcquisitionCommand.Unlock, "User1", "Item1");
+            assertEquals(0, journal.unsyncedRecords());
+        }
+    }
+
+    @Test
+    public void testReplayStopsAtTornRecord() throws IOException {
+        Path path = directory.resolve("locks.journal");
+        try (var journal = openJournal(path, ResourceKeyCodec.utf8(), 4)) {
+            journal.recordLock("Item1", "User1", 1L, 2L);
+            journal.recordLock("Item2", "User1", 1L, 2L);
+            journal.recordLock("Item3", "User1", 1L, 2L);
+        }
+        try (FileChannel channel = FileChannel.open(directory.resolve("locks.journal.1"), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[] {42}), 2L * ResourceAcquisitionJournal.RECORD_SIZE + 100);
+        }
+        try (var journal = openJournal(path, ResourceKeyCodec.utf8(), 4)) {
+            assertEquals(List.of(new ResourceAcquisitionJournal.Lease<>("Item1", "User1", 1L, 2L)), journal.getRecoveredLeases());
+            journal.recordLock("Item4", "User1", 1L, 2L);
+        }
+        try (var journal = openJournal(path, ResourceKeyCodec.utf8(), 4)) {
+            assertEquals(List.of("Item1", "Item4"),
+                    journal.getRecoveredLeases().stream().map(ResourceAcquisitionJournal.Lease::resource).toList());
+        }
+    }
+
+    @Test
+    public void testRecordsThatDoNotFitAreRejectedBeforeStateChanges() throws IOException {
+        Path path = directory.resolve("locks.journal");
+        try (var service = createService(new TestScheduler(), clockAt(0), openJournal(path, ResourceKeyCodec.utf8(), 4))) {
+            String resource = "R".repeat(ResourceAcquisitionJournal.RECORD_SIZE);
+            assertThrows(IllegalArgumentException.class, () -> service.commit(ResourceAcquisitionCommand.Lock, "User1", resource));
+            assertEquals(ResourceAcquisitionCommandResult.UnlockFailed,
+                    service.commit(ResourceAcquisitionCommand.Unlock, "User1", resource).getCommitResult());
+        }
+    }
+
+    @Test
+    public void testAppendingToAFullSegmentRotatesToANewOne() throws IOException {
+        Path path = directory.resolve("locks.journal");
+        try (var journal = openJournal(path, ResourceKeyCodec.utf8(), 1)) {
+            Path blocked = Files.createDirectory(directory.resolve("locks.journal.2"));
+            journal.recordLock("Item1", "User1", 1L, 2L);
+            assertThrows(UncheckedIOException.class, () -> journal.recordLock("Item2", "User1", 1L, 2L));
+            Files.delete(blocked);
+            journal.recordLock("Item2", "User1", 1L, 2L);
+            assertEquals(List.of("locks.journal.1", "locks.journal.2"), journalFiles());
+        }
+        try (var journal = openJournal(path, ResourceKeyCodec.utf8(), 1)) {
+            assertEquals(List.of("Item1", "Item2"), journal.getRecoveredLeases().stream().map(ResourceAcquisitionJournal.Lease::resource).toList());
+        }
+    }
+
+    @Test
+    public void testDirtyJournalIsSyncedPeriodically() throws IOException {
+        TestScheduler syncScheduler = new TestScheduler();
+        Path path = directory.resolve("locks.journal");
+        try (var journal = new ResourceAcquisitionJournal<>(path, ResourceKeyCodec.utf8(), 4, syncScheduler, SYNC_INTERVAL)) {
+            syncScheduler.advanceTimeBy(10, TimeUnit.MILLISECONDS);
+            journal.recordLock("Item1", "User1", 1L, 2L);
+            syncScheduler.advanceTimeBy(10, TimeUnit.MILLISECONDS);
+            journal.sync();
+        }
+        try (var journal = new ResourceAcquisitionJournal<>(path, ResourceKeyCodec.utf8())) {
+            assertEquals(1, journal.getRecoveredLeases().size());
+        }
+    }
+
+    @Test
+    public void testForeignFilesAreRejected() throws IOException {
+        int recordSize = ResourceAcquisitionJournal.RECORD_SIZE;
+        Path tooSmall = directory.resolve("small");
+        writeFile(tooSmall, ByteBuffer.allocate(recordSize));
+        Path misaligned = directory.resolve("misaligned");
+        writeFile(misaligned, ByteBuffer.allocate(2 * recordSize + 1));
+        Path badMagic = directory.resolve("magic");
+        writeFile(badMagic, ByteBuffer.allocate(2 * recordSize));
+        Path badVersion = directory.resolve("version");
+        writeFile(badVersion, ByteBuffer.allocate(2 * recordSize).putInt(0, ResourceAcquisitionJournal.MAGIC));
+        Path badRecordSize = directory.resolve("record-size");
+        writeFile(badRecordSize, ByteBuffer.allocate(2 * recordSize)
+                .putInt(0, ResourceAcquisitionJournal.MAGIC)
+                .putInt(Integer.BYTES, ResourceAcquisitionJournal.VERSION));
+
+        for (Path path : List.of(tooSmall, misaligned, badMagic, badVersion, badRecordSize)) {
+            assertThrows(IOException.class, () -> openJournal(path, ResourceKeyCodec.utf8(), 4));
+        }
+    }
+
+    @Test
+    public void testInvalidConfigurationIsRejected() {
+        Path path = directory.resolve("locks.journal");
+        TestScheduler scheduler = new TestScheduler();
+        assertThrows(IllegalArgumentException.class,
+                () -> new ResourceAcquisitionJournal<>(path, ResourceKeyCodec.utf8(), 0, scheduler, SYNC_INTERVAL));
+        assertThrows(IllegalArgumentException.class,
+                () -> new ResourceAcquisitionJournal<>(path, ResourceKeyCodec.utf8(), 4, scheduler, new TimeSpan(0, TimeUnit.MILLISECONDS)));
+    }
+
+    @Test
+    public void testFailedCompactionLeavesTheSegmentsForTheNextOne() throws IOException {
+        Path path = directory.resolve("locks.journal");
+        Files.createDirectory(directory.resolve("locks.journal.compact"));
+        TestScheduler syncScheduler = new TestScheduler();
+        try (var journal = new ResourceAcquisitionJournal<>(path, ResourceKeyCodec.utf8(), 1, syncScheduler, SYNC_INTERVAL)) {
+            journal.recordLock("Item1", "User1", 1L, 2L);
+            journal.recordUnlock("Item1");
+            syncScheduler.triggerActions();
+            assertNotNull(journal.compactionFailure());
+            assertEquals(List.of("locks.journal.1", "locks.journal.2"), journalFiles());
+
+            journal.recordLock("Item2", "User1", 1L, 2L);
+            syncScheduler.triggerActions();
+            assertNull(journal.compactionFailure());
+            assertEquals(List.of("locks.journal", "locks.journal.3"), journalFiles());
+        }
+        try (var journal = openJournal(path, ResourceKeyCodec.utf8(), 1)) {
+            assertEquals(List.of("Item2"), journal.getRecoveredLeases().stream().map(ResourceAcquisitionJournal.Lease::resource).toList());
+        }
+    }
+
+    @Test
+    public void testCompactionFailuresAreRecordedWithTheirCleanup() throws IOException {
+        Path path = directory.resolve("locks.journal");
+        Path blocked = Files.createDirectory(directory.resolve("locks.journal.compact"));
+        Files.createFile(blocked.resolve("stale"));
+        TestScheduler syncScheduler = new TestScheduler();
+        try (var journal = new ResourceAcquisitionJournal<>(path, ResourceKeyCodec.utf8(), 1, syncScheduler, SYNC_INTERVAL)) {
+            journal.recordLock("Item1", "User1", 1L, 2L);
+            journal.recordLock("Item2", "User1", 1L, 2L);
+            syncScheduler.triggerActions();
+            assertEquals(1, journal.compactionFailure().getSuppressed().length);
+            assertEquals(List.of("locks.journal.1", "locks.journal.2", "locks.journal.compact"), journalFiles());
+
+            // A sealed segment that cannot be deleted once the new base is durable is only a stale file.
+            Files.delete(blocked.resolve("stale"));
+            Files.delete(blocked);
+            Path first = directory.resolve("locks.journal.1");
+            Files.delete(first);
+            Files.createFile(Files.createDirectory(first).resolve("stale"));
+            journal.recordLock("Item3", "User1", 1L, 2L);
+            syncScheduler.triggerActions();
+            assertNotNull(journal.compactionFailure());
+            assertEquals(List.of("locks.journal", "locks.journal.1", "locks.journal.3"), journalFiles());
+        }
+    }
+
+    @Test
+    public void testCompactionAfterCloseLeavesTheFilesAlone() throws IOException {
+        Path path = directory.resolve("locks.journal");
+        var journal = openJournal(path, ResourceKeyCodec.utf8(), 1);
+        journal.recordLock("Item1", "User1", 1L, 2L);
+        journal.recordUnlock("Item1");
+        journal.close();
+        journal.compact();
+        assertEquals(List.of("locks.journal.1", "locks.journal.2"), journalFiles());
+    }
+
+    @Test
+    public void testPromotedLeasesAreJournaled() throws IOException {
+        Path path = directory.resolve("locks.journal");
+        long now = START.toEpochMilli();
+        try (var service = createService(new TestScheduler(), clockAt(0), openJournal(path, ResourceKeyCodec.utf8(), 4))) {
+            assertEquals(1, service.restoreLeases(List.of(
+                    new ResourceAcquisitionJournal.Lease<>("Item1", "User1", now, now + 1_000),
+                    new ResourceAcquisitionJournal.Lease<>("Item2", "User1", now - 1_000, now)), 0L));
+        }
+        try (var journal = openJournal(path, ResourceKeyCodec.utf8(), 4)) {
+            assertEquals(List.of(new ResourceAcquisitionJournal.Lease<>("Item1", "User1", now, now + 1_000)), journal.getRecoveredLeases());
+        }
+    }
+
+    @Test
+    public void testPublicConstructorRestoresJournaledLeases() throws IOException {
+        Path path = directory.resolve("locks.journal");
+        TestScheduler scheduler = new TestScheduler();
+        var meter = MeterProvider.noop().get(ResourceAcquisitionMetrics.METER_NAME);
+        try (var service = new SimpleResourceAcquisitionService<>(scheduler, TimeSpan.Default, meter, openJournal(path, ResourceKeyCodec.int64(), 4))) {
+            service.commit(ResourceAcquisitionCommand.Lock, "User1", 7L);
+        }
+        try (var service = new SimpleResourceAcquisitionService<>(scheduler, TimeSpan.Default, meter, openJournal(path, ResourceKeyCodec.int64(), 4))) {
+            assertEquals(ResourceAcquisitionCommandResult.LockFailed,
+                    service.commit(ResourceAcquisitionCommand.Lock, "User2", 7L).getCommitResult());
+        }
+    }
+}
@@ -0,0 +1,368 @@
+package ras;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ByteChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+import io.opentelemetry.sdk.metrics.SdkMeterProvider;
+import io.opentelemetry.sdk.metrics.data.HistogramPointData;
+import io.opentelemetry.sdk.metrics.data.MetricData;
+import io.opentelemetry.sdk.testing.exporter.InMemoryMetricReader;
+import io.reactivex.rxjava3.schedulers.TestScheduler;
+
+public class ResourceAcquisitionReplicationTest {
+
+    private static final InetSocketAddress LOOPBACK = new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2026-01-01T00:00:00Z"), ZoneOffset.UTC);
+    private static final TimeSpan WAIT_TIMEOUT = new TimeSpan(5, TimeUnit.SECONDS);
+
+    private static SimpleResourceAcquisitionService<String> createService(final TestScheduler scheduler, final ResourceAcquisitionMetrics metrics) {
+        return createService(scheduler, metrics, CLOCK);
+    }
+
+    private static SimpleResourceAcquisitionService<String> createService(final TestScheduler scheduler,
+                                                                          final ResourceAcquisitionMetrics metrics,
+                                                                          final Clock clock) {
+        return new SimpleResourceAcquisitionService<>(
+                new SimpleResourceAcquisitionService.RxAutoUnlockScheduler(scheduler), TimeSpan.Default, clock, metrics);
+    }
+
+    // Returns the primary's end first and the standby's end second.
+    private static SocketChannel[] connectedPair() throws IOException {
+        try (ServerSocketChannel server = ServerSocketChannel.open().bind(LOOPBACK)) {
+            SocketChannel standbyEnd = SocketChannel.open(server.getLocalAddress());
+            return new SocketChannel[] {server.accept(), standbyEnd};
+        }
+    }
+
+    @Test
+    public void testAStandbyTakesOverAcknowledgedLeasesWhenThePrimaryGoesAway() throws IOException {
+        InMemoryMetricReader metricReader = InMemoryMetricReader.create();
+        SdkMeterProvider meterProvider = SdkMeterProvider.builder().registerMetricReader(metricReader).build();
+        List<Double> lagBuckets = List.of(0.001, 0.01, 0.1);
+        ResourceAcquisitionMetrics metrics = new ResourceAcquisitionMetrics(
+                meterProvider.get(ResourceAcquisitionMetrics.METER_NAME),
+                ResourceAcquisitionMetrics.DEFAULT_COMMIT_DURATION_BUCKETS,
+                ResourceAcquisitionMetrics.DEFAULT_HOLD_DURATION_BUCKETS,
+                ResourceAcquisitionMetrics.DEFAULT_EXPIRY_LAG_BUCKETS,
+                lagBuckets);
+        TestScheduler primaryScheduler = new TestScheduler();
+        SocketChannel[] pair = connectedPair();
+        ResourceAcquisitionStandby<String> standby = new ResourceAcquisitionStandby<>(pair[1], ResourceKeyCodec.utf8());
+        try (SimpleResourceAcquisitionService<String> primary = createService(primaryScheduler, metrics)) {
+            // Leases taken before the standby connects reach it with the initial state.
+            for (int i = 0; i < 200; i++) {
+                primary.commit(ResourceAcquisitionCommand.Lock, "User1", "Item" + i);
+            }
+            // A synchronous standby acknowledges every commit before it returns, so no barrier is needed.
+            primary.replicateTo(pair[0], ResourceKeyCodec.utf8(), WAIT_TIMEOUT);
+            assertEquals(200, standby.leaseCount());
+
+            primaryScheduler.advanceTimeBy(30, TimeUnit.SECONDS);
+            primary.commit(ResourceAcquisitionCommand.Lock, "User2", "Item0");
+            primary.commit(ResourceAcquisitionCommand.Lock, "User2", "Item1");
+            primary.commit(ResourceAcquisitionCommand.Unlock, "User2", "Item1");
+            primary.commit(ResourceAcquisitionCommand.Lock, "User3", "Item2");
+            primary.commit(ResourceAcquisitionCommand.Lock, "User3", "Item2");
+            primary.lockAll("User4", List.of("Item3", "Item4"));
+            primary.releaseAll("User4");
+            primary.lockShared("Reader", "Item5");
+            assertEquals(2, standby.leaseCount());
+        }
+
+        TestScheduler backupScheduler = new TestScheduler();
+        try (SimpleResourceAcquisitionService<String> backup = createService(backupScheduler, ResourceAcquisitionMetrics.createDefault())) {
+            assertEquals(2, standby.promote(backup));
+            assertNull(standby.failure());
+            assertEquals("User2", backup.holderOf("Item0").getUserName());
+            assertEquals("User3", backup.holderOf("Item2").getUserName());
+            assertEquals(ResourceAcquisitionCommandResult.LockFailed,
+                    backup.commit(ResourceAcquisitionCommand.Lock, "User1", "Item0").getCommitResult());
+            backupScheduler.advanceTimeBy(30, TimeUnit.SECONDS);
+            assertFalse(backup.isLocked("Item0"));
+            assertFalse(backup.isLocked("Item2"));
+        }
+
+        HistogramPointData lag = metricReader.collectAllMetrics().stream()
+                .filter(metric -> metric.getName().equals(ResourceAcquisitionMetrics.REPLICATION_LAG_METRIC_NAME))
+                .map(MetricData::getHistogramData)
+                .findFirst().orElseThrow()
+                .getPoints().iterator().next();
+        meterProvider.close();
+        assertEquals(lagBuckets, lag.getBoundaries());
+        assertTrue(lag.getCount() >= 2);
+    }
+
+    @Test
+    public void testAPromotedStandbyIssuesTokensAboveThePrimarys() throws IOException {
+        // The standby's clock runs behind, so tokens seeded from it alone would repeat the primary's.
+        Clock standbyClock = Clock.offset(CLOCK, Duration.ofMinutes(-1));
+        SocketChannel[] pair = connectedPair();
+        ResourceAcquisitionStandby<String> standby = new ResourceAcquisitionStandby<>(pair[1], ResourceKeyCodec.utf8());
+        long primaryToken;
+        try (SimpleResourceAcquisitionService<String> primary = createService(new TestScheduler(), ResourceAcquisitionMetrics.createDefault())) {
+            primary.replicateTo(pair[0], ResourceKeyCodec.utf8());
+            primaryToken = primary.commit(ResourceAcquisitionCommand.Lock, "User1", "Item1").getFencingToken();
+            primary.commit(ResourceAcquisitionCommand.Lock, "User1", "Item2");
+            primary.commit(ResourceAcquisitionCommand.Unlock, "User1", "Item2");
+            assertTrue(primary.awaitReplication(WAIT_TIMEOUT));
+        }
+        try (SimpleResourceAcquisitionService<String> backup = createService(new TestScheduler(), ResourceAcquisitionMetrics.createDefault(), standbyClock)) {
+            assertEquals(1, standby.promote(backup));
+            assertTrue(backup.commit(ResourceAcquisitionCommand.Lock, "User2", "Item2").getFencingToken() > primaryToken + 1);
+        }
+    }
+
+    @Test
+    public void testAStandbyThatDisconnectsIsDropped() throws IOException, InterruptedException {
+        try (SimpleResourceAcquisitionService<String> primary = createService(new TestScheduler(), ResourceAcquisitionMetrics.createDefault())) {
+            SocketChannel[] pair = connectedPair();
+            pair[1].close();
+            primary.replicateTo(pair[0], ResourceKeyCodec.utf8());
+            primary.commit(ResourceAcquisitionCommand.Lock, "User1", "Item1");
+
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (!primary.awaitReplication(new TimeSpan(0, TimeUnit.MILLISECONDS)) && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertTrue(primary.awaitReplication(new TimeSpan(0, TimeUnit.MILLISECONDS)));
+            assertEquals(ResourceAcquisitionCommandResult.UnlockSucceeded,
+                    primary.commit(ResourceAcquisitionCommand.Unlock, "User1", "Item1").getCommitResult());
+        }
+    }
+
+    @Test
+    public void testWaitingForAnUnresponsiveStandbyTimesOutOrStops() throws IOException, InterruptedException {
+        SocketChannel[] pair = connectedPair();
+        try {
+            SimpleResourceAcquisitionService<String> primary = createService(new TestScheduler(), ResourceAcquisitionMetrics.createDefault());
+            primary.replicateTo(pair[0], ResourceKeyCodec.utf8());
+            primary.commit(ResourceAcquisitionCommand.Lock, "User1", "Item1");
+            assertFalse(primary.awaitReplication(new TimeSpan(50, TimeUnit.MILLISECONDS)));
+
+            Thread.currentThread().interrupt();
+            assertFalse(primary.awaitReplication(WAIT_TIMEOUT));
+            assertTrue(Thread.interrupted());
+
+            AtomicBoolean replicated = new AtomicBoolean(true);
+            Thread waiter = new Thread(() -> replicated.set(primary.awaitReplication(WAIT_TIMEOUT)));
+            waiter.start();
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (waiter.getState() != Thread.State.TIMED_WAITING && System.nanoTime() < deadline) {
+                Thread.onSpinWait();
+            }
+            primary.close();
+            waiter.join();
+            assertFalse(replicated.get());
+        } finally {
+            pair[1].close();
+        }
+    }
+
+    @Test
+    public void testASynchronousStandbyThatMissesItsAckTimeoutIsDropped() throws IOException {
+        TimeSpan ackTimeout = new TimeSpan(50, TimeUnit.MILLISECONDS);
+        SocketChannel[] pair = connectedPair();
+        try (SimpleResourceAcquisitionService<String> primary = createService(new TestScheduler(), ResourceAcquisitionMetrics.createDefault())) {
+            assertThrows(NullPointerException.class, () -> primary.replicateTo(pair[0], ResourceKeyCodec.utf8(), null));
+            assertThrows(IllegalArgumentException.class,
+                    () -> primary.replicateTo(pair[0], ResourceKeyCodec.utf8(), new TimeSpan(0, TimeUnit.MILLISECONDS)));
+
+            // The standby end acknowledges the initial reset by hand and then goes quiet.
+            pair[1].write(ByteBuffer.allocate(Long.BYTES).putLong(0, 1L));
+            primary.replicateTo(pair[0], ResourceKeyCodec.utf8(), ackTimeout);
+
+            // The change stays applied, and an interrupt neither cuts the wait short nor gets lost.
+            Thread.currentThread().interrupt();
+            assertThrows(IllegalStateException.class, () -> primary.commit(ResourceAcquisitionCommand.Lock, "User1", "Item1"));
+            assertTrue(Thread.interrupted());
+            assertTrue(primary.isLocked("Item1"));
+            assertTrue(primary.awaitReplication(new TimeSpan(0, TimeUnit.MILLISECONDS)));
+            assertEquals(ResourceAcquisitionCommandResult.UnlockSucceeded,
+                    primary.commit(ResourceAcquisitionCommand.Unlock, "User1", "Item1").getCommitResult());
+        } finally {
+            pair[1].close();
+        }
+    }
+
+    @Test
+    public void testASynchronousStandbyThatNeverCatchesUpIsNotAttached() throws IOException {
+        SocketChannel[] pair = connectedPair();
+        try (SimpleResourceAcquisitionService<String> primary = createService(new TestScheduler(), ResourceAcquisitionMetrics.createDefault())) {
+            assertThrows(IllegalStateException.class,
+                    () -> primary.replicateTo(pair[0], ResourceKeyCodec.utf8(), new TimeSpan(50, TimeUnit.MILLISECONDS)));
+            assertTrue(primary.awaitReplication(new TimeSpan(0, TimeUnit.MILLISECONDS)));
+            assertEquals(ResourceAcquisitionCommandResult.LockSucceeded,
+                    primary.commit(ResourceAcquisitionCommand.Lock, "User1", "Item1").getCommitResult());
+        } finally {
+            pair[1].close();
+        }
+    }
+
+    @Test
+    public void testAStandbyWhoseBacklogOutgrowsTheCapIsDropped() throws IOException, InterruptedException {
+        SocketChannel[] pair = connectedPair();
+        try (SimpleResourceAcquisitionService<String> primary = createService(new TestScheduler(), ResourceAcquisitionMetrics.createDefault())) {
+            // The standby never acknowledges, so every change after the initial reset piles up.
+            primary.replicateTo(pair[0], ResourceKeyCodec.utf8(), 0L, 256);
+            for (int i = 0; i < 10; i++) {
+                primary.commit(ResourceAcquisitionCommand.Lock, "User1", "Item" + i);
+            }
+
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (!primary.awaitReplication(new TimeSpan(0, TimeUnit.MILLISECONDS)) && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertTrue(primary.awaitReplication(new TimeSpan(0, TimeUnit.MILLISECONDS)));
+            assertTrue(primary.isLocked("Item9"));
+        } finally {
+            pair[1].close();
+        }
+    }
+
+    @Test
+    public void testAReplicatorRefusesRecordsPastItsCap() throws IOException, InterruptedException {
+        CountDownLatch failed = new CountDownLatch(1);
+        SocketChannel[] pair = connectedPair();
+        try (ResourceAcquisitionReplicator<String> replica = new ResourceAcquisitionReplicator<>(
+                pair[0], ResourceKeyCodec.utf8(), ResourceAcquisitionMetrics.createDefault(),
+                List.of(new ResourceAcquisitionJournal.Lease<>("Item1", "User1", 0L, 0L)), 0L, 1L, 0L, 8,
+                replicator -> failed.countDown())) {
+            replica.recordLock("Item2", "User1", 0L, 0L, 0L, 2L);
+            replica.recordUnlock("Item1", 3L);
+            assertEquals(0, replica.appendedSequence());
+            assertTrue(failed.await(5, TimeUnit.SECONDS));
+            assertFalse(replica.awaitAcknowledged(1L, System.nanoTime()));
+            assertFalse(replica.awaitChange(2L));
+        } finally {
+            pair[1].close();
+        }
+    }
+
+    // Sends one frame holding the records and returns the standby once it has stopped following.
+    private static ResourceAcquisitionStandby<String> followCorruptFrame(final byte[] records) throws IOException {
+        SocketChannel[] pair = connectedPair();
+        try {
+            ResourceAcquisitionStandby<String> standby = new ResourceAcquisitionStandby<>(pair[1], ResourceKeyCodec.utf8());
+            ByteBuffer frame = ByteBuffer.allocate(ResourceAcquisitionReplicator.HEADER_SIZE + records.length)
+                    .putInt(Long.BYTES + records.length)
+                    .putLong(1L)
+                    .put(records)
+                    .flip();
+            while (frame.hasRemaining()) {
+                pair[0].write(frame);
+            }
+            // The standby never acknowledges the frame and closes the connection instead.
+            assertEquals(-1, pair[0].read(ByteBuffer.allocate(Long.BYTES)));
+            return standby;
+        } finally {
+            pair[0].close();
+        }
+    }
+
+    @Test
+    public void testAStandbyRefusesToPromoteAfterACorruptFrame() throws IOException {
+        byte[] truncatedLock = {ResourceAcquisitionReplicator.LOCK, 0, 0, 0, 100};
+        byte[] resetThenUnknown = {ResourceAcquisitionReplicator.RESET, 0, 0, 0, 0, 0, 0, 0, 0, 9};
+        for (byte[] records : List.of(truncatedLock, resetThenUnknown)) {
+            ResourceAcquisitionStandby<String> standby = followCorruptFrame(records);
+            try (SimpleResourceAcquisitionService<String> backup = createService(new TestScheduler(), ResourceAcquisitionMetrics.createDefault())) {
+                IOException promoted = assertThrows(IOException.class, () -> standby.promote(backup));
+                assertSame(standby.failure(), promoted.getCause());
+                assertFalse(backup.isLocked("Item1"));
+            }
+        }
+        assertEquals("unknown replication record type 9", followCorruptFrame(resetThenUnknown).failure().getMessage());
+    }
+
+    @Test
+    public void testAStandbyCanBeClosedWithoutPromotion() throws IOException {
+        // A primary that only goes away when released, so the follower is still running when close waits for it.
+        CountDownLatch released = new CountDownLatch(1);
+        ByteChannel stuckPrimary = new ByteChannel() {
+            @Override
+            public int read(final ByteBuffer buffer) {
+                try {
+                    released.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return -1;
+            }
+
+            @Override
+            public int write(final ByteBuffer buffer) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public boolean isOpen() {
+                return true;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        ResourceAcquisitionStandby<String> standby = new ResourceAcquisitionStandby<>(stuckPrimary, ResourceKeyCodec.utf8());
+        try {
+            Thread.currentThread().interrupt();
+            standby.close();
+            assertTrue(Thread.interrupted());
+            assertEquals(0, standby.leaseCount());
+        } finally {
+            released.countDown();
+        }
+        standby.close();
+    }
+
+    @Test
+    public void testAStandbyStopsFollowingAtTheEndOfTheStream() throws IOException, InterruptedException {
+        CountDownLatch drained = new CountDownLatch(1);
+        ByteChannel finishedPrimary = new ByteChannel() {
+            @Override
+            public int read(final ByteBuffer buffer) {
+                drained.countDown();
+                return -1;
+            }
+
+            @Override
+            public int write(final ByteBuffer buffer) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public boolean isOpen() {
+                return true;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        ResourceAcquisitionStandby<String> standby = new ResourceAcquisitionStandby<>(finishedPrimary, ResourceKeyCodec.utf8());
+        assertTrue(drained.await(5, TimeUnit.SECONDS));
+        standby.close();
+        assertEquals(0, standby.leaseCount());
+    }
+}
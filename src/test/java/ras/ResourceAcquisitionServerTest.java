@@ -0,0 +1,267 @@
+package ras;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.BindException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+import io.reactivex.rxjava3.schedulers.TestScheduler;
+
+public class ResourceAcquisitionServerTest {
+
+    private static final InetSocketAddress LOOPBACK = new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2026-01-01T00:00:00Z"), ZoneOffset.UTC);
+
+    private static SimpleResourceAcquisitionService<String> createService() {
+        return new SimpleResourceAcquisitionService<>(
+                new SimpleResourceAcquisitionService.RxAutoUnlockScheduler(new TestScheduler()), TimeSpan.Default, CLOCK, ResourceAcquisitionMetrics.createDefault());
+    }
+
+    private static SocketChannel connect(final ResourceAcquisitionServer<String> server) throws IOException {
+        return SocketChannel.open(server.getLocalAddress());
+    }
+
+    private static ByteBuffer request(final ResourceAcquisitionCommand command, final String userName, final String resource) {
+        return ResourceAcquisitionProtocol.writeRequest(
+                ByteBuffer.allocate(64), new ResourceAcquisitionRequest<>(command, userName, resource), ResourceKeyCodec.utf8()).flip();
+    }
+
+    private static void assertClosedByServer(final SocketChannel channel, final ByteBuffer frame) throws IOException {
+        channel.write(frame);
+        assertEquals(-1, channel.read(ByteBuffer.allocate(64)));
+    }
+
+    private static void assertSameResponse(final ResourceAcquisitionResponse expected, final ResourceAcquisitionResponse actual) {
+        assertEquals(expected.getCommitResult(), actual.getCommitResult());
+        assertEquals(expected.getResource().getUserName(), actual.getResource().getUserName());
+        assertEquals(expected.getResource().getState(), actual.getResource().getState());
+        assertEquals(expected.getResource().getUtcTimeStamp(), actual.getResource().getUtcTimeStamp());
+        assertEquals(expected.getResource().getStateTimeout(), actual.getResource().getStateTimeout());
+        assertEquals(expected.getFencingToken(), actual.getFencingToken());
+    }
+
+    @Test
+    public void testCommitsTravelToTheServerAndBack() throws IOException {
+        try (SimpleResourceAcquisitionService<String> service = createService();
+             ResourceAcquisitionServer<String> server = new ResourceAcquisitionServer<>(service, ResourceKeyCodec.utf8(), LOOPBACK);
+             ResourceAcquisitionClient<String> client = new ResourceAcquisitionClient<>(server.getLocalAddress(), ResourceKeyCodec.utf8())) {
+            ResourceAcquisitionResponse locked = client.commit(ResourceAcquisitionCommand.Lock, "User1", "Item1");
+            assertEquals(ResourceAcquisitionCommandResult.LockSucceeded, locked.getCommitResult());
+            assertEquals("User1", locked.getResource().getUserName());
+            assertEquals(ResourceAcquisitionState.Locked, locked.getResource().getState());
+            assertEquals(TimeSpan.Default, locked.getResource().getStateTimeout());
+            assertEquals(new TimeSpan(CLOCK.millis(), TimeUnit.MILLISECONDS), locked.getResource().getUtcTimeStamp());
+            assertNotEquals(ResourceAcquisitionResponse.NO_FENCING_TOKEN, locked.getFencingToken());
+
+            ResourceAcquisitionResponse failed = client.commit(ResourceAcquisitionCommand.Lock, "User2", "Item1");
+            assertEquals(ResourceAcquisitionCommandResult.LockFailed, failed.getCommitResult());
+            assertEquals("User1", failed.getResource().getUserName());
+            assertEquals(List.of("Item1"), service.locksHeldBy("User1"));
+            assertEquals(List.of(), client.commitAll(List.of()));
+        }
+    }
+
+    @Test
+    public void testPipelinedBatchesMatchSequentialCommits() throws IOException {
+        List<ResourceAcquisitionRequest<String>> requests = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            ResourceAcquisitionCommand command = i % 3 == 2 ? ResourceAcquisitionCommand.Unlock : ResourceAcquisitionCommand.Lock;
+            requests.add(new ResourceAcquisitionRequest<>(command, "User" + i % 7, "Item" + i % 11));
+        }
+        try (SimpleResourceAcquisitionService<String> expected = createService();
+             SimpleResourceAcquisitionService<String> service = createService();
+             ResourceAcquisitionServer<String> server = new ResourceAcquisitionServer<>(service, ResourceKeyCodec.utf8(), LOOPBACK);
+             ResourceAcquisitionClient<String> client = new ResourceAcquisitionClient<>(server.getLocalAddress(), ResourceKeyCodec.utf8())) {
+            List<ResourceAcquisitionResponse> responses = client.commitAll(requests);
+            assertEquals(requests.size(), responses.size());
+            for (int i = 0; i < requests.size(); i++) {
+                ResourceAcquisitionRequest<String> request = requests.get(i);
+                assertSameResponse(expected.commit(request.getCommand(), request.getUserName(), request.getResource()), responses.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void testLongFieldsGrowTheBuffersAndOversizedOnesAreRejected() throws IOException {
+        String longName = "U".repeat(ResourceAcquisitionProtocol.MAX_FIELD_LENGTH);
+        String longKey = "K".repeat(ResourceAcquisitionProtocol.MAX_FIELD_LENGTH);
+        try (SimpleResourceAcquisitionService<String> service = createService();
+             ResourceAcquisitionServer<String> server = new ResourceAcquisitionServer<>(service, ResourceKeyCodec.utf8(), LOOPBACK);
+             ResourceAcquisitionClient<String> client = new ResourceAcquisitionClient<>(server.getLocalAddress(), ResourceKeyCodec.utf8())) {
+            List<ResourceAcquisitionResponse> responses = client.commitAll(List.of(
+                    new ResourceAcquisitionRequest<>(ResourceAcquisitionCommand.Lock, longName, longKey),
+                    new ResourceAcquisitionRequest<>(ResourceAcquisitionCommand.Lock, "User2", longKey)));
+            assertEquals(ResourceAcquisitionCommandResult.LockSucceeded, responses.get(0).getCommitResult());
+            assertEquals(longName, responses.get(1).getResource().getUserName());
+
+            assertThrows(IllegalArgumentException.class, () -> client.commit(ResourceAcquisitionCommand.Lock, longName + "U", "Item1"));
+            assertEquals(ResourceAcquisitionCommandResult.LockSucceeded,
+                    client.commit(ResourceAcquisitionCommand.Lock, "User1", "Item1").getCommitResult());
+        }
+    }
+
+    @Test
+    public void testAClientThatStopsReadingIsNotReadUntilItsResponsesDrain() throws Exception {
+        // Responses this large outgrow every socket buffer long before the requests are all sent.
+        String userName = "U".repeat(1_000);
+        AtomicInteger commits = new AtomicInteger();
+        ResourceAcquisitionResponse granted = new ResourceAcquisitionResponse(ResourceAcquisitionCommandResult.LockSucceeded,
+                AcquiredResource.createNew(userName, ResourceAcquisitionState.Locked, TimeSpan.Default, CLOCK), 1);
+        ResourceAcquisitionService<String> service = (command, user, resource) -> {
+            commits.incrementAndGet();
+            return granted;
+        };
+        int count = 20_000;
+        try (ResourceAcquisitionServer<String> server = new ResourceAcquisitionServer<>(service, ResourceKeyCodec.utf8(), LOOPBACK);
+             SocketChannel channel = SocketChannel.open()) {
+            channel.setOption(StandardSocketOptions.SO_RCVBUF, 4096);
+            channel.connect(server.getLocalAddress());
+            ByteBuffer buffer = ByteBuffer.allocate(64);
+            for (int i = 0; i < count; i++) {
+                buffer = ResourceAcquisitionProtocol.writeRequest(buffer,
+                        new ResourceAcquisitionRequest<>(ResourceAcquisitionCommand.Lock, userName, "Item" + i), ResourceKeyCodec.utf8());
+            }
+            ByteBuffer requests = buffer.flip();
+            Thread writer = new Thread(() -> ResourceAcquisitionProtocol.unchecked(() -> channel.write(requests)));
+            writer.start();
+
+            int stalled;
+            do {
+                stalled = commits.get();
+                Thread.sleep(200);
+            } while (stalled == 0 || stalled != commits.get());
+            assertTrue(stalled < count);
+
+            ByteBuffer responses = ByteBuffer.allocate(ResourceAcquisitionProtocol.BUFFER_SIZE);
+            int received = 0;
+            while (received < count) {
+                assertNotEquals(-1, channel.read(responses));
+                responses.flip();
+                while (ResourceAcquisitionProtocol.hasFrame(responses)) {
+                    assertEquals(userName, ResourceAcquisitionProtocol.readResponse(responses).getResource().getUserName());
+                    received++;
+                }
+                responses = ResourceAcquisitionProtocol.compact(responses);
+            }
+            writer.join();
+            assertEquals(count, commits.get());
+        }
+    }
+
+    @Test
+    public void testMalformedFramesCloseOnlyTheirConnection() throws IOException {
+        try (SimpleResourceAcquisitionService<String> service = createService();
+             ResourceAcquisitionServer<String> server = new ResourceAcquisitionServer<>(service, ResourceKeyCodec.utf8(), LOOPBACK);
+             ResourceAcquisitionClient<String> client = new ResourceAcquisitionClient<>(server.getLocalAddress(), ResourceKeyCodec.utf8())) {
+            try (SocketChannel channel = connect(server)) {
+                assertClosedByServer(channel, ByteBuffer.allocate(4).putInt(ResourceAcquisitionProtocol.MAX_FRAME_LENGTH + 1).flip());
+            }
+            try (SocketChannel channel = connect(server)) {
+                assertClosedByServer(channel, ByteBuffer.allocate(4).putInt(-1).flip());
+            }
+            try (SocketChannel channel = connect(server)) {
+                ByteBuffer frame = request(ResourceAcquisitionCommand.Lock, "User1", "Item1");
+                frame.put(Integer.BYTES, (byte) ResourceAcquisitionCommand.values().length);
+                assertClosedByServer(channel, frame);
+            }
+            try (SocketChannel channel = connect(server)) {
+                ByteBuffer request = request(ResourceAcquisitionCommand.Lock, "User1", "Item1");
+                ByteBuffer frame = ByteBuffer.allocate(request.remaining() + 1).put(request).put((byte) 0).flip();
+                frame.putInt(0, frame.remaining() - Integer.BYTES);
+                assertClosedByServer(channel, frame);
+            }
+            try (SocketChannel channel = connect(server)) {
+                channel.shutdownOutput();
+                assertEquals(-1, channel.read(ByteBuffer.allocate(64)));
+            }
+            assertEquals(ResourceAcquisitionCommandResult.LockSucceeded,
+                    client.commit(ResourceAcquisitionCommand.Lock, "User1", "Item1").getCommitResult());
+            assertEquals(List.of("Item1"), service.locksHeldBy("User1"));
+        }
+    }
+
+    @Test
+    public void testAFailingServiceDropsTheConnection() throws IOException {
+        ResourceAcquisitionService<String> service = (command, userName, resource) -> {
+            throw new IllegalStateException("service is down");
+        };
+        try (ResourceAcquisitionServer<String> server = new ResourceAcquisitionServer<>(service, ResourceKeyCodec.utf8(), LOOPBACK);
+             ResourceAcquisitionClient<String> client = new ResourceAcquisitionClient<>(server.getLocalAddress(), ResourceKeyCodec.utf8())) {
+            UncheckedIOException error = assertThrows(UncheckedIOException.class,
+                    () -> client.commit(ResourceAcquisitionCommand.Lock, "User1", "Item1"));
+            assertInstanceOf(EOFException.class, error.getCause());
+            error = assertThrows(UncheckedIOException.class, () -> client.commit(ResourceAcquisitionCommand.Lock, "User1", "Item1"));
+            assertInstanceOf(ClosedChannelException.class, error.getCause());
+        }
+    }
+
+    @Test
+    public void testASilentServerTimesOutAndClosesTheClient() throws IOException {
+        try (ServerSocketChannel silent = ServerSocketChannel.open().bind(LOOPBACK);
+             ResourceAcquisitionClient<String> client = new ResourceAcquisitionClient<>(
+                     (InetSocketAddress) silent.getLocalAddress(), ResourceKeyCodec.utf8(), new TimeSpan(100, TimeUnit.MILLISECONDS))) {
+            UncheckedIOException error = assertThrows(UncheckedIOException.class,
+                    () -> client.commit(ResourceAcquisitionCommand.Lock, "User1", "Item1"));
+            assertInstanceOf(SocketTimeoutException.class, error.getCause());
+            error = assertThrows(UncheckedIOException.class, () -> client.commitAll(List.of()));
+            assertInstanceOf(ClosedChannelException.class, error.getCause());
+        }
+        assertThrows(IllegalArgumentException.class,
+                () -> new ResourceAcquisitionClient<>(LOOPBACK, ResourceKeyCodec.utf8(), new TimeSpan(999, TimeUnit.MICROSECONDS)));
+    }
+
+    @Test
+    public void testAConnectionThatCannotBeSetUpIsClosedOnItsOwn() throws IOException {
+        try (SimpleResourceAcquisitionService<String> service = createService();
+             ResourceAcquisitionServer<String> server = new ResourceAcquisitionServer<>(service, ResourceKeyCodec.utf8(), LOOPBACK);
+             ResourceAcquisitionClient<String> client = new ResourceAcquisitionClient<>(server.getLocalAddress(), ResourceKeyCodec.utf8())) {
+            SocketChannel channel = SocketChannel.open();
+            channel.close();
+            server.register(channel);
+            assertFalse(channel.isOpen());
+            assertEquals(ResourceAcquisitionCommandResult.LockSucceeded,
+                    client.commit(ResourceAcquisitionCommand.Lock, "User1", "Item1").getCommitResult());
+        }
+    }
+
+    @Test
+    public void testABoundPortIsReported() throws IOException {
+        try (SimpleResourceAcquisitionService<String> service = createService();
+             ResourceAcquisitionServer<String> server = new ResourceAcquisitionServer<>(service, ResourceKeyCodec.utf8(), LOOPBACK)) {
+            assertThrows(BindException.class, () -> new ResourceAcquisitionServer<>(service, ResourceKeyCodec.utf8(), server.getLocalAddress()));
+        }
+    }
+
+    @Test
+    public void testAnInterruptedCloseKeepsTheInterrupt() throws IOException {
+        try (SimpleResourceAcquisitionService<String> service = createService()) {
+            ResourceAcquisitionServer<String> server = new ResourceAcquisitionServer<>(service, ResourceKeyCodec.utf8(), LOOPBACK);
+            Thread.currentThread().interrupt();
+            server.close();
+            assertTrue(Thread.interrupted());
+        }
+    }
+}
@@ -1,24 +1,54 @@
 package ras;
 
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.nio.file.Path;
 import java.time.Clock;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.ZoneOffset;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.AbstractQueuedSynchronizer;
+import java.util.concurrent.locks.LockSupport;
 import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordingFile;
+
+import io.opentelemetry.api.common.Attributes;
 import io.opentelemetry.sdk.metrics.SdkMeterProvider;
+import io.opentelemetry.sdk.metrics.data.HistogramPointData;
+import io.opentelemetry.sdk.metrics.data.LongPointData;
 import io.opentelemetry.sdk.metrics.data.MetricData;
+import io.opentelemetry.sdk.metrics.data.MetricDataType;
 import io.opentelemetry.sdk.testing.exporter.InMemoryMetricReader;
+import io.reactivex.rxjava3.core.BackpressureOverflowStrategy;
+import io.reactivex.rxjava3.exceptions.MissingBackpressureException;
+import io.reactivex.rxjava3.observers.TestObserver;
 import io.reactivex.rxjava3.schedulers.TestScheduler;
+import io.reactivex.rxjava3.subscribers.TestSubscriber;
 
 public class ResourceAcquisitionServiceTest {
 
@@ -33,6 +63,11 @@ public class ResourceAcquisitionServiceTest {
             };
         }
 
+        @Override
+        public long now(final TimeUnit unit) {
+            return 0L;
+        }
+
         public void runCommand(final int index) {
             commands.get(index).run();
         }
@@ -43,6 +78,71 @@ public class ResourceAcquisitionServiceTest {
         }
     }
 
+    private static final class CountingAutoUnlockScheduler implements SimpleResourceAcquisitionService.AutoUnlockScheduler {
+
+        private final SimpleResourceAcquisitionService.RxAutoUnlockScheduler delegate;
+        private int scheduled;
+        private int cancelled;
+
+        CountingAutoUnlockScheduler(final TestScheduler scheduler) {
+            this.delegate = new SimpleResourceAcquisitionService.RxAutoUnlockScheduler(scheduler);
+        }
+
+        @Override
+        public SimpleResourceAcquisitionService.Cancellable schedule(final Runnable command, final TimeSpan delay) {
+            scheduled++;
+            final SimpleResourceAcquisitionService.Cancellable cancellable = delegate.schedule(command, delay);
+            return () -> {
+                cancelled++;
+                cancellable.cancel();
+            };
+        }
+
+        @Override
+        public long now(final TimeUnit unit) {
+            return delegate.now(unit);
+        }
+
+        @Override
+        public void close() {
+            delegate.close();
+        }
+    }
+
+    private static final class NoopAutoUnlockScheduler implements SimpleResourceAcquisitionService.AutoUnlockScheduler {
+
+        private static final SimpleResourceAcquisitionService.Cancellable NOOP = () -> {
+        };
+
+        @Override
+        public SimpleResourceAcquisitionService.Cancellable schedule(final Runnable command, final TimeSpan delay) {
+            return NOOP;
+        }
+
+        @Override
+        public long now(final TimeUnit unit) {
+            return 0L;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private static long allocatedBytes(final int iterations, final Runnable operation) {
+        final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        for (int i = 0; i < iterations; i++) {
+            operation.run();
+        }
+        final long before = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < iterations; i++) {
+            operation.run();
+        }
+        return threads.getCurrentThreadAllocatedBytes() - before;
+    }
+
+    private static final TimeSpan WAIT_TIMEOUT = new TimeSpan(5, TimeUnit.SECONDS);
+
     private SimpleResourceAcquisitionService<String> createService(final TestScheduler scheduler) {
         return new SimpleResourceAcquisitionService<>(
                 new SimpleResourceAcquisitionService.RxAutoUnlockScheduler(scheduler),
@@ -202,6 +302,91 @@ public class ResourceAcquisitionServiceTest {
         assertEquals("User1", response.getResource().getUserName());
     }
 
+    @Test
+    public void testRenewalUpdatesDeadlineWithoutReschedulingUnlock() {
+        TestScheduler testScheduler = new TestScheduler();
+        CountingAutoUnlockScheduler scheduler = new CountingAutoUnlockScheduler(testScheduler);
+        SimpleResourceAcquisitionService<String> service = new SimpleResourceAcquisitionService<>(
+                scheduler,
+                TimeSpan.Default,
+                Clock.fixed(Instant.parse("2026-01-01T00:00:00Z"), ZoneOffset.UTC),
+                ResourceAcquisitionMetrics.createDefault());
+
+        service.commit(ResourceAcquisitionCommand.Lock, "User1", "Item1");
+        for (int i = 0; i < 100; i++) {
+            testScheduler.advanceTimeBy(1, TimeUnit.SECONDS);
+            assertEquals(ResourceAcquisitionCommandResult.LockSucceeded,
+                    service.commit(ResourceAcquisitionCommand.Lock, "User1", "Item1").getCommitResult());
+        }
+        assertEquals(4, scheduler.scheduled);
+        assertEquals(0, scheduler.cancelled);
+
+        testScheduler.advanceTimeBy(29, TimeUnit.SECONDS);
+        assertEquals(ResourceAcquisitionCommandResult.LockFailed,
+                service.commit(ResourceAcquisitionCommand.Lock, "User2", "Item1").getCommitResult());
+
+        testScheduler.advanceTimeBy(1, TimeUnit.SECONDS);
+        assertEquals(ResourceAcquisitionCommandResult.LockSucceeded,
+                service.commit(ResourceAcquisitionCommand.Lock, "User2", "Item1").getCommitResult());
+        assertEquals(6, scheduler.scheduled);
+        assertEquals(0, scheduler.cancelled);
+
+        service.commit(ResourceAcquisitionCommand.Unlock, "User2", "Item1");
+        assertEquals(1, scheduler.cancelled);
+    }
+
+    @Test
+    public void testFailedCommandsOnHeldResourceDoNotAllocate() {
+        SimpleResourceAcquisitionService<String> service = new SimpleResourceAcquisitionService<>(
+                new NoopAutoUnlockScheduler(),
+                TimeSpan.Default,
+                Clock.systemUTC(),
+                ResourceAcquisitionMetrics.createDefault());
+        service.commit(ResourceAcquisitionCommand.Lock, "User1", "Item1");
+
+        long lockFailedBytes = allocatedBytes(20_000, () -> service.commit(ResourceAcquisitionCommand.Lock, "User2", "Item1"));
+        long unlockFailedBytes = allocatedBytes(20_000, () -> service.commit(ResourceAcquisitionCommand.Unlock, "User2", "Item1"));
+
+        assertEquals(0, lockFailedBytes / 20_000);
+        assertEquals(0, unlockFailedBytes / 20_000);
+        assertEquals(ResourceAcquisitionCommandResult.LockFailed,
+                service.commit(ResourceAcquisitionCommand.Lock, "User2", "Item1").getCommitResult());
+        assertEquals(ResourceAcquisitionCommandResult.UnlockFailed,
+                service.commit(ResourceAcquisitionCommand.Unlock, "User2", "Item1").getCommitResult());
+    }
+
+    @Test
+    public void testMetricsRecordingDoesNotAllocate() {
+        ResourceAcquisitionMetrics metrics = ResourceAcquisitionMetrics.createDefault();
+
+        long bytes = allocatedBytes(20_000, () -> {
+            metrics.recordCommand(ResourceAcquisitionCommand.Lock);
+            metrics.recordResult(ResourceAcquisitionCommandResult.LockFailed);
+            metrics.recordLockAcquired();
+            metrics.recordLockReleased();
+        });
+
+        assertEquals(0, bytes / 20_000);
+    }
+
+    @Test
+    public void testSuccessfulCommandsAllocateOnlyLeaseAndResponse() {
+        SimpleResourceAcquisitionService<String> service = new SimpleResourceAcquisitionService<>(
+                new NoopAutoUnlockScheduler(),
+                TimeSpan.Default,
+                Clock.systemUTC(),
+                ResourceAcquisitionMetrics.createDefault());
+
+        long renewalBytes = allocatedBytes(20_000, () -> service.commit(ResourceAcquisitionCommand.Lock, "User1", "Item1"));
+        long lockUnlockBytes = allocatedBytes(20_000, () -> {
+            service.commit(ResourceAcquisitionCommand.Lock, "User1", "Item2");
+            service.commit(ResourceAcquisitionCommand.Unlock, "User1", "Item2");
+        });
+
+        assertTrue(renewalBytes / 20_000 <= 128, () -> "renewal allocated " + renewalBytes / 20_000 + " bytes/op");
+        assertTrue(lockUnlockBytes / 20_000 <= 384, () -> "lock/unlock allocated " + lockUnlockBytes / 20_000 + " bytes/op");
+    }
+
     @Test
     public void testCustomSchedulerClose() {
         StaleAutoUnlockScheduler scheduler = new StaleAutoUnlockScheduler();
@@ -240,10 +425,1167 @@ public class ResourceAcquisitionServiceTest {
                 Set.of(
                         ResourceAcquisitionMetrics.COMMANDS_METRIC_NAME,
                         ResourceAcquisitionMetrics.RESULTS_METRIC_NAME,
-                        ResourceAcquisitionMetrics.ACTIVE_LOCKS_METRIC_NAME),
+                        ResourceAcquisitionMetrics.ACTIVE_LOCKS_METRIC_NAME,
+                        ResourceAcquisitionMetrics.COMMIT_DURATION_METRIC_NAME,
+                        ResourceAcquisitionMetrics.HOLD_DURATION_METRIC_NAME),
                 metricNames);
     }
 
+    @Test
+    public void testLatencyHoldAndExpiryHistogramsAreRecorded() {
+        InMemoryMetricReader metricReader = InMemoryMetricReader.create();
+        SdkMeterProvider meterProvider = SdkMeterProvider.builder()
+                .registerMetricReader(metricReader)
+                .build();
+        List<Double> holdBuckets = List.of(5.0, 20.0, 40.0);
+        ResourceAcquisitionMetrics metrics = new ResourceAcquisitionMetrics(
+                meterProvider.get(ResourceAcquisitionMetrics.METER_NAME),
+                ResourceAcquisitionMetrics.DEFAULT_COMMIT_DURATION_BUCKETS,
+                holdBuckets,
+                ResourceAcquisitionMetrics.DEFAULT_EXPIRY_LAG_BUCKETS);
+        TestScheduler scheduler = new TestScheduler();
+        SimpleResourceAcquisitionService<String> service = new SimpleResourceAcquisitionService<>(scheduler, TimeSpan.Default, metrics);
+
+        service.commit(ResourceAcquisitionCommand.Lock, "User1", "Item1");
+        service.commit(ResourceAcquisitionCommand.Lock, "User1", "Item2");
+        scheduler.advanceTimeBy(10, TimeUnit.SECONDS);
+        service.commit(ResourceAcquisitionCommand.Unlock, "User1", "Item1");
+        scheduler.advanceTimeBy(20, TimeUnit.SECONDS);
+
+        Map<String, HistogramPointData> histograms = metricReader.collectAllMetrics().stream()
+                .filter(metric -> metric.getType() == MetricDataType.HISTOGRAM)
+                .collect(Collectors.toMap(MetricData::getName, metric -> metric.getHistogramData().getPoints().iterator().next()));
+        meterProvider.close();
+
+        HistogramPointData commitDuration = histograms.get(ResourceAcquisitionMetrics.COMMIT_DURATION_METRIC_NAME);
+        assertEquals(3, commitDuration.getCount());
+        assertEquals(ResourceAcquisitionMetrics.DEFAULT_COMMIT_DURATION_BUCKETS, commitDuration.getBoundaries());
+
+        HistogramPointData holdDuration = histograms.get(ResourceAcquisitionMetrics.HOLD_DURATION_METRIC_NAME);
+        assertEquals(holdBuckets, holdDuration.getBoundaries());
+        assertEquals(2, holdDuration.getCount());
+        assertEquals(10.0, holdDuration.getMin());
+        assertEquals(30.0, holdDuration.getMax());
+
+        HistogramPointData expiryLag = histograms.get(ResourceAcquisitionMetrics.EXPIRY_LAG_METRIC_NAME);
+        assertEquals(1, expiryLag.getCount());
+        assertEquals(0.0, expiryLag.getSum());
+    }
+
+    private static Map<String, Map<Attributes, Long>> longSums(final InMemoryMetricReader metricReader) {
+        return metricReader.collectAllMetrics().stream()
+                .filter(metric -> metric.getType() == MetricDataType.LONG_SUM)
+                .collect(Collectors.toMap(MetricData::getName, metric -> metric.getLongSumData().getPoints().stream()
+                        .collect(Collectors.toMap(LongPointData::getAttributes, LongPointData::getValue))));
+    }
+
+    private static void runMetricsWorkload(final SimpleResourceAcquisitionService<String> service, final TestScheduler scheduler) {
+        service.commit(ResourceAcquisitionCommand.Lock, "User1", "Item1");
+        service.commit(ResourceAcquisitionCommand.Lock, "User2", "Item1");
+        service.commit(ResourceAcquisitionCommand.Unlock, "User2", "Item1");
+        service.commitAll(List.of(
+                new ResourceAcquisitionRequest<>(ResourceAcquisitionCommand.Lock, "User2", "Item2"),
+                new ResourceAcquisitionRequest<>(ResourceAcquisitionCommand.Lock, "User2", "Item3"),
+                new ResourceAcquisitionRequest<>(ResourceAcquisitionCommand.Unlock, "User2", "Item4")));
+        service.lockAll("User3", List.of("Item5", "Item6"));
+        service.lockShared("Reader", "Item7");
+        service.releaseAll("User2");
+        scheduler.advanceTimeBy(40, TimeUnit.SECONDS);
+        service.commit(ResourceAcquisitionCommand.Lock, "User4", "Item8");
+        service.lockShared("Reader", "Item9");
+    }
+
+    @Test
+    public void testStripedMetricsMatchSynchronousMetrics() {
+        InMemoryMetricReader synchronousReader = InMemoryMetricReader.create();
+        InMemoryMetricReader stripedReader = InMemoryMetricReader.create();
+        SdkMeterProvider synchronousProvider = SdkMeterProvider.builder().registerMetricReader(synchronousReader).build();
+        SdkMeterProvider stripedProvider = SdkMeterProvider.builder().registerMetricReader(stripedReader).build();
+        TestScheduler synchronousScheduler = new TestScheduler();
+        TestScheduler stripedScheduler = new TestScheduler();
+        try (SimpleResourceAcquisitionService<String> synchronous = new SimpleResourceAcquisitionService<>(
+                     synchronousScheduler, TimeSpan.Default,
+                     new ResourceAcquisitionMetrics(synchronousProvider.get(ResourceAcquisitionMetrics.METER_NAME)));
+             SimpleResourceAcquisitionService<String> striped = new SimpleResourceAcquisitionService<>(
+                     stripedScheduler, TimeSpan.Default,
+                     ResourceAcquisitionMetrics.striped(stripedProvider.get(ResourceAcquisitionMetrics.METER_NAME)))) {
+            // The lease count is read when the meter collects, so unlike the counter it reports 0 before the first lock.
+            assertEquals(Map.of(ResourceAcquisitionMetrics.ACTIVE_LOCKS_METRIC_NAME, Map.of(Attributes.empty(), 0L)),
+                    longSums(stripedReader));
+
+            runMetricsWorkload(synchronous, synchronousScheduler);
+            runMetricsWorkload(striped, stripedScheduler);
+
+            Map<String, Map<Attributes, Long>> expected = longSums(synchronousReader);
+            assertEquals(
+                    Set.of(ResourceAcquisitionMetrics.COMMANDS_METRIC_NAME,
+                            ResourceAcquisitionMetrics.RESULTS_METRIC_NAME,
+                            ResourceAcquisitionMetrics.ACTIVE_LOCKS_METRIC_NAME),
+                    expected.keySet());
+            assertEquals(expected, longSums(stripedReader));
+            assertEquals(2L, longSums(stripedReader).get(ResourceAcquisitionMetrics.ACTIVE_LOCKS_METRIC_NAME).get(Attributes.empty()));
+        } finally {
+            synchronousProvider.close();
+            stripedProvider.close();
+        }
+    }
+
+    @Test
+    public void testHistogramsAreDisabledForNoopMeter() {
+        ResourceAcquisitionMetrics metrics = new ResourceAcquisitionMetrics(
+                io.opentelemetry.api.metrics.MeterProvider.noop().get(ResourceAcquisitionMetrics.METER_NAME));
+
+        assertFalse(metrics.isCommitDurationEnabled());
+        assertFalse(metrics.isHoldDurationEnabled());
+    }
+
+    @Test
+    public void testLockAsyncCompletesImmediatelyWhenResourceIsFree() {
+        TestScheduler scheduler = new TestScheduler();
+        try (SimpleResourceAcquisitionService<String> service = createService(scheduler)) {
+            TestObserver<ResourceAcquisitionResponse> lock = service.lockAsync("User1", "Item1", WAIT_TIMEOUT).test();
+            lock.assertValue(response -> response.getCommitResult() == ResourceAcquisitionCommandResult.LockSucceeded);
+
+            TestObserver<ResourceAcquisitionResponse> renewal = service.lockAsync("user1", "Item1", WAIT_TIMEOUT).test();
+            renewal.assertValue(response -> response.getCommitResult() == ResourceAcquisitionCommandResult.LockSucceeded);
+        }
+    }
+
+    @Test
+    public void testWaitersAreGrantedInFifoOrderOnUnlockAndExpiry() {
+        TestScheduler scheduler = new TestScheduler();
+        try (SimpleResourceAcquisitionService<String> service = createService(scheduler)) {
+            service.commit(ResourceAcquisitionCommand.Lock, "User1", "Item1");
+            TestObserver<ResourceAcquisitionResponse> second = service.lockAsync("User2", "Item1", new TimeSpan(1, TimeUnit.MINUTES)).test();
+            TestObserver<ResourceAcquisitionResponse> third = service.lockAsync("User3", "Item1", new TimeSpan(1, TimeUnit.MINUTES)).test();
+            second.assertEmpty();
+            third.assertEmpty();
+
+            service.commit(ResourceAcquisitionCommand.Unlock, "User1", "Item1");
+            second.assertValue(response -> response.getCommitResult() == ResourceAcquisitionCommandResult.LockSucceeded
+                    && response.getResource().getUserName().equals("User2"));
+            third.assertEmpty();
+            assertEquals(ResourceAcquisitionCommandResult.LockFailed,
+                    service.commit(ResourceAcquisitionCommand.Lock, "User1", "Item1").getCommitResult());
+
+            scheduler.advanceTimeBy(30, TimeUnit.SECONDS);
+            third.assertValue(response -> response.getCommitResult() == ResourceAcquisitionCommandResult.LockSucceeded
+                    && response.getResource().getUserName().equals("User3"));
+            assertEquals("User3", service.commit(ResourceAcquisitionCommand.Lock, "User1", "Item1").getResource().getUserName());
+
+            scheduler.advanceTimeBy(30, TimeUnit.SECONDS);
+            assertEquals(ResourceAcquisitionCommandResult.LockSucceeded,
+                    service.commit(ResourceAcquisitionCommand.Lock, "User1", "Item1").getCommitResult());
+        }
+    }
+
+    @Test
+    public void testWaiterTimesOutWithCurrentHolder() {
+        TestScheduler scheduler = new TestScheduler();
+        try (SimpleResourceAcquisitionService<String> service = createService(scheduler)) {
+            service.commit(ResourceAcquisitionCommand.Lock, "User1", "Item1");
+            service.commit(ResourceAcquisitionCommand.Lock, "User1", "Item2");
+            TestObserver<ResourceAcquisitionResponse> waiter = service.lockAsync("User2", "Item1", WAIT_TIMEOUT).test();
+            service.commit(ResourceAcquisitionCommand.Unlock, "User1", "Item2");
+
+            scheduler.advanceTimeBy(4_999, TimeUnit.MILLISECONDS);
+            waiter.assertEmpty();
+            scheduler.advanceTimeBy(1, TimeUnit.MILLISECONDS);
+            waiter.assertValue(response -> response.getCommitResult() == ResourceAcquisitionCommandResult.LockFailed
+                    && response.getResource().getUserName().equals("User1"));
+
+            service.commit(ResourceAcquisitionCommand.Unlock, "User1", "Item1");
+            assertEquals(ResourceAcquisitionCommandResult.LockSucceeded,
+                    service.commit(ResourceAcquisitionCommand.Lock, "User3", "Item1").getCommitResult());
+        }
+    }
+
+    @Test
+    public void testDisposedWaiterLeavesTheQueue() {
+        TestScheduler scheduler = new TestScheduler();
+        try (SimpleResourceAcquisitionService<String> service = createService(scheduler)) {
+            service.commit(ResourceAcquisitionCommand.Lock, "User1", "Item1");
+            TestObserver<ResourceAcquisitionResponse> second = service.lockAsync("User2", "Item1", WAIT_TIMEOUT).test();
+            TestObserver<ResourceAcquisitionResponse> third = service.lockAsync("User3", "Item1", WAIT_TIMEOUT).test();
+            second.dispose();
+
+            service.commit(ResourceAcquisitionCommand.Unlock, "User1", "Item1");
+            third.assertValue(response -> response.getResource().getUserName().equals("User3"));
+            third.dispose();
+
+            scheduler.advanceTimeBy(WAIT_TIMEOUT.getInterval(), WAIT_TIMEOUT.getUnit());
+            second.assertEmpty();
+        }
+    }
+
+    @Test
+    public void testStaleWaitTimeoutAfterHandOffIsIgnored() {
+        StaleAutoUnlockScheduler scheduler = new StaleAutoUnlockScheduler();
+        try (var service = new SimpleResourceAcquisitionService<String>(
+                scheduler, TimeSpan.Default, Clock.systemUTC(), ResourceAcquisitionMetrics.createDefault())) {
+            service.commit(ResourceAcquisitionCommand.Lock, "User1", "Item1");
+            TestObserver<ResourceAcquisitionResponse> waiter = service.lockAsync("User2", "Item1", WAIT_TIMEOUT).test();
+            service.commit(ResourceAcquisitionCommand.Unlock, "User1", "Item1");
+
+            scheduler.runCommand(1);
+
+            waiter.assertValue(response -> response.getCommitResult() == ResourceAcquisitionCommandResult.LockSucceeded);
+            assertEquals("User2", service.commit(ResourceAcquisitionCommand.Lock, "User3", "Item1").getResource().getUserName());
+        }
+    }
+
+    @Test
+    public void testPendingWaitersFailWhenServiceCloses() {
+        TestScheduler scheduler = new TestScheduler();
+        SimpleResourceAcquisitionService<String> service = createService(scheduler);
+        service.commit(ResourceAcquisitionCommand.Lock, "User1", "Item1");
+        TestObserver<ResourceAcquisitionResponse> waiter = service.lockAsync("User2", "Item1", WAIT_TIMEOUT).test();
+
+        service.close();
+
+        waiter.assertError(IllegalStateException.class);
+    }
+
+    private static void awaitParked(final Thread thread) throws InterruptedException {
+        while (thread.getState() != Thread.State.TIMED_WAITING) {
+            Thread.sleep(1);
+        }
+    }
+
+    @Test
+    public void testAcquireReturnsAtOnceOrWhenTheWaitTimesOut() {
+        try (SimpleResourceAcquisitionService<String> service = createService(new TestScheduler())) {
+            assertEquals(ResourceAcquisitionCommandResult.LockSucceeded, service.acquire("User1", "Item1", WAIT_TIMEOUT).getCommitResult());
+            ResourceAcquisitionResponse timedOut = service.acquire("User2", "Item1", new TimeSpan(20, TimeUnit.MILLISECONDS));
+            assertEquals(ResourceAcquisitionCommandResult.LockFailed, timedOut.getCommitResult());
+            assertEquals("User1", timedOut.getResource().getUserName());
+
+            service.commit(ResourceAcquisitionCommand.Unlock, "User1", "Item1");
+            assertEquals(ResourceAcquisitionCommandResult.LockSucceeded,
+                    service.commit(ResourceAcquisitionCommand.Lock, "User3", "Item1").getCommitResult());
+        }
+    }
+
+    @Test
+    public void testAcquireBlocksUntilTheLeaseIsHandedOver() throws InterruptedException {
+        try (SimpleResourceAcquisitionService<String> service = createService(new TestScheduler())) {
+            service.commit(ResourceAcquisitionCommand.Lock, "User1", "Item1");
+            AtomicReference<ResourceAcquisitionResponse> response = new AtomicReference<>();
+            Thread waiter = new Thread(() -> response.set(service.acquire("User2", "Item1", new TimeSpan(1, TimeUnit.MINUTES))));
+            waiter.start();
+            awaitParked(waiter);
+
+            service.commit(ResourceAcquisitionCommand.Unlock, "User1", "Item1");
+            waiter.join();
+            assertEquals(ResourceAcquisitionCommandResult.LockSucceeded, response.get().getCommitResult());
+            assertEquals("User2", service.holderOf("Item1").getUserName());
+        }
+    }
+
+    @Test
+    public void testInterruptedAcquireKeepsWaitingAndKeepsTheInterrupt() throws InterruptedException {
+        try (SimpleResourceAcquisitionService<String> service = createService(new TestScheduler())) {
+            service.commit(ResourceAcquisitionCommand.Lock, "User1", "Item1");
+            AtomicReference<ResourceAcquisitionResponse> response = new AtomicReference<>();
+            AtomicBoolean interrupted = new AtomicBoolean();
+            Thread waiter = new Thread(() -> {
+                Thread.currentThread().interrupt();
+                response.set(service.acquire("User2", "Item1", new TimeSpan(1, TimeUnit.MINUTES)));
+                interrupted.set(Thread.currentThread().isInterrupted());
+            });
+            waiter.start();
+            awaitParked(waiter);
+
+            service.commit(ResourceAcquisitionCommand.Unlock, "User1", "Item1");
+            waiter.join();
+            assertEquals(ResourceAcquisitionCommandResult.LockSucceeded, response.get().getCommitResult());
+            assertTrue(interrupted.get());
+        }
+    }
+
+    @Test
+    public void testPendingAcquireFailsWhenServiceCloses() throws InterruptedException {
+        SimpleResourceAcquisitionService<String> service = createService(new TestScheduler());
+        service.commit(ResourceAcquisitionCommand.Lock, "User1", "Item1");
+        AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        Thread waiter = new Thread(() -> failure.set(assertThrows(RuntimeException.class,
+                () -> service.acquire("User2", "Item1", new TimeSpan(1, TimeUnit.MINUTES)))));
+        waiter.start();
+        awaitParked(waiter);
+
+        service.close();
+        waiter.join();
+        assertInstanceOf(IllegalStateException.class, failure.get());
+    }
+
+    // Runs in the singleCarrierTest task on one carrier thread, so a waiter that held on to it would stall the rest.
+    // Since JDK 24 a monitor wait no longer pins either, so the test also checks that every waiter is parked on a
+    // Condition of the service lock. The JFR pinning event replaces -Djdk.tracePinnedThreads, which later JDKs removed.
+    @Test
+    @Tag("single-carrier")
+    public void testVirtualThreadWaitersDoNotPinCarriers(@TempDir final Path directory) throws Exception {
+        assertEquals("1", System.getProperty("jdk.virtualThreadScheduler.maxPoolSize"));
+        final int waiters = 100_000;
+        AtomicInteger granted = new AtomicInteger();
+        Path events = directory.resolve("pinning.jfr");
+        try (Recording recording = new Recording();
+             SimpleResourceAcquisitionService<String> service = new SimpleResourceAcquisitionService<>(
+                     new NoopAutoUnlockScheduler(), TimeSpan.Default, Clock.systemUTC(), ResourceAcquisitionMetrics.createDefault())) {
+            recording.enable("jdk.VirtualThreadPinned").withThreshold(Duration.ZERO);
+            recording.start();
+            service.commit(ResourceAcquisitionCommand.Lock, "Holder", "Item1");
+            List<Thread> threads = new ArrayList<>(waiters);
+            for (int i = 0; i < waiters; i++) {
+                String userName = "User" + i;
+                Runnable waiter = () -> {
+                    if (service.acquire(userName, "Item1", new TimeSpan(10, TimeUnit.MINUTES)).getCommitResult()
+                            == ResourceAcquisitionCommandResult.LockSucceeded) {
+                        granted.incrementAndGet();
+                        service.commit(ResourceAcquisitionCommand.Unlock, userName, "Item1");
+                    }
+                };
+                threads.add(Thread.ofVirtual().start(waiter));
+            }
+            // A virtual thread in a timed park reports WAITING on JDK 21, so wait for the blocker instead of a state.
+            for (Thread thread : threads) {
+                while (!(LockSupport.getBlocker(thread) instanceof AbstractQueuedSynchronizer.ConditionObject)) {
+                    Thread.sleep(1);
+                }
+            }
+            service.commit(ResourceAcquisitionCommand.Unlock, "Holder", "Item1");
+            for (Thread thread : threads) {
+                thread.join(TimeUnit.MINUTES.toMillis(1));
+                assertFalse(thread.isAlive());
+            }
+            recording.stop();
+            recording.dump(events);
+        }
+        assertEquals(waiters, granted.get());
+        assertEquals(0, RecordingFile.readAllEvents(events).stream()
+                .filter(event -> event.getEventType().getName().equals("jdk.VirtualThreadPinned"))
+                .count());
+    }
+
+    @Test
+    public void testWaiterThatCannotBeJournaledIsRejected(@TempDir final Path directory) throws IOException {
+        TestScheduler scheduler = new TestScheduler();
+        var journal = new ResourceAcquisitionJournal<>(directory.resolve("locks.journal"), ResourceKeyCodec.utf8(), 4, scheduler, WAIT_TIMEOUT);
+        try (var service = new SimpleResourceAcquisitionService<>(
+                new SimpleResourceAcquisitionService.RxAutoUnlockScheduler(scheduler),
+                TimeSpan.Default,
+                Clock.systemUTC(),
+                ResourceAcquisitionMetrics.createDefault(),
+                journal)) {
+            service.commit(ResourceAcquisitionCommand.Lock, "User1", "Item1");
+            service.lockAsync("User2", "Item1", WAIT_TIMEOUT).test().assertEmpty();
+            service.lockAsync("U".repeat(ResourceAcquisitionJournal.RECORD_SIZE), "Item1", WAIT_TIMEOUT).test()
+                    .assertError(IllegalArgumentException.class);
+            assertEquals(ResourceAcquisitionCommandResult.LockFailed,
+                    service.acquire("User3", "Item1", new TimeSpan(1, TimeUnit.MILLISECONDS)).getCommitResult());
+            assertThrows(IllegalArgumentException.class,
+                    () -> service.acquire("U".repeat(ResourceAcquisitionJournal.RECORD_SIZE), "Item1", WAIT_TIMEOUT));
+        }
+    }
+
+    @Test
+    public void testCommitAllMatchesSequentialCommits() {
+        Random random = new Random(11);
+        List<ResourceAcquisitionRequest<String>> requests = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            requests.add(new ResourceAcquisitionRequest<>(
+                    random.nextBoolean() ? ResourceAcquisitionCommand.Lock : ResourceAcquisitionCommand.Unlock,
+                    "User" + random.nextInt(3),
+                    "Item" + random.nextInt(5)));
+        }
+        try (SimpleResourceAcquisitionService<String> batched = createService(new TestScheduler());
+             SimpleResourceAcquisitionService<String> sequential = createService(new TestScheduler())) {
+            List<ResourceAcquisitionResponse> batchedResponses = batched.commitAll(requests);
+
+            assertEquals(requests.size(), batchedResponses.size());
+            for (int i = 0; i < requests.size(); i++) {
+                ResourceAcquisitionRequest<String> request = requests.get(i);
+                ResourceAcquisitionResponse expected = sequential.commit(request.getCommand(), request.getUserName(), request.getResource());
+                assertEquals(expected.getCommitResult(), batchedResponses.get(i).getCommitResult());
+                assertEquals(expected.getResource(), batchedResponses.get(i).getResource());
+            }
+        }
+    }
+
+    @Test
+    public void testCommitAllAggregatesMetricsPerBatch() {
+        InMemoryMetricReader metricReader = InMemoryMetricReader.create();
+        SdkMeterProvider meterProvider = SdkMeterProvider.builder()
+                .registerMetricReader(metricReader)
+                .build();
+        SimpleResourceAcquisitionService<String> service = new SimpleResourceAcquisitionService<>(
+                new TestScheduler(), TimeSpan.Default, meterProvider.get(ResourceAcquisitionMetrics.METER_NAME));
+
+        service.commitAll(List.of(
+                new ResourceAcquisitionRequest<>(ResourceAcquisitionCommand.Lock, "User1", "Item1"),
+                new ResourceAcquisitionRequest<>(ResourceAcquisitionCommand.Lock, "User2", "Item1"),
+                new ResourceAcquisitionRequest<>(ResourceAcquisitionCommand.Lock, "User2", "Item2"),
+                new ResourceAcquisitionRequest<>(ResourceAcquisitionCommand.Unlock, "User1", "Item1")));
+
+        Map<String, Long> counts = new HashMap<>();
+        long commitDurations = 0;
+        for (MetricData metric : metricReader.collectAllMetrics()) {
+            if (metric.getName().equals(ResourceAcquisitionMetrics.COMMIT_DURATION_METRIC_NAME)) {
+                commitDurations = metric.getHistogramData().getPoints().iterator().next().getCount();
+            } else if (metric.getType() == MetricDataType.LONG_SUM && metric.getLongSumData().isMonotonic()) {
+                metric.getLongSumData().getPoints().forEach(point -> counts.put(point.getAttributes().asMap().values().iterator().next().toString(), point.getValue()));
+            }
+        }
+        meterProvider.close();
+
+        assertEquals(Map.of("Lock", 3L, "Unlock", 1L, "LockSucceeded", 2L, "LockFailed", 1L, "UnlockSucceeded", 1L), counts);
+        assertEquals(1, commitDurations);
+    }
+
+    @Test
+    public void testCommitAllHandsOffToWaitersAfterTheBatch() {
+        TestScheduler scheduler = new TestScheduler();
+        try (SimpleResourceAcquisitionService<String> service = createService(scheduler)) {
+            service.commit(ResourceAcquisitionCommand.Lock, "User1", "Item1");
+            service.commit(ResourceAcquisitionCommand.Lock, "User1", "Item2");
+            TestObserver<ResourceAcquisitionResponse> first = service.lockAsync("User2", "Item1", WAIT_TIMEOUT).test();
+            TestObserver<ResourceAcquisitionResponse> second = service.lockAsync("User3", "Item2", WAIT_TIMEOUT).test();
+
+            service.commitAll(List.of(
+                    new ResourceAcquisitionRequest<>(ResourceAcquisitionCommand.Unlock, "User1", "Item1"),
+                    new ResourceAcquisitionRequest<>(ResourceAcquisitionCommand.Unlock, "User1", "Item2")));
+
+            first.assertValue(response -> response.getResource().getUserName().equals("User2"));
+            second.assertValue(response -> response.getResource().getUserName().equals("User3"));
+        }
+    }
+
+    @Test
+    public void testCommitAllKeepsEarlierResultsWhenARequestFails(@TempDir final Path directory) throws IOException {
+        TestScheduler scheduler = new TestScheduler();
+        var journal = new ResourceAcquisitionJournal<>(directory.resolve("locks.journal"), ResourceKeyCodec.utf8(), 4, scheduler, WAIT_TIMEOUT);
+        try (var service = new SimpleResourceAcquisitionService<>(
+                new SimpleResourceAcquisitionService.RxAutoUnlockScheduler(scheduler),
+                TimeSpan.Default,
+                Clock.systemUTC(),
+                ResourceAcquisitionMetrics.createDefault(),
+                journal)) {
+            List<ResourceAcquisitionRequest<String>> requests = List.of(
+                    new ResourceAcquisitionRequest<>(ResourceAcquisitionCommand.Lock, "User1", "Item1"),
+                    new ResourceAcquisitionRequest<>(ResourceAcquisitionCommand.Lock, "User1", "I".repeat(ResourceAcquisitionJournal.RECORD_SIZE)));
+
+            assertThrows(IllegalArgumentException.class, () -> service.commitAll(requests));
+            assertEquals(ResourceAcquisitionCommandResult.LockFailed,
+                    service.commit(ResourceAcquisitionCommand.Lock, "User2", "Item1").getCommitResult());
+        }
+    }
+
+    @Test
+    public void testLockAllTakesEveryResourceUnderOneTimer() {
+        TestScheduler testScheduler = new TestScheduler();
+        CountingAutoUnlockScheduler scheduler = new CountingAutoUnlockScheduler(testScheduler);
+        try (SimpleResourceAcquisitionService<String> service = new SimpleResourceAcquisitionService<>(
+                scheduler, TimeSpan.Default, Clock.fixed(Instant.parse("2026-01-01T00:00:00Z"), ZoneOffset.UTC), ResourceAcquisitionMetrics.createDefault())) {
+            ResourceAcquisitionGroupResponse<String> response = service.lockAll("User1", List.of("Item3", "Item1", "Item2", "Item1"));
+
+            assertEquals(ResourceAcquisitionCommandResult.LockSucceeded, response.getCommitResult());
+            assertEquals("User1", response.getResource().getUserName());
+            assertNull(response.getBlockingResource());
+            assertEquals(1, scheduler.scheduled);
+            assertEquals(ResourceAcquisitionCommandResult.LockFailed,
+                    service.commit(ResourceAcquisitionCommand.Lock, "User2", "Item2").getCommitResult());
+
+            testScheduler.advanceTimeBy(30, TimeUnit.SECONDS);
+            for (String resource : List.of("Item1", "Item2", "Item3")) {
+                assertEquals(ResourceAcquisitionCommandResult.LockSucceeded,
+                        service.commit(ResourceAcquisitionCommand.Lock, "User2", resource).getCommitResult());
+            }
+        }
+    }
+
+    @Test
+    public void testLockAllTakesNothingAndReportsTheFirstBlockedResource() {
+        try (SimpleResourceAcquisitionService<String> service = createService(new TestScheduler())) {
+            service.commit(ResourceAcquisitionCommand.Lock, "User2", "Item3");
+            service.commit(ResourceAcquisitionCommand.Lock, "User2", "Item2");
+
+            ResourceAcquisitionGroupResponse<String> response = service.lockAll("User1", Set.of("Item1", "Item2", "Item3"));
+
+            assertEquals(ResourceAcquisitionCommandResult.LockFailed, response.getCommitResult());
+            assertEquals("Item2", response.getBlockingResource());
+            assertEquals("User2", response.getResource().getUserName());
+            assertEquals(ResourceAcquisitionCommandResult.LockSucceeded,
+                    service.commit(ResourceAcquisitionCommand.Lock, "User3", "Item1").getCommitResult());
+            assertThrows(IllegalArgumentException.class, () -> service.lockAll("User1", List.of()));
+        }
+    }
+
+    @Test
+    public void testLockAllRenewsHeldLeasesAndReleasesTheGroupTimerWithTheLastMember() {
+        TestScheduler testScheduler = new TestScheduler();
+        CountingAutoUnlockScheduler scheduler = new CountingAutoUnlockScheduler(testScheduler);
+        try (SimpleResourceAcquisitionService<String> service = new SimpleResourceAcquisitionService<>(
+                scheduler, TimeSpan.Default, Clock.fixed(Instant.parse("2026-01-01T00:00:00Z"), ZoneOffset.UTC), ResourceAcquisitionMetrics.createDefault())) {
+            service.commit(ResourceAcquisitionCommand.Lock, "User1", "Item1");
+            testScheduler.advanceTimeBy(20, TimeUnit.SECONDS);
+            service.lockAll("User1", List.of("Item1", "Item2"));
+            assertEquals(1, scheduler.cancelled);
+
+            testScheduler.advanceTimeBy(20, TimeUnit.SECONDS);
+            assertEquals(ResourceAcquisitionCommandResult.LockFailed,
+                    service.commit(ResourceAcquisitionCommand.Lock, "User2", "Item1").getCommitResult());
+
+            service.commit(ResourceAcquisitionCommand.Unlock, "User1", "Item2");
+            assertEquals(1, scheduler.cancelled);
+            service.commit(ResourceAcquisitionCommand.Unlock, "User1", "Item1");
+            assertEquals(2, scheduler.cancelled);
+        }
+    }
+
+    @Test
+    public void testGroupExpiryHandsOffAndSkipsMembersThatMovedOn() {
+        TestScheduler scheduler = new TestScheduler();
+        try (SimpleResourceAcquisitionService<String> service = createService(scheduler)) {
+            service.lockAll("User1", List.of("Item1", "Item2", "Item3", "Item4"));
+            TestObserver<ResourceAcquisitionResponse> waiter = service.lockAsync("User2", "Item1", new TimeSpan(1, TimeUnit.MINUTES)).test();
+            scheduler.advanceTimeBy(10, TimeUnit.SECONDS);
+            service.commit(ResourceAcquisitionCommand.Lock, "User1", "Item2");
+            service.lockAll("User1", List.of("Item3"));
+            service.commit(ResourceAcquisitionCommand.Unlock, "User1", "Item4");
+
+            scheduler.advanceTimeBy(20, TimeUnit.SECONDS);
+            waiter.assertValue(response -> response.getCommitResult() == ResourceAcquisitionCommandResult.LockSucceeded
+                    && response.getResource().getUserName().equals("User2"));
+            assertEquals(ResourceAcquisitionCommandResult.LockFailed,
+                    service.commit(ResourceAcquisitionCommand.Lock, "User2", "Item2").getCommitResult());
+            assertEquals(ResourceAcquisitionCommandResult.LockFailed,
+                    service.commit(ResourceAcquisitionCommand.Lock, "User2", "Item3").getCommitResult());
+
+            scheduler.advanceTimeBy(10, TimeUnit.SECONDS);
+            assertEquals(ResourceAcquisitionCommandResult.LockSucceeded,
+                    service.commit(ResourceAcquisitionCommand.Lock, "User2", "Item2").getCommitResult());
+            assertEquals(ResourceAcquisitionCommandResult.LockSucceeded,
+                    service.commit(ResourceAcquisitionCommand.Lock, "User2", "Item3").getCommitResult());
+        }
+    }
+
+    @Test
+    public void testLockAllRecordsOneCommandAndResultPerCall() {
+        InMemoryMetricReader metricReader = InMemoryMetricReader.create();
+        SdkMeterProvider meterProvider = SdkMeterProvider.builder()
+                .registerMetricReader(metricReader)
+                .build();
+        SimpleResourceAcquisitionService<String> service = new SimpleResourceAcquisitionService<>(
+                new TestScheduler(), TimeSpan.Default, meterProvider.get(ResourceAcquisitionMetrics.METER_NAME));
+
+        service.lockAll("User1", List.of("Item1", "Item2", "Item3"));
+        service.lockAll("User2", List.of("Item3", "Item4"));
+
+        Map<String, Long> counts = new HashMap<>();
+        long commitDurations = 0;
+        for (MetricData metric : metricReader.collectAllMetrics()) {
+            if (metric.getName().equals(ResourceAcquisitionMetrics.COMMIT_DURATION_METRIC_NAME)) {
+                commitDurations = metric.getHistogramData().getPoints().iterator().next().getCount();
+            } else if (metric.getType() == MetricDataType.LONG_SUM && metric.getLongSumData().isMonotonic()) {
+                metric.getLongSumData().getPoints().forEach(point -> counts.put(point.getAttributes().asMap().values().iterator().next().toString(), point.getValue()));
+            }
+        }
+        meterProvider.close();
+
+        assertEquals(Map.of("Lock", 2L, "LockSucceeded", 1L, "LockFailed", 1L), counts);
+        assertEquals(2, commitDurations);
+    }
+
+    @Test
+    public void testLockAllChecksEveryJournalRecordBeforeLocking(@TempDir final Path directory) throws IOException {
+        TestScheduler scheduler = new TestScheduler();
+        var journal = new ResourceAcquisitionJournal<>(directory.resolve("locks.journal"), ResourceKeyCodec.utf8(), 4, scheduler, WAIT_TIMEOUT);
+        try (var service = new SimpleResourceAcquisitionService<>(
+                new SimpleResourceAcquisitionService.RxAutoUnlockScheduler(scheduler),
+                TimeSpan.Default,
+                Clock.systemUTC(),
+                ResourceAcquisitionMetrics.createDefault(),
+                journal)) {
+            assertThrows(IllegalArgumentException.class,
+                    () -> service.lockAll("User1", List.of("Item1", "I".repeat(ResourceAcquisitionJournal.RECORD_SIZE))));
+            assertEquals(ResourceAcquisitionCommandResult.LockSucceeded,
+                    service.commit(ResourceAcquisitionCommand.Lock, "User2", "Item1").getCommitResult());
+            assertEquals(ResourceAcquisitionCommandResult.LockSucceeded,
+                    service.lockAll("User3", List.of("Item2", "Item3")).getCommitResult());
+        }
+    }
+
+    @Test
+    public void testCanonicalOrderSeparatesClassesAndHashCollisions() {
+        assertEquals(List.of("a", "b", "c"), CanonicalOrder.of(List.of("c", "a", "b", "a")));
+        assertTrue(CanonicalOrder.compare(List.of(2), List.of(1)) > 0);
+        // Hashes 4, 1 and 2: mixing natural and hash order would give -5 < 1 < "\u0002" < -5.
+        assertEquals(List.of(-5L, 1L, "\u0002"), CanonicalOrder.of(List.of("\u0002", 1L, -5L)));
+        assertEquals("Aa".hashCode(), "BB".hashCode());
+        assertEquals(List.of(List.of("Aa"), List.of("BB")), CanonicalOrder.of(List.of(List.of("BB"), List.of("Aa"))));
+    }
+
+    @Test
+    public void testKeysWithoutACanonicalOrderAreRejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> CanonicalOrder.of(List.of(new BigDecimal("1.0"), new BigDecimal("1.00"))));
+        assertThrows(IllegalArgumentException.class, () -> CanonicalOrder.of(List.of(opaqueKey(), opaqueKey())));
+    }
+
+    // Distinct keys of one class with the same hash and string form.
+    private static Object opaqueKey() {
+        return new Object() {
+            @Override
+            public int hashCode() {
+                return 0;
+            }
+
+            @Override
+            public String toString() {
+                return "Opaque";
+            }
+        };
+    }
+
+    @Test
+    public void testQueriesFollowLocksRenewalsUnlocksAndExpiry() {
+        TestScheduler scheduler = new TestScheduler();
+        try (SimpleResourceAcquisitionService<String> service = createService(scheduler)) {
+            assertFalse(service.isLocked("Item1"));
+            assertNull(service.holderOf("Item1"));
+            assertEquals(List.of(), service.locksHeldBy("User1"));
+
+            service.commit(ResourceAcquisitionCommand.Lock, "User1", "Item1");
+            service.commit(ResourceAcquisitionCommand.Lock, "User2", "Item2");
+            service.lockAll("User1", List.of("Item3", "Item4"));
+            scheduler.advanceTimeBy(10, TimeUnit.SECONDS);
+            service.commit(ResourceAcquisitionCommand.Lock, "USER1", "Item1");
+
+            assertTrue(service.isLocked("Item1"));
+            assertEquals("USER1", service.holderOf("Item1").getUserName());
+            assertEquals(Set.of("Item1", "Item3", "Item4"), Set.copyOf(service.locksHeldBy("user1")));
+            assertEquals(List.of("Item2"), service.locksHeldBy("User2"));
+
+            service.commit(ResourceAcquisitionCommand.Unlock, "User1", "Item3");
+            assertFalse(service.isLocked("Item3"));
+            assertEquals(Set.of("Item1", "Item4"), Set.copyOf(service.locksHeldBy("User1")));
+
+            scheduler.advanceTimeBy(20, TimeUnit.SECONDS);
+            assertEquals(List.of("Item1"), service.locksHeldBy("User1"));
+            assertEquals(List.of(), service.locksHeldBy("User2"));
+            assertNull(service.holderOf("Item2"));
+        }
+    }
+
+    @Test
+    public void testQueriesDoNotWaitForTheServiceLock() throws Exception {
+        CountDownLatch held = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        // Parks the writer inside the second lease's timer registration, which runs under the service lock.
+        SimpleResourceAcquisitionService.AutoUnlockScheduler scheduler = new SimpleResourceAcquisitionService.AutoUnlockScheduler() {
+            private int scheduled;
+
+            @Override
+            public SimpleResourceAcquisitionService.Cancellable schedule(final Runnable command, final TimeSpan delay) {
+                if (++scheduled == 2) {
+                    held.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return () -> {
+                };
+            }
+
+            @Override
+            public long now(final TimeUnit unit) {
+                return 0L;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        try (SimpleResourceAcquisitionService<String> service = new SimpleResourceAcquisitionService<>(
+                scheduler, TimeSpan.Default, Clock.systemUTC(), ResourceAcquisitionMetrics.createDefault())) {
+            service.commit(ResourceAcquisitionCommand.Lock, "User1", "Item1");
+            Thread writer = new Thread(() -> service.commit(ResourceAcquisitionCommand.Lock, "User2", "Item2"));
+            writer.start();
+            assertTrue(held.await(1, TimeUnit.MINUTES));
+
+            assertTrue(service.isLocked("Item1"));
+            assertEquals("User1", service.holderOf("Item1").getUserName());
+            assertEquals(List.of("Item1"), service.locksHeldBy("User1"));
+            release.countDown();
+            writer.join();
+        }
+    }
+
+    @Test
+    public void testRestoredLeasesAreIndexedByOwner(@TempDir final Path directory) throws IOException {
+        Path snapshot = directory.resolve("leases.snapshot");
+        try (SimpleResourceAcquisitionService<String> service = createService(new TestScheduler())) {
+            service.commit(ResourceAcquisitionCommand.Lock, "User1", "Item1");
+            service.writeSnapshot(snapshot, ResourceKeyCodec.utf8());
+        }
+        try (SimpleResourceAcquisitionService<String> restored = new SimpleResourceAcquisitionService<>(
+                new SimpleResourceAcquisitionService.RxAutoUnlockScheduler(new TestScheduler()),
+                TimeSpan.Default,
+                Clock.fixed(Instant.parse("2026-01-01T00:00:10Z"), ZoneOffset.UTC),
+                ResourceAcquisitionMetrics.createDefault())) {
+            assertEquals(1, restored.restoreSnapshot(snapshot, ResourceKeyCodec.utf8()));
+            assertEquals(List.of("Item1"), restored.locksHeldBy("user1"));
+        }
+    }
+
+    @Test
+    public void testReleaseAllDropsEveryLeaseOfTheUserAndHandsOffToWaiters() {
+        TestScheduler testScheduler = new TestScheduler();
+        CountingAutoUnlockScheduler scheduler = new CountingAutoUnlockScheduler(testScheduler);
+        try (SimpleResourceAcquisitionService<String> service = new SimpleResourceAcquisitionService<>(
+                scheduler, TimeSpan.Default, Clock.fixed(Instant.parse("2026-01-01T00:00:00Z"), ZoneOffset.UTC), ResourceAcquisitionMetrics.createDefault())) {
+            service.commit(ResourceAcquisitionCommand.Lock, "User1", "Item1");
+            service.commit(ResourceAcquisitionCommand.Lock, "User1", "Item2");
+            service.lockAll("User1", List.of("Item3", "Item4"));
+            service.commit(ResourceAcquisitionCommand.Lock, "User2", "Item5");
+            TestObserver<ResourceAcquisitionResponse> waiter = service.lockAsync("User2", "Item1", new TimeSpan(1, TimeUnit.MINUTES)).test();
+
+            assertEquals(4, service.releaseAll("USER1"));
+            waiter.assertValue(response -> response.getCommitResult() == ResourceAcquisitionCommandResult.LockSucceeded);
+            // Two lease timers, the group timer, and the granted waiter's wait timeout.
+            assertEquals(4, scheduler.cancelled);
+            assertEquals(List.of(), service.locksHeldBy("User1"));
+            assertEquals(Set.of("Item1", "Item5"), Set.copyOf(service.locksHeldBy("User2")));
+            for (String resource : List.of("Item2", "Item3", "Item4")) {
+                assertFalse(service.isLocked(resource));
+            }
+
+            assertEquals(0, service.releaseAll("User1"));
+            assertEquals(0, service.releaseAll("User3"));
+        }
+    }
+
+    @Test
+    public void testReleaseAllUpdatesActiveLocksOnce() {
+        InMemoryMetricReader metricReader = InMemoryMetricReader.create();
+        SdkMeterProvider meterProvider = SdkMeterProvider.builder()
+                .registerMetricReader(metricReader)
+                .build();
+        try (SimpleResourceAcquisitionService<String> service = new SimpleResourceAcquisitionService<>(
+                new TestScheduler(), TimeSpan.Default, meterProvider.get(ResourceAcquisitionMetrics.METER_NAME))) {
+            for (int i = 0; i < 10; i++) {
+                service.commit(ResourceAcquisitionCommand.Lock, i < 7 ? "User1" : "User2", "Item" + i);
+            }
+            assertEquals(7, service.releaseAll("User1"));
+
+            long activeLocks = 0;
+            long holdDurations = 0;
+            for (MetricData metric : metricReader.collectAllMetrics()) {
+                if (metric.getName().equals(ResourceAcquisitionMetrics.ACTIVE_LOCKS_METRIC_NAME)) {
+                    activeLocks = metric.getLongSumData().getPoints().iterator().next().getValue();
+                } else if (metric.getName().equals(ResourceAcquisitionMetrics.HOLD_DURATION_METRIC_NAME)) {
+                    holdDurations = metric.getHistogramData().getPoints().iterator().next().getCount();
+                }
+            }
+            assertEquals(3, activeLocks);
+            assertEquals(7, holdDurations);
+        } finally {
+            meterProvider.close();
+        }
+    }
+
+    @Test
+    public void testReleaseAllIsJournaled(@TempDir final Path directory) throws IOException {
+        Path path = directory.resolve("locks.journal");
+        TestScheduler scheduler = new TestScheduler();
+        try (var service = new SimpleResourceAcquisitionService<>(
+                new SimpleResourceAcquisitionService.RxAutoUnlockScheduler(scheduler),
+                TimeSpan.Default,
+                Clock.systemUTC(),
+                ResourceAcquisitionMetrics.createDefault(),
+                new ResourceAcquisitionJournal<>(path, ResourceKeyCodec.utf8(), 4, scheduler, WAIT_TIMEOUT))) {
+            for (int i = 0; i < 6; i++) {
+                service.commit(ResourceAcquisitionCommand.Lock, i == 0 ? "User2" : "User1", "Item" + i);
+            }
+            assertEquals(5, service.releaseAll("User1"));
+        }
+        try (var restored = new SimpleResourceAcquisitionService<>(
+                new SimpleResourceAcquisitionService.RxAutoUnlockScheduler(scheduler),
+                TimeSpan.Default,
+                Clock.systemUTC(),
+                ResourceAcquisitionMetrics.createDefault(),
+                new ResourceAcquisitionJournal<>(path, ResourceKeyCodec.utf8(), 4, scheduler, WAIT_TIMEOUT))) {
+            assertEquals(List.of("Item0"), restored.locksHeldBy("User2"));
+            assertEquals(List.of(), restored.locksHeldBy("User1"));
+        }
+    }
+
+    @Test
+    public void testSuccessfulLocksCarryIncreasingFencingTokens() {
+        TestScheduler scheduler = new TestScheduler();
+        try (SimpleResourceAcquisitionService<String> service = createService(scheduler)) {
+            long first = service.commit(ResourceAcquisitionCommand.Lock, "User1", "Item1").getFencingToken();
+            long second = service.commit(ResourceAcquisitionCommand.Lock, "User1", "Item2").getFencingToken();
+            assertEquals(Instant.parse("2026-01-01T00:00:00Z").toEpochMilli() << 20, first - 1);
+            assertEquals(first + 1, second);
+            assertEquals(first, service.commit(ResourceAcquisitionCommand.Lock, "user1", "Item1").getFencingToken());
+            assertEquals(ResourceAcquisitionResponse.NO_FENCING_TOKEN,
+                    service.commit(ResourceAcquisitionCommand.Lock, "User2", "Item1").getFencingToken());
+            assertEquals(ResourceAcquisitionResponse.NO_FENCING_TOKEN,
+                    service.commit(ResourceAcquisitionCommand.Unlock, "User1", "Item1").getFencingToken());
+
+            TestObserver<ResourceAcquisitionResponse> waiter = service.lockAsync("User2", "Item2", new TimeSpan(1, TimeUnit.MINUTES)).test();
+            service.commit(ResourceAcquisitionCommand.Unlock, "User1", "Item2");
+            waiter.assertValue(response -> response.getFencingToken() == second + 1);
+            assertEquals(second + 2, service.commit(ResourceAcquisitionCommand.Lock, "User1", "Item1").getFencingToken());
+        }
+    }
+
+    @Test
+    public void testRenewAndUnlockByFencingToken() {
+        TestScheduler scheduler = new TestScheduler();
+        try (SimpleResourceAcquisitionService<String> service = createService(scheduler)) {
+            long token = service.commit(ResourceAcquisitionCommand.Lock, "User1", "Item1").getFencingToken();
+            scheduler.advanceTimeBy(20, TimeUnit.SECONDS);
+            ResourceAcquisitionResponse renewed = service.renew("Item1", token);
+            assertEquals(ResourceAcquisitionCommandResult.LockSucceeded, renewed.getCommitResult());
+            assertEquals("User1", renewed.getResource().getUserName());
+            assertEquals(token, renewed.getFencingToken());
+            scheduler.advanceTimeBy(20, TimeUnit.SECONDS);
+            assertTrue(service.isLocked("Item1"));
+
+            ResourceAcquisitionResponse staleRenew = service.renew("Item1", token + 1);
+            assertEquals(ResourceAcquisitionCommandResult.LockFailed, staleRenew.getCommitResult());
+            assertEquals("User1", staleRenew.getResource().getUserName());
+            assertEquals(ResourceAcquisitionResponse.NO_FENCING_TOKEN, staleRenew.getFencingToken());
+            assertEquals(ResourceAcquisitionCommandResult.UnlockFailed, service.unlock("Item1", token - 1).getCommitResult());
+
+            TestObserver<ResourceAcquisitionResponse> waiter = service.lockAsync("User2", "Item1", new TimeSpan(1, TimeUnit.MINUTES)).test();
+            assertEquals(ResourceAcquisitionCommandResult.UnlockSucceeded, service.unlock("Item1", token).getCommitResult());
+            waiter.assertValue(response -> response.getCommitResult() == ResourceAcquisitionCommandResult.LockSucceeded);
+            long newer = waiter.values().get(0).getFencingToken();
+            assertTrue(newer > token);
+            assertEquals(ResourceAcquisitionCommandResult.LockFailed, service.renew("Item1", token).getCommitResult());
+            assertEquals(ResourceAcquisitionCommandResult.UnlockFailed, service.unlock("Item1", token).getCommitResult());
+
+            scheduler.advanceTimeBy(30, TimeUnit.SECONDS);
+            ResourceAcquisitionResponse expiredRenew = service.renew("Item1", newer);
+            assertEquals(ResourceAcquisitionCommandResult.LockFailed, expiredRenew.getCommitResult());
+            assertEquals(ResourceAcquisitionState.Unlocked, expiredRenew.getResource().getState());
+            assertEquals(ResourceAcquisitionCommandResult.UnlockFailed, service.unlock("Item1", newer).getCommitResult());
+        }
+    }
+
+    @Test
+    public void testTokenCommandsAreMeasuredLikeCommits() {
+        InMemoryMetricReader metricReader = InMemoryMetricReader.create();
+        SdkMeterProvider meterProvider = SdkMeterProvider.builder()
+                .registerMetricReader(metricReader)
+                .build();
+        try (SimpleResourceAcquisitionService<String> service = new SimpleResourceAcquisitionService<>(
+                new TestScheduler(), TimeSpan.Default, meterProvider.get(ResourceAcquisitionMetrics.METER_NAME))) {
+            long token = service.commit(ResourceAcquisitionCommand.Lock, "User1", "Item1").getFencingToken();
+            service.renew("Item1", token);
+            service.unlock("Item1", token);
+
+            Map<String, Long> counts = new HashMap<>();
+            long commitDurations = 0;
+            for (MetricData metric : metricReader.collectAllMetrics()) {
+                if (metric.getName().equals(ResourceAcquisitionMetrics.COMMIT_DURATION_METRIC_NAME)) {
+                    commitDurations = metric.getHistogramData().getPoints().iterator().next().getCount();
+                } else if (metric.getType() == MetricDataType.LONG_SUM && metric.getLongSumData().isMonotonic()) {
+                    metric.getLongSumData().getPoints().forEach(point -> counts.put(point.getAttributes().asMap().values().iterator().next().toString(), point.getValue()));
+                }
+            }
+            assertEquals(Map.of("Lock", 2L, "Unlock", 1L, "LockSucceeded", 2L, "UnlockSucceeded", 1L), counts);
+            assertEquals(3, commitDurations);
+        } finally {
+            meterProvider.close();
+        }
+    }
+
+    @Test
+    public void testFencingTokensKeepIncreasingAfterARestart(@TempDir final Path directory) throws IOException {
+        Path path = directory.resolve("locks.journal");
+        TestScheduler scheduler = new TestScheduler();
+        long before;
+        try (var service = new SimpleResourceAcquisitionService<>(
+                new SimpleResourceAcquisitionService.RxAutoUnlockScheduler(scheduler),
+                TimeSpan.Default,
+                Clock.fixed(Instant.parse("2026-01-01T00:00:00Z"), ZoneOffset.UTC),
+                ResourceAcquisitionMetrics.createDefault(),
+                new ResourceAcquisitionJournal<>(path, ResourceKeyCodec.utf8(), 4, scheduler, WAIT_TIMEOUT))) {
+            before = service.commit(ResourceAcquisitionCommand.Lock, "User1", "Item1").getFencingToken();
+        }
+        try (var restored = new SimpleResourceAcquisitionService<>(
+                new SimpleResourceAcquisitionService.RxAutoUnlockScheduler(scheduler),
+                TimeSpan.Default,
+                Clock.fixed(Instant.parse("2026-01-01T00:00:01Z"), ZoneOffset.UTC),
+                ResourceAcquisitionMetrics.createDefault(),
+                new ResourceAcquisitionJournal<>(path, ResourceKeyCodec.utf8(), 4, scheduler, WAIT_TIMEOUT))) {
+            assertEquals(ResourceAcquisitionCommandResult.LockFailed, restored.renew("Item1", before).getCommitResult());
+            ResourceAcquisitionResponse renewed = restored.commit(ResourceAcquisitionCommand.Lock, "User1", "Item1");
+            assertTrue(renewed.getFencingToken() > before);
+            assertTrue(restored.commit(ResourceAcquisitionCommand.Lock, "User1", "Item2").getFencingToken() > renewed.getFencingToken());
+        }
+    }
+
+    @Test
+    public void testSharedLeasesAreHeldTogetherAndKeepExclusiveLocksOut() {
+        try (SimpleResourceAcquisitionService<String> service = createService(new TestScheduler())) {
+            ResourceAcquisitionResponse first = service.lockShared("User1", "Item1");
+            assertEquals(ResourceAcquisitionCommandResult.LockSucceeded, first.getCommitResult());
+            assertEquals(ResourceAcquisitionState.Shared, first.getResource().getState());
+            assertEquals(ResourceAcquisitionCommandResult.LockSucceeded, service.lockShared("User2", "Item1").getCommitResult());
+            assertEquals(ResourceAcquisitionCommandResult.LockSucceeded, service.lockShared("user1", "Item1").getCommitResult());
+            assertEquals(2, service.sharedHolderCount("Item1"));
+            assertEquals(List.of("Item1"), service.locksHeldBy("User2"));
+            assertTrue(service.isLocked("Item1"));
+
+            ResourceAcquisitionResponse blocked = service.commit(ResourceAcquisitionCommand.Lock, "User3", "Item1");
+            assertEquals(ResourceAcquisitionCommandResult.LockFailed, blocked.getCommitResult());
+            assertEquals(ResourceAcquisitionState.Shared, blocked.getResource().getState());
+            assertEquals(ResourceAcquisitionCommandResult.LockFailed, service.commit(ResourceAcquisitionCommand.Lock, "User1", "Item1").getCommitResult());
+            ResourceAcquisitionGroupResponse<String> group = service.lockAll("User3", List.of("Item1", "Item2"));
+            assertEquals(ResourceAcquisitionCommandResult.LockFailed, group.getCommitResult());
+            assertEquals("Item1", group.getBlockingResource());
+            assertEquals(ResourceAcquisitionCommandResult.UnlockFailed, service.unlockShared("User3", "Item1").getCommitResult());
+
+            assertEquals(ResourceAcquisitionCommandResult.UnlockSucceeded, service.unlockShared("USER1", "Item1").getCommitResult());
+            assertEquals(1, service.sharedHolderCount("Item1"));
+            assertEquals(ResourceAcquisitionCommandResult.UnlockSucceeded, service.unlockShared("User2", "Item1").getCommitResult());
+            assertEquals(0, service.sharedHolderCount("Item1"));
+            assertEquals(ResourceAcquisitionCommandResult.UnlockFailed, service.unlockShared("User2", "Item1").getCommitResult());
+
+            assertEquals(ResourceAcquisitionCommandResult.LockSucceeded, service.commit(ResourceAcquisitionCommand.Lock, "User3", "Item1").getCommitResult());
+            ResourceAcquisitionResponse reader = service.lockShared("User1", "Item1");
+            assertEquals(ResourceAcquisitionCommandResult.LockFailed, reader.getCommitResult());
+            assertEquals("User3", reader.getResource().getUserName());
+            assertEquals(ResourceAcquisitionCommandResult.UnlockFailed, service.unlockShared("User3", "Item1").getCommitResult());
+            assertEquals(0, service.sharedHolderCount("Item1"));
+        }
+    }
+
+    @Test
+    public void testWaitingWriterIsGrantedWhenTheLastSharedHolderLeaves() {
+        TestScheduler scheduler = new TestScheduler();
+        try (SimpleResourceAcquisitionService<String> service = createService(scheduler)) {
+            service.lockShared("User1", "Item1");
+            scheduler.advanceTimeBy(15, TimeUnit.SECONDS);
+            service.lockShared("User2", "Item1");
+            TestObserver<ResourceAcquisitionResponse> writer = service.lockAsync("User3", "Item1", new TimeSpan(2, TimeUnit.MINUTES)).test();
+
+            // Queued writers keep new readers out, but current holders may still renew.
+            assertEquals(ResourceAcquisitionCommandResult.LockFailed, service.lockShared("User4", "Item1").getCommitResult());
+            assertEquals(ResourceAcquisitionCommandResult.LockSucceeded, service.lockShared("User2", "Item1").getCommitResult());
+
+            service.unlockShared("User2", "Item1");
+            writer.assertEmpty();
+            scheduler.advanceTimeBy(15, TimeUnit.SECONDS);
+            writer.assertValue(response -> response.getCommitResult() == ResourceAcquisitionCommandResult.LockSucceeded
+                    && response.getResource().getUserName().equals("User3"));
+            assertEquals(0, service.sharedHolderCount("Item1"));
+            assertEquals("User3", service.holderOf("Item1").getUserName());
+
+            service.lockShared("User1", "Item2");
+            TestObserver<ResourceAcquisitionResponse> timedOut = service.lockAsync("User3", "Item2", WAIT_TIMEOUT).test();
+            scheduler.advanceTimeBy(5, TimeUnit.SECONDS);
+            timedOut.assertValue(response -> response.getCommitResult() == ResourceAcquisitionCommandResult.LockFailed
+                    && response.getResource().getState() == ResourceAcquisitionState.Shared);
+        }
+    }
+
+    @Test
+    public void testSharedCommandsAreMeasuredLikeCommits() {
+        InMemoryMetricReader metricReader = InMemoryMetricReader.create();
+        SdkMeterProvider meterProvider = SdkMeterProvider.builder()
+                .registerMetricReader(metricReader)
+                .build();
+        try (SimpleResourceAcquisitionService<String> service = new SimpleResourceAcquisitionService<>(
+                new TestScheduler(), TimeSpan.Default, meterProvider.get(ResourceAcquisitionMetrics.METER_NAME))) {
+            service.lockShared("User1", "Item1");
+            TestObserver<ResourceAcquisitionResponse> writer = service.lockAsync("User2", "Item1", WAIT_TIMEOUT).test();
+            service.unlockShared("User1", "Item1");
+            writer.assertValue(response -> response.getCommitResult() == ResourceAcquisitionCommandResult.LockSucceeded);
+
+            Map<String, Long> counts = new HashMap<>();
+            long commitDurations = 0;
+            long holdDurations = 0;
+            for (MetricData metric : metricReader.collectAllMetrics()) {
+                if (metric.getName().equals(ResourceAcquisitionMetrics.COMMIT_DURATION_METRIC_NAME)) {
+                    commitDurations = metric.getHistogramData().getPoints().iterator().next().getCount();
+                } else if (metric.getName().equals(ResourceAcquisitionMetrics.HOLD_DURATION_METRIC_NAME)) {
+                    holdDurations = metric.getHistogramData().getPoints().iterator().next().getCount();
+                } else if (metric.getType() == MetricDataType.LONG_SUM && metric.getLongSumData().isMonotonic()) {
+                    metric.getLongSumData().getPoints().forEach(point -> counts.put(point.getAttributes().asMap().values().iterator().next().toString(), point.getValue()));
+                }
+            }
+            assertEquals(Map.of("Lock", 2L, "Unlock", 1L, "LockSucceeded", 2L, "UnlockSucceeded", 1L), counts);
+            assertEquals(2, commitDurations);
+            assertEquals(1, holdDurations);
+        } finally {
+            meterProvider.close();
+        }
+    }
+
+    @Test
+    public void testSharedHoldersExpireIndependently() {
+        TestScheduler scheduler = new TestScheduler();
+        try (SimpleResourceAcquisitionService<String> service = createService(scheduler)) {
+            service.lockShared("User1", "Item1");
+            scheduler.advanceTimeBy(20, TimeUnit.SECONDS);
+            service.lockShared("User2", "Item1");
+            scheduler.advanceTimeBy(9, TimeUnit.SECONDS);
+            assertEquals(2, service.sharedHolderCount("Item1"));
+            scheduler.advanceTimeBy(1, TimeUnit.SECONDS);
+            assertEquals(List.of(), service.locksHeldBy("User1"));
+            assertEquals(List.of("Item1"), service.locksHeldBy("User2"));
+            scheduler.advanceTimeBy(20, TimeUnit.SECONDS);
+            assertEquals(0, service.sharedHolderCount("Item1"));
+        }
+    }
+
+    @Test
+    public void testQueriesReportResourcesHeldOnlyInSharedMode() {
+        TestScheduler scheduler = new TestScheduler();
+        try (SimpleResourceAcquisitionService<String> service = createService(scheduler)) {
+            service.lockShared("User2", "Item1");
+            service.lockShared("User1", "Item1");
+            assertTrue(service.isLocked("Item1"));
+            assertEquals("User1", service.holderOf("Item1").getUserName());
+
+            service.unlockShared("User1", "Item1");
+            assertEquals("User2", service.holderOf("Item1").getUserName());
+            service.unlockShared("User2", "Item1");
+            assertFalse(service.isLocked("Item1"));
+            assertNull(service.holderOf("Item1"));
+        }
+    }
+
+    @Test
+    public void testStaleSharedTimerIsIgnored() {
+        StaleAutoUnlockScheduler scheduler = new StaleAutoUnlockScheduler();
+        try (SimpleResourceAcquisitionService<String> service = new SimpleResourceAcquisitionService<>(
+                scheduler, TimeSpan.Default, Clock.systemUTC(), ResourceAcquisitionMetrics.createDefault())) {
+            service.lockShared("User1", "Item1");
+            service.unlockShared("User1", "Item1");
+            service.lockShared("User1", "Item1");
+            scheduler.runCommand(0);
+            assertEquals(1, service.sharedHolderCount("Item1"));
+        }
+    }
+
+    @Test
+    public void testSharedLeasesAreReleasedButNeverJournaledOrSnapshotted(@TempDir final Path directory) throws IOException {
+        Path path = directory.resolve("locks.journal");
+        Path snapshot = directory.resolve("locks.snapshot");
+        TestScheduler scheduler = new TestScheduler();
+        try (var service = new SimpleResourceAcquisitionService<>(
+                new SimpleResourceAcquisitionService.RxAutoUnlockScheduler(scheduler),
+                TimeSpan.Default,
+                Clock.systemUTC(),
+                ResourceAcquisitionMetrics.createDefault(),
+                new ResourceAcquisitionJournal<>(path, ResourceKeyCodec.utf8(), 4, scheduler, WAIT_TIMEOUT))) {
+            service.commit(ResourceAcquisitionCommand.Lock, "User1", "Item1");
+            service.lockShared("User1", "Item2");
+            service.lockShared("User2", "Item2");
+            service.lockShared("User1", "Item3");
+            service.writeSnapshot(snapshot, ResourceKeyCodec.utf8());
+            assertEquals(3, service.releaseAll("User1"));
+            assertEquals(1, service.sharedHolderCount("Item2"));
+            assertEquals(0, service.sharedHolderCount("Item3"));
+
+            service.unlockShared("User2", "Item2");
+            service.lockShared("User2", "Item1");
+            assertEquals(0, service.restoreSnapshot(snapshot, ResourceKeyCodec.utf8()));
+        }
+        try (var restored = new SimpleResourceAcquisitionService<>(
+                new SimpleResourceAcquisitionService.RxAutoUnlockScheduler(scheduler),
+                TimeSpan.Default,
+                Clock.systemUTC(),
+                ResourceAcquisitionMetrics.createDefault(),
+                new ResourceAcquisitionJournal<>(path, ResourceKeyCodec.utf8(), 4, scheduler, WAIT_TIMEOUT))) {
+            assertEquals(List.of(), restored.locksHeldBy("User1"));
+            assertEquals(List.of(), restored.locksHeldBy("User2"));
+        }
+    }
+
+    private static List<String> describe(final List<List<LockEvent<String>>> batches) {
+        return batches.stream()
+                .flatMap(List::stream)
+                .map(event -> event.getType() + " " + event.getResource() + " " + event.getAcquiredResource().getUserName())
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    public void testLockEventsReportAcquisitionsRenewalsUnlocksAndExpiries() {
+        TestScheduler scheduler = new TestScheduler();
+        try (SimpleResourceAcquisitionService<String> service = createService(scheduler)) {
+            service.commit(ResourceAcquisitionCommand.Lock, "User1", "Item0");
+            TestSubscriber<List<LockEvent<String>>> subscriber = service.lockEvents(scheduler, 16, BackpressureOverflowStrategy.ERROR).test();
+
+            service.commit(ResourceAcquisitionCommand.Lock, "User1", "Item1");
+            service.commit(ResourceAcquisitionCommand.Lock, "User1", "Item1");
+            service.commit(ResourceAcquisitionCommand.Lock, "User2", "Item1");
+            service.commit(ResourceAcquisitionCommand.Unlock, "User2", "Item1");
+            service.commit(ResourceAcquisitionCommand.Unlock, "User1", "Item1");
+            service.lockAll("User1", List.of("Item3", "Item0"));
+            TestObserver<ResourceAcquisitionResponse> waiter = service.lockAsync("User2", "Item3", new TimeSpan(1, TimeUnit.MINUTES)).test();
+            subscriber.assertEmpty();
+
+            scheduler.triggerActions();
+            subscriber.assertValueCount(1);
+            assertEquals(List.of(
+                    "Acquired Item1 User1",
+                    "Renewed Item1 User1",
+                    "Unlocked Item1 User1",
+                    "Renewed Item0 User1",
+                    "Acquired Item3 User1"), describe(subscriber.values()));
+            assertEquals(ResourceAcquisitionState.Locked, subscriber.values().get(0).get(2).getAcquiredResource().getState());
+
+            scheduler.advanceTimeBy(30, TimeUnit.SECONDS);
+            waiter.assertValue(response -> response.getCommitResult() == ResourceAcquisitionCommandResult.LockSucceeded);
+            assertEquals(List.of(
+                    "Expired Item0 User1",
+                    "Expired Item3 User1",
+                    "Acquired Item3 User2"), describe(subscriber.values().subList(1, subscriber.values().size())));
+        }
+    }
+
+    @Test
+    public void testSlowEventSubscribersNeverStallCommits() {
+        TestScheduler scheduler = new TestScheduler();
+        try (SimpleResourceAcquisitionService<String> service = createService(scheduler)) {
+            TestSubscriber<List<LockEvent<String>>> dropping = service.lockEvents(scheduler, 2, BackpressureOverflowStrategy.DROP_OLDEST).test(0);
+            TestSubscriber<List<LockEvent<String>>> failing = service.lockEvents(scheduler, 2, BackpressureOverflowStrategy.ERROR).test(0);
+
+            for (int i = 0; i < 100; i++) {
+                assertEquals(ResourceAcquisitionCommandResult.LockSucceeded,
+                        service.commit(ResourceAcquisitionCommand.Lock, "User1", "Item" + i).getCommitResult());
+            }
+            scheduler.triggerActions();
+            failing.assertError(MissingBackpressureException.class);
+
+            dropping.request(1);
+            scheduler.triggerActions();
+            assertEquals(List.of("Acquired Item98 User1", "Acquired Item99 User1"), describe(dropping.values()));
+        }
+    }
+
+    @Test
+    public void testLockEventsCompleteWhenTheServiceCloses() throws InterruptedException {
+        TestScheduler scheduler = new TestScheduler();
+        SimpleResourceAcquisitionService<String> service = createService(scheduler);
+        TestSubscriber<List<LockEvent<String>>> subscriber = service.lockEvents().test();
+        service.commit(ResourceAcquisitionCommand.Lock, "User1", "Item1");
+        service.close();
+
+        subscriber.await(1, TimeUnit.MINUTES);
+        subscriber.assertComplete();
+        assertEquals(List.of("Acquired Item1 User1"), describe(subscriber.values()));
+    }
+
     @Test
     public void testCommitCanBeDoneOnlyByOwner() {
         SimpleResourceAcquisitionService<String> service = new SimpleResourceAcquisitionService<>();
@@ -348,4 +1690,105 @@ public class ResourceAcquisitionServiceTest {
         assertNotEquals(thirtySeconds, "not a time span");
         assertFalse(thirtySeconds.equals(differentInterval));
     }
+
+    private static List<String> hotKeys(final List<HotKey<String>> hotKeys) {
+        return hotKeys.stream().map(hotKey -> hotKey.getResource() + "=" + hotKey.getEstimate()).collect(Collectors.toList());
+    }
+
+    @Test
+    public void testHotKeyReportRanksAttemptsFailuresAndHoldTime() {
+        TestScheduler scheduler = new TestScheduler();
+        try (SimpleResourceAcquisitionService<String> service = createService(scheduler)) {
+            assertThrows(IllegalStateException.class, service::hotKeyReport);
+            assertThrows(IllegalArgumentException.class, () -> service.trackHotKeys(0));
+            service.trackHotKeys(2);
+
+            service.commit(ResourceAcquisitionCommand.Lock, "User1", "Item1");
+            for (int attempt = 0; attempt < 3; attempt++) {
+                service.commit(ResourceAcquisitionCommand.Lock, "User2", "Item1");
+            }
+            service.commit(ResourceAcquisitionCommand.Lock, "User2", "Item2");
+            service.commit(ResourceAcquisitionCommand.Lock, "User2", "Item2");
+            service.commit(ResourceAcquisitionCommand.Lock, "User3", "Item3");
+            assertEquals("Item1", service.lockAll("User4", List.of("Item4", "Item1")).getBlockingResource());
+            assertNull(service.lockAll("User5", List.of("Item6")).getBlockingResource());
+            service.commit(ResourceAcquisitionCommand.Unlock, "User5", "Item6");
+            service.lockShared("Reader", "Item5");
+
+            scheduler.advanceTimeBy(10, TimeUnit.SECONDS);
+            service.commit(ResourceAcquisitionCommand.Unlock, "User3", "Item3");
+            scheduler.advanceTimeBy(5, TimeUnit.SECONDS);
+            service.unlockShared("Reader", "Item5");
+            scheduler.advanceTimeBy(5, TimeUnit.SECONDS);
+            assertEquals(1, service.releaseAll("User2"));
+
+            HotKeyReport<String> report = service.hotKeyReport();
+            assertEquals(List.of("Item1=5", "Item2=2"), hotKeys(report.getLockAttempts()));
+            assertEquals(List.of("Item1=4"), hotKeys(report.getLockFailures()));
+            assertEquals(List.of("Item2=20000000000", "Item5=15000000000"), hotKeys(report.getHoldTimes()));
+
+            scheduler.advanceTimeBy(10, TimeUnit.SECONDS);
+            assertEquals(List.of("Item1=30000000000", "Item2=20000000000"), hotKeys(service.hotKeyReport().getHoldTimes()));
+
+            service.trackHotKeys(2);
+            assertTrue(service.hotKeyReport().getLockAttempts().isEmpty());
+        }
+    }
+
+    @Test
+    public void testHotKeyReportsArePublishedPeriodically() {
+        TestScheduler scheduler = new TestScheduler();
+        try (SimpleResourceAcquisitionService<String> service = createService(scheduler)) {
+            service.trackHotKeys(4);
+            TestSubscriber<HotKeyReport<String>> reports = service.hotKeyReports(scheduler, new TimeSpan(10, TimeUnit.SECONDS)).test();
+
+            service.commit(ResourceAcquisitionCommand.Lock, "User1", "Item1");
+            scheduler.advanceTimeBy(10, TimeUnit.SECONDS);
+            service.commit(ResourceAcquisitionCommand.Lock, "User2", "Item1");
+            scheduler.advanceTimeBy(10, TimeUnit.SECONDS);
+
+            reports.assertValueCount(2);
+            assertEquals(List.of("Item1=1"), hotKeys(reports.values().get(0).getLockAttempts()));
+            assertEquals(List.of("Item1=2"), hotKeys(reports.values().get(1).getLockAttempts()));
+            assertEquals(List.of("Item1=1"), hotKeys(reports.values().get(1).getLockFailures()));
+            reports.cancel();
+        }
+    }
+
+    @Test
+    public void testHotKeyGaugesArePublishedPerResource() {
+        InMemoryMetricReader metricReader = InMemoryMetricReader.create();
+        SdkMeterProvider meterProvider = SdkMeterProvider.builder()
+                .registerMetricReader(metricReader)
+                .build();
+        TestScheduler scheduler = new TestScheduler();
+        SimpleResourceAcquisitionService<String> service = new SimpleResourceAcquisitionService<>(
+                scheduler,
+                TimeSpan.Default,
+                meterProvider.get(ResourceAcquisitionMetrics.METER_NAME));
+        service.trackHotKeys(4);
+        service.trackHotKeys(4);
+
+        service.commit(ResourceAcquisitionCommand.Lock, "User1", "Item1");
+        service.commit(ResourceAcquisitionCommand.Lock, "User2", "Item1");
+        scheduler.advanceTimeBy(3, TimeUnit.SECONDS);
+        service.commit(ResourceAcquisitionCommand.Unlock, "User1", "Item1");
+
+        Map<String, MetricData> gauges = metricReader.collectAllMetrics().stream()
+                .filter(metric -> metric.getName().startsWith("ras.resource_acquisition.hot_keys."))
+                .collect(Collectors.toMap(MetricData::getName, metric -> metric));
+        assertEquals(2L, gauges.get(ResourceAcquisitionMetrics.HOT_KEY_LOCK_ATTEMPTS_METRIC_NAME).getLongGaugeData().getPoints().iterator().next().getValue());
+        assertEquals(1L, gauges.get(ResourceAcquisitionMetrics.HOT_KEY_LOCK_FAILURES_METRIC_NAME).getLongGaugeData().getPoints().iterator().next().getValue());
+        io.opentelemetry.sdk.metrics.data.DoublePointData holdTime =
+                gauges.get(ResourceAcquisitionMetrics.HOT_KEY_HOLD_TIME_METRIC_NAME).getDoubleGaugeData().getPoints().iterator().next();
+        assertEquals(3.0, holdTime.getValue());
+        assertEquals("Item1", holdTime.getAttributes().get(io.opentelemetry.api.common.AttributeKey.stringKey("resource")));
+
+        service.close();
+        Set<String> metricNames = metricReader.collectAllMetrics().stream()
+                .map(MetricData::getName)
+                .collect(Collectors.toSet());
+        meterProvider.close();
+        assertFalse(metricNames.contains(ResourceAcquisitionMetrics.HOT_KEY_LOCK_ATTEMPTS_METRIC_NAME));
+    }
 }
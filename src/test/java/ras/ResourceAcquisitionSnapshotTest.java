@@ -0,0 +1,228 @@
+package ras;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import io.reactivex.rxjava3.schedulers.TestScheduler;
+
+public class ResourceAcquisitionSnapshotTest {
+
+    private static final Instant START = Instant.parse("2026-01-01T00:00:00Z");
+    private static final TimeSpan SHORT_TIMEOUT = new TimeSpan(10, TimeUnit.SECONDS);
+
+    @TempDir
+    Path directory;
+
+    private static Clock clockAt(final long offsetMillis) {
+        return Clock.fixed(START.plusMillis(offsetMillis), ZoneOffset.UTC);
+    }
+
+    private static <T> SimpleResourceAcquisitionService<T> createSimpleService(final TestScheduler scheduler,
+                                                                               final TimeSpan unlockTimeout,
+                                                                               final Clock clock) {
+        return new SimpleResourceAcquisitionService<>(
+                new SimpleResourceAcquisitionService.RxAutoUnlockScheduler(scheduler), unlockTimeout, clock, ResourceAcquisitionMetrics.createDefault());
+    }
+
+    private static <T> ConcurrentResourceAcquisitionService<T> createConcurrentService(final TestScheduler scheduler,
+                                                                                       final TimeSpan unlockTimeout,
+                                                                                       final Clock clock) {
+        return new ConcurrentResourceAcquisitionService<>(
+                new SimpleResourceAcquisitionService.RxAutoUnlockScheduler(scheduler), unlockTimeout, clock, ResourceAcquisitionMetrics.createDefault());
+    }
+
+    private static void assertRestoredLease(final ResourceAcquisitionService<String> service, final TestScheduler scheduler) {
+        ResourceAcquisitionResponse response = service.commit(ResourceAcquisitionCommand.Lock, "User3", "Item1");
+        assertEquals(ResourceAcquisitionCommandResult.LockFailed, response.getCommitResult());
+        assertEquals("User1", response.getResource().getUserName());
+        assertEquals(SHORT_TIMEOUT, response.getResource().getStateTimeout());
+        assertEquals(START.toEpochMilli(), response.getResource().getUtcTimeStamp().getInterval());
+        assertEquals("User3", service.commit(ResourceAcquisitionCommand.Lock, "User4", "Item2").getResource().getUserName());
+
+        scheduler.advanceTimeBy(5_999, TimeUnit.MILLISECONDS);
+        assertEquals(ResourceAcquisitionCommandResult.LockFailed,
+                service.commit(ResourceAcquisitionCommand.Lock, "User3", "Item1").getCommitResult());
+        scheduler.advanceTimeBy(1, TimeUnit.MILLISECONDS);
+        assertEquals(ResourceAcquisitionCommandResult.LockSucceeded,
+                service.commit(ResourceAcquisitionCommand.Lock, "User3", "Item1").getCommitResult());
+    }
+
+    private void writeSnapshot(final Path path, final AcquiredResource... lockedItems) throws IOException {
+        try (var writer = new ResourceAcquisitionSnapshot.Writer<>(path, ResourceKeyCodec.utf8())) {
+            for (int i = 0; i < lockedItems.length; i++) {
+                writer.write("Item" + i, lockedItems[i]);
+            }
+            writer.commit();
+        }
+    }
+
+    private static <T> List<ResourceAcquisitionSnapshot.Entry<T>> readAll(final Path path, final ResourceKeyCodec<T> codec) throws IOException {
+        try (var reader = new ResourceAcquisitionSnapshot.Reader<>(path, codec)) {
+            List<ResourceAcquisitionSnapshot.Entry<T>> entries = new ArrayList<>();
+            for (ResourceAcquisitionSnapshot.Entry<T> entry = reader.next(); entry != null; entry = reader.next()) {
+                entries.add(entry);
+            }
+            return entries;
+        }
+    }
+
+    @Test
+    public void testSimpleServiceRestoresLeasesWithTheirOwnDeadline() throws IOException {
+        Path path = directory.resolve("locks.snapshot");
+        try (SimpleResourceAcquisitionService<String> service = createSimpleService(new TestScheduler(), SHORT_TIMEOUT, clockAt(0))) {
+            service.commit(ResourceAcquisitionCommand.Lock, "User1", "Item1");
+            service.commit(ResourceAcquisitionCommand.Lock, "User2", "Item2");
+            service.commit(ResourceAcquisitionCommand.Lock, "User2", "Item3");
+            service.commit(ResourceAcquisitionCommand.Unlock, "User2", "Item3");
+            service.writeSnapshot(path, ResourceKeyCodec.utf8());
+        }
+
+        TestScheduler scheduler = new TestScheduler();
+        try (SimpleResourceAcquisitionService<String> service = createSimpleService(scheduler, TimeSpan.Default, clockAt(4_000))) {
+            service.commit(ResourceAcquisitionCommand.Lock, "User3", "Item2");
+            assertEquals(1, service.restoreSnapshot(path, ResourceKeyCodec.utf8()));
+            assertRestoredLease(service, scheduler);
+        }
+    }
+
+    @Test
+    public void testConcurrentServiceRestoresLeasesWithTheirOwnDeadline() throws IOException {
+        Path path = directory.resolve("locks.snapshot");
+        try (ConcurrentResourceAcquisitionService<String> service = createConcurrentService(new TestScheduler(), SHORT_TIMEOUT, clockAt(0))) {
+            service.commit(ResourceAcquisitionCommand.Lock, "User1", "Item1");
+            service.commit(ResourceAcquisitionCommand.Lock, "User2", "Item2");
+            service.writeSnapshot(path, ResourceKeyCodec.utf8());
+        }
+
+        TestScheduler scheduler = new TestScheduler();
+        try (ConcurrentResourceAcquisitionService<String> service = createConcurrentService(scheduler, TimeSpan.Default, clockAt(4_000))) {
+            service.commit(ResourceAcquisitionCommand.Lock, "User3", "Item2");
+            assertEquals(1, service.restoreSnapshot(path, ResourceKeyCodec.utf8()));
+            assertRestoredLease(service, scheduler);
+        }
+    }
+
+    @Test
+    public void testExpiredAndUnlockedEntriesAreNotRestored() throws IOException {
+        Path path = directory.resolve("locks.snapshot");
+        writeSnapshot(path,
+                AcquiredResource.restore("User1", ResourceAcquisitionState.Locked, SHORT_TIMEOUT, START.toEpochMilli()),
+                AcquiredResource.restore("User1", ResourceAcquisitionState.Unlocked, SHORT_TIMEOUT, START.toEpochMilli() + 5_000));
+
+        try (SimpleResourceAcquisitionService<String> service = createSimpleService(new TestScheduler(), TimeSpan.Default, clockAt(10_000))) {
+            assertEquals(0, service.restoreSnapshot(path, ResourceKeyCodec.utf8()));
+        }
+        try (ConcurrentResourceAcquisitionService<String> service = createConcurrentService(new TestScheduler(), TimeSpan.Default, clockAt(10_000))) {
+            assertEquals(0, service.restoreSnapshot(path, ResourceKeyCodec.utf8()));
+        }
+    }
+
+    @Test
+    public void testRestoredLeasesAreJournaled() throws IOException {
+        Path snapshot = directory.resolve("locks.snapshot");
+        Path journalPath = directory.resolve("locks.journal");
+        writeSnapshot(snapshot, AcquiredResource.restore("User1", ResourceAcquisitionState.Locked, SHORT_TIMEOUT, START.toEpochMilli()));
+
+        TestScheduler scheduler = new TestScheduler();
+        var journal = new ResourceAcquisitionJournal<>(journalPath, ResourceKeyCodec.utf8(), 4, scheduler, ResourceAcquisitionJournal.DEFAULT_SYNC_INTERVAL);
+        try (var service = new SimpleResourceAcquisitionService<>(
+                new SimpleResourceAcquisitionService.RxAutoUnlockScheduler(scheduler),
+                TimeSpan.Default, clockAt(0), ResourceAcquisitionMetrics.createDefault(), journal)) {
+            assertEquals(1, service.restoreSnapshot(snapshot, ResourceKeyCodec.utf8()));
+        }
+        try (var reopened = new ResourceAcquisitionJournal<>(journalPath, ResourceKeyCodec.utf8(), 4, scheduler, ResourceAcquisitionJournal.DEFAULT_SYNC_INTERVAL)) {
+            assertEquals(List.of(new ResourceAcquisitionJournal.Lease<>("Item0", "User1", START.toEpochMilli(), START.toEpochMilli() + 10_000)),
+                    reopened.getRecoveredLeases());
+        }
+    }
+
+    @Test
+    public void testLargeSnapshotsStreamThroughTheBuffer() throws IOException {
+        Path path = directory.resolve("locks.snapshot");
+        String owner = "Owner".repeat(20);
+        try (SimpleResourceAcquisitionService<Long> service = createSimpleService(new TestScheduler(), TimeSpan.Default, clockAt(0))) {
+            for (long i = 0; i < 20_000; i++) {
+                service.commit(ResourceAcquisitionCommand.Lock, owner, i);
+            }
+            service.writeSnapshot(path, ResourceKeyCodec.int64());
+        }
+        List<ResourceAcquisitionSnapshot.Entry<Long>> entries = readAll(path, ResourceKeyCodec.int64());
+        assertEquals(20_000, entries.size());
+        assertEquals(owner, entries.get(19_999).lockedItem().getUserName());
+        assertEquals(TimeSpan.Default, entries.get(0).lockedItem().getStateTimeout());
+    }
+
+    @Test
+    public void testCorruptSnapshotsAreRejected() throws IOException {
+        Path path = directory.resolve("locks.snapshot");
+        AcquiredResource lockedItem = AcquiredResource.restore("User1", ResourceAcquisitionState.Locked, SHORT_TIMEOUT, START.toEpochMilli());
+        writeSnapshot(path, lockedItem);
+        long size = Files.size(path);
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(Long.BYTES).putLong(0, 2L), size - Long.BYTES);
+        }
+        assertThrows(IOException.class, () -> readAll(path, ResourceKeyCodec.utf8()));
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.truncate(size - 1);
+        }
+        assertThrows(EOFException.class, () -> readAll(path, ResourceKeyCodec.utf8()));
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(Integer.BYTES).putInt(0, ResourceAcquisitionSnapshot.VERSION + 1), Integer.BYTES);
+        }
+        assertThrows(IOException.class, () -> readAll(path, ResourceKeyCodec.utf8()));
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(Integer.BYTES), 0);
+        }
+        assertThrows(IOException.class, () -> readAll(path, ResourceKeyCodec.utf8()));
+    }
+
+    @Test
+    public void testRestoreKeepsTheLeasesReadBeforeTheDamage() throws IOException {
+        Path path = directory.resolve("locks.snapshot");
+        AcquiredResource lockedItem = AcquiredResource.restore("User1", ResourceAcquisitionState.Locked, SHORT_TIMEOUT, START.toEpochMilli());
+        writeSnapshot(path, lockedItem, lockedItem);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.truncate(Files.size(path) - 1);
+        }
+        try (SimpleResourceAcquisitionService<String> service = createSimpleService(new TestScheduler(), SHORT_TIMEOUT, clockAt(0))) {
+            assertThrows(EOFException.class, () -> service.restoreSnapshot(path, ResourceKeyCodec.utf8()));
+            assertEquals(List.of("Item0", "Item1"), service.locksHeldBy("User1"));
+        }
+    }
+
+    @Test
+    public void testOversizedFieldsAbortTheSnapshot() throws IOException {
+        Path path = directory.resolve("locks.snapshot");
+        try (SimpleResourceAcquisitionService<String> service = createSimpleService(new TestScheduler(), TimeSpan.Default, clockAt(0))) {
+            service.commit(ResourceAcquisitionCommand.Lock, "User1", "R".repeat(ResourceAcquisitionSnapshot.MAX_FIELD_LENGTH + 1));
+            assertThrows(IllegalArgumentException.class, () -> service.writeSnapshot(path, ResourceKeyCodec.utf8()));
+        }
+        try (ConcurrentResourceAcquisitionService<String> service = createConcurrentService(new TestScheduler(), TimeSpan.Default, clockAt(0))) {
+            service.commit(ResourceAcquisitionCommand.Lock, "U".repeat(ResourceAcquisitionSnapshot.MAX_FIELD_LENGTH + 1), "Item1");
+            assertThrows(IllegalArgumentException.class, () -> service.writeSnapshot(path, ResourceKeyCodec.utf8()));
+        }
+        assertFalse(Files.exists(path));
+        assertFalse(Files.exists(directory.resolve("locks.snapshot.tmp")));
+    }
+}
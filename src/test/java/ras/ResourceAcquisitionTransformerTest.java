@@ -0,0 +1,307 @@
+package ras;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import io.reactivex.rxjava3.core.Flowable;
+import io.reactivex.rxjava3.plugins.RxJavaPlugins;
+import io.reactivex.rxjava3.processors.PublishProcessor;
+import io.reactivex.rxjava3.schedulers.TestScheduler;
+import io.reactivex.rxjava3.subscribers.TestSubscriber;
+
+public class ResourceAcquisitionTransformerTest {
+
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2026-01-01T00:00:00Z"), ZoneOffset.UTC);
+
+    private static SimpleResourceAcquisitionService<String> createService(final TestScheduler scheduler) {
+        return new SimpleResourceAcquisitionService<>(
+                new SimpleResourceAcquisitionService.RxAutoUnlockScheduler(scheduler), TimeSpan.Default, CLOCK, ResourceAcquisitionMetrics.createDefault());
+    }
+
+    private static ResourceAcquisitionRequest<String> lock(final String userName, final String resource) {
+        return new ResourceAcquisitionRequest<>(ResourceAcquisitionCommand.Lock, userName, resource);
+    }
+
+    private static List<ResourceAcquisitionRequest<String>> locks(final int count) {
+        List<ResourceAcquisitionRequest<String>> requests = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            requests.add(lock("User1", "Item" + i));
+        }
+        return requests;
+    }
+
+    @Test
+    public void testStreamMatchesSequentialCommits() {
+        Random random = new Random(5);
+        List<ResourceAcquisitionRequest<String>> requests = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            requests.add(new ResourceAcquisitionRequest<>(
+                    random.nextBoolean() ? ResourceAcquisitionCommand.Lock : ResourceAcquisitionCommand.Unlock,
+                    "User" + random.nextInt(3),
+                    "Item" + random.nextInt(5)));
+        }
+        try (SimpleResourceAcquisitionService<String> streamed = createService(new TestScheduler());
+             SimpleResourceAcquisitionService<String> sequential = createService(new TestScheduler())) {
+            TestSubscriber<ResourceAcquisitionResponse> subscriber = Flowable.fromIterable(requests)
+                    .compose(new ResourceAcquisitionTransformer<>(streamed, 16))
+                    .test();
+
+            subscriber.assertComplete().assertValueCount(requests.size());
+            for (int i = 0; i < requests.size(); i++) {
+                ResourceAcquisitionRequest<String> request = requests.get(i);
+                ResourceAcquisitionResponse expected = sequential.commit(request.getCommand(), request.getUserName(), request.getResource());
+                assertEquals(expected.getCommitResult(), subscriber.values().get(i).getCommitResult());
+                assertEquals(expected.getResource(), subscriber.values().get(i).getResource());
+            }
+        }
+    }
+
+    @Test
+    public void testSlowSubscriberThrottlesIntake() {
+        List<Long> upstreamRequests = new CopyOnWriteArrayList<>();
+        List<Integer> batchSizes = new ArrayList<>();
+        try (SimpleResourceAcquisitionService<String> service = createService(new TestScheduler())) {
+            ResourceAcquisitionService<String> recording = new ResourceAcquisitionService<>() {
+                @Override
+                public ResourceAcquisitionResponse commit(final ResourceAcquisitionCommand command, final String userName, final String resource) {
+                    return service.commit(command, userName, resource);
+                }
+
+                @Override
+                public List<ResourceAcquisitionResponse> commitAll(final List<ResourceAcquisitionRequest<String>> requests) {
+                    batchSizes.add(requests.size());
+                    return service.commitAll(requests);
+                }
+            };
+            TestSubscriber<ResourceAcquisitionResponse> subscriber = Flowable.fromIterable(locks(1_000))
+                    .doOnRequest(upstreamRequests::add)
+                    .compose(new ResourceAcquisitionTransformer<>(recording, 8))
+                    .test(0);
+
+            subscriber.assertEmpty();
+            assertEquals(List.of(8L), upstreamRequests);
+            assertEquals(List.of(), batchSizes);
+            assertEquals(ResourceAcquisitionCommandResult.LockSucceeded,
+                    service.commit(ResourceAcquisitionCommand.Lock, "User2", "Item0").getCommitResult());
+
+            subscriber.request(3);
+            assertEquals(List.of(3), batchSizes);
+            assertEquals(List.of(8L), upstreamRequests);
+            subscriber.assertValueCount(3);
+            assertEquals(ResourceAcquisitionCommandResult.LockFailed, subscriber.values().get(0).getCommitResult());
+
+            subscriber.request(3);
+            assertEquals(List.of(3, 3), batchSizes);
+            assertEquals(List.of(8L, 6L), upstreamRequests);
+
+            subscriber.request(Long.MAX_VALUE - 1);
+            subscriber.request(Long.MAX_VALUE - 1);
+            subscriber.assertComplete().assertValueCount(1_000);
+            assertTrue(batchSizes.stream().allMatch(size -> size <= 8));
+        }
+    }
+
+    @Test
+    public void testSubscriberRequestingOneAtATimeGetsSingleCommandBatches() {
+        AtomicInteger batches = new AtomicInteger();
+        List<ResourceAcquisitionResponse> received = new ArrayList<>();
+        try (SimpleResourceAcquisitionService<String> service = createService(new TestScheduler())) {
+            ResourceAcquisitionService<String> counting = new ResourceAcquisitionService<>() {
+                @Override
+                public ResourceAcquisitionResponse commit(final ResourceAcquisitionCommand command, final String userName, final String resource) {
+                    batches.incrementAndGet();
+                    return service.commit(command, userName, resource);
+                }
+            };
+            Flowable.fromIterable(locks(10))
+                    .compose(new ResourceAcquisitionTransformer<>(counting, 4))
+                    .subscribe(new Subscriber<ResourceAcquisitionResponse>() {
+                        private Subscription subscription;
+
+                        @Override
+                        public void onSubscribe(final Subscription subscription) {
+                            this.subscription = subscription;
+                            subscription.request(1);
+                        }
+
+                        @Override
+                        public void onNext(final ResourceAcquisitionResponse response) {
+                            received.add(response);
+                            subscription.request(1);
+                        }
+
+                        @Override
+                        public void onError(final Throwable throwable) {
+                        }
+
+                        @Override
+                        public void onComplete() {
+                        }
+                    });
+        }
+        assertEquals(10, received.size());
+        assertEquals(10, batches.get());
+    }
+
+    @Test
+    public void testExpiryOnTheServiceSchedulerIsVisibleToLaterCommands() {
+        TestScheduler scheduler = new TestScheduler();
+        try (SimpleResourceAcquisitionService<String> service = createService(scheduler)) {
+            List<ResourceAcquisitionRequest<String>> requests = List.of(lock("User1", "Item1"), lock("User2", "Item1"), lock("User2", "Item1"));
+            TestSubscriber<ResourceAcquisitionResponse> subscriber = Flowable.interval(20, TimeUnit.SECONDS, scheduler)
+                    .take(requests.size())
+                    .map(i -> requests.get(i.intValue()))
+                    .compose(new ResourceAcquisitionTransformer<>(service))
+                    .test();
+
+            scheduler.advanceTimeBy(40, TimeUnit.SECONDS);
+            subscriber.assertValueCount(2);
+            assertEquals(ResourceAcquisitionCommandResult.LockSucceeded, subscriber.values().get(0).getCommitResult());
+            assertEquals(ResourceAcquisitionCommandResult.LockFailed, subscriber.values().get(1).getCommitResult());
+
+            scheduler.advanceTimeBy(20, TimeUnit.SECONDS);
+            subscriber.assertComplete().assertValueCount(3);
+            assertEquals(ResourceAcquisitionCommandResult.LockSucceeded, subscriber.values().get(2).getCommitResult());
+        }
+    }
+
+    @Test
+    public void testUpstreamErrorIsDeliveredAfterQueuedCommands() {
+        try (SimpleResourceAcquisitionService<String> service = createService(new TestScheduler())) {
+            PublishProcessor<ResourceAcquisitionRequest<String>> processor = PublishProcessor.create();
+            TestSubscriber<ResourceAcquisitionResponse> subscriber = processor
+                    .compose(new ResourceAcquisitionTransformer<>(service, 4))
+                    .test(0);
+            processor.onNext(lock("User1", "Item1"));
+            processor.onError(new IllegalStateException("upstream failed"));
+            subscriber.assertNoErrors();
+
+            subscriber.request(1);
+            subscriber.assertValueCount(1).assertError(IllegalStateException.class);
+        }
+    }
+
+    @Test
+    public void testServiceFailureCancelsUpstream() {
+        AtomicInteger cancellations = new AtomicInteger();
+        ResourceAcquisitionService<String> failing = (command, userName, resource) -> {
+            throw new IllegalArgumentException("commit failed");
+        };
+        Flowable.fromIterable(locks(10))
+                .doOnCancel(cancellations::incrementAndGet)
+                .compose(new ResourceAcquisitionTransformer<>(failing, 4))
+                .test()
+                .assertNoValues()
+                .assertError(IllegalArgumentException.class);
+        assertEquals(1, cancellations.get());
+    }
+
+    @Test
+    public void testUpstreamIgnoringBackpressureIsAnError() {
+        AtomicInteger cancellations = new AtomicInteger();
+        try (SimpleResourceAcquisitionService<String> service = createService(new TestScheduler())) {
+            Flowable<ResourceAcquisitionRequest<String>> unbounded = Flowable.unsafeCreate(subscriber -> {
+                subscriber.onSubscribe(new Subscription() {
+                    @Override
+                    public void request(final long n) {
+                    }
+
+                    @Override
+                    public void cancel() {
+                        cancellations.incrementAndGet();
+                    }
+                });
+                for (ResourceAcquisitionRequest<String> request : locks(3)) {
+                    subscriber.onNext(request);
+                }
+            });
+            unbounded.compose(new ResourceAcquisitionTransformer<>(service, 2))
+                    .test(0)
+                    .assertNoValues()
+                    .requestMore(5)
+                    .assertValueCount(2)
+                    .assertError(IllegalStateException.class);
+            assertEquals(1, cancellations.get());
+        }
+    }
+
+    @Test
+    public void testCancellationStopsEmissionAndIntake() {
+        try (SimpleResourceAcquisitionService<String> service = createService(new TestScheduler())) {
+            for (int cancelAt : new int[] {1, 2}) {
+                List<ResourceAcquisitionResponse> received = new ArrayList<>();
+                AtomicInteger cancellations = new AtomicInteger();
+                Subscription[] subscriptions = new Subscription[1];
+                Flowable.fromIterable(locks(10))
+                        .doOnCancel(cancellations::incrementAndGet)
+                        .compose(new ResourceAcquisitionTransformer<>(service, 4))
+                        .subscribe(new Subscriber<ResourceAcquisitionResponse>() {
+                            @Override
+                            public void onSubscribe(final Subscription subscription) {
+                                subscriptions[0] = subscription;
+                            }
+
+                            @Override
+                            public void onNext(final ResourceAcquisitionResponse response) {
+                                received.add(response);
+                                if (received.size() == cancelAt) {
+                                    subscriptions[0].cancel();
+                                }
+                            }
+
+                            @Override
+                            public void onError(final Throwable throwable) {
+                            }
+
+                            @Override
+                            public void onComplete() {
+                            }
+                        });
+                subscriptions[0].request(2);
+                assertEquals(cancelAt, received.size());
+                assertEquals(1, cancellations.get());
+            }
+
+            TestSubscriber<ResourceAcquisitionResponse> idle = Flowable.fromIterable(locks(10))
+                    .compose(new ResourceAcquisitionTransformer<>(service, 4))
+                    .test(0);
+            idle.cancel();
+            idle.request(1);
+            idle.assertEmpty();
+        }
+    }
+
+    @Test
+    public void testInvalidRequestsAndPrefetchAreRejected() {
+        List<Throwable> errors = new CopyOnWriteArrayList<>();
+        RxJavaPlugins.setErrorHandler(errors::add);
+        try (SimpleResourceAcquisitionService<String> service = createService(new TestScheduler())) {
+            TestSubscriber<ResourceAcquisitionResponse> subscriber = Flowable.fromIterable(locks(1))
+                    .compose(new ResourceAcquisitionTransformer<>(service))
+                    .test(0);
+            subscriber.request(0);
+            subscriber.assertEmpty();
+            assertEquals(1, errors.size());
+            assertInstanceOf(IllegalArgumentException.class, errors.get(0));
+
+            assertThrows(IllegalArgumentException.class, () -> new ResourceAcquisitionTransformer<>(service, 0));
+        } finally {
+            RxJavaPlugins.reset();
+        }
+    }
+}
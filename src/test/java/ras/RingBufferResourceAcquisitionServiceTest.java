@@ -0,0 +1,400 @@
+package ras;
+
+import java.lang.management.ManagementFactory;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+import io.opentelemetry.sdk.metrics.SdkMeterProvider;
+import io.opentelemetry.sdk.metrics.data.MetricData;
+import io.opentelemetry.sdk.testing.exporter.InMemoryMetricReader;
+import io.reactivex.rxjava3.schedulers.TestScheduler;
+
+public class RingBufferResourceAcquisitionServiceTest {
+
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2026-01-01T00:00:00Z"), ZoneOffset.UTC);
+
+    private final List<Throwable> engineErrors = new CopyOnWriteArrayList<>();
+    private volatile Thread engineThread;
+
+    private static final class ManualAutoUnlockScheduler implements SimpleResourceAcquisitionService.AutoUnlockScheduler {
+
+        private final List<Runnable> commands = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public SimpleResourceAcquisitionService.Cancellable schedule(final Runnable command, final TimeSpan delay) {
+            commands.add(command);
+            return () -> {
+            };
+        }
+
+        @Override
+        public long now(final TimeUnit unit) {
+            return 0L;
+        }
+
+        public void runCommand(final int index) {
+            commands.get(index).run();
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private ThreadFactory engineThreads() {
+        return runnable -> {
+            Thread thread = new Thread(runnable, "test-ring-buffer-engine");
+            thread.setDaemon(true);
+            thread.setUncaughtExceptionHandler((failed, error) -> engineErrors.add(error));
+            engineThread = thread;
+            return thread;
+        };
+    }
+
+    private RingBufferResourceAcquisitionService<String> createService(final SimpleResourceAcquisitionService.AutoUnlockScheduler scheduler,
+                                                                       final int capacity) {
+        return new RingBufferResourceAcquisitionService<>(
+                scheduler, TimeSpan.Default, CLOCK, ResourceAcquisitionMetrics.createDefault(), capacity, engineThreads());
+    }
+
+    private static long allocatedBytes(final Thread thread, final int iterations, final Runnable operation) {
+        final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        for (int i = 0; i < iterations; i++) {
+            operation.run();
+        }
+        final long before = threads.getThreadAllocatedBytes(thread.threadId());
+        for (int i = 0; i < iterations; i++) {
+            operation.run();
+        }
+        return threads.getThreadAllocatedBytes(thread.threadId()) - before;
+    }
+
+    @Test
+    public void testLockAndUnlockFollowSimpleServiceSemantics() throws InterruptedException {
+        try (RingBufferResourceAcquisitionService<String> service = createService(new ManualAutoUnlockScheduler(), 16)) {
+            ResourceAcquisitionResponse response = service.commit(ResourceAcquisitionCommand.Unlock, "User1", "Item1");
+            assertEquals(ResourceAcquisitionCommandResult.UnlockFailed, response.getCommitResult());
+            assertEquals(ResourceAcquisitionState.Unlocked, response.getResource().getState());
+
+            response = service.commit(ResourceAcquisitionCommand.Lock, "User1", "Item1");
+            assertEquals(ResourceAcquisitionCommandResult.LockSucceeded, response.getCommitResult());
+            assertEquals(TimeSpan.Default, response.getResource().getStateTimeout());
+            assertEquals(ResourceAcquisitionCommandResult.LockSucceeded,
+                    service.commit(ResourceAcquisitionCommand.Lock, "user1", "Item1").getCommitResult());
+
+            Thread.sleep(50);
+            ResourceAcquisitionResponse lockFailed = service.commit(ResourceAcquisitionCommand.Lock, "User2", "Item1");
+            assertEquals(ResourceAcquisitionCommandResult.LockFailed, lockFailed.getCommitResult());
+            assertEquals("user1", lockFailed.getResource().getUserName());
+            assertSame(lockFailed, service.commit(ResourceAcquisitionCommand.Lock, "User2", "Item1"));
+
+            ResourceAcquisitionResponse unlockFailed = service.commit(ResourceAcquisitionCommand.Unlock, "User2", "Item1");
+            assertEquals(ResourceAcquisitionCommandResult.UnlockFailed, unlockFailed.getCommitResult());
+            assertSame(unlockFailed, service.commit(ResourceAcquisitionCommand.Unlock, "User2", "Item1"));
+
+            assertEquals(ResourceAcquisitionCommandResult.UnlockSucceeded,
+                    service.commit(ResourceAcquisitionCommand.Unlock, "User1", "Item1").getCommitResult());
+            assertEquals(ResourceAcquisitionCommandResult.LockSucceeded,
+                    service.commit(ResourceAcquisitionCommand.Lock, "User2", "Item1").getCommitResult());
+        }
+    }
+
+    @Test
+    public void testExpirationsAreAppliedByTheEngineAndRenewalsReArm() {
+        TestScheduler scheduler = new TestScheduler();
+        try (RingBufferResourceAcquisitionService<String> service = createService(new SimpleResourceAcquisitionService.RxAutoUnlockScheduler(scheduler), 16)) {
+            service.commit(ResourceAcquisitionCommand.Lock, "User1", "Item1");
+            service.commit(ResourceAcquisitionCommand.Lock, "User1", "Item2");
+            scheduler.advanceTimeBy(10, TimeUnit.SECONDS);
+            service.commit(ResourceAcquisitionCommand.Lock, "User1", "Item2");
+
+            scheduler.advanceTimeBy(20, TimeUnit.SECONDS);
+            assertEquals(ResourceAcquisitionCommandResult.LockSucceeded,
+                    service.commit(ResourceAcquisitionCommand.Lock, "User2", "Item1").getCommitResult());
+            assertEquals(ResourceAcquisitionCommandResult.LockFailed,
+                    service.commit(ResourceAcquisitionCommand.Lock, "User2", "Item2").getCommitResult());
+
+            scheduler.advanceTimeBy(10, TimeUnit.SECONDS);
+            assertEquals(ResourceAcquisitionCommandResult.LockSucceeded,
+                    service.commit(ResourceAcquisitionCommand.Lock, "User2", "Item2").getCommitResult());
+        }
+    }
+
+    @Test
+    public void testStaleAndLateExpirationsAreIgnored() {
+        ManualAutoUnlockScheduler scheduler = new ManualAutoUnlockScheduler();
+        RingBufferResourceAcquisitionService<String> service = createService(scheduler, 16);
+        service.commit(ResourceAcquisitionCommand.Lock, "User1", "Item1");
+        service.commit(ResourceAcquisitionCommand.Unlock, "User1", "Item1");
+        scheduler.runCommand(0);
+        assertEquals(ResourceAcquisitionCommandResult.LockSucceeded,
+                service.commit(ResourceAcquisitionCommand.Lock, "User2", "Item1").getCommitResult());
+
+        service.close();
+        scheduler.runCommand(1);
+        assertFalse(engineThread.isAlive());
+    }
+
+    @Test
+    public void testCallbacksFuturesAndBatchesMatchSequentialCommits() throws Exception {
+        Random random = new Random(17);
+        List<ResourceAcquisitionRequest<String>> requests = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            requests.add(new ResourceAcquisitionRequest<>(
+                    random.nextBoolean() ? ResourceAcquisitionCommand.Lock : ResourceAcquisitionCommand.Unlock,
+                    "User" + random.nextInt(3),
+                    "Item" + random.nextInt(5)));
+        }
+        try (RingBufferResourceAcquisitionService<String> service = createService(new ManualAutoUnlockScheduler(), 16);
+             SimpleResourceAcquisitionService<String> sequential = new SimpleResourceAcquisitionService<>(
+                     new ManualAutoUnlockScheduler(), TimeSpan.Default, CLOCK, ResourceAcquisitionMetrics.createDefault())) {
+            List<ResourceAcquisitionResponse> published = new CopyOnWriteArrayList<>();
+            service.publishAll(requests, published::add);
+            List<ResourceAcquisitionResponse> committed = service.commitAll(requests);
+            CompletableFuture<ResourceAcquisitionResponse> future = service.commitAsync(ResourceAcquisitionCommand.Lock, "User9", "Item9");
+
+            List<ResourceAcquisitionResponse> expected = new ArrayList<>();
+            for (ResourceAcquisitionRequest<String> request : requests) {
+                expected.add(sequential.commit(request.getCommand(), request.getUserName(), request.getResource()));
+            }
+            for (ResourceAcquisitionRequest<String> request : requests) {
+                expected.add(sequential.commit(request.getCommand(), request.getUserName(), request.getResource()));
+            }
+            assertEquals(ResourceAcquisitionCommandResult.LockSucceeded, future.get(1, TimeUnit.MINUTES).getCommitResult());
+            List<ResourceAcquisitionResponse> actual = new ArrayList<>(published);
+            actual.addAll(committed);
+            assertEquals(expected.stream().map(ResourceAcquisitionResponse::getCommitResult).toList(),
+                    actual.stream().map(ResourceAcquisitionResponse::getCommitResult).toList());
+            assertEquals(expected.stream().map(ResourceAcquisitionResponse::getResource).toList(),
+                    actual.stream().map(ResourceAcquisitionResponse::getResource).toList());
+            assertEquals(List.of(), service.commitAll(List.of()));
+        }
+    }
+
+    @Test
+    public void testProducersWaitForFreeSlots() throws Exception {
+        try (RingBufferResourceAcquisitionService<String> service = createService(new ManualAutoUnlockScheduler(), 2)) {
+            CountDownLatch engineBlocked = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+            service.publish(ResourceAcquisitionCommand.Lock, "User1", "Item0", response -> {
+                engineBlocked.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            assertTrue(engineBlocked.await(1, TimeUnit.MINUTES));
+
+            List<ResourceAcquisitionRequest<String>> requests = new ArrayList<>();
+            for (int i = 1; i <= 4; i++) {
+                requests.add(new ResourceAcquisitionRequest<>(ResourceAcquisitionCommand.Lock, "User1", "Item" + i));
+            }
+            CompletableFuture<List<ResourceAcquisitionResponse>> producer = CompletableFuture.supplyAsync(() -> service.commitAll(requests));
+            Thread.sleep(100);
+            assertFalse(producer.isDone());
+
+            release.countDown();
+            assertEquals(4, producer.get(1, TimeUnit.MINUTES).stream()
+                    .filter(response -> response.getCommitResult() == ResourceAcquisitionCommandResult.LockSucceeded)
+                    .count());
+        }
+    }
+
+    @Test
+    public void testBatchCallerParksUntilTheEngineCatchesUp() throws Exception {
+        try (RingBufferResourceAcquisitionService<String> service = createService(new ManualAutoUnlockScheduler(), 16)) {
+            CountDownLatch release = new CountDownLatch(1);
+            service.publish(ResourceAcquisitionCommand.Lock, "User1", "Item0", response -> {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            CompletableFuture.runAsync(() -> {
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                release.countDown();
+            });
+
+            List<ResourceAcquisitionResponse> responses = service.commitAll(
+                    List.of(new ResourceAcquisitionRequest<>(ResourceAcquisitionCommand.Lock, "User2", "Item0")));
+            assertEquals(ResourceAcquisitionCommandResult.LockFailed, responses.get(0).getCommitResult());
+        }
+    }
+
+    @Test
+    public void testCallbackFailuresAreReportedAndTheEngineKeepsRunning() {
+        try (RingBufferResourceAcquisitionService<String> service = createService(new ManualAutoUnlockScheduler(), 16)) {
+            service.publish(ResourceAcquisitionCommand.Lock, "User1", "Item1", response -> {
+                throw new IllegalArgumentException("callback failed");
+            });
+            service.publish(ResourceAcquisitionCommand.Lock, "User1", "Item2",
+                    response -> service.commit(ResourceAcquisitionCommand.Lock, "User1", "Item3"));
+            service.publish(ResourceAcquisitionCommand.Lock, "User1", "Item4", response -> service.commitAll(List.of()));
+
+            assertEquals(ResourceAcquisitionCommandResult.LockFailed,
+                    service.commit(ResourceAcquisitionCommand.Lock, "User2", "Item2").getCommitResult());
+            assertEquals(3, engineErrors.size());
+            assertInstanceOf(IllegalArgumentException.class, engineErrors.get(0));
+            assertInstanceOf(IllegalStateException.class, engineErrors.get(1));
+            assertInstanceOf(IllegalStateException.class, engineErrors.get(2));
+        }
+    }
+
+    @Test
+    public void testCloseDrainsPublishedCommandsAndRejectsNewOnes() throws Exception {
+        RingBufferResourceAcquisitionService<String> service = createService(new ManualAutoUnlockScheduler(), 4);
+        List<CompletableFuture<ResourceAcquisitionResponse>> futures = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            futures.add(service.commitAsync(ResourceAcquisitionCommand.Lock, "User1", "Item" + i));
+        }
+        service.close();
+        service.close();
+
+        for (CompletableFuture<ResourceAcquisitionResponse> future : futures) {
+            assertTrue(future.isDone());
+        }
+        assertThrows(IllegalStateException.class, () -> service.commit(ResourceAcquisitionCommand.Lock, "User1", "Item1"));
+        assertThrows(IllegalStateException.class, () -> service.publishAll(
+                List.of(new ResourceAcquisitionRequest<>(ResourceAcquisitionCommand.Lock, "User1", "Item1")), response -> {
+                }));
+
+        RingBufferResourceAcquisitionService<String> closedFromCallback = createService(new ManualAutoUnlockScheduler(), 4);
+        Thread engine = engineThread;
+        closedFromCallback.publish(ResourceAcquisitionCommand.Lock, "User1", "Item1", response -> closedFromCallback.close());
+        engine.join(TimeUnit.MINUTES.toMillis(1));
+        assertFalse(engine.isAlive());
+
+        RingBufferResourceAcquisitionService<String> interrupted = createService(new ManualAutoUnlockScheduler(), 4);
+        Thread.currentThread().interrupt();
+        interrupted.close();
+        assertTrue(Thread.interrupted());
+    }
+
+    @Test
+    public void testCloseFromACallbackWhileTheRingIsFullDrainsAndStops() throws Exception {
+        RingBufferResourceAcquisitionService<String> service = createService(new ManualAutoUnlockScheduler(), 4);
+        Thread engine = engineThread;
+        CountDownLatch release = new CountDownLatch(1);
+        service.publish(ResourceAcquisitionCommand.Lock, "User1", "Item0", response -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            service.close();
+        });
+        List<CompletableFuture<ResourceAcquisitionResponse>> futures = new ArrayList<>();
+        for (int i = 1; i < 4; i++) {
+            futures.add(service.commitAsync(ResourceAcquisitionCommand.Lock, "User1", "Item" + i));
+        }
+        release.countDown();
+
+        engine.join(TimeUnit.MINUTES.toMillis(1));
+        assertFalse(engine.isAlive());
+        for (CompletableFuture<ResourceAcquisitionResponse> future : futures) {
+            assertEquals(ResourceAcquisitionCommandResult.LockSucceeded, future.get().getCommitResult());
+        }
+        assertThrows(IllegalStateException.class, () -> service.commitAsync(ResourceAcquisitionCommand.Lock, "User1", "Item4"));
+    }
+
+    @Test
+    public void testFailedCommandsDoNotAllocateOnEitherSide() {
+        try (RingBufferResourceAcquisitionService<String> service = createService(new ManualAutoUnlockScheduler(), 1024)) {
+            service.commit(ResourceAcquisitionCommand.Lock, "User1", "Item1");
+
+            long producerBytes = allocatedBytes(Thread.currentThread(), 20_000,
+                    () -> service.commit(ResourceAcquisitionCommand.Lock, "User2", "Item1"));
+            long engineBytes = allocatedBytes(engineThread, 20_000,
+                    () -> service.commit(ResourceAcquisitionCommand.Lock, "User2", "Item1"));
+
+            assertEquals(0, producerBytes / 20_000);
+            assertEquals(0, engineBytes / 20_000);
+        }
+    }
+
+    @Test
+    public void testMetricsAreRecordedPerCommand() {
+        InMemoryMetricReader metricReader = InMemoryMetricReader.create();
+        SdkMeterProvider meterProvider = SdkMeterProvider.builder()
+                .registerMetricReader(metricReader)
+                .build();
+        try (RingBufferResourceAcquisitionService<String> service = new RingBufferResourceAcquisitionService<>(
+                new TestScheduler(), TimeSpan.Default, 16, meterProvider.get(ResourceAcquisitionMetrics.METER_NAME))) {
+            service.commit(ResourceAcquisitionCommand.Lock, "User1", "Item1");
+            service.commit(ResourceAcquisitionCommand.Lock, "User2", "Item1");
+            service.commit(ResourceAcquisitionCommand.Unlock, "User1", "Item1");
+        }
+
+        long commands = 0;
+        long commitDurations = 0;
+        for (MetricData metric : metricReader.collectAllMetrics()) {
+            if (metric.getName().equals(ResourceAcquisitionMetrics.COMMANDS_METRIC_NAME)) {
+                commands = metric.getLongSumData().getPoints().stream().mapToLong(point -> point.getValue()).sum();
+            } else if (metric.getName().equals(ResourceAcquisitionMetrics.COMMIT_DURATION_METRIC_NAME)) {
+                commitDurations = metric.getHistogramData().getPoints().iterator().next().getCount();
+            }
+        }
+        meterProvider.close();
+
+        assertEquals(3, commands);
+        assertEquals(3, commitDurations);
+    }
+
+    @Test
+    public void testStripedMetricsReportTheLeaseCount() {
+        InMemoryMetricReader metricReader = InMemoryMetricReader.create();
+        SdkMeterProvider meterProvider = SdkMeterProvider.builder()
+                .registerMetricReader(metricReader)
+                .build();
+        try (RingBufferResourceAcquisitionService<String> service = new RingBufferResourceAcquisitionService<>(
+                new ManualAutoUnlockScheduler(), TimeSpan.Default, CLOCK,
+                ResourceAcquisitionMetrics.striped(meterProvider.get(ResourceAcquisitionMetrics.METER_NAME)), 16, engineThreads())) {
+            service.commit(ResourceAcquisitionCommand.Lock, "User1", "Item1");
+            service.commit(ResourceAcquisitionCommand.Lock, "User1", "Item2");
+            service.commit(ResourceAcquisitionCommand.Unlock, "User1", "Item1");
+
+            long activeLocks = 0;
+            for (MetricData metric : metricReader.collectAllMetrics()) {
+                if (metric.getName().equals(ResourceAcquisitionMetrics.ACTIVE_LOCKS_METRIC_NAME)) {
+                    activeLocks = metric.getLongSumData().getPoints().iterator().next().getValue();
+                }
+            }
+            assertEquals(1, activeLocks);
+        } finally {
+            meterProvider.close();
+        }
+    }
+
+    @Test
+    public void testConstructorsValidateCapacity() {
+        assertThrows(IllegalArgumentException.class, () -> createService(new ManualAutoUnlockScheduler(), 0));
+        assertThrows(IllegalArgumentException.class, () -> createService(new ManualAutoUnlockScheduler(), 3));
+        try (var defaults = new RingBufferResourceAcquisitionService<String>()) {
+            assertEquals(TimeSpan.Default, defaults.commit(ResourceAcquisitionCommand.Lock, "User1", "Item1").getResource().getStateTimeout());
+        }
+    }
+}
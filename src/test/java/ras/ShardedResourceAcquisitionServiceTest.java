@@ -0,0 +1,296 @@
+package ras;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+import io.opentelemetry.api.metrics.MeterProvider;
+import io.opentelemetry.sdk.metrics.SdkMeterProvider;
+import io.opentelemetry.sdk.metrics.data.LongPointData;
+import io.opentelemetry.sdk.metrics.data.MetricData;
+import io.opentelemetry.sdk.testing.exporter.InMemoryMetricReader;
+import io.reactivex.rxjava3.core.BackpressureOverflowStrategy;
+import io.reactivex.rxjava3.observers.TestObserver;
+import io.reactivex.rxjava3.schedulers.TestScheduler;
+import io.reactivex.rxjava3.subscribers.TestSubscriber;
+
+public class ShardedResourceAcquisitionServiceTest {
+
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2026-01-01T00:00:00Z"), ZoneOffset.UTC);
+    private static final int SHARDS = 8;
+
+    private ShardedResourceAcquisitionService<String> createService(final TestScheduler scheduler, final ResourceAcquisitionMetrics metrics) {
+        return new ShardedResourceAcquisitionService<>(
+                shard -> new SimpleResourceAcquisitionService.RxAutoUnlockScheduler(scheduler), TimeSpan.Default, CLOCK, metrics, SHARDS);
+    }
+
+    @Test
+    public void testShardRoutingIsStableAndBalanced() {
+        try (ShardedResourceAcquisitionService<String> first = createService(new TestScheduler(), ResourceAcquisitionMetrics.createDefault());
+             ShardedResourceAcquisitionService<String> second = createService(new TestScheduler(), ResourceAcquisitionMetrics.createDefault())) {
+            int[] perShard = new int[SHARDS];
+            for (int i = 0; i < 80_000; i++) {
+                String resource = "Item" + i;
+                int shard = first.shardOf(resource);
+                assertEquals(shard, first.shardOf(resource));
+                assertEquals(shard, second.shardOf(resource));
+                perShard[shard]++;
+            }
+            for (int count : perShard) {
+                assertTrue(count > 9_000 && count < 11_000, "unbalanced shard: " + count);
+            }
+
+            assertEquals(List.of(3, 0, 5, 0), List.of(first.shardOf("Item0"), first.shardOf("Item1"), first.shardOf("Item2"), first.shardOf(null)));
+        }
+    }
+
+    @Test
+    public void testCommandsAndExpiryAreServedByTheOwningShard() {
+        TestScheduler scheduler = new TestScheduler();
+        try (ShardedResourceAcquisitionService<String> service = createService(scheduler, ResourceAcquisitionMetrics.createDefault())) {
+            for (int i = 0; i < 100; i++) {
+                assertEquals(ResourceAcquisitionCommandResult.LockSucceeded,
+                        service.commit(ResourceAcquisitionCommand.Lock, "User1", "Item" + i).getCommitResult());
+            }
+            assertEquals(ResourceAcquisitionCommandResult.LockFailed,
+                    service.commit(ResourceAcquisitionCommand.Lock, "User2", "Item42").getCommitResult());
+            assertEquals(ResourceAcquisitionCommandResult.UnlockSucceeded,
+                    service.commit(ResourceAcquisitionCommand.Unlock, "User1", "Item42").getCommitResult());
+
+            scheduler.advanceTimeBy(TimeSpan.Default.getInterval(), TimeSpan.Default.getUnit());
+            for (int i = 0; i < 100; i++) {
+                assertEquals(ResourceAcquisitionCommandResult.LockSucceeded,
+                        service.commit(ResourceAcquisitionCommand.Lock, "User2", "Item" + i).getCommitResult());
+            }
+        }
+    }
+
+    @Test
+    public void testCommitAllKeepsInputOrderAcrossShards() {
+        Random random = new Random(13);
+        List<ResourceAcquisitionRequest<String>> requests = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            requests.add(new ResourceAcquisitionRequest<>(
+                    random.nextBoolean() ? ResourceAcquisitionCommand.Lock : ResourceAcquisitionCommand.Unlock,
+                    "User" + random.nextInt(3),
+                    "Item" + random.nextInt(5)));
+        }
+        try (ShardedResourceAcquisitionService<String> sharded = createService(new TestScheduler(), ResourceAcquisitionMetrics.createDefault());
+             SimpleResourceAcquisitionService<String> sequential = new SimpleResourceAcquisitionService<>(
+                     new SimpleResourceAcquisitionService.RxAutoUnlockScheduler(new TestScheduler()), TimeSpan.Default, CLOCK, ResourceAcquisitionMetrics.createDefault())) {
+            List<ResourceAcquisitionResponse> responses = sharded.commitAll(requests);
+
+            assertEquals(requests.size(), responses.size());
+            for (int i = 0; i < requests.size(); i++) {
+                ResourceAcquisitionRequest<String> request = requests.get(i);
+                ResourceAcquisitionResponse expected = sequential.commit(request.getCommand(), request.getUserName(), request.getResource());
+                assertEquals(expected.getCommitResult(), responses.get(i).getCommitResult());
+                assertEquals(expected.getResource(), responses.get(i).getResource());
+            }
+        }
+    }
+
+    @Test
+    public void testMetricsCarryTheShardAttribute() {
+        InMemoryMetricReader metricReader = InMemoryMetricReader.create();
+        SdkMeterProvider meterProvider = SdkMeterProvider.builder()
+                .registerMetricReader(metricReader)
+                .build();
+        TestScheduler scheduler = new TestScheduler();
+        try (ShardedResourceAcquisitionService<String> service = new ShardedResourceAcquisitionService<>(
+                scheduler, TimeSpan.Default, SHARDS, meterProvider.get(ResourceAcquisitionMetrics.METER_NAME))) {
+            Map<Long, Long> expected = new HashMap<>();
+            for (int i = 0; i < 100; i++) {
+                service.commit(ResourceAcquisitionCommand.Lock, "User1", "Item" + i);
+                expected.merge((long) service.shardOf("Item" + i), 1L, Long::sum);
+            }
+
+            Map<Long, Long> activeLocks = new HashMap<>();
+            for (MetricData metric : metricReader.collectAllMetrics()) {
+                if (metric.getName().equals(ResourceAcquisitionMetrics.ACTIVE_LOCKS_METRIC_NAME)) {
+                    for (LongPointData point : metric.getLongSumData().getPoints()) {
+                        activeLocks.put(point.getAttributes().get(ResourceAcquisitionMetrics.SHARD_ATTRIBUTE), point.getValue());
+                    }
+                }
+            }
+            assertEquals(expected, activeLocks);
+            assertEquals(SHARDS, activeLocks.size());
+        } finally {
+            meterProvider.close();
+        }
+    }
+
+    @Test
+    public void testStripedMetricsCarryTheShardAttribute() {
+        InMemoryMetricReader metricReader = InMemoryMetricReader.create();
+        SdkMeterProvider meterProvider = SdkMeterProvider.builder()
+                .registerMetricReader(metricReader)
+                .build();
+        TestScheduler scheduler = new TestScheduler();
+        try (ShardedResourceAcquisitionService<String> service =
+                     createService(scheduler, ResourceAcquisitionMetrics.striped(meterProvider.get(ResourceAcquisitionMetrics.METER_NAME)))) {
+            Map<Long, Long> expected = new HashMap<>();
+            for (int i = 0; i < 100; i++) {
+                service.commit(ResourceAcquisitionCommand.Lock, "User1", "Item" + i);
+                expected.merge((long) service.shardOf("Item" + i), 1L, Long::sum);
+            }
+            service.commit(ResourceAcquisitionCommand.Unlock, "User1", "Item0");
+            expected.merge((long) service.shardOf("Item0"), -1L, Long::sum);
+
+            Map<Long, Long> activeLocks = new HashMap<>();
+            Map<Long, Long> commands = new HashMap<>();
+            for (MetricData metric : metricReader.collectAllMetrics()) {
+                for (LongPointData point : metric.getLongSumData().getPoints()) {
+                    Long shard = point.getAttributes().get(ResourceAcquisitionMetrics.SHARD_ATTRIBUTE);
+                    if (metric.getName().equals(ResourceAcquisitionMetrics.ACTIVE_LOCKS_METRIC_NAME)) {
+                        activeLocks.put(shard, point.getValue());
+                    } else if (metric.getName().equals(ResourceAcquisitionMetrics.COMMANDS_METRIC_NAME)) {
+                        commands.merge(shard, point.getValue(), Long::sum);
+                    }
+                }
+            }
+            assertEquals(expected, activeLocks);
+            assertEquals(SHARDS, commands.size());
+            assertEquals(101L, commands.values().stream().mapToLong(Long::longValue).sum());
+        } finally {
+            meterProvider.close();
+        }
+    }
+
+    @Test
+    public void testClosedServicesStopReportingStripedMetrics() {
+        InMemoryMetricReader metricReader = InMemoryMetricReader.create();
+        SdkMeterProvider meterProvider = SdkMeterProvider.builder()
+                .registerMetricReader(metricReader)
+                .build();
+        TestScheduler scheduler = new TestScheduler();
+        try {
+            ResourceAcquisitionMetrics metrics = ResourceAcquisitionMetrics.striped(meterProvider.get(ResourceAcquisitionMetrics.METER_NAME));
+            try (ShardedResourceAcquisitionService<String> service = createService(scheduler, metrics)) {
+                for (int i = 0; i < 100; i++) {
+                    service.commit(ResourceAcquisitionCommand.Lock, "User1", "Item" + i);
+                }
+            }
+            Set<Long> shards = new HashSet<>();
+            for (MetricData metric : metricReader.collectAllMetrics()) {
+                for (LongPointData point : metric.getLongSumData().getPoints()) {
+                    shards.add(point.getAttributes().get(ResourceAcquisitionMetrics.SHARD_ATTRIBUTE));
+                }
+            }
+            assertTrue(shards.isEmpty(), shards.toString());
+        } finally {
+            meterProvider.close();
+        }
+    }
+
+    @Test
+    public void testLockAsyncWaitsOnTheOwningShard() {
+        TestScheduler scheduler = new TestScheduler();
+        try (ShardedResourceAcquisitionService<String> service = createService(scheduler, ResourceAcquisitionMetrics.createDefault())) {
+            service.commit(ResourceAcquisitionCommand.Lock, "User1", "Item1");
+            TestObserver<ResourceAcquisitionResponse> waiter = service.lockAsync("User2", "Item1", new TimeSpan(5, TimeUnit.SECONDS)).test();
+            waiter.assertEmpty();
+
+            service.commit(ResourceAcquisitionCommand.Unlock, "User1", "Item1");
+            waiter.assertValue(response -> response.getCommitResult() == ResourceAcquisitionCommandResult.LockSucceeded
+                    && response.getResource().getUserName().equals("User2"));
+        }
+    }
+
+    @Test
+    public void testAcquireWaitsOnTheOwningShard() {
+        try (ShardedResourceAcquisitionService<String> service = createService(new TestScheduler(), ResourceAcquisitionMetrics.createDefault())) {
+            service.commit(ResourceAcquisitionCommand.Lock, "User1", "Item1");
+            assertEquals(ResourceAcquisitionCommandResult.LockFailed,
+                    service.acquire("User2", "Item1", new TimeSpan(1, TimeUnit.MILLISECONDS)).getCommitResult());
+            service.commit(ResourceAcquisitionCommand.Unlock, "User1", "Item1");
+            assertEquals(ResourceAcquisitionCommandResult.LockSucceeded,
+                    service.acquire("User2", "Item1", new TimeSpan(1, TimeUnit.MILLISECONDS)).getCommitResult());
+        }
+    }
+
+    @Test
+    public void testQueriesAreAnsweredByTheOwningShards() {
+        try (ShardedResourceAcquisitionService<String> service = createService(new TestScheduler(), ResourceAcquisitionMetrics.createDefault())) {
+            for (int i = 0; i < 20; i++) {
+                service.commit(ResourceAcquisitionCommand.Lock, i % 2 == 0 ? "User1" : "User2", "Item" + i);
+            }
+            assertTrue(service.isLocked("Item7"));
+            assertEquals("User2", service.holderOf("Item7").getUserName());
+            Set<String> held = new HashSet<>(service.locksHeldBy("USER1"));
+            assertEquals(10, held.size());
+            assertTrue(held.contains("Item0") && held.contains("Item18"));
+
+            assertEquals(10, service.releaseAll("User1"));
+            assertEquals(List.of(), service.locksHeldBy("User1"));
+            assertEquals(10, service.locksHeldBy("User2").size());
+        }
+    }
+
+    @Test
+    public void testTokenCommandsAreRoutedToTheOwningShard() {
+        try (ShardedResourceAcquisitionService<String> service = createService(new TestScheduler(), ResourceAcquisitionMetrics.createDefault())) {
+            long token = service.commit(ResourceAcquisitionCommand.Lock, "User1", "Item1").getFencingToken();
+            assertEquals(ResourceAcquisitionCommandResult.LockSucceeded, service.renew("Item1", token).getCommitResult());
+            assertEquals(ResourceAcquisitionCommandResult.UnlockSucceeded, service.unlock("Item1", token).getCommitResult());
+            assertEquals(ResourceAcquisitionCommandResult.UnlockFailed, service.unlock("Item1", token).getCommitResult());
+        }
+    }
+
+    @Test
+    public void testSharedLeasesAreRoutedToTheOwningShard() {
+        try (ShardedResourceAcquisitionService<String> service = createService(new TestScheduler(), ResourceAcquisitionMetrics.createDefault())) {
+            service.lockShared("User1", "Item1");
+            service.lockShared("User2", "Item1");
+            assertEquals(2, service.sharedHolderCount("Item1"));
+            assertEquals(ResourceAcquisitionCommandResult.LockFailed, service.commit(ResourceAcquisitionCommand.Lock, "User3", "Item1").getCommitResult());
+            assertEquals(ResourceAcquisitionCommandResult.UnlockSucceeded, service.unlockShared("User1", "Item1").getCommitResult());
+            assertEquals(1, service.sharedHolderCount("Item1"));
+        }
+    }
+
+    @Test
+    public void testLockEventsAreMergedAcrossShards() {
+        TestScheduler scheduler = new TestScheduler();
+        try (ShardedResourceAcquisitionService<String> service = createService(scheduler, ResourceAcquisitionMetrics.createDefault())) {
+            TestSubscriber<List<LockEvent<String>>> subscriber = service.lockEvents(scheduler, 16, BackpressureOverflowStrategy.ERROR).test();
+            for (int i = 0; i < 20; i++) {
+                service.commit(ResourceAcquisitionCommand.Lock, "User1", "Item" + i);
+            }
+            scheduler.triggerActions();
+
+            Set<String> resources = new HashSet<>();
+            subscriber.values().forEach(batch -> batch.forEach(event -> resources.add(event.getResource())));
+            assertEquals(20, resources.size());
+            assertTrue(subscriber.values().size() > 1);
+        }
+    }
+
+    @Test
+    public void testConstructorsAndClose() {
+        assertThrows(IllegalArgumentException.class, () -> new ShardedResourceAcquisitionService<String>(0));
+        try (var defaults = new ShardedResourceAcquisitionService<String>()) {
+            assertEquals(Runtime.getRuntime().availableProcessors(), defaults.getShardCount());
+            assertEquals(TimeSpan.Default, defaults.commit(ResourceAcquisitionCommand.Lock, "User1", "Item1").getResource().getStateTimeout());
+        }
+        TimeSpan timeout = new TimeSpan(5, TimeUnit.SECONDS);
+        try (var timed = new ShardedResourceAcquisitionService<String>(
+                new TestScheduler(), timeout, 2, MeterProvider.noop().get(ResourceAcquisitionMetrics.METER_NAME))) {
+            assertEquals(2, timed.getShardCount());
+            assertEquals(timeout, timed.commit(ResourceAcquisitionCommand.Lock, "User1", "Item1").getResource().getStateTimeout());
+        }
+    }
+}